@@ -67,15 +67,9 @@ public Agent loadAgent(String name, boolean isPunj)
     {
         try
         {
-            PunctualJudge punj = new PunctualJudge();
-            String classPath = agent.getClass().getProtectionDomain().getCodeSource().getLocation().getPath();
-            String className = agent.getClass().getName().replace(".", "/") + ".class";
-
-            byte[] byteClass = punj.instrumentClass(classPath + className);
-
-            Class c = punj.buildClass(byteClass, agent.getClass().getName());
-            agent = (Agent) c.newInstance();
-        } catch (IOException e)
+            // the agent's class, its superclasses and the classes they use are instrumented as they load
+            agent = (Agent) new PunctualJudge().loadClass(agent.getClass().getName()).newInstance();
+        } catch (ClassNotFoundException e)
         {
             System.err.println("Unknown error occurred while trying to instrument a class");
             e.printStackTrace();
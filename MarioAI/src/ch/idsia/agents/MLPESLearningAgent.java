@@ -77,9 +77,9 @@ public void learn()
         if (fitn > bestScore /*&& marioStatus == Environment.MARIO_STATUS_WIN*/)
         {
             bestScore = fitn;
-            fileName = "evolved-progress-" + name + gen + "-uid-" + GlobalOptions.getTimeStamp() + ".xml";
+            fileName = "evolved-progress-" + name + gen + "-uid-" + GlobalOptions.getTimeStamp() + ".woxb";
             final Agent a = (Agent) es.getBests()[0];
-            Easy.save(a, fileName);
+            Easy.saveBinary(a, fileName);
             learningTask.dumpFitnessEvaluation(bestScore, "fitnessImprovements-" + name + ".txt");
 
             System.out.println("new best:" + fitn);
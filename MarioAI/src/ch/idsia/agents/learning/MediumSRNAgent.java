@@ -31,6 +31,7 @@ import ch.idsia.agents.Agent;
 import ch.idsia.agents.controllers.BasicMarioAIAgent;
 import ch.idsia.benchmark.mario.environments.Environment;
 import ch.idsia.evolution.Evolvable;
+import ch.idsia.evolution.WeightsEvolvable;
 import ch.idsia.evolution.SRN;
 //import ch.idsia.benchmark.mario.environments.Environment;
 
@@ -40,7 +41,7 @@ import ch.idsia.evolution.SRN;
  * Date: Jun 17, 2009
  * Time: 2:50:34 PM
  */
-public class MediumSRNAgent extends BasicMarioAIAgent implements Agent, Evolvable
+public class MediumSRNAgent extends BasicMarioAIAgent implements Agent, WeightsEvolvable
 {
 
 private SRN srn;
@@ -80,6 +81,26 @@ public void mutate()
     srn.mutate();
 }
 
+public int getNumberOfWeights()
+{
+    return srn.getNumberOfWeights();
+}
+
+public void getWeights(double[] target, int offset)
+{
+    srn.getWeights(target, offset);
+}
+
+public void setWeights(double[] source, int offset)
+{
+    srn.setWeights(source, offset);
+}
+
+public double getMutationMagnitude()
+{
+    return srn.getMutationMagnitude();
+}
+
 public boolean[] getAction()
 {
     byte[][] scene = mergedObservation;
@@ -30,6 +30,7 @@ package ch.idsia.agents.learning;
 import ch.idsia.agents.Agent;
 import ch.idsia.benchmark.mario.environments.Environment;
 import ch.idsia.evolution.Evolvable;
+import ch.idsia.evolution.WeightsEvolvable;
 import ch.idsia.evolution.SRN;
 
 /**
@@ -38,7 +39,7 @@ import ch.idsia.evolution.SRN;
  * Date: May 24, 2009
  * Time: 11:24:54 PM
  */
-public class SRNAgent implements Agent, Evolvable
+public class SRNAgent implements Agent, WeightsEvolvable
 {
 
 private SRN srn;
@@ -116,6 +117,26 @@ public void mutate()
     srn.mutate();
 }
 
+public int getNumberOfWeights()
+{
+    return srn.getNumberOfWeights();
+}
+
+public void getWeights(double[] target, int offset)
+{
+    srn.getWeights(target, offset);
+}
+
+public void setWeights(double[] source, int offset)
+{
+    srn.setWeights(source, offset);
+}
+
+public double getMutationMagnitude()
+{
+    return srn.getMutationMagnitude();
+}
+
 public boolean[] getAction(Environment observation)
 {
     double[] inputs = new double[]{probe(-1, -1, levelScene), probe(0, -1, levelScene), probe(1, -1, levelScene),
@@ -30,6 +30,7 @@ package ch.idsia.agents.learning;
 import ch.idsia.agents.Agent;
 import ch.idsia.benchmark.mario.environments.Environment;
 import ch.idsia.evolution.Evolvable;
+import ch.idsia.evolution.WeightsEvolvable;
 import ch.idsia.evolution.MLP;
 
 /**
@@ -38,7 +39,7 @@ import ch.idsia.evolution.MLP;
  * Date: Apr 28, 2009
  * Time: 2:09:42 PM
  */
-public class SimpleMLPAgent implements Agent, Evolvable
+public class SimpleMLPAgent implements Agent, WeightsEvolvable
 {
 
 private MLP mlp;
@@ -135,6 +136,26 @@ public void setObservationDetails(final int rfWidth, final int rfHeight, final i
 public void mutate()
 { mlp.mutate(); }
 
+public int getNumberOfWeights()
+{
+    return mlp.getNumberOfWeights();
+}
+
+public void getWeights(double[] target, int offset)
+{
+    mlp.getWeights(target, offset);
+}
+
+public void setWeights(double[] source, int offset)
+{
+    mlp.setWeights(source, offset);
+}
+
+public double getMutationMagnitude()
+{
+    return mlp.getMutationMagnitude();
+}
+
 public boolean[] getAction()
 {
 //        double[] inputs = new double[]{probe(-1, -1, levelScene), probe(0, -1, levelScene), probe(1, -1, levelScene),
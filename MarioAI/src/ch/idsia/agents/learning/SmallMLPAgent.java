@@ -31,6 +31,7 @@ import ch.idsia.agents.Agent;
 import ch.idsia.agents.controllers.BasicMarioAIAgent;
 import ch.idsia.benchmark.mario.environments.Environment;
 import ch.idsia.evolution.Evolvable;
+import ch.idsia.evolution.WeightsEvolvable;
 import ch.idsia.evolution.MLP;
 
 /**
@@ -39,7 +40,7 @@ import ch.idsia.evolution.MLP;
  * Date: Apr 28, 2009
  * Time: 2:09:42 PM
  */
-public class SmallMLPAgent extends BasicMarioAIAgent implements Agent, Evolvable
+public class SmallMLPAgent extends BasicMarioAIAgent implements Agent, WeightsEvolvable
 {
 
 private MLP mlp;
@@ -79,6 +80,26 @@ public void mutate()
     mlp.mutate();
 }
 
+public int getNumberOfWeights()
+{
+    return mlp.getNumberOfWeights();
+}
+
+public void getWeights(double[] target, int offset)
+{
+    mlp.getWeights(target, offset);
+}
+
+public void setWeights(double[] source, int offset)
+{
+    mlp.setWeights(source, offset);
+}
+
+public double getMutationMagnitude()
+{
+    return mlp.getMutationMagnitude();
+}
+
 public boolean[] getAction()
 {
 //        byte[][] scene = observation.getLevelSceneObservation(/*1*/);
@@ -30,6 +30,7 @@ package ch.idsia.agents.learning;
 import ch.idsia.agents.Agent;
 import ch.idsia.agents.controllers.BasicMarioAIAgent;
 import ch.idsia.evolution.Evolvable;
+import ch.idsia.evolution.WeightsEvolvable;
 import ch.idsia.evolution.SRN;
 //import ch.idsia.benchmark.mario.environments.Environment;
 
@@ -39,7 +40,7 @@ import ch.idsia.evolution.SRN;
  * Date: Jun 16, 2009
  * Time: 5:26:58 PM
  */
-public class SmallSRNAgent extends BasicMarioAIAgent implements Agent, Evolvable
+public class SmallSRNAgent extends BasicMarioAIAgent implements Agent, WeightsEvolvable
 {
 
 private SRN srn;
@@ -79,6 +80,26 @@ public void mutate()
     srn.mutate();
 }
 
+public int getNumberOfWeights()
+{
+    return srn.getNumberOfWeights();
+}
+
+public void getWeights(double[] target, int offset)
+{
+    srn.getWeights(target, offset);
+}
+
+public void setWeights(double[] source, int offset)
+{
+    srn.setWeights(source, offset);
+}
+
+public double getMutationMagnitude()
+{
+    return srn.getMutationMagnitude();
+}
+
 public boolean[] getAction()
 {
 //        byte[][] scene = observation.getLevelSceneObservation(/*1*/);
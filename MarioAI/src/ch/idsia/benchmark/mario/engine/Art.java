@@ -53,6 +53,16 @@ public static Image[][] princess;
 //    public static Image titleScreen;
 //    final static String curDir = System.getProperty("user.dir");
 
+/**
+ * Loads the sheets as plain <code>BufferedImage</code>s, without a display; does nothing if they are loaded
+ * already. Used by <code>SoftwareRenderer</code>.
+ */
+public static synchronized void initHeadless()
+{
+    if (level == null)
+        init(null);
+}
+
 public static void init(GraphicsConfiguration gc)
 {
     try
@@ -89,7 +99,7 @@ private static Image getImage(GraphicsConfiguration gc, String imageName) throws
     catch (Exception e) { e.printStackTrace(); }
 
     assert source != null;
-    Image image = gc.createCompatibleImage(source.getWidth(), source.getHeight(), Transparency.BITMASK);
+    Image image = createImage(gc, source.getWidth(), source.getHeight());
     Graphics2D g = (Graphics2D) image.getGraphics();
     g.setComposite(AlphaComposite.Src);
     g.drawImage(source, 0, 0, null);
@@ -97,6 +107,13 @@ private static Image getImage(GraphicsConfiguration gc, String imageName) throws
     return image;
 }
 
+private static Image createImage(GraphicsConfiguration gc, int width, int height)
+{
+    if (gc == null)
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    return gc.createCompatibleImage(width, height, Transparency.BITMASK);
+}
+
 private static Image[][] cutImage(GraphicsConfiguration gc, String imageName, int xSize, int ySize) throws IOException
 {
     Image source = getImage(gc, imageName);
@@ -105,7 +122,7 @@ private static Image[][] cutImage(GraphicsConfiguration gc, String imageName, in
     {
         for (int y = 0; y < source.getHeight(null) / ySize; y++)
         {
-            Image image = gc.createCompatibleImage(xSize, ySize, Transparency.BITMASK);
+            Image image = createImage(gc, xSize, ySize);
             Graphics2D g = (Graphics2D) image.getGraphics();
             g.setComposite(AlphaComposite.Src);
             g.drawImage(source, -x * xSize, -y * ySize, null);
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.benchmark.mario.engine;
+
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Everything <code>MarioVisualComponent</code> needs to draw one frame, copied out of the simulation:
+ * camera, the visible window of tiles, the images of all sprites with their positions, and the heads-up
+ * display values. <code>LevelScene.tick</code> fills a snapshot and publishes it through a
+ * <code>FrameChannel</code>; from then on it does not change, and only the thread that draws it reads it,
+ * until it gives the snapshot back for reuse.
+ */
+public final class DrawSnapshot
+{
+int tick;
+int xCam, yCam;
+float marioX, marioY;
+boolean[] keys = new boolean[0];
+
+// heads-up display
+int difficulty, type, levelLength, levelHeight, timeLeft, intermediateReward;
+long seed;
+int killsTotal, killsByFire, killsByShell, killsByStomp;
+int coins, mushrooms, flowers;
+boolean isRecording, isReplaying;
+
+// visible tiles: blocks[(x - tileX) * tileRows + (y - tileY)], the same for bump offsets
+int tileX, tileY, tileColumns, tileRows;
+byte[] blocks = new byte[0];
+byte[] blockData = new byte[0];
+
+// sprite images in drawing order
+int images;
+Image[] image = new Image[64];
+int[] imageX = new int[64], imageY = new int[64], imageW = new int[64], imageH = new int[64];
+byte[] imageLayer = new byte[64];
+
+// sprite kinds, positions and image corners for the label and receptive field overlays
+int sprites;
+byte[] spriteKind = new byte[16];
+int[] spriteX = new int[16], spriteY = new int[16], spritePixelX = new int[16], spritePixelY = new int[16];
+
+Object scene; // the renderers of the level this frame belongs to
+
+public int getTick()
+{
+    return tick;
+}
+
+public int getCameraX()
+{
+    return xCam;
+}
+
+public int getCameraY()
+{
+    return yCam;
+}
+
+public int getSpriteCount()
+{
+    return sprites;
+}
+
+public byte getSpriteKind(int i)
+{
+    return spriteKind[i];
+}
+
+/**
+ * Adds an image to the frame; a negative width or height flips it, as in <code>Graphics.drawImage</code>.
+ */
+public void addImage(Image img, int x, int y, int w, int h, int layer)
+{
+    if (images == image.length)
+    {
+        final int capacity = images * 2;
+        image = Arrays.copyOf(image, capacity);
+        imageX = Arrays.copyOf(imageX, capacity);
+        imageY = Arrays.copyOf(imageY, capacity);
+        imageW = Arrays.copyOf(imageW, capacity);
+        imageH = Arrays.copyOf(imageH, capacity);
+        imageLayer = Arrays.copyOf(imageLayer, capacity);
+    }
+    image[images] = img;
+    imageX[images] = x;
+    imageY[images] = y;
+    imageW[images] = w;
+    imageH[images] = h;
+    imageLayer[images] = (byte) layer;
+    images++;
+}
+
+public void addSprite(byte kind, int x, int y, int xPixel, int yPixel)
+{
+    if (sprites == spriteKind.length)
+    {
+        final int capacity = sprites * 2;
+        spriteKind = Arrays.copyOf(spriteKind, capacity);
+        spriteX = Arrays.copyOf(spriteX, capacity);
+        spriteY = Arrays.copyOf(spriteY, capacity);
+        spritePixelX = Arrays.copyOf(spritePixelX, capacity);
+        spritePixelY = Arrays.copyOf(spritePixelY, capacity);
+    }
+    spriteKind[sprites] = kind;
+    spriteX[sprites] = x;
+    spriteY[sprites] = y;
+    spritePixelX[sprites] = xPixel;
+    spritePixelY[sprites] = yPixel;
+    sprites++;
+}
+
+void clear()
+{
+    // drop the image references so that a parked snapshot does not keep old sheets alive
+    Arrays.fill(image, 0, images, null);
+    images = 0;
+    sprites = 0;
+    scene = null;
+}
+
+void setTileWindow(int x, int y, int columns, int rows)
+{
+    tileX = x;
+    tileY = y;
+    tileColumns = columns;
+    tileRows = rows;
+    if (blocks.length < columns * rows)
+    {
+        blocks = new byte[columns * rows];
+        blockData = new byte[columns * rows];
+    }
+}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package ch.idsia.benchmark.mario.engine;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands frames from the simulation to whoever draws them. <code>LevelScene.tick</code> fills a
+ * <code>DrawSnapshot</code> and publishes it; from then on the simulation does not touch it. The consumer takes
+ * the latest frame, draws it and releases it for reuse. There is one pending slot: a frame the consumer has not
+ * taken when the next one is published is dropped, so publishing never waits. In practice three snapshots
+ * circulate: one being filled, one waiting and one being drawn.
+ */
+public final class FrameChannel
+{
+private final AtomicReference<DrawSnapshot> pending = new AtomicReference<DrawSnapshot>();
+private final Queue<DrawSnapshot> free = new ConcurrentLinkedQueue<DrawSnapshot>();
+private volatile Thread consumer;
+private volatile Object scene;
+private volatile long droppedFrames;
+
+/**
+ * A cleared snapshot to fill. Simulation thread only.
+ */
+public DrawSnapshot acquire()
+{
+    DrawSnapshot frame = free.poll();
+    return frame != null ? frame : new DrawSnapshot();
+}
+
+/**
+ * Makes <code>frame</code> the pending frame and wakes the consumer. Simulation thread only.
+ */
+public void publish(DrawSnapshot frame)
+{
+    frame.scene = scene;
+    DrawSnapshot previous = pending.getAndSet(frame);
+    if (previous != null)
+    {
+        // the consumer has not picked up the last frame yet: skip it rather than wait
+        ++droppedFrames;
+        release(previous);
+    }
+    Thread thread = consumer;
+    if (thread != null)
+        LockSupport.unpark(thread);
+}
+
+/**
+ * @return the latest published frame, or null if there is none since the last call
+ */
+public DrawSnapshot poll()
+{
+    return pending.getAndSet(null);
+}
+
+/**
+ * Gives a frame back once it has been drawn.
+ */
+public void release(DrawSnapshot frame)
+{
+    frame.clear();
+    free.offer(frame);
+}
+
+/**
+ * Drops the pending frame, e.g. when a new level starts.
+ */
+public void clear()
+{
+    DrawSnapshot frame = poll();
+    if (frame != null)
+        release(frame);
+}
+
+/**
+ * @param thread woken whenever a frame is published, or null
+ */
+public void setConsumer(Thread thread)
+{
+    consumer = thread;
+}
+
+/**
+ * @param scene whatever the consumer needs to draw the frames of the current level; published frames carry it
+ */
+public void setScene(Object scene)
+{
+    this.scene = scene;
+}
+
+/**
+ * Number of frames replaced before they were taken.
+ */
+public long getDroppedFrames()
+{
+    return droppedFrames;
+}
+}
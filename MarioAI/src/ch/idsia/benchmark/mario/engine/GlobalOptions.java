@@ -47,6 +47,8 @@ public static int MaxFPS = 100;
 public static boolean areFrozenCreatures = false;
 
 public static boolean isVisualization = true;
+// draw frames on a separate thread, paced there, so that neither the display nor the frame rate slows the simulation down
+public static boolean isThreadedRendering = true;
 public static boolean isGameplayStopped = false;
 public static boolean isFly = false;
 
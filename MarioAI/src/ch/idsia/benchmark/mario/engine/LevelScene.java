@@ -33,12 +33,12 @@ import ch.idsia.benchmark.mario.engine.level.SpriteTemplate;
 import ch.idsia.benchmark.mario.engine.sprites.*;
 import ch.idsia.benchmark.mario.environments.Environment;
 import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.OptionsSnapshot;
 
 import java.awt.*;
 import java.io.DataInputStream;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -53,6 +53,8 @@ public static final int cellSize = 16;
 final public List<Sprite> sprites = new ArrayList<Sprite>();
 final private List<Sprite> spritesToAdd = new ArrayList<Sprite>();
 final private List<Sprite> spritesToRemove = new ArrayList<Sprite>();
+final private CosmeticSprites cosmeticSprites = new CosmeticSprites();
+private boolean cosmetics = true;
 
 public Level level;
 public Mario mario;
@@ -99,6 +101,9 @@ public static int killedCreaturesByShell;
 
 private Replayer replayer;
 
+// where each tick publishes what it looks like, when it is watched
+private FrameChannel frameChannel;
+
 //    private int[] args; //passed to reset method. ATTENTION: not cloned.
 
 public LevelScene()
@@ -175,7 +180,10 @@ public void checkFireballCollide(Fireball fireball)
 public void tick()
 {
     if (GlobalOptions.isGameplayStopped)
+    {
+        publishFrame();
         return;
+    }
 
     timeLeft--;
     if (timeLeft == 0)
@@ -257,10 +265,11 @@ public void tick()
                         if ((tickCount - x * 2) % 100 == 0)
                         {
 //                                    xCannon = x;
-                            for (int i = 0; i < 8; i++)
-                            {
-                                addSprite(new Sparkle(x * cellSize + 8, y * cellSize + (int) (Math.random() * cellSize), (float) Math.random() * dir, 0, 0, 1, 5));
-                            }
+                            if (cosmetics)
+                                for (int i = 0; i < 8; i++)
+                                {
+                                    addSparkle(x * cellSize + 8, y * cellSize + (int) (Math.random() * cellSize), (float) Math.random() * dir, 0, 0, 1, 5);
+                                }
                             addSprite(new BulletBill(this, x * cellSize + 8 + dir * 8, y * cellSize + 15, dir));
 
 //                                    hasShotCannon = true;
@@ -321,8 +330,92 @@ public void tick()
 
     sprites.addAll(0, spritesToAdd);
     sprites.removeAll(spritesToRemove);
+    for (Sprite sprite : spritesToRemove)
+        cosmeticSprites.recycle(sprite);
     spritesToAdd.clear();
     spritesToRemove.clear();
+
+    publishFrame();
+}
+
+/**
+ * @param frameChannel the channel a snapshot of every tick goes to while <code>GlobalOptions.isVisualization</code>
+ * is on, or null
+ */
+public void setFrameChannel(FrameChannel frameChannel)
+{
+    this.frameChannel = frameChannel;
+}
+
+/**
+ * Copies the part of the game state needed for one frame and publishes it.
+ */
+private void publishFrame()
+{
+    if (frameChannel == null || !GlobalOptions.isVisualization)
+        return;
+    final DrawSnapshot frame = frameChannel.acquire();
+
+    int xCam = (int) (mario.xOld + (mario.x - mario.xOld)) - 160;
+    int yCam = (int) (mario.yOld + (mario.y - mario.yOld)) - 120;
+    if (!GlobalOptions.isCameraCenteredOnMario)
+    {
+        if (xCam < 0) xCam = 0;
+        if (yCam < 0) yCam = 0;
+        if (xCam > level.length * cellSize - GlobalOptions.VISUAL_COMPONENT_WIDTH)
+            xCam = level.length * cellSize - GlobalOptions.VISUAL_COMPONENT_WIDTH;
+        if (yCam > level.height * cellSize - GlobalOptions.VISUAL_COMPONENT_HEIGHT)
+            yCam = level.height * cellSize - GlobalOptions.VISUAL_COMPONENT_HEIGHT;
+    }
+
+    frame.tick = tickCount;
+    frame.xCam = xCam;
+    frame.yCam = yCam;
+    frame.marioX = mario.x;
+    frame.marioY = mario.y;
+
+    if (mario.keys == null)
+        frame.keys = null;
+    else
+    {
+        if (frame.keys == null || frame.keys.length != mario.keys.length)
+            frame.keys = new boolean[mario.keys.length];
+        System.arraycopy(mario.keys, 0, frame.keys, 0, mario.keys.length);
+    }
+
+    frame.difficulty = levelDifficulty;
+    frame.seed = levelSeed;
+    frame.type = levelType;
+    frame.levelLength = levelLength;
+    frame.levelHeight = levelHeight;
+    frame.timeLeft = getTimeLeft();
+    frame.intermediateReward = getBonusPoints();
+    frame.killsTotal = killedCreaturesTotal;
+    frame.killsByFire = killedCreaturesByFireBall;
+    frame.killsByShell = killedCreaturesByShell;
+    frame.killsByStomp = killedCreaturesByStomp;
+    frame.coins = Mario.coins;
+    frame.mushrooms = Mario.mushroomsDevoured;
+    frame.flowers = Mario.flowersDevoured;
+    frame.isRecording = GlobalOptions.isRecording;
+    frame.isReplaying = GlobalOptions.isReplaying;
+
+    // the same tiles LevelRenderer.render visits, plus one column and row for the scrolled-in edge
+    final int x0 = xCam / cellSize, y0 = yCam / cellSize;
+    final int columns = GlobalOptions.VISUAL_COMPONENT_WIDTH / cellSize + 2;
+    final int rows = GlobalOptions.VISUAL_COMPONENT_HEIGHT / cellSize + 2;
+    frame.setTileWindow(x0, y0, columns, rows);
+    for (int x = 0, i = 0; x < columns; x++)
+        for (int y = 0; y < rows; y++, i++)
+        {
+            frame.blocks[i] = level.getBlock(x0 + x, y0 + y);
+            frame.blockData[i] = level.getBlockData(x0 + x, y0 + y);
+        }
+
+    for (Sprite sprite : sprites)
+        sprite.snapshot(frame);
+
+    frameChannel.publish(frame);
 }
 
 public void addSprite(Sprite sprite)
@@ -336,6 +429,38 @@ public void removeSprite(Sprite sprite)
     spritesToRemove.add(sprite);
 }
 
+/**
+ * @return whether sparkles, brick particles and coin animations are created. They never touch the game, so
+ * without them (option -cos off) every episode plays out the same, only less is allocated and ticked.
+ * Callers check this before drawing the random numbers of an effect.
+ * <p/>
+ * Observations are those of the baseline with cosmetics on. With them off, the one difference is that
+ * <code>getEnemiesObservationZ</code> no longer has the empty cells a cosmetic sprite wrote over an enemy
+ * or, in the merged observation, over a tile.
+ */
+public boolean hasCosmetics()
+{
+    return cosmetics;
+}
+
+public void addSparkle(int x, int y, float xa, float ya, int xPic, int yPic, int timeSpan)
+{
+    if (cosmetics)
+        addSprite(cosmeticSprites.sparkle(x, y, xa, ya, xPic, yPic, timeSpan));
+}
+
+public void addParticle(int x, int y, float xa, float ya)
+{
+    if (cosmetics)
+        addSprite(cosmeticSprites.particle(x, y, xa, ya));
+}
+
+public void addCoinAnim(int xTile, int yTile)
+{
+    if (cosmetics)
+        addSprite(cosmeticSprites.coinAnim(this, xTile, yTile));
+}
+
 public void bump(int x, int y, boolean canBreakBricks)
 {
     byte block = level.getBlock(x, y);
@@ -376,7 +501,7 @@ public void bump(int x, int y, boolean canBreakBricks)
         } else
         {
             Mario.gainCoin();
-            addSprite(new CoinAnim(x, y));
+            addCoinAnim(x, y);
         }
     }
 
@@ -386,9 +511,10 @@ public void bump(int x, int y, boolean canBreakBricks)
         if (canBreakBricks)
         {
             level.setBlock(x, y, (byte) 0);
-            for (int xx = 0; xx < 2; xx++)
-                for (int yy = 0; yy < 2; yy++)
-                    addSprite(new Particle(x * cellSize + xx * 8 + 4, y * cellSize + yy * 8 + 4, (xx * 2 - 1) * 4, (yy * 2 - 1) * 4 - 8));
+            if (cosmetics)
+                for (int xx = 0; xx < 2; xx++)
+                    for (int yy = 0; yy < 2; yy++)
+                        addParticle(x * cellSize + xx * 8 + 4, y * cellSize + yy * 8 + 4, (xx * 2 - 1) * 4, (yy * 2 - 1) * 4 - 8);
         } else
         {
             level.setBlockData(x, y, (byte) 4);
@@ -403,7 +529,7 @@ public void bumpInto(int x, int y)
     {
         Mario.gainCoin();
         level.setBlock(x, y, (byte) 0);
-        addSprite(new CoinAnim(x, y + 1));
+        addCoinAnim(x, y + 1);
     }
 
     for (Sprite sprite : sprites)
@@ -513,21 +639,23 @@ public void reset(MarioAIOptions marioAIOptions)
 //    this.levelType = marioAIOptions.getLevelType();
 //        System.out.println("levelType = " + levelType);
 
+    OptionsSnapshot options = marioAIOptions.getSnapshot();
 
-    GlobalOptions.FPS = marioAIOptions.getFPS();
+    GlobalOptions.FPS = options.getFPS();
 //        System.out.println("GlobalOptions.FPS = " + GlobalOptions.FPS);
-    GlobalOptions.isPowerRestoration = marioAIOptions.isPowerRestoration();
+    GlobalOptions.isPowerRestoration = options.isPowerRestoration();
 //        System.out.println("GlobalOptions.isPowerRestoration = " + GlobalOptions.isPowerRestoration);
 //    GlobalOptions.isPauseWorld = marioAIOptions.isPauseWorld();
-    GlobalOptions.areFrozenCreatures = marioAIOptions.isFrozenCreatures();
+    GlobalOptions.areFrozenCreatures = options.isFrozenCreatures();
 //        System.out.println("GlobalOptions = " + GlobalOptions.isPauseWorld);
 //        GlobalOptions.isTimer = marioAIOptions.isTimer();
 //        System.out.println("GlobalOptions.isTimer = " + GlobalOptions.isTimer);
 //        isToolsConfigurator = setUpOptions[11] == 1;
-    this.setTimeLimit(marioAIOptions.getTimeLimit());
+    this.setTimeLimit(options.getTimeLimit());
 //        System.out.println("this.getTimeLimit() = " + this.getTimeLimit());
 //        this.isViewAlwaysOnTop() ? 1 : 0, setUpOptions[13]
-    GlobalOptions.isVisualization = marioAIOptions.isVisualization();
+    GlobalOptions.isVisualization = options.isVisualization();
+    cosmetics = options.isCosmetics();
 //        System.out.println("visualization = " + visualization);
 
     killedCreaturesTotal = 0;
@@ -535,8 +663,8 @@ public void reset(MarioAIOptions marioAIOptions)
     killedCreaturesByStomp = 0;
     killedCreaturesByShell = 0;
 
-    marioInitialPos = marioAIOptions.getMarioInitialPos();
-    greenMushroomMode = marioAIOptions.getGreenMushroomMode();
+    marioInitialPos = options.getMarioInitialPos();
+    greenMushroomMode = options.getGreenMushroomMode();
 
     if (replayer != null)
     {
@@ -559,12 +687,12 @@ public void reset(MarioAIOptions marioAIOptions)
     } else
         level = LevelGenerator.createLevel(marioAIOptions);
 
-    String fileName = marioAIOptions.getLevelFileName();
+    String fileName = options.getLevelFileName();
     if (!fileName.equals(""))
     {
         try
         {
-            Level.save(level, new ObjectOutputStream(new FileOutputStream(fileName)));
+            Level.save(level, new File(fileName));
         } catch (IOException e)
         {
             System.err.println("[Mario AI Exception] : Cannot write to file " + fileName);
@@ -578,13 +706,15 @@ public void reset(MarioAIOptions marioAIOptions)
     this.levelDifficulty = level.difficulty;
 
     Sprite.spriteContext = this;
+    for (Sprite sprite : sprites)
+        cosmeticSprites.recycle(sprite);
     sprites.clear();
     this.width = GlobalOptions.VISUAL_COMPONENT_WIDTH;
     this.height = GlobalOptions.VISUAL_COMPONENT_HEIGHT;
 
-    Sprite.setCreaturesGravity(marioAIOptions.getCreaturesGravity());
-    Sprite.setCreaturesWind(marioAIOptions.getWind());
-    Sprite.setCreaturesIce(marioAIOptions.getIce());
+    Sprite.setCreaturesGravity(options.getCreaturesGravity());
+    Sprite.setCreaturesWind(options.getWind());
+    Sprite.setCreaturesIce(options.getIce());
     Mario.resetStatic(marioAIOptions);
 
     bonusPoints = -1;
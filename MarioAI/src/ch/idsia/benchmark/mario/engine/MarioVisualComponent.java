@@ -42,8 +42,11 @@ import ch.idsia.tools.Scale2x;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyAdapter;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.VolatileImage;
 import java.text.DecimalFormat;
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -58,13 +61,15 @@ private CheaterKeyboardAgent cheatAgent = null;
 
 public int width, height;
 
-public VolatileImage thisVolatileImage;
-public Graphics thisVolatileImageGraphics;
-public Graphics thisGraphics;
-
 private MarioEnvironment marioEnvironment;
-private LevelRenderer layer;
-private BgRenderer[] bgLayer = new BgRenderer[2];
+private Scene scene;
+
+// LevelScene publishes its frames here; they are drawn by renderThread, or in tick when frames are not threaded
+private final FrameChannel frameChannel = new FrameChannel();
+private volatile RenderThread renderThread;
+private FrameDrawer synchronousDrawer;
+// drawers make their image and graphics again when this changes
+private volatile int graphicsVersion;
 
 private Mario mario;
 private Level level;
@@ -77,15 +82,13 @@ private static String[] LEVEL_TYPES = {"Overground(0)",
         "Castle(2)"};
 
 private long tm = System.currentTimeMillis();
-private long tm0;
 int delay;
 private KeyAdapter prevHumanKeyBoardAgent;
-private String agentNameStr;
+private boolean humanPlayer;
+private volatile String agentNameStr;
 private GameViewer gameViewer = null;
 private static MarioVisualComponent marioVisualComponent = null;
 
-private Scale2x scale2x = new Scale2x(320, 240);
-
 private MarioVisualComponent(MarioAIOptions marioAIOptions, MarioEnvironment marioEnvironment)
 {
     this.marioEnvironment = marioEnvironment;
@@ -138,7 +141,7 @@ public static MarioVisualComponent getInstance(MarioAIOptions marioAIOptions, Ma
 
 private static JFrame marioComponentFrame = null;
 
-public void CreateMarioComponentFrame(MarioVisualComponent m)
+public void CreateMarioComponentFrame(final MarioVisualComponent m)
 {
     if (marioComponentFrame == null)
     {
@@ -148,6 +151,14 @@ public void CreateMarioComponentFrame(MarioVisualComponent m)
         marioComponentFrame.pack();
         marioComponentFrame.setResizable(false);
         marioComponentFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        marioComponentFrame.addWindowListener(new WindowAdapter()
+        {
+            public void windowClosing(WindowEvent e)
+            {
+                // the render thread has to let go of the window before it goes; the simulation's own drawer is left to close
+                m.pause();
+            }
+        });
     }
     marioComponentFrame.setVisible(true);
     m.postInitGraphics();
@@ -165,156 +176,265 @@ public void setAlwaysOnTop(boolean b)
 
 public void reset()
 {
+    // frames of the last level are neither drawn nor drawn into any more
+    stopRenderThread();
+    frameChannel.clear();
     adjustFPS();
     tm = System.currentTimeMillis();
-    this.tm0 = tm;
 }
 
-public void tick()
+/**
+ * Stops drawing while visualization is switched off, as ReplayTask does between the intervals it shows, so that
+ * no stale frame is drawn and no thread waits for frames. The next tick starts again.
+ */
+public void pause()
 {
-//    this.render(thisVolatileImageGraphics, CheaterKeyboardAgent.isObserveLevel ? level.length : 0);
-    this.render(thisVolatileImageGraphics);
-
-    String msg = "Agent: " + this.agentNameStr;
-    drawStringDropShadow(thisVolatileImageGraphics, msg, 0, 6, 5);
-
-    msg = "PRESSED KEYS: ";
-    drawStringDropShadow(thisVolatileImageGraphics, msg, 0, 7, 6);
+    stopRenderThread();
+    frameChannel.clear();
+}
 
-    msg = "";
-    if (mario.keys != null)
-    {
-        for (int i = 0; i < Environment.numberOfKeys; ++i)
-            msg += (mario.keys[i]) ? LevelScene.keysStr[i] : "    ";
-    } else
-        msg = "NULL";
-    drawString(thisVolatileImageGraphics, msg, 107, 61, 1);
-    if (mario.keys[Mario.KEY_SPEED])
-        thisVolatileImageGraphics.drawImage(Art.particles[0][3], 234, 59, 10, 10, null);
+/**
+ * Stops drawing and releases the graphics; the next tick starts again. Simulation thread only.
+ */
+public void close()
+{
+    stopRenderThread();
+    disposeSynchronousDrawer();
+    frameChannel.clear();
+}
 
+public void tick()
+{
     if (mario.cheatKeys[CheaterKeyboardAgent.CHEAT_KEY_WIN])
         mario.win();
 
-    if (!this.hasFocus() && (tm - tm0) / (delay + 1) % 42 < 20)
+    if (GlobalOptions.isThreadedRendering && !humanPlayer && !GlobalOptions.isReplaying)
     {
-        String msgClick = "CLICK TO PLAY";
-        drawString(thisVolatileImageGraphics, msgClick, 160 - msgClick.length() * 4, 110, 2);
-//            drawString(thisVolatileImageGraphics, msgClick, 160 - msgClick.length() * 4, 110, 7);
-    }
-//        thisVolatileImageGraphics.setColor(Color.DARK_GRAY);
-    drawStringDropShadow(thisVolatileImageGraphics, "FPS: ", 33, 2, 7);
-    drawStringDropShadow(thisVolatileImageGraphics, ((GlobalOptions.FPS > 99) ? "\\infty" : "  " + GlobalOptions.FPS.toString()), 33, 3, 7);
-
-//        msg = totalNumberOfTrials == -2 ? "" : currentTrial + "(" + ((totalNumberOfTrials == -1) ? "\\infty" : totalNumberOfTrials) + ")";
-
-//        drawStringDropShadow(thisVolatileImageGraphics, "Trial:", 33, 4, 7);
-//        drawStringDropShadow(thisVolatileImageGraphics, msg, 33, 5, 7);
-
-    if (GlobalOptions.isScale2x)
-    {
-        //TODO: handle this (what?)
-        thisGraphics.drawImage(scale2x.scale(thisVolatileImage), 0, 0, null);
+        if (renderThread == null)
+        {
+            disposeSynchronousDrawer();
+            renderThread = new RenderThread(frameChannel, new FrameDrawer(), delay);
+            renderThread.start();
+        }
     } else
     {
-        thisGraphics.drawImage(thisVolatileImage, 0, 0, null);
+        // a person playing or watching a replay needs the game at the frame rate: draw here and wait, as before
+        stopRenderThread();
+        DrawSnapshot frame = frameChannel.poll();
+        if (frame != null)
+        {
+            if (synchronousDrawer == null)
+                synchronousDrawer = new FrameDrawer();
+            synchronousDrawer.draw(frame);
+            frameChannel.release(frame);
+        }
+        // Delay depending on how far we are behind.
+        if (delay > 0)
+        {
+            try
+            {
+                tm += delay;
+                Thread.sleep(Math.max(0, tm - System.currentTimeMillis()));
+            } catch (InterruptedException ignored) {}
+        }
     }
 
-//    thisGraphics.drawImage(thisVolatileImage, 0, 0, null);
     if (this.gameViewer != null)
         this.gameViewer.tick();
-    // Delay depending on how far we are behind.
-    if (delay > 0)
+}
+
+/**
+ * The channel the <code>LevelScene</code> on display publishes its frames to.
+ */
+public FrameChannel getFrameChannel()
+{
+    return frameChannel;
+}
+
+/**
+ * Number of frames the simulation replaced before they were drawn.
+ */
+public long getDroppedFrames()
+{
+    return frameChannel.getDroppedFrames();
+}
+
+private void stopRenderThread()
+{
+    RenderThread thread = renderThread;
+    if (thread == null)
+        return;
+    renderThread = null;
+    thread.shutdown();
+}
+
+private void disposeSynchronousDrawer()
+{
+    if (synchronousDrawer != null)
     {
-//            System.out.println("delay = " + delay);
-        try
-        {
-            tm += delay;
-            Thread.sleep(Math.max(0, tm - System.currentTimeMillis()));
-        } catch (InterruptedException ignored) {}
+        synchronousDrawer.dispose();
+        synchronousDrawer = null;
     }
 }
 
-private int recordIndicator = 20;
-
-public void render(Graphics g)
+/**
+ * Draws frames onto the component through an image and graphics of its own, so that it never shares them with
+ * another thread. Used by one thread at a time: the render thread, or the simulation thread when frames are not
+ * threaded.
+ */
+private final class FrameDrawer implements RenderThread.Drawer
 {
-    int xCam = (int) (mario.xOld + (mario.x - mario.xOld)) - 160;
-    int yCam = (int) (mario.yOld + (mario.y - mario.yOld)) - 120;
+    private VolatileImage image;
+    private Graphics imageGraphics;
+    private Graphics screen;
+    private int version;
+    private final Scale2x scale2x = new Scale2x(320, 240);
 
-    if (GlobalOptions.isCameraCenteredOnMario)
+    public void draw(DrawSnapshot frame)
     {
-    } else
+        if (image == null || version != graphicsVersion || image.validate(graphicsConfiguration) == VolatileImage.IMAGE_INCOMPATIBLE)
+            createGraphics();
+        if (imageGraphics == null || screen == null)
+            return; // not on screen yet
+        final Graphics g = imageGraphics;
+        render(g, frame);
+
+        String msg = "Agent: " + agentNameStr;
+        drawStringDropShadow(g, msg, 0, 6, 5);
+
+        msg = "PRESSED KEYS: ";
+        drawStringDropShadow(g, msg, 0, 7, 6);
+
+        msg = "";
+        if (frame.keys != null)
+        {
+            for (int i = 0; i < Environment.numberOfKeys; ++i)
+                msg += (frame.keys[i]) ? LevelScene.keysStr[i] : "    ";
+        } else
+            msg = "NULL";
+        drawString(g, msg, 107, 61, 1);
+        if (frame.keys != null && frame.keys[Mario.KEY_SPEED])
+            g.drawImage(Art.particles[0][3], 234, 59, 10, 10, null);
+
+        if (!hasFocus() && frame.tick % 42 < 20)
+        {
+            String msgClick = "CLICK TO PLAY";
+            drawString(g, msgClick, 160 - msgClick.length() * 4, 110, 2);
+        }
+        drawStringDropShadow(g, "FPS: ", 33, 2, 7);
+        drawStringDropShadow(g, ((GlobalOptions.FPS > 99) ? "\\infty" : "  " + GlobalOptions.FPS.toString()), 33, 3, 7);
+
+        if (GlobalOptions.isScale2x)
+        {
+            //TODO: handle this (what?)
+            screen.drawImage(scale2x.scale(image), 0, 0, null);
+        } else
+        {
+            screen.drawImage(image, 0, 0, null);
+        }
+    }
+
+    private void createGraphics()
     {
-        //int xCam = (int) (xCamO + (this.xCam - xCamO) * cameraOffSet);
-        //        int yCam = (int) (yCamO + (this.yCam - yCamO) * cameraOffSet);
-        if (xCam < 0) xCam = 0;
-        if (yCam < 0) yCam = 0;
-        if (xCam > level.length * LevelScene.cellSize - GlobalOptions.VISUAL_COMPONENT_WIDTH)
-            xCam = level.length * LevelScene.cellSize - GlobalOptions.VISUAL_COMPONENT_WIDTH;
-        if (yCam > level.height * LevelScene.cellSize - GlobalOptions.VISUAL_COMPONENT_HEIGHT)
-            yCam = level.height * LevelScene.cellSize - GlobalOptions.VISUAL_COMPONENT_HEIGHT;
+        dispose();
+        version = graphicsVersion;
+        image = createVolatileImage(GlobalOptions.VISUAL_COMPONENT_WIDTH, GlobalOptions.VISUAL_COMPONENT_HEIGHT);
+        if (image != null)
+            imageGraphics = image.getGraphics();
+        screen = getGraphics();
     }
-//          g.drawImage(Art.background, 0, 0, null);
 
-    for (int i = 0; i < bgLayer.length; i++)
+    public void dispose()
     {
-        bgLayer[i].setCam(xCam, yCam);
-        bgLayer[i].render(g); //levelScene.
+        if (imageGraphics != null)
+            imageGraphics.dispose();
+        if (screen != null)
+            screen.dispose();
+        if (image != null)
+            image.flush();
+        image = null;
+        imageGraphics = null;
+        screen = null;
     }
+}
 
-    g.translate(-xCam, -yCam);
+public void render(Graphics g, DrawSnapshot frame)
+{
+    final Scene scene = (Scene) frame.scene;
+    final int xCam = frame.xCam;
+    final int yCam = frame.yCam;
+
+    // bring the renderer's copy of the level up to date; tiles change when blocks are bumped or broken
+    int[] changed = scene.changed;
+    int changedTiles = 0;
+    for (int x = 0, i = 0; x < frame.tileColumns; x++)
+        for (int y = 0; y < frame.tileRows; y++, i++)
+        {
+            final int xTile = frame.tileX + x, yTile = frame.tileY + y;
+            if (xTile >= scene.level.length || yTile >= scene.level.height)
+                continue;
+            scene.level.setBlockData(xTile, yTile, frame.blockData[i]);
+            if (scene.level.getBlock(xTile, yTile) != frame.blocks[i])
+            {
+                scene.level.setBlock(xTile, yTile, frame.blocks[i]);
+                if (changedTiles == changed.length)
+                    changed = scene.changed = Arrays.copyOf(changed, changedTiles * 2);
+                changed[changedTiles++] = i;
+            }
+        }
 
-    for (Sprite sprite : marioEnvironment.getSprites())          // levelScene.
-        if (sprite.layer == 0) sprite.render(g);
+    for (int i = 0; i < scene.bgLayer.length; i++)
+    {
+        scene.bgLayer[i].setCam(xCam, yCam);
+        scene.bgLayer[i].render(g); //levelScene.
+    }
 
+    g.translate(-xCam, -yCam);
+    drawImages(g, frame, 0);
     g.translate(xCam, yCam);
 
-    layer.setCam(xCam, yCam);
-    layer.render(g, marioEnvironment.getTick() /*levelScene.paused ? 0 : */);
+    scene.layer.setCam(xCam, yCam);
+    for (int k = 0; k < changedTiles; k++)
+        scene.layer.repaint(frame.tileX + changed[k] / frame.tileRows, frame.tileY + changed[k] % frame.tileRows, 1, 1);
+    scene.layer.render(g, frame.tick /*levelScene.paused ? 0 : */);
 
     g.translate(-xCam, -yCam);
-
-    for (Sprite sprite : marioEnvironment.getSprites())  // Mario, creatures
-        if (sprite.layer == 1) sprite.render(g);
+    drawImages(g, frame, 1);    // Mario, creatures
+    drawOverlays(g, frame);
 
     g.translate(xCam, yCam);
     g.setColor(Color.BLACK);
     //layer.renderExit(g, marioEnvironment.getTick());
 
-    drawStringDropShadow(g, "DIFFICULTY: " + df.format(marioEnvironment.getLevelDifficulty()), 0, 0, marioEnvironment.getLevelDifficulty() > 6 ? 1 : marioEnvironment.getLevelDifficulty() > 2 ? 4 : 7);
+    drawStringDropShadow(g, "DIFFICULTY: " + df.format(frame.difficulty), 0, 0, frame.difficulty > 6 ? 1 : frame.difficulty > 2 ? 4 : 7);
 //    drawStringDropShadow(g, "CREATURES:" + (mario.levelScene.paused ? "OFF" : " ON"), 19, 0, 7);
-    drawStringDropShadow(g, "SEED:" + marioEnvironment.getLevelSeed(), 0, 1, 7);
-    drawStringDropShadow(g, "TYPE:" + LEVEL_TYPES[marioEnvironment.getLevelType()], 0, 2, 7);
-    drawStringDropShadow(g, "ALL KILLS: " + marioEnvironment.getKilledCreaturesTotal(), 19, 0, 1);
-    drawStringDropShadow(g, "LENGTH:" + (int) mario.x / 16 + " of " + marioEnvironment.getLevelLength(), 0, 3, 7);
-    drawStringDropShadow(g, "HEIGHT:" + (int) mario.y / 16 + " of " + marioEnvironment.getLevelHeight(), 0, 4, 7);
-    drawStringDropShadow(g, "by Fire  : " + marioEnvironment.getKilledCreaturesByFireBall(), 19, 1, 1);
+    drawStringDropShadow(g, "SEED:" + frame.seed, 0, 1, 7);
+    drawStringDropShadow(g, "TYPE:" + LEVEL_TYPES[frame.type], 0, 2, 7);
+    drawStringDropShadow(g, "ALL KILLS: " + frame.killsTotal, 19, 0, 1);
+    drawStringDropShadow(g, "LENGTH:" + (int) frame.marioX / 16 + " of " + frame.levelLength, 0, 3, 7);
+    drawStringDropShadow(g, "HEIGHT:" + (int) frame.marioY / 16 + " of " + frame.levelHeight, 0, 4, 7);
+    drawStringDropShadow(g, "by Fire  : " + frame.killsByFire, 19, 1, 1);
 //    drawStringDropShadow(g, "COINS    : " + df.format(Mario.coins), 0, 4, 4);
-    drawStringDropShadow(g, "by Shell : " + marioEnvironment.getKilledCreaturesByShell(), 19, 2, 1);
+    drawStringDropShadow(g, "by Shell : " + frame.killsByShell, 19, 2, 1);
     // COINS:
     g.drawImage(Art.level[0][2], 2, 43, 10, 10, null);
-    drawStringDropShadow(g, "x" + df.format(Mario.coins), 1, 5, 4);
+    drawStringDropShadow(g, "x" + df.format(frame.coins), 1, 5, 4);
     g.drawImage(Art.items[0][0], 47, 43, 11, 11, null);
-    drawStringDropShadow(g, "x" + df.format(Mario.mushroomsDevoured), 7, 5, 4);
+    drawStringDropShadow(g, "x" + df.format(frame.mushrooms), 7, 5, 4);
     g.drawImage(Art.items[1][0], 89, 43, 11, 11, null);
-    drawStringDropShadow(g, "x" + df.format(Mario.flowersDevoured), 12, 5, 4);
+    drawStringDropShadow(g, "x" + df.format(frame.flowers), 12, 5, 4);
 //    drawStringDropShadow(g, "MUSHROOMS: " + df.format(Mario.mushroomsDevoured), 0, 5, 4);
-    drawStringDropShadow(g, "by Stomp : " + marioEnvironment.getKilledCreaturesByStomp(), 19, 3, 1);
+    drawStringDropShadow(g, "by Stomp : " + frame.killsByStomp, 19, 3, 1);
 //    drawStringDropShadow(g, "FLOWERS  : " + df.format(Mario.flowersDevoured), 0, 6, 4);
 
-    if (GlobalOptions.isRecording)
+    if (frame.isRecording && frame.tick % 40 < 20)
     {
-        --recordIndicator;
-        if (recordIndicator >= 0)
-        {
-            g.setColor(Color.RED);
-            g.fillOval(303, 4, 13, 13);//19 * 8 + 5, 39, 10, 10);
-            g.setColor(Color.black);
-            g.drawOval(303, 4, 13, 13);//19 * 8 + 5, 39, 10, 10);
-        } else if (recordIndicator == -20)
-            recordIndicator = 20;
+        g.setColor(Color.RED);
+        g.fillOval(303, 4, 13, 13);//19 * 8 + 5, 39, 10, 10);
+        g.setColor(Color.black);
+        g.drawOval(303, 4, 13, 13);//19 * 8 + 5, 39, 10, 10);
     }
-    if (GlobalOptions.isReplaying)
+    if (frame.isReplaying)
     {
         g.setColor(new Color(0, 200, 0));
         g.fillPolygon(new int[]{303, 303, 316}, new int[]{16, 4, 10}, 3);
@@ -323,26 +443,74 @@ public void render(Graphics g)
     }
 
     drawStringDropShadow(g, "TIME", 33, 0, 7);
-    int time = marioEnvironment.getTimeLeft();
+    int time = frame.timeLeft;
 //    if (time < 0) time = 0;
 
     drawStringDropShadow(g, " " + df2.format(time), 33, 1, time < 0 ? 3 : time < 50 ? 1 : time < 100 ? 4 : 7);
 
-    drawProgress(g);
+    drawProgress(g, frame);
 
     if (GlobalOptions.areLabels)
     {
         g.drawString("xCam: " + xCam + "yCam: " + yCam, 10, 205);
-        g.drawString("x : " + mario.x + "y: " + mario.y, 10, 215);
-        g.drawString("xOld : " + mario.xOld + "yOld: " + mario.yOld, 10, 225);
+        g.drawString("x : " + frame.marioX + "y: " + frame.marioY, 10, 215);
     }
 }
 
-private void drawProgress(Graphics g)
+private static void drawImages(Graphics g, DrawSnapshot frame, int layer)
+{
+    for (int i = 0; i < frame.images; i++)
+        if (frame.imageLayer[i] == layer)
+            g.drawImage(frame.image[i], frame.imageX[i], frame.imageY[i], frame.imageW[i], frame.imageH[i], null);
+}
+
+private static void drawOverlays(Graphics g, DrawSnapshot frame)
+{
+    for (int i = 0; i < frame.sprites; i++)
+    {
+        final int x = frame.spriteX[i], y = frame.spriteY[i];
+        final int xPixel = frame.spritePixelX[i], yPixel = frame.spritePixelY[i];
+        // Labels
+        if (GlobalOptions.areLabels)
+            g.drawString("" + xPixel + "," + yPixel, xPixel, yPixel);
+
+        // Mario Grid Visualization Enable
+        if (GlobalOptions.isShowReceptiveField)
+        {
+            if (frame.spriteKind[i] == Sprite.KIND_MARIO)
+            {
+                g.drawString("Matrix View", xPixel - 40, yPixel - 20);
+                int height = GlobalOptions.receptiveFieldHeight;
+
+                int rows = GlobalOptions.receptiveFieldHeight;
+                int columns = GlobalOptions.receptiveFieldWidth;
+
+                int marioCol = GlobalOptions.marioEgoCol;
+                int marioRow = GlobalOptions.marioEgoRow;
+
+                int htOfRow = 16;
+                int k;
+                // horizontal lines
+                g.setColor(Color.BLACK);
+                for (k = -marioRow - 1; k < rows - marioRow; k++)
+                    g.drawLine(x - marioCol * htOfRow - 8, y + k * htOfRow, x + (columns - marioCol) * htOfRow - 8, y + k * htOfRow);
+
+                // vertical lines
+                int wdOfRow = 16;
+                for (k = -marioCol - 1; k < columns - marioCol; k++)
+                    g.drawLine(x + k * wdOfRow + 8, y - marioRow * htOfRow - 16, x + k * wdOfRow + 8, y + (height - marioRow) * htOfRow - 16);
+            }
+            g.setColor(Color.GREEN);
+            drawString(g, String.valueOf(frame.spriteKind[i]), x - 4, y - 8, 2);
+        }
+    }
+}
+
+private void drawProgress(Graphics g, DrawSnapshot frame)
 {
     String entirePathStr = "......................................>";
-    double physLength = (marioEnvironment.getLevelLength()) * 16;
-    int progressInChars = (int) (mario.x * (entirePathStr.length() / physLength));
+    double physLength = (frame.levelLength) * 16;
+    int progressInChars = (int) (frame.marioX * (entirePathStr.length() / physLength));
     String progress_str = "";
     for (int i = 0; i < progressInChars - 1; ++i)
         progress_str += ".";
@@ -355,7 +523,7 @@ private void drawProgress(Graphics g)
 //            System.err.println("warning: progress line inaccuracy");
     }
     drawStringDropShadow(g, progress_str, 0, 28, 2);
-    drawStringDropShadow(g, "intermediate reward: " + marioEnvironment.getIntermediateReward(), 0, 27, 2);
+    drawStringDropShadow(g, "intermediate reward: " + frame.intermediateReward, 0, 27, 2);
 }
 
 public static void drawStringDropShadow(Graphics g, String text, int x, int y, int c)
@@ -371,6 +539,37 @@ public static void drawString(Graphics g, String text, int x, int y, int c)
         g.drawImage(Art.font[ch[i] - 32][c], x + i * 8, y, null);
 }
 
+/**
+ * Renderers of one level, together with the copy of its map they draw from. Only the thread that draws
+ * frames touches it after construction.
+ */
+private static final class Scene
+{
+    final Level level;
+    final LevelRenderer layer;
+    final BgRenderer[] bgLayer = new BgRenderer[2];
+    int[] changed = new int[16];    // tiles that changed since the last frame
+
+    Scene(Level source, int levelType, int width, int height)
+    {
+        level = new Level(source.length, source.height);
+        for (int x = 0; x < source.length; x++)
+        {
+            System.arraycopy(source.map[x], 0, level.map[x], 0, source.height);
+            System.arraycopy(source.data[x], 0, level.data[x], 0, source.height);
+        }
+        layer = new LevelRenderer(level, graphicsConfiguration, width, height);
+        for (int i = 0; i < bgLayer.length; i++)
+        {
+            int scrollSpeed = 4 >> i;
+            int w = ((level.length * 16) - GlobalOptions.VISUAL_COMPONENT_WIDTH) / scrollSpeed + GlobalOptions.VISUAL_COMPONENT_WIDTH;
+            int h = ((level.height * 16) - GlobalOptions.VISUAL_COMPONENT_HEIGHT) / scrollSpeed + GlobalOptions.VISUAL_COMPONENT_HEIGHT;
+            Level bgLevel = BgLevelGenerator.createLevel(w / 32 + 1, h / 32 + 1, i == 0, levelType);
+            bgLayer[i] = new BgRenderer(bgLevel, graphicsConfiguration, GlobalOptions.VISUAL_COMPONENT_WIDTH, GlobalOptions.VISUAL_COMPONENT_HEIGHT, scrollSpeed);
+        }
+    }
+}
+
 //Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
 //        frame.setLocation((screenSize.length-frame.getWidth())/2, (screenSize.height-frame.getHeight())/2);
 private static GraphicsConfiguration graphicsConfiguration;
@@ -386,12 +585,8 @@ public void init()
 
 public void postInitGraphics()
 {
-//        System.out.println("this = " + this);
-    this.thisVolatileImage = this.createVolatileImage(GlobalOptions.VISUAL_COMPONENT_WIDTH, GlobalOptions.VISUAL_COMPONENT_HEIGHT);
-    this.thisGraphics = getGraphics();
-    this.thisVolatileImageGraphics = this.thisVolatileImage.getGraphics();
-//        System.out.println("thisGraphics = " + thisGraphics);
-//        System.out.println("thisVolatileImageGraphics = " + thisVolatileImageGraphics);
+    // each drawer makes its own image and graphics on the thread that draws
+    ++graphicsVersion;
 }
 
 public void postInitGraphicsAndLevel()
@@ -406,15 +601,8 @@ public void postInitGraphicsAndLevel()
         this.mario.cheatKeys = cheatAgent.getAction();
 //            System.out.println("mario = " + mario);
         this.level = marioEnvironment.getLevel();
-        layer = new LevelRenderer(level, graphicsConfiguration, this.width, this.height);
-        for (int i = 0; i < bgLayer.length; i++)
-        {
-            int scrollSpeed = 4 >> i;
-            int w = ((level.length * 16) - GlobalOptions.VISUAL_COMPONENT_WIDTH) / scrollSpeed + GlobalOptions.VISUAL_COMPONENT_WIDTH;
-            int h = ((level.height * 16) - GlobalOptions.VISUAL_COMPONENT_HEIGHT) / scrollSpeed + GlobalOptions.VISUAL_COMPONENT_HEIGHT;
-            Level bgLevel = BgLevelGenerator.createLevel(w / 32 + 1, h / 32 + 1, i == 0, marioEnvironment.getLevelType());
-            bgLayer[i] = new BgRenderer(bgLevel, graphicsConfiguration, GlobalOptions.VISUAL_COMPONENT_WIDTH, GlobalOptions.VISUAL_COMPONENT_HEIGHT, scrollSpeed);
-        }
+        this.scene = new Scene(level, marioEnvironment.getLevelType(), this.width, this.height);
+        frameChannel.setScene(scene);
     } else throw new Error("[Mario AI : ERROR] : Graphics Configuration is null. Graphics initialization failed");
 }
 
@@ -423,6 +611,9 @@ public void adjustFPS()
     int fps = GlobalOptions.FPS;
     delay = (fps > 0) ? (fps >= GlobalOptions.MaxFPS) ? 0 : (1000 / fps) : 100;
 //        System.out.println("Delay: " + delay);
+    RenderThread thread = renderThread;
+    if (thread != null)
+        thread.setDelay(delay);
 }
 
 // THis method here solely for the displaying information in order to reduce
@@ -432,6 +623,7 @@ public void setAgent(Agent agent)
 {
 //        System.out.println("agent = " + agent);
     this.agentNameStr = agent.getName();
+    this.humanPlayer = agent instanceof KeyAdapter;
     if (agent instanceof KeyAdapter)
     {
         if (prevHumanKeyBoardAgent != null)
@@ -455,7 +647,7 @@ public void changeScale2x()
 {
     marioVisualComponent.setPreferredSize(new Dimension(width, height));
     marioComponentFrame.pack();
-    this.thisGraphics = getGraphics();
+    ++graphicsVersion;
 }
 
 
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package ch.idsia.benchmark.mario.engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Draws the frames of a <code>FrameChannel</code> on its own thread, no more often than the frame rate asks for.
+ * The pacing is done here, so the simulation runs as fast as it can and the frames in between are dropped. The
+ * drawer is only ever called on this thread, including its final <code>dispose</code>, so it can keep its
+ * graphics to itself.
+ */
+public final class RenderThread extends Thread
+{
+/**
+ * Draws frames; owned by a single thread.
+ */
+public interface Drawer
+{
+    void draw(DrawSnapshot frame);
+
+    /**
+     * Releases whatever the drawer holds. Called once, on the drawing thread, when it stops.
+     */
+    void dispose();
+}
+
+private final FrameChannel channel;
+private final Drawer drawer;
+private volatile int delay;
+private volatile boolean running = true;
+private volatile long drawnFrames;
+
+/**
+ * @param delay milliseconds between two frames, 0 to draw every frame as soon as it comes
+ */
+public RenderThread(FrameChannel channel, Drawer drawer, int delay)
+{
+    super("Mario AI renderer");
+    this.channel = channel;
+    this.drawer = drawer;
+    this.delay = delay;
+    setDaemon(true);
+}
+
+public void run()
+{
+    channel.setConsumer(this);
+    long next = System.nanoTime();
+    try
+    {
+        while (running)
+        {
+            DrawSnapshot frame = channel.poll();
+            if (frame == null)
+            {
+                LockSupport.park(this);
+                continue;
+            }
+            try
+            {
+                drawer.draw(frame);
+            } catch (RuntimeException e)
+            {
+                System.err.println("[Mario AI EXCEPTION] : frame " + frame.tick + " could not be drawn: " + e);
+            } finally
+            {
+                channel.release(frame);
+            }
+            ++drawnFrames;
+
+            final long now = System.nanoTime();
+            final long period = delay * 1000000L;
+            // a frame that came late does not earn the following ones a shorter wait
+            next = Math.max(next + period, now);
+            while (running && System.nanoTime() < next)
+                LockSupport.parkNanos(this, next - System.nanoTime());
+        }
+    } finally
+    {
+        channel.setConsumer(null);
+        drawer.dispose();
+    }
+}
+
+public void setDelay(int delay)
+{
+    this.delay = delay;
+}
+
+public long getDrawnFrames()
+{
+    return drawnFrames;
+}
+
+/**
+ * Stops drawing and waits until the thread has ended and the drawer is disposed. A frame being drawn is finished
+ * first.
+ */
+public void shutdown()
+{
+    running = false;
+    LockSupport.unpark(this);
+    boolean interrupted = false;
+    while (isAlive())
+    {
+        try
+        {
+            join();
+        } catch (InterruptedException e)
+        {
+            interrupted = true;
+        }
+    }
+    if (interrupted)
+        Thread.currentThread().interrupt();
+}
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.benchmark.mario.engine;
+
+import ch.idsia.benchmark.mario.engine.level.Level;
+import ch.idsia.benchmark.mario.engine.sprites.Sprite;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Draws the game into an <code>int[]</code> ARGB framebuffer without a display, for agents that learn from
+ * pixels. Tiles and sprites come from the same <code>Art</code> sheets as on screen; the parallax
+ * background is replaced by a flat sky colour and the heads-up display is left out.
+ * <p/>
+ * Like <code>LevelRenderer</code>, the static tiles are kept in a layer that is shifted when the camera
+ * moves, so that only the columns and rows scrolled into view are drawn again, together with the tiles
+ * that changed since the last frame.
+ */
+public class SoftwareRenderer
+{
+private static final int[] SKY = {0xff5c94fc, 0xff000000, 0xff000000};
+
+public final int width;
+public final int height;
+
+private final int[] pixels;
+private final int[] tiles;       // static tiles, 0 where transparent
+private byte[] drawn;            // the block each tile of the level was last drawn as
+private int xCam, yCam;
+private Level level;             // level the layer was drawn for
+
+private final DrawSnapshot frame = new DrawSnapshot();
+private final IdentityHashMap<Image, Sheet> sheets = new IdentityHashMap<Image, Sheet>();
+
+private static final class Sheet
+{
+    final int w, h;
+    final int[] argb;
+
+    Sheet(int w, int h, int[] argb)
+    {
+        this.w = w;
+        this.h = h;
+        this.argb = argb;
+    }
+}
+
+public SoftwareRenderer(int width, int height)
+{
+    Art.initHeadless();
+    this.width = width;
+    this.height = height;
+    this.pixels = new int[width * height];
+    this.tiles = new int[width * height];
+}
+
+/**
+ * The framebuffer, row by row, as drawn by the last call to <code>render</code>.
+ */
+public int[] getPixels()
+{
+    return pixels;
+}
+
+/**
+ * Draws one frame centred on Mario as <code>MarioVisualComponent</code> does.
+ */
+public void render(Level level, List<Sprite> sprites, float marioX, float marioY, int levelType)
+{
+    int xCam = (int) marioX - width / 2;
+    int yCam = (int) marioY - height / 2;
+    if (!GlobalOptions.isCameraCenteredOnMario)
+    {
+        if (xCam < 0) xCam = 0;
+        if (yCam < 0) yCam = 0;
+        if (xCam > level.length * LevelScene.cellSize - width)
+            xCam = level.length * LevelScene.cellSize - width;
+        if (yCam > level.height * LevelScene.cellSize - height)
+            yCam = level.height * LevelScene.cellSize - height;
+    }
+
+    frame.clear();
+    for (Sprite sprite : sprites)
+        sprite.snapshot(frame);
+
+    updateTiles(level, xCam, yCam);
+
+    Arrays.fill(pixels, SKY[levelType < 0 || levelType >= SKY.length ? 0 : levelType]);
+    drawImages(0);
+    for (int i = 0; i < pixels.length; i++)
+        if (tiles[i] != 0)
+            pixels[i] = tiles[i];
+    drawAnimatedTiles(level);
+    drawImages(1);
+}
+
+/**
+ * Writes the last frame as grayscale, averaged over <code>factor</code> x <code>factor</code> blocks; the
+ * bytes are unsigned luminance values.
+ */
+public void toGrayscale(byte[][] out, int factor)
+{
+    final int outRows = Math.min(out.length, height / factor);
+    for (int r = 0; r < outRows; r++)
+    {
+        final byte[] row = out[r];
+        final int outColumns = Math.min(row.length, width / factor);
+        for (int c = 0; c < outColumns; c++)
+        {
+            int sum = 0;
+            for (int y = r * factor; y < (r + 1) * factor; y++)
+                for (int i = y * width + c * factor, end = i + factor; i < end; i++)
+                {
+                    final int p = pixels[i];
+                    sum += (77 * ((p >> 16) & 0xff) + 150 * ((p >> 8) & 0xff) + 29 * (p & 0xff)) >> 8;
+                }
+            row[c] = (byte) (sum / (factor * factor));
+        }
+    }
+}
+
+private void updateTiles(Level level, int xCam, int yCam)
+{
+    if (level != this.level)
+    {
+        this.level = level;
+        this.drawn = new byte[level.length * level.height];
+        this.xCam = xCam;
+        this.yCam = yCam;
+        drawTileArea(0, 0, width, height);
+        return;
+    }
+
+    final int xCamD = this.xCam - xCam;
+    final int yCamD = this.yCam - yCam;
+    if (xCamD != 0 || yCamD != 0)
+    {
+        shift(xCamD, yCamD);
+        this.xCam = xCam;
+        this.yCam = yCam;
+        if (xCamD < 0)
+            drawTileArea(width + Math.max(xCamD, -width), 0, Math.min(-xCamD, width), height);
+        else if (xCamD > 0)
+            drawTileArea(0, 0, Math.min(xCamD, width), height);
+        if (yCamD < 0)
+            drawTileArea(0, height + Math.max(yCamD, -height), width, Math.min(-yCamD, height));
+        else if (yCamD > 0)
+            drawTileArea(0, 0, width, Math.min(yCamD, height));
+    }
+
+    // blocks that were bumped, broken or used since they were drawn
+    for (int x = Math.max(0, xCam / 16); x <= Math.min(level.length - 1, (xCam + width) / 16); x++)
+        for (int y = Math.max(0, yCam / 16); y <= Math.min(level.height - 1, (yCam + height) / 16); y++)
+            if (level.map[x][y] != drawn[x * level.height + y])
+                drawTileArea((x << 4) - xCam, (y << 4) - yCam, 16, 16);
+}
+
+/**
+ * Moves the tile layer by the given offset, as <code>Graphics.copyArea</code> does in LevelRenderer.
+ */
+private void shift(int dx, int dy)
+{
+    if (Math.abs(dx) >= width || Math.abs(dy) >= height)
+        return; // everything will be drawn again
+    final int rowLength = width - Math.abs(dx);
+    final int srcX = dx < 0 ? -dx : 0, dstX = dx < 0 ? 0 : dx;
+    if (dy > 0)
+        for (int y = height - 1; y >= dy; y--)
+            System.arraycopy(tiles, (y - dy) * width + srcX, tiles, y * width + dstX, rowLength);
+    else
+        for (int y = 0; y < height + dy; y++)
+            System.arraycopy(tiles, (y - dy) * width + srcX, tiles, y * width + dstX, rowLength);
+}
+
+private void drawTileArea(int x0, int y0, int w, int h)
+{
+    if (w <= 0 || h <= 0)
+        return;
+    for (int y = Math.max(0, y0); y < Math.min(height, y0 + h); y++)
+        Arrays.fill(tiles, y * width + Math.max(0, x0), y * width + Math.min(width, x0 + w), 0);
+
+    final int xTileStart = (x0 + xCam) / 16;
+    final int yTileStart = (y0 + yCam) / 16;
+    final int xTileEnd = (x0 + xCam + w) / 16;
+    final int yTileEnd = (y0 + yCam + h) / 16;
+    for (int x = xTileStart; x <= xTileEnd; x++)
+        for (int y = yTileStart; y <= yTileEnd; y++)
+        {
+            final int b = level.getBlock(x, y) & 0xff;
+            if (x >= 0 && x < level.length && y >= 0 && y < level.height)
+                drawn[x * level.height + y] = (byte) b;
+            if ((Level.TILE_BEHAVIORS[b] & Level.BIT_ANIMATED) == 0)
+                blit(tiles, Art.level[b % 16][b / 16], (x << 4) - xCam, (y << 4) - yCam, 16, 16, x0, y0, x0 + w, y0 + h);
+        }
+}
+
+private void drawAnimatedTiles(Level level)
+{
+    for (int x = xCam / 16; x <= (xCam + width) / 16; x++)
+        for (int y = yCam / 16; y <= (yCam + height) / 16; y++)
+        {
+            final int b = level.getBlock(x, y) & 0xff;
+            if ((Level.TILE_BEHAVIORS[b] & Level.BIT_ANIMATED) != 0)
+                blit(pixels, Art.level[b % 16][b / 16], (x << 4) - xCam, (y << 4) - yCam, 16, 16, 0, 0, width, height);
+        }
+}
+
+private void drawImages(int layer)
+{
+    for (int i = 0; i < frame.images; i++)
+        if (frame.imageLayer[i] == layer)
+            blit(pixels, frame.image[i], frame.imageX[i] - xCam, frame.imageY[i] - yCam, frame.imageW[i], frame.imageH[i], 0, 0, width, height);
+}
+
+/**
+ * Copies the opaque pixels of an image into a target of this renderer's size, clipped to
+ * [clipX0, clipX1) x [clipY0, clipY1). A negative width or height flips the image, as in
+ * <code>Graphics.drawImage</code>; otherwise the image is scaled to the given size.
+ */
+private void blit(int[] target, Image image, int x, int y, int w, int h, int clipX0, int clipY0, int clipX1, int clipY1)
+{
+    final Sheet sheet = sheet(image);
+    if (sheet == null)
+        return;
+    final boolean xFlip = w < 0, yFlip = h < 0;
+    if (xFlip)
+    {
+        x += w;
+        w = -w;
+    }
+    if (yFlip)
+    {
+        y += h;
+        h = -h;
+    }
+    final int xStart = Math.max(x, Math.max(clipX0, 0)), xEnd = Math.min(x + w, Math.min(clipX1, width));
+    final int yStart = Math.max(y, Math.max(clipY0, 0)), yEnd = Math.min(y + h, Math.min(clipY1, height));
+    for (int ty = yStart; ty < yEnd; ty++)
+    {
+        int sy = (ty - y) * sheet.h / h;
+        if (yFlip) sy = sheet.h - 1 - sy;
+        final int row = sy * sheet.w;
+        for (int tx = xStart, t = ty * width + xStart; tx < xEnd; tx++, t++)
+        {
+            int sx = (tx - x) * sheet.w / w;
+            if (xFlip) sx = sheet.w - 1 - sx;
+            final int p = sheet.argb[row + sx];
+            if ((p >>> 24) != 0)
+                target[t] = p;
+        }
+    }
+}
+
+private Sheet sheet(Image image)
+{
+    Sheet sheet = sheets.get(image);
+    if (sheet == null && image instanceof BufferedImage)
+    {
+        final BufferedImage bi = (BufferedImage) image;
+        final int w = bi.getWidth(), h = bi.getHeight();
+        sheet = new Sheet(w, h, bi.getRGB(0, 0, w, h, null, 0, w));
+        sheets.put(image, sheet);
+    }
+    return sheet;
+}
+}
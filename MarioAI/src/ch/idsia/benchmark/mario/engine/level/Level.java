@@ -28,8 +28,10 @@
 package ch.idsia.benchmark.mario.engine.level;
 
 import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.OptionsSnapshot;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 public class Level implements Serializable
 {
@@ -63,8 +65,9 @@ static public class objCounters implements Serializable
 
     private static final long serialVersionUID = 4505050755444159808L;
 
-    public void reset(final MarioAIOptions args)
+    public void reset(final MarioAIOptions marioAIOptions)
     {
+        final OptionsSnapshot args = marioAIOptions.getSnapshot();
         deadEndsCount = 0;
         cannonsCount = 0;
         hillStraightCount = 0;
@@ -190,6 +193,42 @@ public static void save(Level lvl, ObjectOutputStream oos) throws IOException
     oos.writeObject(lvl);
 }
 
+/**
+ * Loads a level file in either format, the compact one of <code>LevelCodec</code> or a serialized level.
+ */
+public static Level load(File file) throws IOException, ClassNotFoundException
+{
+    if (LevelCodec.isCompact(file))
+        return LevelCodec.load(file);
+    final ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try
+    {
+        return load(ois);
+    } finally
+    {
+        ois.close();
+    }
+}
+
+/**
+ * Loads a level in either format from a stream, e.g. a resource.
+ */
+public static Level load(InputStream in) throws IOException, ClassNotFoundException
+{
+    final ByteBuffer bytes = LevelCodec.readAll(in);
+    if (LevelCodec.isCompact(bytes))
+        return LevelCodec.read(bytes);
+    return load(new ObjectInputStream(new ByteArrayInputStream(bytes.array(), 0, bytes.limit())));
+}
+
+/**
+ * Saves a level in the compact format of <code>LevelCodec</code>, without the Mario trace.
+ */
+public static void save(Level lvl, File file) throws IOException
+{
+    LevelCodec.save(lvl, file, false);
+}
+
 /**
  * Animates the unbreakable brick when smashed from below by Mario
  */
@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.benchmark.mario.engine.level;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads and writes levels in a compact binary format, in place of serializing the <code>Level</code> object.
+ * <p/>
+ * A file starts with <code>MAGIC</code>, <code>VERSION</code> and a byte of flags, followed by the size, seed,
+ * type, difficulty and exit of the level and, if present, its object counters. The map and the data are
+ * run-length coded column by column, sprite templates are stored only where there is one, as position and
+ * type, and the Mario trace is optional and stored as its non-zero cells. All numbers are big-endian.
+ * <p/>
+ * Files are read through a memory mapped <code>FileChannel</code>, so loading a level costs little more
+ * than decoding its runs.
+ */
+public final class LevelCodec
+{
+public static final byte[] MAGIC = {'M', 'A', 'I', 'L'};
+public static final int VERSION = 1;
+
+private static final int HAS_COUNTERS = 1;
+private static final int HAS_TRACE = 1 << 1;
+private static final int COUNTERS = 21; // ints stored for Level.objCounters
+
+private LevelCodec() {}
+
+/**
+ * @return whether <code>file</code> starts with <code>MAGIC</code>
+ */
+public static boolean isCompact(File file) throws IOException
+{
+    final byte[] head = new byte[MAGIC.length];
+    final DataInputStream in = new DataInputStream(new FileInputStream(file));
+    try
+    {
+        in.readFully(head);
+    } catch (EOFException e)
+    {
+        return false;
+    } finally
+    {
+        in.close();
+    }
+    return isCompact(ByteBuffer.wrap(head));
+}
+
+/**
+ * @return whether the remaining bytes of <code>buffer</code> start with <code>MAGIC</code>; its position is kept
+ */
+public static boolean isCompact(ByteBuffer buffer)
+{
+    if (buffer.remaining() < MAGIC.length)
+        return false;
+    for (int i = 0; i < MAGIC.length; i++)
+        if (buffer.get(buffer.position() + i) != MAGIC[i])
+            return false;
+    return true;
+}
+
+public static Level load(File file) throws IOException
+{
+    final FileChannel channel = new FileInputStream(file).getChannel();
+    try
+    {
+        return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } finally
+    {
+        channel.close();
+    }
+}
+
+static ByteBuffer readAll(InputStream in) throws IOException
+{
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final byte[] chunk = new byte[1 << 12];
+    for (int n; (n = in.read(chunk)) > 0; )
+        bytes.write(chunk, 0, n);
+    return ByteBuffer.wrap(bytes.toByteArray());
+}
+
+/**
+ * Decodes a level and, if the file has them, makes its counters the current <code>Level.counters</code>,
+ * like deserializing a level does.
+ */
+public static Level read(ByteBuffer buffer) throws IOException
+{
+    if (!isCompact(buffer))
+        throw new IOException("Not a compact level file");
+    buffer.position(buffer.position() + MAGIC.length);
+    try
+    {
+        final int version = buffer.get() & 0xff;
+        if (version > VERSION)
+            throw new IOException("Unsupported compact level version " + version + ", expected at most " + VERSION);
+        final int flags = buffer.get() & 0xff;
+
+        final int length = buffer.getInt();
+        final int height = buffer.getInt();
+        if (length <= 0 || height <= 0)
+            throw new IOException("Corrupt compact level: size " + length + " x " + height);
+        final Level level = new Level(length, height);
+        level.randomSeed = buffer.getInt();
+        level.type = buffer.getInt();
+        level.difficulty = buffer.getInt();
+        level.xExit = buffer.getInt();
+        level.yExit = buffer.getInt();
+        if ((flags & HAS_COUNTERS) != 0)
+            Level.counters = readCounters(buffer);
+
+        readRuns(buffer, level.map);
+        readRuns(buffer, level.data);
+
+        for (int n = buffer.getInt(); n > 0; n--)
+        {
+            final int x = buffer.getShort() & 0xffff;
+            final int y = buffer.getShort() & 0xffff;
+            final int type = buffer.get();
+            if (!level.setSpriteTemplate(x, y, new SpriteTemplate(type)))
+                throw new IOException("Corrupt compact level: sprite template outside the level at " + x + ", " + y);
+        }
+
+        if ((flags & HAS_TRACE) != 0)
+        {
+            final int column = height + 1;
+            for (int n = buffer.getInt(); n > 0; n--)
+            {
+                final int cell = buffer.getInt();
+                if (cell < 0 || cell >= (long) length * column)
+                    throw new IOException("Corrupt compact level: trace cell " + cell + " outside the level");
+                level.marioTrace[cell / column][cell % column] = buffer.getInt();
+            }
+        }
+        return level;
+    } catch (BufferUnderflowException e)
+    {
+        throw new EOFException("Compact level file ends early");
+    }
+}
+
+public static void save(Level level, File file, boolean withTrace) throws IOException
+{
+    final FileOutputStream out = new FileOutputStream(file);
+    try
+    {
+        final ByteBuffer buffer = write(level, withTrace);
+        final FileChannel channel = out.getChannel();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    } finally
+    {
+        out.close();
+    }
+}
+
+public static void save(Level level, OutputStream out, boolean withTrace) throws IOException
+{
+    final ByteBuffer buffer = write(level, withTrace);
+    out.write(buffer.array(), 0, buffer.limit());
+    out.flush();
+}
+
+/**
+ * Encodes a level, with the current <code>Level.counters</code> if there are any.
+ *
+ * @param withTrace whether to store <code>level.marioTrace</code>
+ * @return a heap buffer holding the encoded level between 0 and its limit
+ */
+public static ByteBuffer write(Level level, boolean withTrace) throws IOException
+{
+    if (level.length > 0xffff || level.height > 0xffff)
+        throw new IOException("Level of " + level.length + " x " + level.height + " is too large for the compact format");
+    int templates = 0;
+    for (int x = 0; x < level.length; x++)
+        for (int y = 0; y < level.height; y++)
+            if (level.spriteTemplates[x][y] != null)
+                templates++;
+    int traced = 0;
+    if (withTrace)
+        for (int x = 0; x < level.length; x++)
+            for (int y = 0; y <= level.height; y++)
+                if (level.marioTrace[x][y] != 0)
+                    traced++;
+
+    // a run takes at most 3 bytes per cell it covers
+    final long capacity = MAGIC.length + 2 + 7 * 4 + (Level.counters != null ? COUNTERS * 4 : 0)
+            + 2 * 3L * level.length * (level.height + 1) + 4 + 5L * templates + 4 + 8L * traced;
+    if (capacity > Integer.MAX_VALUE)
+        throw new IOException("Level of " + level.length + " x " + level.height + " is too large for the compact format");
+    final ByteBuffer buffer = ByteBuffer.allocate((int) capacity);
+    buffer.put(MAGIC);
+    buffer.put((byte) VERSION);
+    buffer.put((byte) ((Level.counters != null ? HAS_COUNTERS : 0) | (withTrace ? HAS_TRACE : 0)));
+
+    buffer.putInt(level.length);
+    buffer.putInt(level.height);
+    buffer.putInt(level.randomSeed);
+    buffer.putInt(level.type);
+    buffer.putInt(level.difficulty);
+    buffer.putInt(level.xExit);
+    buffer.putInt(level.yExit);
+    if (Level.counters != null)
+        writeCounters(buffer, Level.counters);
+
+    writeRuns(buffer, level.map);
+    writeRuns(buffer, level.data);
+
+    buffer.putInt(templates);
+    for (int x = 0; x < level.length; x++)
+        for (int y = 0; y < level.height; y++)
+        {
+            final SpriteTemplate template = level.spriteTemplates[x][y];
+            if (template == null)
+                continue;
+            if (template.getType() != (byte) template.getType())
+                throw new IOException("Sprite template of kind " + template.getType() + " does not fit the compact format");
+            buffer.putShort((short) x);
+            buffer.putShort((short) y);
+            buffer.put((byte) template.getType());
+        }
+
+    if (withTrace)
+    {
+        buffer.putInt(traced);
+        final int column = level.height + 1;
+        for (int x = 0; x < level.length; x++)
+            for (int y = 0; y < column; y++)
+                if (level.marioTrace[x][y] != 0)
+                {
+                    buffer.putInt(x * column + y);
+                    buffer.putInt(level.marioTrace[x][y]);
+                }
+    }
+    buffer.flip();
+    return buffer;
+}
+
+// each run is its length as an unsigned varint, then the byte repeated; runs may span columns
+private static void writeRuns(ByteBuffer buffer, byte[][] cells)
+{
+    int run = 0;
+    byte value = 0;
+    for (byte[] column : cells)
+        for (byte b : column)
+        {
+            if (run > 0 && b != value)
+            {
+                writeRun(buffer, run, value);
+                run = 0;
+            }
+            value = b;
+            run++;
+        }
+    if (run > 0)
+        writeRun(buffer, run, value);
+}
+
+private static void writeRun(ByteBuffer buffer, int run, byte value)
+{
+    while (run > 0x7f)
+    {
+        buffer.put((byte) (run & 0x7f | 0x80));
+        run >>>= 7;
+    }
+    buffer.put((byte) run);
+    buffer.put(value);
+}
+
+private static void readRuns(ByteBuffer buffer, byte[][] cells) throws IOException
+{
+    int run = 0;
+    byte value = 0;
+    for (byte[] column : cells)
+        for (int y = 0; y < column.length; )
+        {
+            if (run == 0)
+            {
+                run = readRunLength(buffer);
+                value = buffer.get();
+            }
+            final int n = Math.min(run, column.length - y);
+            if (value != 0)
+                Arrays.fill(column, y, y + n, value);
+            y += n;
+            run -= n;
+        }
+    if (run != 0)
+        throw new IOException("Corrupt compact level: run goes past the end of the level");
+}
+
+private static int readRunLength(ByteBuffer buffer) throws IOException
+{
+    int run = 0;
+    for (int shift = 0; shift < 32; shift += 7)
+    {
+        final int b = buffer.get();
+        run |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0)
+        {
+            if (run <= 0)
+                throw new IOException("Corrupt compact level: run of length " + run);
+            return run;
+        }
+    }
+    throw new IOException("Corrupt compact level: run length too long");
+}
+
+private static void writeCounters(ByteBuffer buffer, Level.objCounters counters)
+{
+    buffer.putInt(counters.deadEndsCount);
+    buffer.putInt(counters.cannonsCount);
+    buffer.putInt(counters.hillStraightCount);
+    buffer.putInt(counters.tubesCount);
+    buffer.putInt(counters.blocksCount);
+    buffer.putInt(counters.coinsCount);
+    buffer.putInt(counters.gapsCount);
+    buffer.putInt(counters.hiddenBlocksCount);
+    buffer.putInt(counters.totalCannons);
+    buffer.putInt(counters.totalGaps);
+    buffer.putInt(counters.totalDeadEnds);
+    buffer.putInt(counters.totalBlocks);
+    buffer.putInt(counters.totalHiddenBlocks);
+    buffer.putInt(counters.totalCoins);
+    buffer.putInt(counters.totalHillStraight);
+    buffer.putInt(counters.totalTubes);
+    buffer.putInt(counters.totalPowerUps);
+    buffer.putInt(counters.mushrooms);
+    buffer.putInt(counters.flowers);
+    buffer.putInt(counters.creatures);
+    buffer.putInt(counters.greenMushrooms);
+}
+
+private static Level.objCounters readCounters(ByteBuffer buffer)
+{
+    final Level.objCounters counters = new Level.objCounters();
+    counters.deadEndsCount = buffer.getInt();
+    counters.cannonsCount = buffer.getInt();
+    counters.hillStraightCount = buffer.getInt();
+    counters.tubesCount = buffer.getInt();
+    counters.blocksCount = buffer.getInt();
+    counters.coinsCount = buffer.getInt();
+    counters.gapsCount = buffer.getInt();
+    counters.hiddenBlocksCount = buffer.getInt();
+    counters.totalCannons = buffer.getInt();
+    counters.totalGaps = buffer.getInt();
+    counters.totalDeadEnds = buffer.getInt();
+    counters.totalBlocks = buffer.getInt();
+    counters.totalHiddenBlocks = buffer.getInt();
+    counters.totalCoins = buffer.getInt();
+    counters.totalHillStraight = buffer.getInt();
+    counters.totalTubes = buffer.getInt();
+    counters.totalPowerUps = buffer.getInt();
+    counters.mushrooms = buffer.getInt();
+    counters.flowers = buffer.getInt();
+    counters.creatures = buffer.getInt();
+    counters.greenMushrooms = buffer.getInt();
+    return counters;
+}
+}
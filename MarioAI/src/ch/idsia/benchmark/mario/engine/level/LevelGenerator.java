@@ -30,12 +30,12 @@ package ch.idsia.benchmark.mario.engine.level;
 
 import ch.idsia.benchmark.mario.engine.sprites.Sprite;
 import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.OptionsSnapshot;
 import ch.idsia.tools.RandomCreatureGenerator;
 import ch.idsia.utils.ErrorCodes;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.util.Random;
 
 /**
@@ -109,7 +109,7 @@ private static void loadLevel(String filePath)
             System.exit(ErrorCodes.FILE_NAME_OR_LOAD_PROBLEM);
         }
 
-        level = Level.load(new ObjectInputStream(new FileInputStream(filePath)));
+        level = Level.load(new File(filePath));
     } catch (IOException e)
     {
         System.err.println("[MarioAI EXCEPTION] : failed while trying to loadAgent " + filePath);
@@ -121,18 +121,17 @@ private static void loadLevel(String filePath)
     }
 }
 
-public static Level createLevel(MarioAIOptions args)
+public static Level createLevel(MarioAIOptions marioAIOptions)
 {
+    OptionsSnapshot args = marioAIOptions.getSnapshot();
     // -ls option can also loadAgent level from file if filename instead of a number provided
     levelType = args.getLevelType();
-    try
-    {
-        levelSeed = args.getLevelRandSeed() + levelType;
-    } catch (Exception e)
+    if (!args.hasLevelRandSeed())
     {
-        loadLevel(args.getParameterValue("-ls"));
+        loadLevel(args.getLevelSeedValue());
         return level;
     }
+    levelSeed = args.getLevelRandSeed() + levelType;
     length = args.getLevelLength();
     height = args.getLevelHeight();
     if (height < 15)
@@ -142,7 +141,7 @@ public static Level createLevel(MarioAIOptions args)
     }
     isFlatLevel = args.isFlatLevel();
 
-    counters.reset(args);
+    counters.reset(marioAIOptions);
     levelDifficulty = args.getLevelDifficulty();
     odds[ODDS_STRAIGHT] = 20;
     odds[ODDS_HILL_STRAIGHT] = 1;
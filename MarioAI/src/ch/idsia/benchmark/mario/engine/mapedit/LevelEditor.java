@@ -146,12 +146,16 @@ public void actionPerformed(ActionEvent e)
     {
         if (e.getSource() == loadButton)
         {
-            levelEditView.setLevel(Level.load(new ObjectInputStream(LevelScene.class.getResourceAsStream(nameField.getText().trim()))));
+            final File file = new File(nameField.getText().trim());
+            if (file.isFile())
+                levelEditView.setLevel(Level.load(file));
+            else
+                levelEditView.setLevel(Level.load(LevelScene.class.getResourceAsStream(nameField.getText().trim())));
         }
         if (e.getSource() == saveButton)
         {
 //                levelEditView.getLevel().save(new ObjectOutputStream(new FileOutputStream(nameField.getText().trim())));
-            Level.save(levelEditView.getLevel(), new ObjectOutputStream(new FileOutputStream(nameField.getText().trim())));
+            Level.save(levelEditView.getLevel(), new File(nameField.getText().trim()));
         }
     }
     catch (Exception ex)
@@ -28,14 +28,25 @@
 package ch.idsia.benchmark.mario.engine.sprites;
 
 import ch.idsia.benchmark.mario.engine.Art;
+import ch.idsia.benchmark.mario.engine.LevelScene;
 
 
 public class CoinAnim extends Sprite
 {
-private int life = 16;
+private int life;
+private LevelScene world;
+boolean pooled; // waiting in CosmeticSprites to be used again
 
-public CoinAnim(int xTile, int yTile)
+public CoinAnim(LevelScene world, int xTile, int yTile)
 {
+    init(world, xTile, yTile);
+}
+
+void init(LevelScene world, int xTile, int yTile)
+{
+    this.world = world;
+    pooled = false;
+    life = 16;
     kind = KIND_COIN_ANIM;
     sheet = Art.level;
     wPic = hPic = 16;
@@ -52,10 +63,10 @@ public void move()
 {
     if (life-- < 0)
     {
-        Sprite.spriteContext.removeSprite(this);
+        world.removeSprite(this);
         for (int xx = 0; xx < 2; xx++)
             for (int yy = 0; yy < 2; yy++)
-                Sprite.spriteContext.addSprite(new Sparkle((int) x + xx * 8 + (int) (Math.random() * 8), (int) y + yy * 8 + (int) (Math.random() * 8), 0, 0, 0, 2, 5));
+                world.addSparkle((int) x + xx * 8 + (int) (Math.random() * 8), (int) y + yy * 8 + (int) (Math.random() * 8), 0, 0, 0, 2, 5);
     }
 
     xPic = life & 3;
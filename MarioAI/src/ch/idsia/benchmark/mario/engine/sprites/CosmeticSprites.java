@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.benchmark.mario.engine.sprites;
+
+import ch.idsia.benchmark.mario.engine.LevelScene;
+
+import java.util.ArrayList;
+
+/**
+ * Pools of the sprites that are only there to be seen: sparkles, brick particles and coin animations. They
+ * live a few ticks and take no part in collisions or observations, so those the scene has removed are
+ * handed out again instead of allocating new ones.
+ */
+public final class CosmeticSprites
+{
+private final ArrayList<Sparkle> sparkles = new ArrayList<Sparkle>();
+private final ArrayList<Particle> particles = new ArrayList<Particle>();
+private final ArrayList<CoinAnim> coinAnims = new ArrayList<CoinAnim>();
+
+public Sparkle sparkle(int x, int y, float xa, float ya, int xPic, int yPic, int timeSpan)
+{
+    if (sparkles.isEmpty())
+        return new Sparkle(x, y, xa, ya, xPic, yPic, timeSpan);
+    final Sparkle sparkle = sparkles.remove(sparkles.size() - 1);
+    sparkle.init(x, y, xa, ya, xPic, yPic, timeSpan);
+    return sparkle;
+}
+
+public Particle particle(int x, int y, float xa, float ya)
+{
+    final int xPic = (int) (Math.random() * 2);
+    if (particles.isEmpty())
+        return new Particle(x, y, xa, ya, xPic, 0);
+    final Particle particle = particles.remove(particles.size() - 1);
+    particle.init(x, y, xa, ya, xPic, 0);
+    return particle;
+}
+
+public CoinAnim coinAnim(LevelScene world, int xTile, int yTile)
+{
+    if (coinAnims.isEmpty())
+        return new CoinAnim(world, xTile, yTile);
+    final CoinAnim coinAnim = coinAnims.remove(coinAnims.size() - 1);
+    coinAnim.init(world, xTile, yTile);
+    return coinAnim;
+}
+
+/**
+ * Takes back a sprite the scene no longer has; sprites of other kinds, and those already back, are ignored.
+ */
+public void recycle(Sprite sprite)
+{
+    switch (sprite.kind)
+    {
+        case Sprite.KIND_SPARCLE:
+        {
+            final Sparkle sparkle = (Sparkle) sprite;
+            if (!sparkle.pooled)
+            {
+                sparkle.pooled = true;
+                sparkles.add(sparkle);
+            }
+            break;
+        }
+        case Sprite.KIND_PARTICLE:
+        {
+            final Particle particle = (Particle) sprite;
+            if (!particle.pooled)
+            {
+                particle.pooled = true;
+                particles.add(particle);
+            }
+            break;
+        }
+        case Sprite.KIND_COIN_ANIM:
+        {
+            final CoinAnim coinAnim = (CoinAnim) sprite;
+            if (!coinAnim.pooled)
+            {
+                coinAnim.pooled = true;
+                coinAnims.add(coinAnim);
+            }
+            break;
+        }
+    }
+}
+
+public static boolean isCosmetic(int kind)
+{
+    return kind == Sprite.KIND_SPARCLE || kind == Sprite.KIND_PARTICLE || kind == Sprite.KIND_COIN_ANIM;
+}
+}
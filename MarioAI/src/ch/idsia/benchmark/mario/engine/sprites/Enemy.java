@@ -28,11 +28,10 @@
 package ch.idsia.benchmark.mario.engine.sprites;
 
 import ch.idsia.benchmark.mario.engine.Art;
+import ch.idsia.benchmark.mario.engine.DrawSnapshot;
 import ch.idsia.benchmark.mario.engine.GlobalOptions;
 import ch.idsia.benchmark.mario.engine.LevelScene;
 
-import java.awt.*;
-
 
 public class Enemy extends Sprite
 {
@@ -179,10 +178,11 @@ public void move()
         if (deadTime == 0)
         {
             deadTime = 1;
-            for (int i = 0; i < 8; i++)
-            {
-                levelScene.addSprite(new Sparkle((int) (x + Math.random() * 16 - 8) + 4, (int) (y - Math.random() * 8) + 4, (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 1, 5));
-            }
+            if (levelScene.hasCosmetics())
+                for (int i = 0; i < 8; i++)
+                {
+                    levelScene.addSparkle((int) (x + Math.random() * 16 - 8) + 4, (int) (y - Math.random() * 8) + 4, (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 1, 5);
+                }
             spriteContext.removeSprite(this);
         }
 
@@ -433,9 +433,9 @@ public void bumpCheck(int xTile, int yTile)
     }
 }
 
-public void render(Graphics og)
+public void snapshot(DrawSnapshot frame)
 {
-    if (winged)
+    if (winged && sheet != null)
     {
         int xPixel = (int) (xOld + (x - xOld)) - xPicO;
         int yPixel = (int) (yOld + (y - yOld)) - yPicO;
@@ -447,15 +447,14 @@ public void render(Graphics og)
         {
         } else
         {
-            xFlipPic = !xFlipPic;
-            og.drawImage(sheet[wingTime / 4 % 2][4], xPixel + (xFlipPic ? wPic : 0) + (xFlipPic ? 10 : -10), yPixel + (yFlipPic ? hPic : 0) - 8, xFlipPic ? -wPic : wPic, yFlipPic ? -hPic : hPic, null);
-            xFlipPic = !xFlipPic;
+            boolean flip = !xFlipPic; // the back wing faces the other way
+            frame.addImage(sheet[wingTime / 4 % 2][4], xPixel + (flip ? wPic : 0) + (flip ? 10 : -10), yPixel + (yFlipPic ? hPic : 0) - 8, flip ? -wPic : wPic, yFlipPic ? -hPic : hPic, layer);
         }
     }
 
-    super.render(og);
+    super.snapshot(frame);
 
-    if (winged)
+    if (winged && sheet != null)
     {
         int xPixel = (int) (xOld + (x - xOld)) - xPicO;
         int yPixel = (int) (yOld + (y - yOld)) - yPicO;
@@ -465,11 +464,11 @@ public void render(Graphics og)
                 kind == KIND_GREEN_KOOPA_WINGED ||
                 kind == KIND_RED_KOOPA_WINGED)
         {
-            og.drawImage(sheet[wingTime / 4 % 2][4], xPixel + (xFlipPic ? wPic : 0) + (xFlipPic ? 10 : -10), yPixel + (yFlipPic ? hPic : 0) - 10, xFlipPic ? -wPic : wPic, yFlipPic ? -hPic : hPic, null);
+            frame.addImage(sheet[wingTime / 4 % 2][4], xPixel + (xFlipPic ? wPic : 0) + (xFlipPic ? 10 : -10), yPixel + (yFlipPic ? hPic : 0) - 10, xFlipPic ? -wPic : wPic, yFlipPic ? -hPic : hPic, layer);
         } else
         {
-            og.drawImage(sheet[wingTime / 4 % 2][4], xPixel + (xFlipPic ? wPic : 0) + (xFlipPic ? 10 : -10), yPixel + (yFlipPic ? hPic : 0) - 8, xFlipPic ? -wPic : wPic, yFlipPic ? -hPic : hPic, null);
+            frame.addImage(sheet[wingTime / 4 % 2][4], xPixel + (xFlipPic ? wPic : 0) + (xFlipPic ? 10 : -10), yPixel + (yFlipPic ? hPic : 0) - 8, xFlipPic ? -wPic : wPic, yFlipPic ? -hPic : hPic, layer);
         }
     }
 }
-}
\ No newline at end of file
+}
@@ -76,10 +76,11 @@ public void move()
 {
     if (deadTime > 0)
     {
-        for (int i = 0; i < 8; i++)
-        {
-            world.addSprite(new Sparkle((int) (x + Math.random() * 8 - 4) + 4, (int) (y + Math.random() * 8 - 4) + 2, (float) Math.random() * 2 - 1 - facing, (float) Math.random() * 2 - 1, 0, 1, 5));
-        }
+        if (world.hasCosmetics())
+            for (int i = 0; i < 8; i++)
+            {
+                world.addSparkle((int) (x + Math.random() * 8 - 4) + 4, (int) (y + Math.random() * 8 - 4) + 2, (float) Math.random() * 2 - 1 - facing, (float) Math.random() * 2 - 1, 0, 1, 5);
+            }
         spriteContext.removeSprite(this);
 
         return;
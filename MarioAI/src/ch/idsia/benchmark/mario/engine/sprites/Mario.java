@@ -34,6 +34,7 @@ import ch.idsia.benchmark.mario.engine.level.Level;
 import ch.idsia.benchmark.mario.environments.Environment;
 import ch.idsia.benchmark.mario.environments.MarioEnvironment;
 import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.OptionsSnapshot;
 
 public final class Mario extends Sprite
 {
@@ -85,22 +86,23 @@ private boolean onTopOfLadder = false;
 
 public static void resetStatic(MarioAIOptions marioAIOptions)
 {
-    large = marioAIOptions.getMarioMode() > 0;
-    fire = marioAIOptions.getMarioMode() == 2;
+    OptionsSnapshot options = marioAIOptions.getSnapshot();
+    large = options.getMarioMode() > 0;
+    fire = options.getMarioMode() == 2;
     coins = 0;
     hiddenBlocksFound = 0;
     mushroomsDevoured = 0;
     flowersDevoured = 0;
     collisionsWithCreatures = 0;
 
-    isMarioInvulnerable = marioAIOptions.isMarioInvulnerable();
-    marioGravity = marioAIOptions.getMarioGravity();
-    jumpPower = marioAIOptions.getJumpPower();
+    isMarioInvulnerable = options.isMarioInvulnerable();
+    marioGravity = options.getMarioGravity();
+    jumpPower = options.getJumpPower();
 
-    isTrace = marioAIOptions.isTrace();
+    isTrace = options.isTrace();
 
-    iceCoeff = marioAIOptions.getIce();
-    windCoeff = marioAIOptions.getWind();
+    iceCoeff = options.getIce();
+    windCoeff = options.getWind();
 }
 
 public int getMode()
@@ -430,10 +432,11 @@ public void move()
 
     if (sliding)
     {
-        for (int i = 0; i < 1; i++)
-        {
-            levelScene.addSprite(new Sparkle((int) (x + Math.random() * 4 - 2) + facing * 8, (int) (y + Math.random() * 4) - 24, (float) (Math.random() * 2 - 1), (float) Math.random() * 1, 0, 1, 5));
-        }
+        if (levelScene.hasCosmetics())
+            for (int i = 0; i < 1; i++)
+            {
+                levelScene.addSparkle((int) (x + Math.random() * 4 - 2) + facing * 8, (int) (y + Math.random() * 4) - 24, (float) (Math.random() * 2 - 1), (float) Math.random() * 1, 0, 1, 5);
+            }
         ya *= 0.5f;
     }
 
@@ -532,10 +535,11 @@ private void calcPic()
 
         if (xa > 3 || xa < -3)
         {
-            for (int i = 0; i < 3; i++)
-            {
-                levelScene.addSprite(new Sparkle((int) (x + Math.random() * 8 - 4), (int) (y + Math.random() * 4), (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 1, 5));
-            }
+            if (levelScene.hasCosmetics())
+                for (int i = 0; i < 3; i++)
+                {
+                    levelScene.addSparkle((int) (x + Math.random() * 8 - 4), (int) (y + Math.random() * 4), (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 1, 5);
+                }
         }
     }
 
@@ -655,9 +659,10 @@ private boolean isBlocking(final float _x, final float _y, final float xa, final
     {
         Mario.gainCoin();
         levelScene.level.setBlock(x, y, (byte) 0);
-        for (int xx = 0; xx < 2; xx++)
-            for (int yy = 0; yy < 2; yy++)
-                levelScene.addSprite(new Sparkle(x * 16 + xx * 8 + (int) (Math.random() * 8), y * 16 + yy * 8 + (int) (Math.random() * 8), 0, 0, 0, 2, 5));
+        if (levelScene.hasCosmetics())
+            for (int xx = 0; xx < 2; xx++)
+                for (int yy = 0; yy < 2; yy++)
+                    levelScene.addSparkle(x * 16 + xx * 8 + (int) (Math.random() * 8), y * 16 + yy * 8 + (int) (Math.random() * 8), 0, 0, 0, 2, 5);
     }
 
     if (blocking && ya < 0)
@@ -32,6 +32,7 @@ import ch.idsia.benchmark.mario.engine.Art;
 public class Particle extends Sprite
 {
 public int life;
+boolean pooled; // waiting in CosmeticSprites to be used again
 
 public Particle(int x, int y, float xa, float ya)
 {
@@ -40,6 +41,12 @@ public Particle(int x, int y, float xa, float ya)
 
 public Particle(int x, int y, float xa, float ya, int xPic, int yPic)
 {
+    init(x, y, xa, ya, xPic, yPic);
+}
+
+void init(int x, int y, float xa, float ya, int xPic, int yPic)
+{
+    pooled = false;
     kind = KIND_PARTICLE;
     sheet = Art.particles;
     this.x = x;
@@ -33,6 +33,7 @@ public class Sparkle extends Sprite
 {
 public int life;
 public int xPicStart;
+boolean pooled; // waiting in CosmeticSprites to be used again
 
 public Sparkle(int x, int y, float xa, float ya)
 {
@@ -41,6 +42,12 @@ public Sparkle(int x, int y, float xa, float ya)
 
 public Sparkle(int x, int y, float xa, float ya, int xPic, int yPic, int timeSpan)
 {
+    init(x, y, xa, ya, xPic, yPic, timeSpan);
+}
+
+void init(int x, int y, float xa, float ya, int xPic, int yPic, int timeSpan)
+{
+    pooled = false;
     kind = KIND_SPARCLE;
     sheet = Art.particles;
     this.x = x;
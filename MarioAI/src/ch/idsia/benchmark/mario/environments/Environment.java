@@ -151,6 +151,13 @@ void performAction(boolean[] action);
 
 boolean isLevelFinished();
 
+/**
+ * Ends the current episode as a loss, the same way running out of time does.
+ *
+ * @param reason recorded as the reason of death
+ */
+void terminateEpisode(final String reason);
+
 int[] getEvaluationInfoAsInts();
 
 String getEvaluationInfoAsString();
@@ -171,6 +178,8 @@ public void setReplayer(Replayer recorder);
 
 public int getTimeSpent();
 
+public int getTimeLeft();
+
 public byte[][] getScreenCapture();
 
 void saveLastRun(String filename);
@@ -35,6 +35,7 @@ import ch.idsia.benchmark.mario.engine.sprites.Sprite;
 import ch.idsia.benchmark.tasks.SystemOfValues;
 import ch.idsia.tools.EvaluationInfo;
 import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.OptionsSnapshot;
 import ch.idsia.tools.punj.PunctualJudge;
 
 import java.io.FileNotFoundException;
@@ -71,6 +72,9 @@ private int[] serializedMergedObservation; // memory is allocated in reset
 private final LevelScene levelScene;
 //    private int frame = 0;
 private MarioVisualComponent marioVisualComponent;
+private SoftwareRenderer screenRenderer;   // created in reset when screen capture is on
+private byte[][] screenCapture;
+private int screenCaptureFactor;
 private Agent agent;
 
 private static final MarioEnvironment ourInstance = new MarioEnvironment();
@@ -125,9 +129,10 @@ public void reset(MarioAIOptions setUpOptions)
 //    if (!setUpOptions.getReplayOptions().equals(""))
 
     this.setAgent(setUpOptions.getAgent());
+    OptionsSnapshot options = setUpOptions.getSnapshot();
 
-    receptiveFieldWidth = setUpOptions.getReceptiveFieldWidth();
-    receptiveFieldHeight = setUpOptions.getReceptiveFieldHeight();
+    receptiveFieldWidth = options.getReceptiveFieldWidth();
+    receptiveFieldHeight = options.getReceptiveFieldHeight();
 
     if (receptiveFieldHeight != this.prevRFH || receptiveFieldWidth != this.prevRFW)
     {
@@ -142,36 +147,51 @@ public void reset(MarioAIOptions setUpOptions)
         this.prevRFW = this.receptiveFieldWidth;
     }
 
-    marioEgoPos[0] = setUpOptions.getMarioEgoPosRow();
-    marioEgoPos[1] = setUpOptions.getMarioEgoPosCol();
+    marioEgoPos[0] = options.getMarioEgoPosRow();
+    marioEgoPos[1] = options.getMarioEgoPosCol();
 
     if (marioEgoPos[0] == 9 && getReceptiveFieldWidth() != 19)
         marioEgoPos[0] = getReceptiveFieldWidth() / 2;
     if (marioEgoPos[1] == 9 && getReceptiveFieldHeight() != 19)
         marioEgoPos[1] = getReceptiveFieldHeight() / 2;
 
-    marioTraceFile = setUpOptions.getTraceFileName();
+    marioTraceFile = options.getTraceFileName();
 
-    if (setUpOptions.isVisualization())
+    screenCaptureFactor = options.getScreenCaptureFactor();
+    if (screenCaptureFactor > 0)
+    {
+        // before levelScene.reset: sprites take their sheets from Art when they are created
+        if (screenRenderer == null || screenRenderer.width != GlobalOptions.VISUAL_COMPONENT_WIDTH || screenRenderer.height != GlobalOptions.VISUAL_COMPONENT_HEIGHT)
+            screenRenderer = new SoftwareRenderer(GlobalOptions.VISUAL_COMPONENT_WIDTH, GlobalOptions.VISUAL_COMPONENT_HEIGHT);
+        int rows = screenRenderer.height / screenCaptureFactor, columns = screenRenderer.width / screenCaptureFactor;
+        if (screenCapture == null || screenCapture.length != rows || screenCapture[0].length != columns)
+            screenCapture = new byte[rows][columns];
+    }
+
+    if (options.isVisualization())
     {
         if (marioVisualComponent == null)
             marioVisualComponent = MarioVisualComponent.getInstance(setUpOptions, this);
         levelScene.reset(setUpOptions);
         marioVisualComponent.reset();
         marioVisualComponent.postInitGraphicsAndLevel();
+        levelScene.setFrameChannel(marioVisualComponent.getFrameChannel());
         marioVisualComponent.setAgent(agent);
-        marioVisualComponent.setLocation(setUpOptions.getViewLocation());
-        marioVisualComponent.setAlwaysOnTop(setUpOptions.isViewAlwaysOnTop());
+        marioVisualComponent.setLocation(options.getViewLocation());
+        marioVisualComponent.setAlwaysOnTop(options.isViewAlwaysOnTop());
 
-        if (setUpOptions.isScale2X())
+        if (options.isScale2X())
             GlobalOptions.changeScale2x();
     } else
+    {
+        levelScene.setFrameChannel(null);
         levelScene.reset(setUpOptions);
+    }
 
     sprites = levelScene.sprites;
 
     //create recorder
-    String recordingFileName = setUpOptions.getRecordingFileName();
+    String recordingFileName = options.getRecordingFileName();
 
     if (!recordingFileName.equals("off"))
     {
@@ -204,14 +224,20 @@ public void reset(MarioAIOptions setUpOptions)
         }
     }
     evaluationInfo.reset();
-    PunctualJudge.resetCounter();
+    PunctualJudge.resetCounter(agent);
 }
 
 public void tick()
 {
     levelScene.tick();
-    if (GlobalOptions.isVisualization)
-        marioVisualComponent.tick();
+    // ReplayTask switches visualization on and off between ticks
+    if (marioVisualComponent != null)
+    {
+        if (GlobalOptions.isVisualization)
+            marioVisualComponent.tick();
+        else
+            marioVisualComponent.pause();
+    }
 }
 
 public float[] getMarioFloatPos()
@@ -558,6 +584,12 @@ public boolean isLevelFinished()
     return levelScene.isLevelFinished();
 }
 
+public void terminateEpisode(final String reason)
+{
+    if (!levelScene.isLevelFinished())
+        levelScene.mario.die(reason);
+}
+
 public int[] getEvaluationInfoAsInts()
 {
     return this.getEvaluationInfo().toIntArray();
@@ -568,8 +600,14 @@ public String getEvaluationInfoAsString()
     return this.getEvaluationInfo().toString();
 }
 
+/**
+ * Can be called at any time, agents do so every tick. The recorder is only closed once the level is
+ * finished, so that no further actions are lost.
+ */
 public EvaluationInfo getEvaluationInfo()
 {
+    if (isLevelFinished())
+        closeRecorder();
     computeEvaluationInfo();
     return evaluationInfo;
 }
@@ -641,8 +679,6 @@ public Level getLevel()
 
 private void computeEvaluationInfo()
 {
-    if (recorder != null)
-        closeRecorder();
 //        evaluationInfo.agentType = agent.getClass().getSimpleName();
 //        evaluationInfo.agentName = agent.getName();
     evaluationInfo.marioStatus = levelScene.getMarioStatus();
@@ -672,7 +708,7 @@ private void computeEvaluationInfo()
     evaluationInfo.marioTraceFileName = marioTraceFile;
     evaluationInfo.marioTrace = levelScene.level.marioTrace;
     evaluationInfo.greenMushroomsDevoured = Mario.greenMushroomsDevoured;
-    evaluationInfo.bytecodeInstructions = PunctualJudge.getCounter();
+    evaluationInfo.bytecodeInstructions = PunctualJudge.getCounter(agent);
 }
 
 public void setAgent(Agent agent)
@@ -693,7 +729,7 @@ public int[] getMarioEgoPos()
 
 public void closeRecorder()
 {
-    if (recorder != null)
+    if (recorder != null && recorder.canRecord())
     {
         try
         {
@@ -712,9 +748,17 @@ public int getTimeSpent()
     return levelScene.getTimeSpent();
 }
 
+/**
+ * Grayscale picture of the game as seen in the visualization, downsampled by the factor given with
+ * <code>-sc</code>; <code>null</code> when screen capture is off. The array is reused on every call.
+ */
 public byte[][] getScreenCapture()
 {
-    return null;
+    if (screenCaptureFactor <= 0)
+        return null;
+    screenRenderer.render(levelScene.level, sprites, levelScene.mario.x, levelScene.mario.y, levelScene.getLevelType());
+    screenRenderer.toGrayscale(screenCapture, screenCaptureFactor);
+    return screenCapture;
 }
 
 public void setReplayer(Replayer replayer)
@@ -475,6 +475,81 @@ public void setScale2X(boolean z)
     setParameterValue("-z", s(z));
 }
 
+public int getScreenCaptureFactor()
+{
+    return i(getParameterValue("-sc"));
+}
+
+public void setScreenCaptureFactor(int factor)
+{
+    setParameterValue("-sc", s(factor));
+}
+
+/**
+ * @return whether sparkles, brick particles and coin animations are created; off changes nothing but the picture
+ */
+public boolean isCosmetics()
+{
+    return b(getParameterValue("-cos"));
+}
+
+public void setCosmetics(boolean cosmetics)
+{
+    setParameterValue("-cos", s(cosmetics));
+}
+
+/**
+ * @return seconds between two log lines of <code>TickProfiler</code>, 0 when profiling is not asked for
+ */
+public int getProfileInterval()
+{
+    return i(getParameterValue("-prof"));
+}
+
+public void setProfileInterval(int seconds)
+{
+    setParameterValue("-prof", s(seconds));
+}
+
+/**
+ * @return CPU milliseconds an agent may spend per action, 0 for no limit
+ */
+public int getCpuBudget()
+{
+    return i(getParameterValue("-cb"));
+}
+
+public void setCpuBudget(int milliseconds)
+{
+    setParameterValue("-cb", s(milliseconds));
+}
+
+/**
+ * @return bytecode instructions an instrumented agent may execute per action, 0 for no limit
+ */
+public int getInstructionBudget()
+{
+    return i(getParameterValue("-ib"));
+}
+
+public void setInstructionBudget(int instructions)
+{
+    setParameterValue("-ib", s(instructions));
+}
+
+/**
+ * @return actions over budget that are dropped before the agent is disqualified
+ */
+public int getBudgetViolations()
+{
+    return i(getParameterValue("-bv"));
+}
+
+public void setBudgetViolations(int violations)
+{
+    setParameterValue("-bv", s(violations));
+}
+
 public void setGreenMushroomMode(int mode)
 {
     setParameterValue("-gmm", s(mode));
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.benchmark.tasks;
+
+import ch.idsia.benchmark.mario.environments.Environment;
+
+/**
+ * Stops an episode as soon as any of the given policies does.
+ */
+public class AnyTermination implements EpisodeTerminationPolicy
+{
+private final EpisodeTerminationPolicy[] policies;
+private EpisodeTerminationPolicy fired;
+
+public AnyTermination(final EpisodeTerminationPolicy... policies)
+{
+    this.policies = policies.clone();
+}
+
+public void reset(final Environment environment)
+{
+    fired = null;
+    for (EpisodeTerminationPolicy policy : policies)
+        policy.reset(environment);
+}
+
+public boolean shouldTerminate(final Environment environment)
+{
+    // every policy is asked on every tick so that their counters stay in step
+    for (EpisodeTerminationPolicy policy : policies)
+        if (policy.shouldTerminate(environment) && fired == null)
+            fired = policy;
+    return fired != null;
+}
+
+public String getName()
+{
+    return fired != null ? fired.getName() : "any of " + policies.length + " policies";
+}
+}
@@ -32,11 +32,9 @@ import ch.idsia.benchmark.mario.engine.GlobalOptions;
 import ch.idsia.benchmark.mario.environments.Environment;
 import ch.idsia.benchmark.mario.environments.MarioEnvironment;
 import ch.idsia.tools.EvaluationInfo;
+import ch.idsia.tools.EvaluationStatistics;
 import ch.idsia.tools.MarioAIOptions;
-import ch.idsia.tools.punj.PunctualJudge;
-import ch.idsia.utils.statistics.StatisticalSummary;
-
-import java.util.Vector;
+import ch.idsia.tools.ResultsWriter;
 
 /**
  * Created by IntelliJ IDEA.
@@ -50,11 +48,18 @@ public class BasicTask implements Task
 protected final static Environment environment = MarioEnvironment.getInstance();
 private Agent agent;
 protected MarioAIOptions options;
-private long COMPUTATION_TIME_BOUND = 42; // stands for prescribed  FPS 24.
+private ComputeBudget budget; // null unless -cb or -ib is given
+private static final boolean[] NO_ACTION = new boolean[Environment.numberOfKeys];
 private String name = getClass().getSimpleName();
 private EvaluationInfo evaluationInfo;
 
-private Vector<StatisticalSummary> statistics = new Vector<StatisticalSummary>();
+private final EvaluationStatistics statistics = new EvaluationStatistics();
+private ResultsWriter results;
+
+private EpisodeTerminationPolicy terminationPolicy;
+private long ticksSimulated = 0;
+private long ticksSaved = 0; // ticks left on the level timer of episodes stopped by the policy
+private int episodesTerminated = 0;
 
 public BasicTask(MarioAIOptions marioAIOptions)
 {
@@ -63,40 +68,119 @@ public BasicTask(MarioAIOptions marioAIOptions)
 
 /**
  * @param repetitionsOfSingleEpisode
- * @return boolean flag whether controller is disqualified or not
+ * @return false if the controller has been disqualified for exceeding its <code>ComputeBudget</code>
  */
 public boolean runSingleEpisode(final int repetitionsOfSingleEpisode)
 {
-    long c = System.currentTimeMillis();
+    boolean disqualified = false;
+    final TickProfiler profiler = TickProfiler.getInstance();
     for (int r = 0; r < repetitionsOfSingleEpisode; ++r)
     {
         this.reset();
+        if (terminationPolicy != null)
+            terminationPolicy.reset(environment);
+        final long allocated = profiler.allocationMark();
         while (!environment.isLevelFinished())
         {
+            long t = profiler.start();
             environment.tick();
             if (!GlobalOptions.isGameplayStopped)
             {
-                c = System.currentTimeMillis();
+                t = profiler.lap(TickProfiler.TICK, t);
+                ++ticksSimulated;
+                if (terminationPolicy != null && !environment.isLevelFinished()
+                        && terminationPolicy.shouldTerminate(environment))
+                {
+                    ticksSaved += environment.getTimeLeft() * GlobalOptions.mariosecondMultiplier;
+                    ++episodesTerminated;
+                    environment.terminateEpisode("Episode stopped: " + terminationPolicy.getName());
+                    break;
+                }
+                if (terminationPolicy != null)
+                    t = profiler.lap(TickProfiler.POLICY, t);
+                // environment work stays outside the agent's budget
+                final int intermediateReward = environment.getIntermediateReward();
+                if (budget != null)
+                    budget.begin();
                 agent.integrateObservation(environment);
-                agent.giveIntermediateReward(environment.getIntermediateReward());
+                agent.giveIntermediateReward(intermediateReward);
+                t = profiler.lap(TickProfiler.OBSERVE, t);
 
                 boolean[] action = agent.getAction();
-                //TODO uncomment time-bound for real testing in competition
-                //if (System.currentTimeMillis() - c > COMPUTATION_TIME_BOUND)
-                  //  return false;
+                t = profiler.lap(TickProfiler.ACTION, t);
+                if (budget != null && budget.end())
+                {
+                    if (budget.isExhausted())
+                    {
+                        disqualified = true;
+                        environment.terminateEpisode("Agent disqualified: " + budget);
+                        break;
+                    }
+                    action = NO_ACTION; // too late for this tick
+                }
 //                System.out.println("action = " + Arrays.toString(action));
 //            environment.setRecording(GlobalOptions.isRecording);
                 environment.performAction(action);
+                profiler.lap(TickProfiler.PERFORM, t);
+                profiler.tickDone(t, environment);
             }
         }
+        profiler.allocationDone(allocated);
         environment.closeRecorder(); //recorder initialized in environment.reset
         environment.getEvaluationInfo().setTaskName(name);
         this.evaluationInfo = environment.getEvaluationInfo().clone();
+        if (budget != null)
+        {
+            evaluationInfo.budgetViolations = budget.getViolations();
+            evaluationInfo.disqualified = disqualified;
+            if (disqualified)
+                return false;
+        }
     }
 
     return true;
 }
 
+/**
+ * @param policy consulted after every tick of <code>runSingleEpisode</code>; <code>null</code> runs every
+ *               episode until the level is finished
+ */
+public void setTerminationPolicy(final EpisodeTerminationPolicy policy)
+{
+    this.terminationPolicy = policy;
+}
+
+public EpisodeTerminationPolicy getTerminationPolicy()
+{
+    return terminationPolicy;
+}
+
+public long getTicksSimulated()
+{
+    return ticksSimulated;
+}
+
+/**
+ * @return ticks that were left on the level timer when episodes were stopped early, i.e. the simulation
+ *         time saved relative to running every stopped episode until time-out
+ */
+public long getTicksSaved()
+{
+    return ticksSaved;
+}
+
+public int getEpisodesTerminated()
+{
+    return episodesTerminated;
+}
+
+public void resetTickAccounting()
+{
+    ticksSimulated = 0;
+    ticksSaved = 0;
+    episodesTerminated = 0;
+}
+
 public Environment getEnvironment()
 {
     return environment;
@@ -121,24 +205,44 @@ public void setOptionsAndReset(final String options)
 
 public void doEpisodes(int amount, boolean verbose, final int repetitionsOfSingleEpisode)
 {
-    for (int j = 0; j < EvaluationInfo.numberOfElements; j++)
-    {
-        statistics.addElement(new StatisticalSummary());
-    }
     for (int i = 0; i < amount; ++i)
     {
         this.reset();
         this.runSingleEpisode(repetitionsOfSingleEpisode);
         if (verbose)
-            System.out.println(environment.getEvaluationInfoAsString());
+            System.out.println(evaluationInfo.toString());
 
-        for (int j = 0; j < EvaluationInfo.numberOfElements; j++)
-        {
-            statistics.get(j).add(environment.getEvaluationInfoAsInts()[j]);
-        }
+        statistics.add(evaluationInfo);
+        recordEpisode();
     }
 
-    System.out.println(statistics.get(3).toString());
+    System.out.println(statistics.toString());
+}
+
+/**
+ * Everything <code>doEpisodes</code> has recorded so far.
+ */
+public EvaluationStatistics getStatistics()
+{
+    return statistics;
+}
+
+/**
+ * Let <code>doEpisodes</code>, and the <code>evaluate</code> of the learning tasks, also append every
+ * episode to <code>results</code>; null to stop. The task does not close it.
+ */
+public void setResultsWriter(ResultsWriter results)
+{
+    this.results = results;
+}
+
+/**
+ * Append the episode <code>runSingleEpisode</code> has just played to the results writer, if any.
+ */
+protected void recordEpisode()
+{
+    if (results != null)
+        results.add(evaluationInfo, options);
 }
 
 public boolean isFinished()
@@ -148,9 +252,18 @@ public boolean isFinished()
 
 public void reset()
 {
+    int profileInterval = options.getSnapshot().getProfileInterval();
+    if (profileInterval > 0)
+    {
+        TickProfiler.getInstance().setEnabled(true);
+        TickProfiler.getInstance().setLogInterval(profileInterval);
+    }
     agent = options.getAgent();
     environment.reset(options);
     agent.reset();
+    budget = ComputeBudget.create(options);
+    if (budget != null)
+        budget.reset(agent);
     agent.setObservationDetails(environment.getReceptiveFieldWidth(),
             environment.getReceptiveFieldHeight(),
             environment.getMarioEgoPos()[0],
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.benchmark.tasks;
+
+import ch.idsia.benchmark.mario.engine.GlobalOptions;
+import ch.idsia.benchmark.mario.environments.Environment;
+
+/**
+ * Stops an episode as soon as Mario can no longer reach a given distance (in pixels) before the level timer
+ * runs out, assuming he runs right at top speed for every remaining tick. The bound is only meaningful for
+ * tasks whose fitness is the distance passed, such as <code>ProgressTask</code>: a stopped candidate is
+ * guaranteed to score below the threshold both with and without the early stop.
+ * <p/>
+ * The default speed limit of 10 pixels per tick covers running (terminal speed about 9.7), wall jumps and
+ * the fly cheat, but not wind or ice, which raise the inertia; pass a larger limit for such levels.
+ */
+public class BoundTermination implements EpisodeTerminationPolicy
+{
+public static final float DEFAULT_MAX_SPEED = 10f;
+
+private final float maxSpeed;
+private float threshold = Float.NEGATIVE_INFINITY;
+
+public BoundTermination()
+{
+    this(DEFAULT_MAX_SPEED);
+}
+
+public BoundTermination(final float maxSpeed)
+{
+    if (!(maxSpeed > 0))
+        throw new IllegalArgumentException("maxSpeed must be positive: " + maxSpeed);
+    this.maxSpeed = maxSpeed;
+}
+
+/**
+ * @param threshold distance an episode has to be able to reach to keep running;
+ *                  <code>Float.NEGATIVE_INFINITY</code> disables pruning
+ */
+public void setThreshold(final float threshold)
+{
+    this.threshold = threshold;
+}
+
+public float getThreshold()
+{
+    return threshold;
+}
+
+public void disable()
+{
+    threshold = Float.NEGATIVE_INFINITY;
+}
+
+public void reset(final Environment environment)
+{
+}
+
+public boolean shouldTerminate(final Environment environment)
+{
+    if (threshold == Float.NEGATIVE_INFINITY)
+        return false;
+    // getTimeLeft() is rounded down to whole marioseconds, so add one to stay an upper bound
+    final int ticksLeft = (environment.getTimeLeft() + 1) * GlobalOptions.mariosecondMultiplier;
+    return environment.getMarioFloatPos()[0] + ticksLeft * maxSpeed < threshold;
+}
+
+public String getName()
+{
+    return "cannot reach distance " + threshold;
+}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.benchmark.tasks;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.OptionsSnapshot;
+import ch.idsia.tools.punj.PunctualJudge;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Per action compute budget of an agent, as in the competition rule of 42 ms per frame, but measured in
+ * CPU time of the simulating thread rather than wall clock time, so that a busy machine or other
+ * environments running in parallel do not count against the agent. With <code>-punj on</code> the agent
+ * may also be held to a number of bytecode instructions per action, counted by its
+ * <code>PunctualJudge</code>, which does not depend on the machine at all.
+ * <p/>
+ * An action that needs more than the budget is dropped: Mario does nothing that tick, as if the action
+ * arrived too late. After more than <code>-bv</code> such actions the agent is disqualified and
+ * <code>BasicTask</code> ends the episode.
+ * <p/>
+ * Set up with <code>-cb</code> (CPU milliseconds per action) and <code>-ib</code> (instructions per
+ * action); when both are 0 there is no budget and the simulation loop pays nothing.
+ */
+public class ComputeBudget
+{
+private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+private final long cpuNanos;
+private final long instructions;
+private final int allowedViolations;
+
+private PunctualJudge judge;
+private long cpuMark;
+private long instructionMark;
+
+private int violations;
+private long actions;
+private long cpuTotal;
+private long cpuMax;
+private long instructionsTotal;
+private long instructionsMax;
+
+/**
+ * @param cpuNanosPerAction     0 for no CPU time budget
+ * @param instructionsPerAction 0 for no instruction budget
+ * @param allowedViolations     actions over budget that are dropped before the agent is disqualified
+ */
+public ComputeBudget(long cpuNanosPerAction, long instructionsPerAction, int allowedViolations)
+{
+    if (cpuNanosPerAction > 0 && !threads.isCurrentThreadCpuTimeSupported())
+        throw new UnsupportedOperationException("[Mario AI EXCEPTION] : this JVM cannot measure thread CPU time");
+    this.cpuNanos = cpuNanosPerAction;
+    this.instructions = instructionsPerAction;
+    this.allowedViolations = allowedViolations;
+}
+
+/**
+ * @return the budget asked for by <code>options</code>, or null if there is none
+ */
+public static ComputeBudget create(MarioAIOptions marioAIOptions)
+{
+    OptionsSnapshot options = marioAIOptions.getSnapshot();
+    if (options.getCpuBudget() <= 0 && options.getInstructionBudget() <= 0)
+        return null;
+    return new ComputeBudget(options.getCpuBudget() * 1000000L, options.getInstructionBudget(),
+            options.getBudgetViolations());
+}
+
+/**
+ * Starts an episode of <code>agent</code>.
+ */
+public void reset(Agent agent)
+{
+    judge = PunctualJudge.of(agent);
+    if (instructions > 0 && judge == null)
+        System.err.println("[Mario AI EXCEPTION] : instruction budget ignored, " + agent.getName()
+                + " is not instrumented; use -punj on");
+    if (cpuNanos > 0 && !threads.isThreadCpuTimeEnabled())
+        threads.setThreadCpuTimeEnabled(true);
+    violations = 0;
+    actions = cpuTotal = cpuMax = instructionsTotal = instructionsMax = 0;
+}
+
+/**
+ * Call right before the agent is given the observation.
+ */
+public void begin()
+{
+    if (cpuNanos > 0)
+        cpuMark = threads.getCurrentThreadCpuTime();
+    if (judge != null)
+        instructionMark = judge.getCounter();
+}
+
+/**
+ * Call right after the agent returned its action.
+ *
+ * @return whether the action exceeded the budget
+ */
+public boolean end()
+{
+    boolean over = false;
+    actions++;
+    if (cpuNanos > 0)
+    {
+        long spent = threads.getCurrentThreadCpuTime() - cpuMark;
+        cpuTotal += spent;
+        cpuMax = Math.max(cpuMax, spent);
+        over = spent > cpuNanos;
+    }
+    if (judge != null)
+    {
+        long spent = judge.getCounter() - instructionMark;
+        instructionsTotal += spent;
+        instructionsMax = Math.max(instructionsMax, spent);
+        over |= instructions > 0 && spent > instructions;
+    }
+    if (over)
+        violations++;
+    return over;
+}
+
+public boolean isExhausted()
+{
+    return violations > allowedViolations;
+}
+
+public int getViolations()
+{
+    return violations;
+}
+
+public long getMaxCpuNanos()
+{
+    return cpuMax;
+}
+
+public double getMeanCpuNanos()
+{
+    return actions == 0 ? 0 : (double) cpuTotal / actions;
+}
+
+public long getMaxInstructions()
+{
+    return instructionsMax;
+}
+
+public double getMeanInstructions()
+{
+    return actions == 0 ? 0 : (double) instructionsTotal / actions;
+}
+
+public String toString()
+{
+    StringBuilder sb = new StringBuilder("budget");
+    if (cpuNanos > 0)
+        sb.append(String.format(" %.1f ms CPU (mean %.3f, max %.3f)", cpuNanos / 1e6, getMeanCpuNanos() / 1e6, cpuMax / 1e6));
+    if (instructions > 0 && judge != null)
+        sb.append(String.format(" %d instructions (mean %.0f, max %d)", instructions, getMeanInstructions(), instructionsMax));
+    return sb.append(", ").append(violations).append(" actions over").toString();
+}
+}
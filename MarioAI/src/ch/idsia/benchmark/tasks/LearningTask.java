@@ -71,12 +71,17 @@ public int evaluate(Agent agent)
     environment.reset(options);
     fitnessEvaluations++; // TODO : remove either or two currentEvaluation or fitnessEvaluations
     this.runSingleEpisode(1);
+    recordEpisode();
     return this.getEvaluationInfo().computeWeightedFitness();
 }
 
 public static long getEvaluationQuota()
 {return LearningTask.EVALUATION_QUOTA;}
 
+/**
+ * Append a line to the plain-text learning curve. The episodes themselves go to the results writer, see
+ * <code>setResultsWriter</code>.
+ */
 public void dumpFitnessEvaluation(float fitness, String fileName)
 {
     try
@@ -29,19 +29,32 @@ package ch.idsia.benchmark.tasks;
 
 import ch.idsia.agents.Agent;
 import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.utils.statistics.StatisticalTests;
+
+import java.util.Arrays;
 
 /**
  * Created by IntelliJ IDEA.
  * User: julian
  * Date: May 23, 2009
  * Time: 11:37:47 PM
+ * <p/>
+ * Fitness is the distance passed, averaged over consecutive level seeds. A population can be raced over the
+ * seeds: after the first <code>racingFirstSeeds</code> seeds, every individual whose paired distances are
+ * significantly worse (one-sided t-test) than those of the current leader is dropped, and the remaining
+ * seeds are only played by the survivors.
  */
 
-public class MultiSeedProgressTask extends BasicTask implements Task
+public class MultiSeedProgressTask extends BasicTask implements PopulationTask
 {
-private MarioAIOptions options;
 private int startingSeed = 0;
 private int numberOfSeeds = 3;
+private boolean racing = false;
+private int racingFirstSeeds = 3;
+private double racingConfidence = 0.95;
+
+private long episodesPlayed = 0;
+private long episodesSaved = 0;
 
 public MultiSeedProgressTask(MarioAIOptions evaluationOptions)
 {
@@ -52,22 +65,127 @@ public MultiSeedProgressTask(MarioAIOptions evaluationOptions)
 public int evaluate(Agent controller)
 {
     float distanceTravelled = 0;
-
-    options.setAgent(controller);
-//        this.setAgent(controller);
-
     for (int i = 0; i < numberOfSeeds; i++)
     {
-        controller.reset();
-        options.setLevelRandSeed(startingSeed + i);
-//        this.reset(options);
-        this.runSingleEpisode(1);
-        distanceTravelled += this.getEnvironment().getEvaluationInfo().computeDistancePassed();
+        distanceTravelled += playSeed(controller, startingSeed + i);
     }
     distanceTravelled = distanceTravelled / numberOfSeeds;
     return (int) distanceTravelled;
 }
 
+public void evaluate(final Agent[] controllers, final int survivors, final float[] fitness)
+{
+    final int n = controllers.length;
+    final float[][] distances = new float[n][numberOfSeeds];
+    final boolean[] alive = new boolean[n];
+    final int[] played = new int[n];
+    Arrays.fill(alive, true);
+    int aliveCount = n;
+
+    for (int seed = 0; seed < numberOfSeeds; seed++)
+    {
+        for (int i = 0; i < n; i++)
+        {
+            if (alive[i])
+            {
+                distances[i][seed] = playSeed(controllers[i], startingSeed + seed);
+                played[i]++;
+            }
+        }
+        if (racing && seed + 1 >= racingFirstSeeds && seed + 1 < numberOfSeeds && aliveCount > survivors)
+            aliveCount -= eliminate(distances, seed + 1, alive, aliveCount - Math.max(survivors, 1));
+    }
+
+    float weakestSurvivor = Float.POSITIVE_INFINITY;
+    for (int i = 0; i < n; i++)
+    {
+        fitness[i] = mean(distances[i], played[i]);
+        if (alive[i])
+            weakestSurvivor = Math.min(weakestSurvivor, fitness[i]);
+    }
+    for (int i = 0; i < n; i++)
+    {
+        if (!alive[i])
+        {
+            // a partial mean is not comparable with full ones; keep dropped individuals below every survivor
+            fitness[i] = Math.min(fitness[i], Math.nextAfter(weakestSurvivor, Double.NEGATIVE_INFINITY));
+            episodesSaved += numberOfSeeds - played[i];
+        }
+    }
+}
+
+/**
+ * Drops up to <code>limit</code> individuals that are significantly worse than the leader over the first
+ * <code>seeds</code> seeds, worst mean first.
+ *
+ * @return the number of individuals dropped
+ */
+private int eliminate(float[][] distances, int seeds, boolean[] alive, int limit)
+{
+    int leader = -1;
+    for (int i = 0; i < alive.length; i++)
+        if (alive[i] && (leader < 0 || mean(distances[i], seeds) > mean(distances[leader], seeds)))
+            leader = i;
+
+    final boolean[] worse = new boolean[alive.length];
+    int candidates = 0;
+    for (int i = 0; i < alive.length; i++)
+    {
+        if (alive[i] && i != leader && significantlyWorse(distances[leader], distances[i], seeds))
+        {
+            worse[i] = true;
+            candidates++;
+        }
+    }
+
+    int dropped = 0;
+    while (dropped < limit && dropped < candidates)
+    {
+        int worst = -1;
+        for (int i = 0; i < alive.length; i++)
+            if (worse[i] && alive[i] && (worst < 0 || mean(distances[i], seeds) < mean(distances[worst], seeds)))
+                worst = i;
+        alive[worst] = false;
+        dropped++;
+    }
+    return dropped;
+}
+
+private boolean significantlyWorse(float[] leader, float[] other, int seeds)
+{
+    double mean = 0;
+    for (int k = 0; k < seeds; k++)
+        mean += leader[k] - other[k];
+    mean /= seeds;
+    if (mean <= 0)
+        return false;
+    double squares = 0;
+    for (int k = 0; k < seeds; k++)
+        squares += StatisticalTests.sqr(leader[k] - other[k] - mean);
+    if (squares == 0)
+        return true; // the leader is ahead by the same distance on every seed
+    final double t = mean / Math.sqrt(squares / (seeds - 1) / seeds);
+    return StatisticalTests.tSingle(t, seeds - 1) >= racingConfidence;
+}
+
+private static float mean(float[] values, int count)
+{
+    float sum = 0;
+    for (int k = 0; k < count; k++)
+        sum += values[k];
+    return sum / count;
+}
+
+private float playSeed(Agent controller, int seed)
+{
+    controller.reset();
+    options.setAgent(controller);
+    options.setLevelRandSeed(seed);
+    this.runSingleEpisode(1);
+    episodesPlayed++;
+    return this.getEnvironment().getEvaluationInfo().computeDistancePassed();
+}
+
 public void setStartingSeed(int seed)
 {
     startingSeed = seed;
@@ -78,6 +196,42 @@ public void setNumberOfSeeds(int number)
     numberOfSeeds = number;
 }
 
+/**
+ * @param firstSeeds seeds every individual plays before the first elimination, at least 2
+ * @param confidence confidence of the one-sided t-test needed to drop an individual, e.g. 0.95
+ */
+public void setRacing(int firstSeeds, double confidence)
+{
+    if (firstSeeds < 2)
+        throw new IllegalArgumentException("racing needs at least 2 seeds before the first test: " + firstSeeds);
+    this.racing = true;
+    this.racingFirstSeeds = firstSeeds;
+    this.racingConfidence = confidence;
+}
+
+public void disableRacing()
+{
+    racing = false;
+}
+
+public long getEpisodesPlayed()
+{
+    return episodesPlayed;
+}
+
+public long getEpisodesSaved()
+{
+    return episodesSaved;
+}
+
+/**
+ * @return the fraction of episodes racing skipped compared to playing every seed with every individual
+ */
+public double getSavedEpisodeRatio()
+{
+    return episodesPlayed + episodesSaved == 0 ? 0 : (double) episodesSaved / (episodesPlayed + episodesSaved);
+}
+
 public void setOptionsAndReset(MarioAIOptions options)
 {
     this.options = options;
@@ -97,9 +251,4 @@ public boolean isFinished()
 {
     return true;
 }
-
-public void reset()
-{
-
-}
 }
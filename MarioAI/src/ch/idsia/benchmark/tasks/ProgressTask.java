@@ -75,6 +75,7 @@ private float evaluateSingleLevel(int ld, int tl, int ls, boolean vis, Agent con
 //        this.setAgent(controller);
     this.setOptionsAndReset(options);
     this.runSingleEpisode(1);
+    recordEpisode();
     distanceTravelled += this.getEnvironment().getEvaluationInfo().computeDistancePassed();
     return distanceTravelled;
 }
@@ -110,6 +111,10 @@ public int evaluate(Agent controller)
     return fitn;
 }
 
+/**
+ * Append a line to the plain-text learning curve. The episodes themselves go to the results writer, see
+ * <code>setResultsWriter</code>.
+ */
 public void dumpFitnessEvaluation(float fitness, String fileName)
 {
     try
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package ch.idsia.benchmark.tasks;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.evolution.WeightsEvolvable;
+import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.Sandbox;
+
+/**
+ * Plays <code>LearningTask</code> episodes in a <code>Sandbox</code>, a copy of the benchmark with its own
+ * static <code>MarioEnvironment</code>. Unlike the tasks built on <code>BasicTask</code>, several instances
+ * can evaluate at the same time, e.g. as the workers of a <code>CandidateEvaluator</code>.
+ * <p/>
+ * Only the genome crosses into the sandbox: the controller must be a <code>WeightsEvolvable</code> with a
+ * public no-argument constructor, and is rebuilt there from its class and weights. The fitness is the
+ * weighted fitness of one episode, as returned by <code>LearningTask.evaluate</code>.
+ */
+public class SandboxedTask implements Task
+{
+private final Sandbox sandbox;
+private String options;
+
+public SandboxedTask(String options)
+{
+    this.options = options;
+    try
+    {
+        this.sandbox = new Sandbox();
+    } catch (ReflectiveOperationException e)
+    {
+        throw new IllegalStateException("[Mario AI EXCEPTION] : could not create a sandbox", e);
+    }
+}
+
+public int evaluate(Agent controller)
+{
+    WeightsEvolvable phenotype = (WeightsEvolvable) controller;
+    double[] weights = new double[phenotype.getNumberOfWeights()];
+    phenotype.getWeights(weights, 0);
+    try
+    {
+        return sandbox.evaluate(controller.getClass().getName(), weights, options);
+    } catch (RuntimeException e)
+    {
+        throw e;
+    } catch (Throwable e)
+    {
+        throw new RuntimeException("[Mario AI EXCEPTION] : sandboxed evaluation failed", e);
+    }
+}
+
+/**
+ * Takes over the command line <code>options</code> was built from; options changed through setters since are
+ * not seen by the sandbox.
+ */
+public void setOptionsAndReset(MarioAIOptions options)
+{
+    this.options = options.asString();
+}
+
+public void setOptionsAndReset(String options)
+{
+    this.options = options;
+}
+
+public void reset()
+{}
+
+public void doEpisodes(int amount, boolean verbose, int repetitionsOfSingleEpisode)
+{
+    throw new UnsupportedOperationException("SandboxedTask only evaluates controllers");
+}
+
+public boolean isFinished()
+{
+    return true;
+}
+
+public String getName()
+{
+    return "SandboxedTask";
+}
+
+public void printStatistics()
+{}
+
+/**
+ * Releases the sandbox; the task cannot be used afterwards.
+ */
+public void close()
+{
+    sandbox.close();
+}
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.benchmark.tasks;
+
+import ch.idsia.benchmark.mario.environments.Environment;
+import ch.idsia.benchmark.mario.environments.MarioEnvironment;
+import ch.idsia.utils.statistics.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where the time of <code>BasicTask.runSingleEpisode</code> goes: the simulation loop brackets every phase
+ * of a tick with <code>start</code> and <code>lap</code>, which record <code>System.nanoTime</code> spans
+ * into lock-free histograms. Besides phase latencies it counts ticks, sprites per frame and, where the JVM
+ * can tell, bytes allocated by the simulating threads.
+ * <p/>
+ * Off by default; then <code>start</code> returns 0 and every other call returns at once, at the cost of
+ * one volatile read per tick. Switch it on with <code>-prof &lt;seconds&gt;</code>, which also prints a
+ * log line at that interval, or at runtime through JMX as <code>ch.idsia.benchmark:type=TickProfiler</code>.
+ */
+public final class TickProfiler implements TickProfilerMBean
+{
+public static final int TICK = 0;      // environment.tick
+public static final int POLICY = 1;    // EpisodeTerminationPolicy.shouldTerminate
+public static final int OBSERVE = 2;   // agent.integrateObservation and giveIntermediateReward
+public static final int ACTION = 3;    // agent.getAction
+public static final int PERFORM = 4;   // environment.performAction, including recording
+
+private static final String[] PHASES = {"tick", "policy", "observe", "action", "perform"};
+
+private static final TickProfiler instance = new TickProfiler();
+
+private volatile boolean enabled = false;
+private final LatencyHistogram[] latencies = new LatencyHistogram[PHASES.length];
+private final LongAdder ticks = new LongAdder();
+private final LongAdder sprites = new LongAdder();
+private final LongAdder allocated = new LongAdder();
+private volatile long since = System.nanoTime();
+private final com.sun.management.ThreadMXBean threads;
+
+private int logInterval = 0;
+private ScheduledExecutorService logger;
+private ScheduledFuture<?> logging;
+private long lastTicks, lastAllocated, lastLog; // touched by the logger thread only
+private ObjectName objectName; // null when not registered with JMX
+
+private TickProfiler()
+{
+    for (int i = 0; i < PHASES.length; i++)
+        latencies[i] = new LatencyHistogram(PHASES[i]);
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    threads = bean instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+            ? (com.sun.management.ThreadMXBean) bean : null;
+    register();
+}
+
+public static TickProfiler getInstance()
+{
+    return instance;
+}
+
+/**
+ * @return the start of a span, 0 when profiling is off
+ */
+public long start()
+{
+    return enabled ? System.nanoTime() : 0;
+}
+
+/**
+ * Records the span from <code>start</code> to now under <code>phase</code>.
+ *
+ * @return now, the start of the next span; 0 when <code>start</code> was 0
+ */
+public long lap(int phase, long start)
+{
+    if (start == 0)
+        return 0;
+    final long now = System.nanoTime();
+    latencies[phase].record(now - start);
+    return now;
+}
+
+/**
+ * Counts a simulated tick unless the span that ended it was 0.
+ */
+public void tickDone(long start, Environment environment)
+{
+    if (start == 0)
+        return;
+    ticks.increment();
+    if (environment instanceof MarioEnvironment)
+        sprites.add(((MarioEnvironment) environment).getSprites().size());
+}
+
+/**
+ * @return bytes allocated by the calling thread so far, or -1 when profiling is off or the JVM cannot tell
+ */
+public long allocationMark()
+{
+    if (!enabled || threads == null)
+        return -1;
+    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+}
+
+/**
+ * Adds what the calling thread allocated since <code>mark</code>.
+ */
+public void allocationDone(long mark)
+{
+    if (mark < 0)
+        return;
+    allocated.add(threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - mark);
+}
+
+public boolean isEnabled()
+{
+    return enabled;
+}
+
+public void setEnabled(boolean enabled)
+{
+    this.enabled = enabled;
+}
+
+public synchronized int getLogInterval()
+{
+    return logInterval;
+}
+
+public synchronized void setLogInterval(int seconds)
+{
+    if (seconds == logInterval)
+        return;
+    logInterval = seconds;
+    if (logging != null)
+        logging.cancel(false);
+    logging = null;
+    if (seconds <= 0)
+        return;
+    if (logger == null)
+        logger = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "Mario AI profiler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    lastLog = System.nanoTime();
+    lastTicks = ticks.sum();
+    lastAllocated = allocated.sum();
+    logging = logger.scheduleAtFixedRate(new Runnable()
+    {
+        public void run()
+        {
+            long now = System.nanoTime(), t = ticks.sum(), a = allocated.sum();
+            double seconds = (now - lastLog) / 1e9;
+            if (t > lastTicks)
+                System.out.println("[Mario AI] ~ profile: " + report((t - lastTicks) / seconds, (a - lastAllocated) / seconds));
+            lastLog = now;
+            lastTicks = t;
+            lastAllocated = a;
+        }
+    }, seconds, seconds, TimeUnit.SECONDS);
+}
+
+public String[] getPhases()
+{
+    return PHASES.clone();
+}
+
+public long getTicks()
+{
+    return ticks.sum();
+}
+
+public double getTicksPerSecond()
+{
+    return ticks.sum() / ((System.nanoTime() - since) / 1e9);
+}
+
+public double getSpritesPerFrame()
+{
+    final long t = ticks.sum();
+    return t == 0 ? 0 : (double) sprites.sum() / t;
+}
+
+public double getAllocatedBytesPerSecond()
+{
+    return threads == null ? Double.NaN : allocated.sum() / ((System.nanoTime() - since) / 1e9);
+}
+
+public double getLatencyMicros(String phase, double percentile)
+{
+    return histogram(phase).quantileNanos(percentile / 100) / 1000;
+}
+
+public double getMeanLatencyMicros(String phase)
+{
+    return histogram(phase).meanNanos() / 1000;
+}
+
+/**
+ * The log line, over everything since the last <code>reset</code>.
+ */
+public String getReport()
+{
+    return report(getTicksPerSecond(), getAllocatedBytesPerSecond());
+}
+
+public void reset()
+{
+    for (LatencyHistogram latency : latencies)
+        latency.reset();
+    ticks.reset();
+    sprites.reset();
+    allocated.reset();
+    since = System.nanoTime();
+}
+
+private LatencyHistogram histogram(String phase)
+{
+    for (LatencyHistogram latency : latencies)
+        if (latency.name.equals(phase))
+            return latency;
+    throw new IllegalArgumentException("[Mario AI EXCEPTION] : no phase " + phase);
+}
+
+private String report(double ticksPerSecond, double bytesPerSecond)
+{
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%.0f ticks/s, %.1f sprites/frame", ticksPerSecond, getSpritesPerFrame()));
+    if (threads != null)
+        sb.append(String.format(", %.1f MB/s allocated", bytesPerSecond / 1e6));
+    for (LatencyHistogram latency : latencies)
+        if (latency.n() > 0)
+            sb.append(String.format("; %s p50 %.1f p99 %.1f max %.1f us", latency.name,
+                    latency.quantileNanos(0.5) / 1000, latency.quantileNanos(0.99) / 1000, latency.maxNanos() / 1000.0));
+    return sb.toString();
+}
+
+/**
+ * Unregisters the MBean and stops the logger thread. Both hold on to the class loader of this copy of the
+ * benchmark, so a copy loaded in an <code>ExperimentRunner</code> sandbox calls this when the sandbox is
+ * closed, or the loader and all its classes would stay in memory.
+ */
+public synchronized void close()
+{
+    setLogInterval(0);
+    if (logger != null)
+    {
+        logger.shutdownNow();
+        logger = null;
+    }
+    if (objectName == null)
+        return;
+    try
+    {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    } catch (JMException e)
+    {
+        System.err.println("[Mario AI EXCEPTION] : TickProfiler not unregistered from JMX: " + e);
+    }
+    objectName = null;
+}
+
+private void register()
+{
+    try
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("ch.idsia.benchmark:type=TickProfiler");
+        if (server.isRegistered(name)) // another copy of the benchmark, e.g. an ExperimentRunner sandbox
+            name = new ObjectName("ch.idsia.benchmark:type=TickProfiler,loader="
+                    + Integer.toHexString(System.identityHashCode(getClass().getClassLoader())));
+        server.registerMBean(this, name);
+        objectName = name;
+    } catch (JMException e)
+    {
+        System.err.println("[Mario AI EXCEPTION] : TickProfiler not registered with JMX: " + e);
+    }
+}
+}
@@ -27,6 +27,8 @@
 
 package ch.idsia.evolution;
 
+import ch.idsia.utils.MathX;
+
 import java.util.Random;
 
 /**
@@ -34,17 +36,22 @@ import java.util.Random;
  * User: julian
  * Date: Apr 28, 2009
  * Time: 2:15:10 PM
+ * <p/>
+ * Weights are kept in flat row-major arrays, one row per source neuron
+ * (<code>layer[from * layerWidth + to]</code>), which is also the order used by
+ * <code>getWeightsArray</code>, so a genome is loaded or stored with one <code>arraycopy</code> per layer.
  */
-public class MLP implements FA<double[], double[]>, Evolvable
+public class MLP implements FA<double[], double[]>, WeightsEvolvable
 {
 
-private double[][] firstConnectionLayer;
-private double[][] secondConnectionLayer;
+private double[] firstConnectionLayer;
+private double[] secondConnectionLayer;
 private double[] hiddenNeurons;
 private double[] outputs;
 private double[] inputs;
 //private double[] targetOutputs;
 public double mutationMagnitude = 0.1;
+private boolean fastTanh = false;
 
 
 public static double mean = 0.0f;        // initialization mean
@@ -56,8 +63,8 @@ public double learningRate = 0.01;
 public MLP(int numberOfInputs, int numberOfHidden, int numberOfOutputs)
 {
 
-    firstConnectionLayer = new double[numberOfInputs][numberOfHidden];
-    secondConnectionLayer = new double[numberOfHidden][numberOfOutputs];
+    firstConnectionLayer = new double[numberOfInputs * numberOfHidden];
+    secondConnectionLayer = new double[numberOfHidden * numberOfOutputs];
     hiddenNeurons = new double[numberOfHidden];
     outputs = new double[numberOfOutputs];
     //targetOutputs = new double[numberOfOutputs];
@@ -69,44 +76,62 @@ public MLP(int numberOfInputs, int numberOfHidden, int numberOfOutputs)
 public MLP(double[][] firstConnectionLayer, double[][] secondConnectionLayer, int numberOfHidden,
            int numberOfOutputs)
 {
+    this(flatten(firstConnectionLayer), flatten(secondConnectionLayer),
+            firstConnectionLayer.length, numberOfHidden, numberOfOutputs);
+}
+
+/**
+ * Wraps already flattened weight layers without copying them.
+ *
+ * @param firstConnectionLayer  input-to-hidden weights, <code>numberOfInputs * numberOfHidden</code> long
+ * @param secondConnectionLayer hidden-to-output weights, <code>numberOfHidden * numberOfOutputs</code> long
+ */
+public MLP(double[] firstConnectionLayer, double[] secondConnectionLayer, int numberOfInputs,
+           int numberOfHidden, int numberOfOutputs)
+{
+    if (firstConnectionLayer.length != numberOfInputs * numberOfHidden ||
+            secondConnectionLayer.length != numberOfHidden * numberOfOutputs)
+        throw new IllegalArgumentException("MLP: weight layers do not match " +
+                numberOfInputs + "/" + numberOfHidden + "/" + numberOfOutputs);
     this.firstConnectionLayer = firstConnectionLayer;
     this.secondConnectionLayer = secondConnectionLayer;
-    inputs = new double[firstConnectionLayer.length];
+    inputs = new double[numberOfInputs];
     hiddenNeurons = new double[numberOfHidden];
     outputs = new double[numberOfOutputs];
 }
 
-protected void initializeLayer(double[][] layer)
+private static double[] flatten(double[][] layer)
 {
+    final int width = layer[0].length;
+    double[] flat = new double[layer.length * width];
     for (int i = 0; i < layer.length; i++)
     {
-        for (int j = 0; j < layer[i].length; j++)
-        {
-            layer[i][j] = (random.nextGaussian() * deviation + mean);
-        }
+        System.arraycopy(layer[i], 0, flat, i * width, width);
     }
+    return flat;
 }
 
-public MLP getNewInstance()
+protected void initializeLayer(double[] layer)
 {
-    return new MLP(firstConnectionLayer.length, secondConnectionLayer.length, outputs.length);
+    for (int i = 0; i < layer.length; i++)
+    {
+        layer[i] = (random.nextGaussian() * deviation + mean);
+    }
 }
 
-public MLP copy()
+public MLP getNewInstance()
 {
-    MLP copy = new MLP(copy(firstConnectionLayer), copy(secondConnectionLayer),
-            hiddenNeurons.length, outputs.length);
-    copy.setMutationMagnitude(mutationMagnitude);
-    return copy;
+    MLP instance = new MLP(inputs.length, hiddenNeurons.length, outputs.length);
+    instance.setFastTanh(fastTanh);
+    return instance;
 }
 
-private double[][] copy(double[][] original)
+public MLP copy()
 {
-    double[][] copy = new double[original.length][original[0].length];
-    for (int i = 0; i < original.length; i++)
-    {
-        System.arraycopy(original[i], 0, copy[i], 0, original[i].length);
-    }
+    MLP copy = new MLP(firstConnectionLayer.clone(), secondConnectionLayer.clone(),
+            inputs.length, hiddenNeurons.length, outputs.length);
+    copy.setMutationMagnitude(mutationMagnitude);
+    copy.setFastTanh(fastTanh);
     return copy;
 }
 
@@ -124,14 +149,6 @@ private void mutate(double[] array)
     }
 }
 
-private void mutate(double[][] array)
-{
-    for (double[] anArray : array)
-    {
-        mutate(anArray);
-    }
-}
-
 public void psoRecombine(MLP last, MLP pBest, MLP gBest)
 {
     // Those numbers are supposed to be constants. Ask Maurice Clerc.
@@ -145,29 +162,24 @@ public void psoRecombine(MLP last, MLP pBest, MLP gBest)
     //System.out.println(" PBEST:" + pBest);
     //System.out.println(" GBEST:" + gBest);
     //System.out.println(" THIS:" + toString());
-    for (int i = 0; i < inputs.length; i++)
-    {
-        for (int j = 0; j < hiddenNeurons.length; j++)
-        {
-            firstConnectionLayer[i][j] = (double) (firstConnectionLayer[i][j] + ki * (firstConnectionLayer[i][j] - ((double[][]) (last.firstConnectionLayer))[i][j]
-                    + phi1 * (((double[][]) (pBest.firstConnectionLayer))[i][j] - firstConnectionLayer[i][j])
-                    + phi2 * (((double[][]) (gBest.firstConnectionLayer))[i][j] - firstConnectionLayer[i][j])));
-        }
-    }
+    psoRecombine(firstConnectionLayer, last.firstConnectionLayer, pBest.firstConnectionLayer,
+            gBest.firstConnectionLayer, ki, phi1, phi2);
+    psoRecombine(secondConnectionLayer, last.secondConnectionLayer, pBest.secondConnectionLayer,
+            gBest.secondConnectionLayer, ki, phi1, phi2);
+}
 
-    for (int i = 0; i < hiddenNeurons.length; i++)
+private static void psoRecombine(double[] layer, double[] last, double[] pBest, double[] gBest,
+                                 double ki, double phi1, double phi2)
+{
+    for (int i = 0; i < layer.length; i++)
     {
-        for (int j = 0; j < outputs.length; j++)
-        {
-            secondConnectionLayer[i][j] = (double) (secondConnectionLayer[i][j] + ki * (secondConnectionLayer[i][j] - ((double[][]) (last.secondConnectionLayer))[i][j]
-                    + phi1 * (((double[][]) (pBest.secondConnectionLayer))[i][j] - secondConnectionLayer[i][j])
-                    + phi2 * (((double[][]) (gBest.secondConnectionLayer))[i][j] - secondConnectionLayer[i][j])));
-        }
+        layer[i] = layer[i] + ki * (layer[i] - last[i]
+                + phi1 * (pBest[i] - layer[i])
+                + phi2 * (gBest[i] - layer[i]));
     }
-
 }
 
-private void clear(double[] array)
+private static void clear(double[] array)
 {
     for (int i = 0; i < array.length; i++)
     {
@@ -201,15 +213,16 @@ public double[] propagate(double[] inputIn)
 
 }
 
-private void propagateOneStep(double[] fromLayer, double[] toLayer, double[][] connections)
+private void propagateOneStep(double[] fromLayer, double[] toLayer, double[] connections)
 {
     clear(toLayer);
-    for (int from = 0; from < fromLayer.length; from++)
+    final int width = toLayer.length;
+    for (int from = 0, row = 0; from < fromLayer.length; from++, row += width)
     {
-        for (int to = 0; to < toLayer.length; to++)
+        final double activation = fromLayer[from];
+        for (int to = 0; to < width; to++)
         {
-            toLayer[to] += fromLayer[from] * connections[from][to];
-            //System.out.println("From : " + from + " to: " + to + " :: " +toLayer[to] + "+=" +  fromLayer[from] + "*"+  connections[from][to]);
+            toLayer[to] += activation * connections[row + to];
         }
     }
 }
@@ -244,7 +257,7 @@ public double backPropagate(double[] targetOutputs)
         for (int toOutput = 0; toOutput < outputs.length; toOutput++)
         {
             // System.out.println("Hidden " + hidden + ", toOutput" + toOutput);
-            contributionToOutputError += secondConnectionLayer[hidden][toOutput] * outputError[toOutput];
+            contributionToOutputError += secondConnectionLayer[hidden * outputs.length + toOutput] * outputError[toOutput];
             // System.out.println("Err tempSum: " + contributionToOutputError +  "=" +secondConnectionLayer[hidden][toOutput]  +  "*" +outputError[toOutput] );
         }
         hiddenError[hidden] = dtanh(hiddenNeurons[hidden]) * contributionToOutputError;
@@ -260,10 +273,11 @@ public double backPropagate(double[] targetOutputs)
         for (int hidden = 0; hidden < hiddenNeurons.length; hidden++)
         {
 
-            double saveAway = firstConnectionLayer[input][hidden];
-            firstConnectionLayer[input][hidden] += learningRate * hiddenError[hidden] * inputs[input];
+            final int k = input * hiddenNeurons.length + hidden;
+            double saveAway = firstConnectionLayer[k];
+            firstConnectionLayer[k] += learningRate * hiddenError[hidden] * inputs[input];
 
-            if (Double.isNaN(firstConnectionLayer[input][hidden]))
+            if (Double.isNaN(firstConnectionLayer[k]))
             {
                 System.out.println("Late weight error! hiddenError " + hiddenError[hidden]
                         + " input " + inputs[input] + " was " + saveAway);
@@ -278,13 +292,14 @@ public double backPropagate(double[] targetOutputs)
         for (int output = 0; output < outputs.length; output++)
         {
 
-            double saveAway = secondConnectionLayer[hidden][output];
-            secondConnectionLayer[hidden][output] += learningRate * outputError[output] * hiddenNeurons[hidden];
+            final int k = hidden * outputs.length + output;
+            double saveAway = secondConnectionLayer[k];
+            secondConnectionLayer[k] += learningRate * outputError[output] * hiddenNeurons[hidden];
 
-            if (Double.isNaN(secondConnectionLayer[hidden][output]))
+            if (Double.isNaN(secondConnectionLayer[k]))
             {
                 System.out.println("target: " + targetOutputs[output] + " outputs: " + outputs[output] + " error:" + outputError[output] + "\n" +
-                        "hidden: " + hiddenNeurons[hidden] + "\nnew conn weight: " + secondConnectionLayer[hidden][output] + " was: " + saveAway + "\n");
+                        "hidden: " + hiddenNeurons[hidden] + "\nnew conn weight: " + secondConnectionLayer[k] + " was: " + saveAway + "\n");
             }
         }
     }
@@ -308,6 +323,12 @@ private double sig(double val)
 
 private void tanh(double[] array)
 {
+    if (fastTanh)
+    {
+        for (int i = 0; i < array.length; i++)
+            array[i] = MathX.tanhApprox(array[i]);
+        return;
+    }
     for (int i = 0; i < array.length; i++)
     {
         array[i] = Math.tanh(array[i]);
@@ -329,19 +350,13 @@ private double dtanh(double num)
 private double sum()
 {
     double sum = 0;
-    for (double[] aFirstConnectionLayer : firstConnectionLayer)
+    for (double weight : firstConnectionLayer)
     {
-        for (double anAFirstConnectionLayer : aFirstConnectionLayer)
-        {
-            sum += anAFirstConnectionLayer;
-        }
+        sum += weight;
     }
-    for (double[] aSecondConnectionLayer : secondConnectionLayer)
+    for (double weight : secondConnectionLayer)
     {
-        for (double anASecondConnectionLayer : aSecondConnectionLayer)
-        {
-            sum += anASecondConnectionLayer;
-        }
+        sum += weight;
     }
     return sum;
 }
@@ -356,6 +371,20 @@ public void setMutationMagnitude(double mutationMagnitude)
     this.mutationMagnitude = mutationMagnitude;
 }
 
+/**
+ * Switches the activation between <code>Math.tanh</code> and the rational approximation
+ * <code>MathX.tanhApprox</code> (absolute error below 1e-4), which is several times cheaper.
+ */
+public void setFastTanh(boolean fastTanh)
+{
+    this.fastTanh = fastTanh;
+}
+
+public boolean isFastTanh()
+{
+    return fastTanh;
+}
+
 public static void setInitParameters(double mean, double deviation)
 {
     System.out.println("PARAMETERS SET: " + mean + "  deviation: " + deviation);
@@ -368,34 +397,30 @@ public void println()
 {
     System.out.print("\n\n----------------------------------------------------" +
             "-----------------------------------\n");
-    for (double[] aFirstConnectionLayer : firstConnectionLayer)
-    {
-        System.out.print("|");
-        for (double anAFirstConnectionLayer : aFirstConnectionLayer)
-        {
-            System.out.print(" " + anAFirstConnectionLayer);
-        }
-        System.out.print(" |\n");
-    }
+    println(firstConnectionLayer, hiddenNeurons.length);
     System.out.print("----------------------------------------------------" +
             "-----------------------------------\n");
-    for (double[] aSecondConnectionLayer : secondConnectionLayer)
+    println(secondConnectionLayer, outputs.length);
+    System.out.print("----------------------------------------------------" +
+            "-----------------------------------\n");
+}
+
+private static void println(double[] layer, int width)
+{
+    for (int row = 0; row < layer.length; row += width)
     {
         System.out.print("|");
-        for (double anASecondConnectionLayer : aSecondConnectionLayer)
+        for (int i = row; i < row + width; i++)
         {
-            System.out.print(" " + anASecondConnectionLayer);
+            System.out.print(" " + layer[i]);
         }
         System.out.print(" |\n");
     }
-    System.out.print("----------------------------------------------------" +
-            "-----------------------------------\n");
 }
 
 public String toString()
 {
-    int numberOfConnections = (firstConnectionLayer.length * firstConnectionLayer[0].length) +
-            (secondConnectionLayer.length * secondConnectionLayer[0].length);
+    int numberOfConnections = firstConnectionLayer.length + secondConnectionLayer.length;
     return "Straight mlp, mean connection weight " + (sum() / numberOfConnections);
 }
 
@@ -413,48 +438,31 @@ public double[] getOutputs()
 
 public double[] getWeightsArray()
 {
-    double[] weights = new double[inputs.length * hiddenNeurons.length + hiddenNeurons.length * outputs.length];
-
-    int k = 0;
-    for (int i = 0; i < inputs.length; i++)
-    {
-        for (int j = 0; j < hiddenNeurons.length; j++)
-        {
-            weights[k] = firstConnectionLayer[i][j];
-            k++;
-        }
-    }
-    for (int i = 0; i < hiddenNeurons.length; i++)
-    {
-        for (int j = 0; j < outputs.length; j++)
-        {
-            weights[k] = secondConnectionLayer[i][j];
-            k++;
-        }
-    }
+    double[] weights = new double[getNumberOfWeights()];
+    getWeights(weights, 0);
     return weights;
 }
 
-public void setWeightsArray(double[] weights)
+public int getNumberOfWeights()
 {
-    int k = 0;
+    return firstConnectionLayer.length + secondConnectionLayer.length;
+}
 
-    for (int i = 0; i < inputs.length; i++)
-    {
-        for (int j = 0; j < hiddenNeurons.length; j++)
-        {
-            firstConnectionLayer[i][j] = weights[k];
-            k++;
-        }
-    }
-    for (int i = 0; i < hiddenNeurons.length; i++)
-    {
-        for (int j = 0; j < outputs.length; j++)
-        {
-            secondConnectionLayer[i][j] = weights[k];
-            k++;
-        }
-    }
+public void getWeights(double[] target, int offset)
+{
+    System.arraycopy(firstConnectionLayer, 0, target, offset, firstConnectionLayer.length);
+    System.arraycopy(secondConnectionLayer, 0, target, offset + firstConnectionLayer.length, secondConnectionLayer.length);
+}
+
+public void setWeights(double[] source, int offset)
+{
+    System.arraycopy(source, offset, firstConnectionLayer, 0, firstConnectionLayer.length);
+    System.arraycopy(source, offset + firstConnectionLayer.length, secondConnectionLayer, 0, secondConnectionLayer.length);
+}
+
+public void setWeightsArray(double[] weights)
+{
+    setWeights(weights, 0);
 }
 
 public int getNumberOfInputs()
@@ -462,20 +470,27 @@ public int getNumberOfInputs()
     return inputs.length;
 }
 
+public int getNumberOfHidden()
+{
+    return hiddenNeurons.length;
+}
+
+public int getNumberOfOutputs()
+{
+    return outputs.length;
+}
+
 public void randomise()
 {
     randomise(firstConnectionLayer);
     randomise(secondConnectionLayer);
 }
 
-protected void randomise(double[][] layer)
+protected void randomise(double[] layer)
 {
     for (int i = 0; i < layer.length; i++)
     {
-        for (int j = 0; j < layer[i].length; j++)
-        {
-            layer[i][j] = (Math.random() * 4.0) - 2.0;
-        }
+        layer[i] = (Math.random() * 4.0) - 2.0;
     }
 }
 
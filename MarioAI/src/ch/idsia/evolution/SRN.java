@@ -27,6 +27,8 @@
 
 package ch.idsia.evolution;
 
+import ch.idsia.utils.MathX;
+
 import java.util.Random;
 
 /**
@@ -36,25 +38,30 @@ import java.util.Random;
  * Time: 11:12:32 PM
  * <p/>
  * Simple Recurrent Network (a.k.a. Elman network, Recurrent MLP)
+ * <p/>
+ * Like <code>MLP</code>, the connection layers are flat row-major arrays, one row per source neuron.
  */
-public class SRN implements FA<double[], double[]>, Evolvable
+public class SRN implements FA<double[], double[]>, WeightsEvolvable
 {
 
-protected double[][] firstConnectionLayer;
-protected double[][] recurrentConnectionLayer;
-protected double[][] secondConnectionLayer;
+protected double[] firstConnectionLayer;
+protected double[] recurrentConnectionLayer;
+protected double[] secondConnectionLayer;
 protected double[] hiddenNeurons;
 protected double[] hiddenNeuronsCopy;
 protected double[] outputs;
+protected int numberOfInputs;
 protected double mutationMagnitude = 0.1;
+protected boolean fastTanh = false;
 
 private final Random random = new Random();
 
 public SRN(int numberOfInputs, int numberOfHidden, int numberOfOutputs)
 {
-    firstConnectionLayer = new double[numberOfInputs][numberOfHidden];
-    recurrentConnectionLayer = new double[numberOfHidden][numberOfHidden];
-    secondConnectionLayer = new double[numberOfHidden][numberOfOutputs];
+    this.numberOfInputs = numberOfInputs;
+    firstConnectionLayer = new double[numberOfInputs * numberOfHidden];
+    recurrentConnectionLayer = new double[numberOfHidden * numberOfHidden];
+    secondConnectionLayer = new double[numberOfHidden * numberOfOutputs];
     hiddenNeurons = new double[numberOfHidden];
     hiddenNeuronsCopy = new double[numberOfHidden];
     outputs = new double[numberOfOutputs];
@@ -65,6 +72,23 @@ public SRN(double[][] firstConnectionLayer, double[][] recurrentConnectionLayer,
            double[][] secondConnectionLayer, int numberOfHidden,
            int numberOfOutputs)
 {
+    this(flatten(firstConnectionLayer), flatten(recurrentConnectionLayer), flatten(secondConnectionLayer),
+            firstConnectionLayer.length, numberOfHidden, numberOfOutputs);
+}
+
+/**
+ * Wraps already flattened weight layers without copying them.
+ */
+public SRN(double[] firstConnectionLayer, double[] recurrentConnectionLayer,
+           double[] secondConnectionLayer, int numberOfInputs, int numberOfHidden,
+           int numberOfOutputs)
+{
+    if (firstConnectionLayer.length != numberOfInputs * numberOfHidden ||
+            recurrentConnectionLayer.length != numberOfHidden * numberOfHidden ||
+            secondConnectionLayer.length != numberOfHidden * numberOfOutputs)
+        throw new IllegalArgumentException("SRN: weight layers do not match " +
+                numberOfInputs + "/" + numberOfHidden + "/" + numberOfOutputs);
+    this.numberOfInputs = numberOfInputs;
     this.firstConnectionLayer = firstConnectionLayer;
     this.recurrentConnectionLayer = recurrentConnectionLayer;
     this.secondConnectionLayer = secondConnectionLayer;
@@ -73,11 +97,22 @@ public SRN(double[][] firstConnectionLayer, double[][] recurrentConnectionLayer,
     outputs = new double[numberOfOutputs];
 }
 
+protected static double[] flatten(double[][] layer)
+{
+    final int width = layer[0].length;
+    double[] flat = new double[layer.length * width];
+    for (int i = 0; i < layer.length; i++)
+    {
+        System.arraycopy(layer[i], 0, flat, i * width, width);
+    }
+    return flat;
+}
+
 public double[] propagate(double[] inputs)
 {
 
-    if (inputs.length != firstConnectionLayer.length)
-        System.out.println("NOTE: only " + inputs.length + " inputs out of " + firstConnectionLayer.length + " are used in the network");
+    if (inputs.length != numberOfInputs)
+        System.out.println("NOTE: only " + inputs.length + " inputs out of " + numberOfInputs + " are used in the network");
 
     System.arraycopy(hiddenNeurons, 0, hiddenNeuronsCopy, 0, hiddenNeurons.length);
     clear(hiddenNeurons);
@@ -92,13 +127,17 @@ public double[] propagate(double[] inputs)
 
 public SRN getNewInstance()
 {
-    return new SRN(firstConnectionLayer.length, secondConnectionLayer.length, outputs.length);
+    SRN instance = new SRN(numberOfInputs, hiddenNeurons.length, outputs.length);
+    instance.setFastTanh(fastTanh);
+    return instance;
 }
 
 public SRN copy()
 {
-    return new SRN(copy(firstConnectionLayer), copy(recurrentConnectionLayer),
-            copy(secondConnectionLayer), hiddenNeurons.length, outputs.length);
+    SRN copy = new SRN(firstConnectionLayer.clone(), recurrentConnectionLayer.clone(),
+            secondConnectionLayer.clone(), numberOfInputs, hiddenNeurons.length, outputs.length);
+    copy.setFastTanh(fastTanh);
+    return copy;
 }
 
 public void mutate()
@@ -119,16 +158,6 @@ public double[] approximate(double[] doubles)
     return propagate(doubles);
 }
 
-protected double[][] copy(double[][] original)
-{
-    double[][] copy = new double[original.length][original[0].length];
-    for (int i = 0; i < original.length; i++)
-    {
-        System.arraycopy(original[i], 0, copy[i], 0, original[i].length);
-    }
-    return copy;
-}
-
 protected void mutate(double[] array)
 {
     for (int i = 0; i < array.length; i++)
@@ -137,21 +166,15 @@ protected void mutate(double[] array)
     }
 }
 
-protected void mutate(double[][] array)
-{
-    for (double[] anArray : array)
-    {
-        mutate(anArray);
-    }
-}
-
-protected void propagateOneStep(double[] fromLayer, double[] toLayer, double[][] connections)
+protected void propagateOneStep(double[] fromLayer, double[] toLayer, double[] connections)
 {
-    for (int from = 0; from < fromLayer.length; from++)
+    final int width = toLayer.length;
+    for (int from = 0, row = 0; from < fromLayer.length; from++, row += width)
     {
-        for (int to = 0; to < toLayer.length; to++)
+        final double activation = fromLayer[from];
+        for (int to = 0; to < width; to++)
         {
-            toLayer[to] += fromLayer[from] * connections[from][to];
+            toLayer[to] += activation * connections[row + to];
         }
     }
 }
@@ -166,6 +189,12 @@ protected void clear(double[] array)
 
 protected void tanh(double[] array)
 {
+    if (fastTanh)
+    {
+        for (int i = 0; i < array.length; i++)
+            array[i] = MathX.tanhApprox(array[i]);
+        return;
+    }
     for (int i = 0; i < array.length; i++)
     {
         array[i] = Math.tanh(array[i]);
@@ -175,7 +204,7 @@ protected void tanh(double[] array)
 
 public String toString()
 {
-    return "RecurrentMLP:" + firstConnectionLayer.length + "/" + secondConnectionLayer.length + "/" + outputs.length;
+    return "RecurrentMLP:" + numberOfInputs + "/" + hiddenNeurons.length + "/" + outputs.length;
 }
 
 public void setMutationMagnitude(double mutationMagnitude)
@@ -183,4 +212,60 @@ public void setMutationMagnitude(double mutationMagnitude)
     this.mutationMagnitude = mutationMagnitude;
 }
 
+public double getMutationMagnitude()
+{
+    return mutationMagnitude;
+}
+
+public int getNumberOfWeights()
+{
+    return firstConnectionLayer.length + recurrentConnectionLayer.length + secondConnectionLayer.length;
+}
+
+/**
+ * Weights are ordered input-to-hidden, hidden-to-hidden (recurrent), hidden-to-output.
+ */
+public void getWeights(double[] target, int offset)
+{
+    System.arraycopy(firstConnectionLayer, 0, target, offset, firstConnectionLayer.length);
+    offset += firstConnectionLayer.length;
+    System.arraycopy(recurrentConnectionLayer, 0, target, offset, recurrentConnectionLayer.length);
+    offset += recurrentConnectionLayer.length;
+    System.arraycopy(secondConnectionLayer, 0, target, offset, secondConnectionLayer.length);
+}
+
+public void setWeights(double[] source, int offset)
+{
+    System.arraycopy(source, offset, firstConnectionLayer, 0, firstConnectionLayer.length);
+    offset += firstConnectionLayer.length;
+    System.arraycopy(source, offset, recurrentConnectionLayer, 0, recurrentConnectionLayer.length);
+    offset += recurrentConnectionLayer.length;
+    System.arraycopy(source, offset, secondConnectionLayer, 0, secondConnectionLayer.length);
+}
+
+public double[] getWeightsArray()
+{
+    double[] weights = new double[getNumberOfWeights()];
+    getWeights(weights, 0);
+    return weights;
+}
+
+public void setWeightsArray(double[] weights)
+{
+    setWeights(weights, 0);
+}
+
+/**
+ * Switches the activation between <code>Math.tanh</code> and <code>MathX.tanhApprox</code>.
+ */
+public void setFastTanh(boolean fastTanh)
+{
+    this.fastTanh = fastTanh;
+}
+
+public boolean isFastTanh()
+{
+    return fastTanh;
+}
+
 }
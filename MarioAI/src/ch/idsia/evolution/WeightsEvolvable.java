@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.evolution;
+
+/**
+ * An <code>Evolvable</code> whose genome is a fixed-length vector of real-valued weights
+ * (e.g. the flattened connection layers of an <code>MLP</code> or <code>SRN</code>).
+ * <p/>
+ * Exposing the genome lets an <code>EA</code> keep a whole population in one primitive array
+ * and load individuals into a single phenotype instance only when they are evaluated.
+ *
+ * @see ch.idsia.evolution.ea.PopulationStore
+ */
+public interface WeightsEvolvable extends Evolvable
+{
+
+/**
+ * @return the length of the weight vector.
+ */
+public int getNumberOfWeights();
+
+/**
+ * Copies the weights into <code>target</code>, starting at <code>offset</code>.
+ */
+public void getWeights(double[] target, int offset);
+
+/**
+ * Replaces the weights with <code>getNumberOfWeights()</code> values read from <code>source</code>,
+ * starting at <code>offset</code>.
+ */
+public void setWeights(double[] source, int offset);
+
+/**
+ * @return standard deviation of the Gaussian perturbation applied by <code>mutate()</code>.
+ */
+public double getMutationMagnitude();
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.evolution.ea;
+
+import ch.idsia.benchmark.tasks.Task;
+import ch.idsia.evolution.EA;
+import ch.idsia.evolution.Evolvable;
+import ch.idsia.evolution.WeightsEvolvable;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.DecompositionFactory;
+import org.ejml.factory.EigenDecomposition;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Covariance Matrix Adaptation Evolution Strategy, (mu/mu_w, lambda) with cumulative step-size adaptation,
+ * rank-one and rank-mu covariance updates (Hansen, "The CMA Evolution Strategy: A Tutorial") and
+ * IPOP restarts, which double the population size every time the search stagnates.
+ * <p/>
+ * Works on the flat weight vector of a <code>WeightsEvolvable</code>; fitness is maximised. The initial mean is
+ * the weight vector of the individual passed to the constructor, each restart draws a new one through
+ * <code>getNewInstance()</code>. <code>getBests()</code> returns the best individual seen in any restart.
+ */
+public class CMAES implements EA
+{
+private final CandidateEvaluator evaluator;
+private final WeightsEvolvable initial;
+private final WeightsEvolvable best;
+private final Random random;
+private final int n;
+private final double initialSigma;
+
+private int lambda;
+private int mu;
+private double[] weights;
+private double mueff, cc, cs, c1, cmu, damps, chiN;
+
+private double[] mean;
+private double sigma;
+private double[] pc;
+private double[] ps;
+private double[] C;  // covariance, row-major n x n
+private double[] B;  // eigenvectors in columns, row-major n x n
+private double[] D;  // square roots of the eigenvalues
+private int eigenGeneration;
+
+private double[] candidates;
+private float[] fitness;
+private int[] order;
+private long[] rankKeys;
+private int[] rankPermutation;
+private final double[] z;
+private final double[] tmp;
+
+private int generation = 0;
+private int restartGeneration = 0;
+private int restarts = 0;
+private int stagnationLimit = -1;
+private int lastImprovement = 0;
+private float restartBestFitness;
+private float bestFitness = -Float.MAX_VALUE;
+
+public CMAES(Task task, WeightsEvolvable initial, double sigma, long seed)
+{
+    this(new Task[]{task}, initial, sigma, 0, seed);
+}
+
+/**
+ * @param tasks  one task per evaluation worker, see <code>CandidateEvaluator</code>
+ * @param sigma  initial step size
+ * @param lambda initial population size, 0 for the default <code>4 + 3 ln n</code>
+ */
+public CMAES(Task[] tasks, WeightsEvolvable initial, double sigma, int lambda, long seed)
+{
+    this.evaluator = new CandidateEvaluator(initial, tasks);
+    this.initial = initial;
+    this.best = (WeightsEvolvable) initial.getNewInstance();
+    this.random = new Random(seed);
+    this.n = initial.getNumberOfWeights();
+    this.initialSigma = sigma;
+    this.z = new double[n];
+    this.tmp = new double[n];
+    this.mean = new double[n];
+    initial.getWeights(mean, 0);
+    setPopulationSize(lambda > 0 ? lambda : 4 + (int) (3 * Math.log(n)));
+    restart(false);
+}
+
+private void setPopulationSize(int lambda)
+{
+    this.lambda = lambda;
+    this.mu = lambda / 2;
+    weights = new double[mu];
+    double sum = 0;
+    for (int i = 0; i < mu; i++)
+    {
+        weights[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+        sum += weights[i];
+    }
+    double sumSquares = 0;
+    for (int i = 0; i < mu; i++)
+    {
+        weights[i] /= sum;
+        sumSquares += weights[i] * weights[i];
+    }
+    mueff = 1 / sumSquares;
+    cc = (4 + mueff / n) / (n + 4 + 2 * mueff / n);
+    cs = (mueff + 2) / (n + mueff + 5);
+    c1 = 2 / ((n + 1.3) * (n + 1.3) + mueff);
+    cmu = Math.min(1 - c1, 2 * (mueff - 2 + 1 / mueff) / ((n + 2) * (n + 2) + mueff));
+    damps = 1 + 2 * Math.max(0, Math.sqrt((mueff - 1) / (n + 1)) - 1) + cs;
+    chiN = Math.sqrt(n) * (1 - 1.0 / (4 * n) + 1.0 / (21.0 * n * n));
+
+    candidates = new double[lambda * n];
+    fitness = new float[lambda];
+    order = new int[lambda];
+    rankKeys = new long[lambda];
+    rankPermutation = new int[lambda];
+}
+
+private void restart(boolean newMean)
+{
+    if (newMean)
+        ((WeightsEvolvable) initial.getNewInstance()).getWeights(mean, 0);
+    sigma = initialSigma;
+    pc = new double[n];
+    ps = new double[n];
+    C = new double[n * n];
+    B = new double[n * n];
+    D = new double[n];
+    for (int i = 0; i < n; i++)
+    {
+        C[i * n + i] = 1;
+        B[i * n + i] = 1;
+        D[i] = 1;
+    }
+    eigenGeneration = generation;
+    restartGeneration = generation;
+    lastImprovement = generation;
+    restartBestFitness = -Float.MAX_VALUE;
+}
+
+/**
+ * Restart (with a doubled population) after this many generations without improving the best fitness
+ * of the current run. Defaults to <code>10 + 30 n / lambda</code>; a negative value restores the default.
+ */
+public void setStagnationLimit(int generations)
+{
+    this.stagnationLimit = generations;
+}
+
+public void nextGeneration()
+{
+    sample();
+    evaluator.evaluate(candidates, lambda, n, fitness);
+    PopulationStore.rank(fitness, order, random, rankKeys, rankPermutation);
+    generation++;
+
+    if (fitness[order[0]] > bestFitness)
+    {
+        bestFitness = fitness[order[0]];
+        best.setWeights(candidates, order[0] * n);
+    }
+    if (fitness[order[0]] > restartBestFitness)
+    {
+        restartBestFitness = fitness[order[0]];
+        lastImprovement = generation;
+    }
+
+    update();
+
+    if (shouldRestart())
+    {
+        restarts++;
+        setPopulationSize(lambda * 2);
+        restart(true);
+    }
+}
+
+private void sample()
+{
+    for (int k = 0; k < lambda; k++)
+    {
+        for (int i = 0; i < n; i++)
+            z[i] = D[i] * random.nextGaussian();
+        final int offset = k * n;
+        for (int row = 0; row < n; row++)
+        {
+            double sum = 0;
+            final int rowOffset = row * n;
+            for (int i = 0; i < n; i++)
+                sum += B[rowOffset + i] * z[i];
+            candidates[offset + row] = mean[row] + sigma * sum;
+        }
+    }
+}
+
+private void update()
+{
+    // new mean and its normalised shift y_w
+    final double[] oldMean = mean.clone();
+    Arrays.fill(mean, 0);
+    for (int i = 0; i < mu; i++)
+    {
+        final int offset = order[i] * n;
+        for (int j = 0; j < n; j++)
+            mean[j] += weights[i] * candidates[offset + j];
+    }
+    final double[] yw = new double[n];
+    for (int j = 0; j < n; j++)
+        yw[j] = (mean[j] - oldMean[j]) / sigma;
+
+    // ps = (1 - cs) ps + sqrt(cs (2 - cs) mueff) C^-1/2 y_w, with C^-1/2 = B D^-1 B'
+    for (int i = 0; i < n; i++)
+    {
+        double sum = 0;
+        for (int row = 0; row < n; row++)
+            sum += B[row * n + i] * yw[row];
+        tmp[i] = sum / D[i];
+    }
+    final double csFactor = Math.sqrt(cs * (2 - cs) * mueff);
+    double psNorm = 0;
+    for (int row = 0; row < n; row++)
+    {
+        double sum = 0;
+        final int rowOffset = row * n;
+        for (int i = 0; i < n; i++)
+            sum += B[rowOffset + i] * tmp[i];
+        ps[row] = (1 - cs) * ps[row] + csFactor * sum;
+        psNorm += ps[row] * ps[row];
+    }
+    psNorm = Math.sqrt(psNorm);
+
+    final int runGenerations = generation - restartGeneration;
+    final boolean hsig = psNorm / Math.sqrt(1 - Math.pow(1 - cs, 2 * runGenerations)) / chiN < 1.4 + 2.0 / (n + 1);
+    final double ccFactor = Math.sqrt(cc * (2 - cc) * mueff);
+    for (int j = 0; j < n; j++)
+        pc[j] = (1 - cc) * pc[j] + (hsig ? ccFactor * yw[j] : 0);
+
+    // C = (1 - c1 - cmu) C + c1 (pc pc' + (1 - hsig) cc (2 - cc) C) + cmu sum w_i y_i y_i'
+    final double keep = 1 - c1 - cmu + (hsig ? 0 : c1 * cc * (2 - cc));
+    for (int row = 0; row < n; row++)
+    {
+        final int rowOffset = row * n;
+        for (int col = 0; col <= row; col++)
+            C[rowOffset + col] = keep * C[rowOffset + col] + c1 * pc[row] * pc[col];
+    }
+    for (int i = 0; i < mu; i++)
+    {
+        final int offset = order[i] * n;
+        for (int j = 0; j < n; j++)
+            tmp[j] = (candidates[offset + j] - oldMean[j]) / sigma;
+        final double w = cmu * weights[i];
+        for (int row = 0; row < n; row++)
+        {
+            final int rowOffset = row * n;
+            final double wy = w * tmp[row];
+            for (int col = 0; col <= row; col++)
+                C[rowOffset + col] += wy * tmp[col];
+        }
+    }
+    for (int row = 0; row < n; row++)
+        for (int col = 0; col < row; col++)
+            C[col * n + row] = C[row * n + col];
+
+    sigma *= Math.exp((cs / damps) * (psNorm / chiN - 1));
+
+    // Hansen's lazy update: the threshold counts evaluations, lambda per generation
+    if ((double) (generation - eigenGeneration) * lambda > lambda / (c1 + cmu) / n / 10)
+    {
+        eigenGeneration = generation;
+        decompose();
+    }
+}
+
+private void decompose()
+{
+    DenseMatrix64F matrix = DenseMatrix64F.wrap(n, n, C.clone());
+    EigenDecomposition<DenseMatrix64F> eigen = DecompositionFactory.eig(n, true, true);
+    if (!eigen.decompose(matrix))
+    {
+        D[0] = Double.NaN; // forces a restart
+        return;
+    }
+    for (int i = 0; i < n; i++)
+    {
+        D[i] = Math.sqrt(Math.max(eigen.getEigenvalue(i).getReal(), 1e-20));
+        DenseMatrix64F vector = eigen.getEigenVector(i);
+        for (int row = 0; row < n; row++)
+            B[row * n + i] = vector.get(row, 0);
+    }
+}
+
+private boolean shouldRestart()
+{
+    double maxD = 0;
+    double minD = Double.MAX_VALUE;
+    for (int i = 0; i < n; i++)
+    {
+        if (Double.isNaN(D[i]))
+            return true;
+        maxD = Math.max(maxD, D[i]);
+        minD = Math.min(minD, D[i]);
+    }
+    if (maxD * maxD > 1e14 * minD * minD)
+        return true; // ill-conditioned covariance
+    if (sigma * maxD < 1e-11 * initialSigma || Double.isNaN(sigma) || Double.isInfinite(sigma))
+        return true; // no effective step left
+    final int limit = stagnationLimit >= 0 ? stagnationLimit : 10 + (30 * n) / lambda;
+    return generation - lastImprovement > limit;
+}
+
+public Evolvable[] getBests()
+{
+    return new Evolvable[]{best.copy()};
+}
+
+public float[] getBestFitnesses()
+{
+    return new float[]{bestFitness};
+}
+
+/**
+ * @return the current search distribution mean, a copy.
+ */
+public double[] getMean()
+{
+    return mean.clone();
+}
+
+public double getSigma()
+{
+    return sigma;
+}
+
+public int getPopulationSize()
+{
+    return lambda;
+}
+
+public int getRestarts()
+{
+    return restarts;
+}
+
+public long getEvaluations()
+{
+    return evaluator.getEvaluations();
+}
+
+public void shutdown()
+{
+    evaluator.shutdown();
+}
+
+public String toString()
+{
+    return "CMA-ES n=" + n + " lambda=" + lambda + " mu=" + mu + " sigma=" + sigma + " restarts=" + restarts +
+            " workers=" + evaluator.getNumberOfWorkers();
+}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.evolution.ea;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.benchmark.tasks.BasicTask;
+import ch.idsia.benchmark.tasks.Task;
+import ch.idsia.evolution.WeightsEvolvable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates candidate weight vectors, laid out back to back in one <code>double[]</code>,
+ * by loading them into a <code>WeightsEvolvable</code> phenotype and running a <code>Task</code>.
+ * <p/>
+ * With one task the candidates are evaluated in the calling thread. With several tasks every task
+ * gets its own worker thread and phenotype, and workers pull candidates from a shared counter.
+ * The tasks must then be independent of each other. Tasks built on <code>BasicTask</code> share the
+ * static <code>MarioEnvironment</code>, so they are refused; <code>SandboxedTask</code> gives each worker a
+ * simulator of its own. A task that wraps a <code>BasicTask</code> cannot be told apart and must not be
+ * passed more than once.
+ */
+public final class CandidateEvaluator
+{
+private final Task[] tasks;
+private final WeightsEvolvable[] phenotypes;
+private final ExecutorService executor;
+private long evaluations = 0;
+
+public CandidateEvaluator(WeightsEvolvable prototype, Task... tasks)
+{
+    if (tasks.length == 0)
+        throw new IllegalArgumentException("CandidateEvaluator: at least one task is required");
+    if (tasks.length > 1)
+    {
+        Set<Task> distinct = Collections.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+        for (Task task : tasks)
+        {
+            if (task instanceof BasicTask)
+                throw new IllegalArgumentException("CandidateEvaluator: " + task.getName() +
+                        " shares the static MarioEnvironment and cannot run on several workers; use SandboxedTask");
+            if (!distinct.add(task))
+                throw new IllegalArgumentException("CandidateEvaluator: every worker needs a task of its own");
+        }
+    }
+    this.tasks = tasks;
+    this.phenotypes = new WeightsEvolvable[tasks.length];
+    for (int i = 0; i < tasks.length; i++)
+        phenotypes[i] = (WeightsEvolvable) prototype.getNewInstance();
+    if (tasks.length > 1)
+    {
+        executor = Executors.newFixedThreadPool(tasks.length, new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "CandidateEvaluator");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    } else
+        executor = null;
+}
+
+public int getNumberOfWorkers()
+{
+    return tasks.length;
+}
+
+/**
+ * @return the number of <code>Task.evaluate</code> calls made so far.
+ */
+public long getEvaluations()
+{
+    return evaluations;
+}
+
+/**
+ * Evaluates <code>count</code> candidates of <code>length</code> weights each; candidate <code>i</code>
+ * starts at <code>i * length</code> in <code>candidates</code> and its fitness is written to
+ * <code>fitness[i]</code>.
+ */
+public void evaluate(final double[] candidates, final int count, final int length, final float[] fitness)
+{
+    evaluations += count;
+    if (executor == null)
+    {
+        for (int i = 0; i < count; i++)
+            fitness[i] = evaluate(0, candidates, i * length);
+        return;
+    }
+
+    final AtomicInteger next = new AtomicInteger(0);
+    List<Future<?>> futures = new ArrayList<Future<?>>(tasks.length);
+    for (int w = 0; w < tasks.length; w++)
+    {
+        final int worker = w;
+        futures.add(executor.submit(new Runnable()
+        {
+            public void run()
+            {
+                for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement())
+                    fitness[i] = evaluate(worker, candidates, i * length);
+            }
+        }));
+    }
+    try
+    {
+        for (Future<?> future : futures)
+            future.get();
+    } catch (InterruptedException e)
+    {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("[Mario AI EXCEPTION] : candidate evaluation interrupted", e);
+    } catch (ExecutionException e)
+    {
+        throw new RuntimeException("[Mario AI EXCEPTION] : candidate evaluation failed", e.getCause());
+    }
+}
+
+private float evaluate(int worker, double[] candidates, int offset)
+{
+    WeightsEvolvable phenotype = phenotypes[worker];
+    phenotype.setWeights(candidates, offset);
+    phenotype.reset();
+    return tasks[worker].evaluate((Agent) phenotype);
+}
+
+public void shutdown()
+{
+    if (executor != null)
+        executor.shutdown();
+}
+}
@@ -28,105 +28,201 @@
 package ch.idsia.evolution.ea;
 
 import ch.idsia.agents.Agent;
+import ch.idsia.benchmark.tasks.BoundTermination;
+import ch.idsia.benchmark.tasks.PopulationTask;
 import ch.idsia.benchmark.tasks.Task;
 import ch.idsia.evolution.EA;
 import ch.idsia.evolution.Evolvable;
+import ch.idsia.evolution.WeightsEvolvable;
+
+import java.util.Random;
 
 /**
  * Created by IntelliJ IDEA.
  * User: julian
  * Date: Apr 29, 2009
  * Time: 12:16:49 PM
+ * <p/>
+ * Truncation (mu + mu) evolution strategy. When the initial individual is a <code>WeightsEvolvable</code>
+ * all genomes live in a <code>PopulationStore</code> and are mutated in place; otherwise every
+ * individual is an <code>Evolvable</code> object that is copied and mutated. In both cases the population
+ * is addressed through a rank table, so selection only rewrites indices.
+ * <p/>
+ * With a pruning bound set (see <code>setPruningBound</code>) offspring episodes are stopped as soon as the
+ * child provably cannot beat the weakest parent, which only changes the order among individuals that are
+ * discarded anyway.
+ * <p/>
+ * A <code>PopulationTask</code> gets the whole population, parents and offspring, in one call and only has to
+ * evaluate the parents of the next generation in full, which lets it race the individuals.
  */
 public class ES implements EA
 {
 
-private final Evolvable[] population;
+private final Evolvable[] population; // null when the genomes are kept in the store
+private final PopulationStore store;
+private final WeightsEvolvable phenotype;
+private final WeightsEvolvable best;
 private final float[] fitness;
+private final int[] order; // order[rank] is the slot of the individual with that rank
+private final long[] rankKeys;
+private final int[] rankPermutation;
 private final int elite;
 private final Task task;
+private final Random random;
 private final int evaluationRepetitions = 1;
+private BoundTermination pruningBound;
+private Agent[] agents; // all individuals as agents, only used with a PopulationTask
 
 public ES(Task task, Evolvable initial, int populationSize)
 {
-    this.population = new Evolvable[populationSize];
-    for (int i = 0; i < population.length; i++)
+    this(task, initial, populationSize, new Random().nextLong());
+}
+
+public ES(Task task, Evolvable initial, int populationSize, long seed)
+{
+    this.random = new Random(seed);
+    if (initial instanceof WeightsEvolvable)
+    {
+        this.population = null;
+        this.phenotype = (WeightsEvolvable) initial.getNewInstance();
+        this.best = (WeightsEvolvable) initial.getNewInstance();
+        this.store = PopulationStore.fromPrototype((WeightsEvolvable) initial, populationSize, random.nextLong());
+        store.load(0, best);
+    } else
     {
-        population[i] = initial.getNewInstance();
+        this.population = new Evolvable[populationSize];
+        for (int i = 0; i < population.length; i++)
+        {
+            population[i] = initial.getNewInstance();
+        }
+        this.phenotype = null;
+        this.best = null;
+        this.store = null;
     }
     this.fitness = new float[populationSize];
+    this.order = new int[populationSize];
+    for (int i = 0; i < populationSize; i++)
+    {
+        order[i] = i;
+    }
+    this.rankKeys = new long[populationSize];
+    this.rankPermutation = new int[populationSize];
     this.elite = populationSize / 2;
     this.task = task;
 }
 
+/**
+ * @param bound a policy that is also installed in the task, e.g. via
+ *              <code>BasicTask.setTerminationPolicy</code>; only sound when the fitness is the distance passed
+ */
+public void setPruningBound(BoundTermination bound)
+{
+    this.pruningBound = bound;
+}
+
 public void nextGeneration()
 {
-    for (int i = 0; i < elite; i++)
+    final boolean wholePopulation = task instanceof PopulationTask;
+    if (pruningBound != null)
+        pruningBound.disable();
+    float cutoff = Float.POSITIVE_INFINITY;
+    if (!wholePopulation)
     {
-        evaluate(i);
+        for (int rank = 0; rank < elite; rank++)
+        {
+            evaluate(order[rank]);
+            cutoff = Math.min(cutoff, fitness[order[rank]]);
+        }
+        if (pruningBound != null && elite > 0)
+            pruningBound.setThreshold(cutoff);
     }
-    for (int i = elite; i < population.length; i++)
+    for (int rank = elite; rank < order.length; rank++)
     {
-        population[i] = population[i - elite].copy();
-        population[i].mutate();
-        evaluate(i);
+        final int parent = order[rank - elite];
+        final int child = order[rank];
+        if (store != null)
+        {
+            store.copy(parent, child);
+            store.mutate(child, phenotype.getMutationMagnitude());
+        } else
+        {
+            population[child] = population[parent].copy();
+            population[child].mutate();
+        }
+        if (!wholePopulation)
+            evaluate(child);
     }
-    shuffle();
-    sortPopulationByFitness();
-}
-
-private void evaluate(int which)
-{
-    fitness[which] = 0;
-    for (int i = 0; i < evaluationRepetitions; i++)
+    if (wholePopulation)
+        evaluatePopulation();
+    if (pruningBound != null)
+        pruningBound.disable();
+    PopulationStore.rank(fitness, order, random, rankKeys, rankPermutation);
+    if (store != null)
     {
-        population[which].reset();
-        fitness[which] += task.evaluate((Agent) population[which]);
-//            System.out.println("which " + which + " fitness " + fitness[which]);
+        store.load(order[0], best);
     }
-    fitness[which] = fitness[which] / evaluationRepetitions;
 }
 
-private void shuffle()
+private void evaluatePopulation()
 {
-    for (int i = 0; i < population.length; i++)
+    if (agents == null)
     {
-        swap(i, (int) (Math.random() * population.length));
+        agents = new Agent[order.length];
+        if (store != null)
+            for (int i = 0; i < agents.length; i++)
+                agents[i] = (Agent) phenotype.getNewInstance();
     }
-}
-
-private void sortPopulationByFitness()
-{
-    for (int i = 0; i < population.length; i++)
+    for (int i = 0; i < agents.length; i++)
     {
-        for (int j = i + 1; j < population.length; j++)
-        {
-            if (fitness[i] < fitness[j])
-            {
-                swap(i, j);
-            }
-        }
+        if (store != null)
+            store.load(i, (WeightsEvolvable) agents[i]);
+        else
+            agents[i] = (Agent) population[i];
+    }
+    ((PopulationTask) task).evaluate(agents, elite, fitness);
+    if (store != null)
+    {
+        for (int i = 0; i < fitness.length; i++)
+            store.setFitness(i, fitness[i]);
     }
 }
 
-private void swap(int i, int j)
+private void evaluate(int which)
 {
-    float cache = fitness[i];
-    fitness[i] = fitness[j];
-    fitness[j] = cache;
-    Evolvable gcache = population[i];
-    population[i] = population[j];
-    population[j] = gcache;
+    final Evolvable individual;
+    if (store != null)
+    {
+        store.load(which, phenotype);
+        individual = phenotype;
+    } else
+        individual = population[which];
+
+    fitness[which] = 0;
+    for (int i = 0; i < evaluationRepetitions; i++)
+    {
+        individual.reset();
+        fitness[which] += task.evaluate((Agent) individual);
+//            System.out.println("which " + which + " fitness " + fitness[which]);
+    }
+    fitness[which] = fitness[which] / evaluationRepetitions;
+    if (store != null)
+    {
+        store.setFitness(which, fitness[which]);
+    }
 }
 
+/**
+ * With a store, the best is loaded into one shared phenotype every generation; callers get a copy of it,
+ * which later generations do not change.
+ */
 public Evolvable[] getBests()
 {
-    return new Evolvable[]{population[0]};
+    return new Evolvable[]{store != null ? best.copy() : population[order[0]]};
 }
 
 public float[] getBestFitnesses()
 {
-    return new float[]{fitness[0]};
+    return new float[]{fitness[order[0]]};
 }
 
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.evolution.ea;
+
+import ch.idsia.benchmark.tasks.Task;
+import ch.idsia.evolution.EA;
+import ch.idsia.evolution.Evolvable;
+import ch.idsia.evolution.WeightsEvolvable;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Natural evolution strategy in the style of Salimans et al., "Evolution Strategies as a Scalable
+ * Alternative to Reinforcement Learning": an isotropic Gaussian around a parameter vector, mirrored
+ * (antithetic) sampling, centred-rank fitness shaping and Adam steps along the estimated gradient.
+ * <p/>
+ * Works on the flat weight vector of a <code>WeightsEvolvable</code>; fitness is maximised.
+ * <code>getBests()</code> returns the best sampled individual so far, <code>getMean()</code> the current
+ * parameter vector.
+ */
+public class NES implements EA
+{
+private final CandidateEvaluator evaluator;
+private final WeightsEvolvable best;
+private final Random random;
+private final int n;
+private final int pairs;
+
+private final double[] theta;
+private final double[] noise;       // pairs x n
+private final double[] candidates;  // 2 pairs x n, candidate 2j = theta + sigma eps_j, 2j + 1 = theta - sigma eps_j
+private final float[] fitness;
+private final int[] order;
+private final long[] rankKeys;
+private final int[] rankPermutation;
+private final double[] shaped;
+private final double[] gradient;
+
+// Adam state
+private final double[] m;
+private final double[] v;
+private double beta1 = 0.9;
+private double beta2 = 0.999;
+private int step = 0;
+
+private double sigma = 0.05;
+private double learningRate = 0.01;
+private double weightDecay = 0;
+
+private float bestFitness = -Float.MAX_VALUE;
+
+public NES(Task task, WeightsEvolvable initial, int populationSize, long seed)
+{
+    this(new Task[]{task}, initial, populationSize, seed);
+}
+
+/**
+ * @param tasks          one task per evaluation worker, see <code>CandidateEvaluator</code>
+ * @param populationSize candidates per generation, rounded up to an even number
+ */
+public NES(Task[] tasks, WeightsEvolvable initial, int populationSize, long seed)
+{
+    this.evaluator = new CandidateEvaluator(initial, tasks);
+    this.best = (WeightsEvolvable) initial.getNewInstance();
+    this.random = new Random(seed);
+    this.n = initial.getNumberOfWeights();
+    this.pairs = Math.max(1, (populationSize + 1) / 2);
+    this.theta = new double[n];
+    initial.getWeights(theta, 0);
+    this.noise = new double[pairs * n];
+    this.candidates = new double[2 * pairs * n];
+    this.fitness = new float[2 * pairs];
+    this.order = new int[2 * pairs];
+    this.rankKeys = new long[2 * pairs];
+    this.rankPermutation = new int[2 * pairs];
+    this.shaped = new double[2 * pairs];
+    this.gradient = new double[n];
+    this.m = new double[n];
+    this.v = new double[n];
+}
+
+public void setSigma(double sigma)
+{
+    this.sigma = sigma;
+}
+
+public void setLearningRate(double learningRate)
+{
+    this.learningRate = learningRate;
+}
+
+/**
+ * L2 coefficient subtracted from the parameters every step, 0 by default.
+ */
+public void setWeightDecay(double weightDecay)
+{
+    this.weightDecay = weightDecay;
+}
+
+public void nextGeneration()
+{
+    for (int j = 0; j < pairs; j++)
+    {
+        final int noiseOffset = j * n;
+        final int plus = 2 * j * n;
+        final int minus = plus + n;
+        for (int i = 0; i < n; i++)
+        {
+            final double epsilon = random.nextGaussian();
+            noise[noiseOffset + i] = epsilon;
+            candidates[plus + i] = theta[i] + sigma * epsilon;
+            candidates[minus + i] = theta[i] - sigma * epsilon;
+        }
+    }
+    evaluator.evaluate(candidates, 2 * pairs, n, fitness);
+
+    PopulationStore.rank(fitness, order, random, rankKeys, rankPermutation);
+    if (fitness[order[0]] > bestFitness)
+    {
+        bestFitness = fitness[order[0]];
+        best.setWeights(candidates, order[0] * n);
+    }
+
+    // centred ranks in [-0.5, 0.5], the best candidate gets 0.5
+    final int count = 2 * pairs;
+    for (int rank = 0; rank < count; rank++)
+        shaped[order[rank]] = count > 1 ? 0.5 - rank / (double) (count - 1) : 0;
+
+    Arrays.fill(gradient, 0);
+    for (int j = 0; j < pairs; j++)
+    {
+        final double difference = shaped[2 * j] - shaped[2 * j + 1];
+        final int noiseOffset = j * n;
+        for (int i = 0; i < n; i++)
+            gradient[i] += difference * noise[noiseOffset + i];
+    }
+
+    step++;
+    final double scale = 1.0 / (count * sigma);
+    final double correction = learningRate * Math.sqrt(1 - Math.pow(beta2, step)) / (1 - Math.pow(beta1, step));
+    for (int i = 0; i < n; i++)
+    {
+        final double g = gradient[i] * scale - weightDecay * theta[i];
+        m[i] = beta1 * m[i] + (1 - beta1) * g;
+        v[i] = beta2 * v[i] + (1 - beta2) * g * g;
+        theta[i] += correction * m[i] / (Math.sqrt(v[i]) + 1e-8);
+    }
+}
+
+public Evolvable[] getBests()
+{
+    return new Evolvable[]{best.copy()};
+}
+
+public float[] getBestFitnesses()
+{
+    return new float[]{bestFitness};
+}
+
+/**
+ * @return the current parameter vector, a copy.
+ */
+public double[] getMean()
+{
+    return theta.clone();
+}
+
+public long getEvaluations()
+{
+    return evaluator.getEvaluations();
+}
+
+public void shutdown()
+{
+    evaluator.shutdown();
+}
+
+public String toString()
+{
+    return "NES n=" + n + " population=" + 2 * pairs + " sigma=" + sigma + " learningRate=" + learningRate +
+            " weightDecay=" + weightDecay + " workers=" + evaluator.getNumberOfWorkers();
+}
+}
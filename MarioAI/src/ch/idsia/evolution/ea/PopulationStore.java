@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.evolution.ea;
+
+import ch.idsia.evolution.WeightsEvolvable;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Keeps the genomes of a whole population in one contiguous <code>double[]</code>
+ * (individual <code>i</code> occupies <code>[i * genomeLength, (i + 1) * genomeLength)</code>).
+ * <p/>
+ * Individuals are addressed by slot index: elites are replaced by copying weights between slots,
+ * mutation perturbs a slot in place, and a slot is loaded into a phenotype
+ * (<code>WeightsEvolvable</code>) only when it has to be evaluated. All mutation noise is drawn from one
+ * seeded <code>Random</code>, so the same seed and the same sequence of operations give the same genomes.
+ */
+public final class PopulationStore
+{
+private final int size;
+private final int genomeLength;
+private final double[] genomes;
+private final float[] fitness;
+private final Random random;
+
+private long[] rankKeys;  // scratch for rank()
+private int[] permutation; // scratch for rank()
+
+public PopulationStore(int size, int genomeLength, long seed)
+{
+    if ((long) size * genomeLength > Integer.MAX_VALUE)
+        throw new IllegalArgumentException("PopulationStore: " + size + " x " + genomeLength + " weights do not fit one array");
+    this.size = size;
+    this.genomeLength = genomeLength;
+    this.genomes = new double[size * genomeLength];
+    this.fitness = new float[size];
+    this.random = new Random(seed);
+}
+
+/**
+ * Creates a store with one slot per individual, each initialised from a fresh
+ * <code>initial.getNewInstance()</code>, so the initial distribution matches the one of <code>ES</code>.
+ */
+public static PopulationStore fromPrototype(WeightsEvolvable initial, int size, long seed)
+{
+    PopulationStore store = new PopulationStore(size, initial.getNumberOfWeights(), seed);
+    for (int i = 0; i < size; i++)
+        store.store(i, (WeightsEvolvable) initial.getNewInstance());
+    return store;
+}
+
+public int size()
+{
+    return size;
+}
+
+public int getGenomeLength()
+{
+    return genomeLength;
+}
+
+public int offset(int slot)
+{
+    return slot * genomeLength;
+}
+
+/**
+ * @return the backing array itself, not a copy.
+ */
+public double[] getGenomes()
+{
+    return genomes;
+}
+
+public Random getRandom()
+{
+    return random;
+}
+
+public float getFitness(int slot)
+{
+    return fitness[slot];
+}
+
+public void setFitness(int slot, float value)
+{
+    fitness[slot] = value;
+}
+
+/**
+ * Loads the genome of <code>slot</code> into <code>phenotype</code>.
+ */
+public void load(int slot, WeightsEvolvable phenotype)
+{
+    phenotype.setWeights(genomes, slot * genomeLength);
+}
+
+/**
+ * Stores the weights of <code>phenotype</code> into <code>slot</code>.
+ */
+public void store(int slot, WeightsEvolvable phenotype)
+{
+    phenotype.getWeights(genomes, slot * genomeLength);
+}
+
+public void copy(int fromSlot, int toSlot)
+{
+    System.arraycopy(genomes, fromSlot * genomeLength, genomes, toSlot * genomeLength, genomeLength);
+}
+
+/**
+ * Adds Gaussian noise of the given standard deviation to every weight of <code>slot</code>.
+ */
+public void mutate(int slot, double magnitude)
+{
+    final int end = (slot + 1) * genomeLength;
+    for (int i = slot * genomeLength; i < end; i++)
+        genomes[i] += random.nextGaussian() * magnitude;
+}
+
+/**
+ * Ranks the slots by fitness, best first.
+ *
+ * @param order receives the slot indices, <code>order[0]</code> is the fittest
+ */
+public void rank(int[] order, Random random)
+{
+    if (rankKeys == null)
+    {
+        rankKeys = new long[size];
+        permutation = new int[size];
+    }
+    rank(fitness, order, random, rankKeys, permutation);
+}
+
+/**
+ * Sorts indices of <code>fitness</code> in descending order in O(n log n) without boxing.
+ * Ties are broken uniformly at random, which is what shuffling before the sort used to achieve.
+ *
+ * @param order       receives the indices, <code>order[0]</code> is the index of the highest fitness
+ * @param random      source for the tie-breaking permutation
+ * @param keys        scratch array of at least <code>fitness.length</code> elements
+ * @param permutation scratch array of at least <code>fitness.length</code> elements
+ */
+public static void rank(float[] fitness, int[] order, Random random, long[] keys, int[] permutation)
+{
+    final int n = fitness.length;
+    for (int i = 0; i < n; i++)
+        permutation[i] = i;
+    for (int i = n - 1; i > 0; i--)
+    {
+        int j = random.nextInt(i + 1);
+        int tmp = permutation[i];
+        permutation[i] = permutation[j];
+        permutation[j] = tmp;
+    }
+    for (int position = 0; position < n; position++)
+    {
+        int bits = Float.floatToIntBits(fitness[permutation[position]]);
+        bits ^= (bits >> 31) & 0x7fffffff; // makes the int order match the float order
+        keys[position] = ((long) bits << 32) | position;
+    }
+    Arrays.sort(keys, 0, n);
+    for (int rank = 0; rank < n; rank++)
+        order[rank] = permutation[(int) keys[n - 1 - rank]];
+}
+}
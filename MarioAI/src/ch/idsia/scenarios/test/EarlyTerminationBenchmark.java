@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.scenarios.test;
+
+import ch.idsia.agents.learning.SmallMLPAgent;
+import ch.idsia.benchmark.mario.engine.GlobalOptions;
+import ch.idsia.benchmark.tasks.AnyTermination;
+import ch.idsia.benchmark.tasks.BoundTermination;
+import ch.idsia.benchmark.tasks.ProgressTask;
+import ch.idsia.benchmark.tasks.StallTermination;
+import ch.idsia.evolution.MLP;
+import ch.idsia.evolution.ea.ES;
+import ch.idsia.tools.MarioAIOptions;
+
+/**
+ * Runs the same <code>ES</code> on a <code>ProgressTask</code> without early termination, with stall
+ * detection, and with stall detection plus bound pruning, and reports the ticks simulated and saved.
+ * <p/>
+ * Usage: EarlyTerminationBenchmark [generations] [population size]
+ */
+public class EarlyTerminationBenchmark
+{
+public static void main(String[] args) throws Exception
+{
+    final int generations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    final int populationSize = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+    MarioAIOptions options = new MarioAIOptions(new String[0]);
+    options.setFPS(GlobalOptions.MaxFPS);
+    options.setLevelDifficulty(0);
+    options.setVisualization(false);
+    options.setLevelRandSeed(1);
+    ProgressTask task = new ProgressTask(options);
+
+    for (String mode : new String[]{"full episodes", "stall", "stall + bound"})
+    {
+        BoundTermination bound = null;
+        if (mode.equals("stall"))
+            task.setTerminationPolicy(new StallTermination());
+        else if (mode.equals("stall + bound"))
+        {
+            bound = new BoundTermination();
+            task.setTerminationPolicy(new AnyTermination(new StallTermination(), bound));
+        } else
+            task.setTerminationPolicy(null);
+        task.resetTickAccounting();
+
+        MLP.random.setSeed(0);
+        ES es = new ES(task, new SmallMLPAgent(), populationSize, 0);
+        es.setPruningBound(bound);
+        long start = System.currentTimeMillis();
+        for (int g = 0; g < generations; g++)
+            es.nextGeneration();
+        long elapsed = System.currentTimeMillis() - start;
+
+        System.out.println(mode + ": best " + es.getBestFitnesses()[0]
+                + ", ticks simulated " + task.getTicksSimulated()
+                + ", ticks saved " + task.getTicksSaved()
+                + ", episodes stopped " + task.getEpisodesTerminated()
+                + ", " + elapsed + " ms");
+    }
+}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.scenarios.test;
+
+import ch.idsia.evolution.MLP;
+import ch.idsia.evolution.SRN;
+
+import java.util.Random;
+
+/**
+ * Micro-benchmark of the network propagation used during evolution, with exact and with
+ * approximated tanh.
+ * Network sizes follow the Medium and Large MLP/SRN agents.
+ * <p/>
+ * Usage: NetworkBenchmark [propagations per measurement]
+ */
+public class NetworkBenchmark
+{
+final static int[][] sizes = {{28, 10, 6}, {101, 10, 6}, {101, 64, 6}};
+final static int observationCount = 64;
+final static int warmUpRounds = 3;
+
+public static void main(String[] args)
+{
+    final int n = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+    final Random random = new Random(0);
+    for (int[] size : sizes)
+    {
+        double[][] observations = new double[observationCount][size[0]];
+        for (double[] observation : observations)
+            for (int i = 0; i < observation.length; i++)
+                observation[i] = random.nextInt(2);
+
+        MLP mlp = new MLP(size[0], size[1], size[2]);
+        MLP fastMlp = mlp.copy();
+        fastMlp.setFastTanh(true);
+        SRN srn = new SRN(size[0], size[1], size[2]);
+        SRN fastSrn = srn.copy();
+        fastSrn.setFastTanh(true);
+
+        double[] results = new double[4];
+        for (int round = 0; round <= warmUpRounds; round++)
+        {
+            results[0] = timeSingle(mlp, observations, n);
+            results[1] = timeSingle(fastMlp, observations, n);
+            results[2] = timeSingle(srn, observations, n);
+            results[3] = timeSingle(fastSrn, observations, n);
+        }
+        System.out.printf("%d/%d/%d ns per observation: MLP %.1f, MLP fast tanh %.1f, " +
+                "SRN %.1f, SRN fast tanh %.1f%n",
+                size[0], size[1], size[2], results[0], results[1], results[2], results[3]);
+    }
+}
+
+private static double timeSingle(MLP mlp, double[][] observations, int n)
+{
+    double sink = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < n; i++)
+        sink += mlp.propagate(observations[i % observationCount])[0];
+    return report(start, n, sink);
+}
+
+private static double timeSingle(SRN srn, double[][] observations, int n)
+{
+    double sink = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < n; i++)
+        sink += srn.propagate(observations[i % observationCount])[0];
+    return report(start, n, sink);
+}
+
+private static double report(long start, int n, double sink)
+{
+    double nanosPerObservation = (System.nanoTime() - start) / (double) n;
+    // keeps the JIT from eliminating the loops
+    if (sink == Double.MIN_VALUE)
+        System.out.println(sink);
+    return nanosPerObservation;
+}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.scenarios.test;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.agents.learning.SmallMLPAgent;
+import ch.idsia.benchmark.mario.engine.GlobalOptions;
+import ch.idsia.benchmark.tasks.BasicTask;
+import ch.idsia.benchmark.tasks.LearningTask;
+import ch.idsia.benchmark.tasks.Task;
+import ch.idsia.evolution.EA;
+import ch.idsia.evolution.MLP;
+import ch.idsia.evolution.ea.CMAES;
+import ch.idsia.evolution.ea.ES;
+import ch.idsia.evolution.ea.NES;
+import ch.idsia.tools.MarioAIOptions;
+
+/**
+ * Compares <code>ES</code>, <code>CMAES</code> and <code>NES</code> by the number of task evaluations
+ * (samples) each needs before its best individual reaches a target distance on a fixed level,
+ * repeated over fixed random seeds. Fitness is the distance passed in one episode.
+ * <p/>
+ * Usage: OptimizerComparison [target distance] [evaluation budget] [number of seeds]
+ */
+public class OptimizerComparison
+{
+final static int levelSeed = 1;
+
+public static void main(String[] args) throws Exception
+{
+    final float target = args.length > 0 ? Float.parseFloat(args[0]) : 2000;
+    final long budget = args.length > 1 ? Long.parseLong(args[1]) : 5000;
+    final int seeds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+    MarioAIOptions options = new MarioAIOptions(new String[0]);
+    options.setFPS(GlobalOptions.MaxFPS);
+    options.setLevelDifficulty(0);
+    options.setVisualization(false);
+    options.setLevelRandSeed(levelSeed);
+    DistanceTask task = new DistanceTask(new LearningTask(options));
+
+    System.out.println("target " + target + ", budget " + budget + " evaluations");
+    for (String optimizer : new String[]{"ES", "CMAES", "NES"})
+    {
+        for (int seed = 0; seed < seeds; seed++)
+        {
+            MLP.random.setSeed(seed); // fixes the initial weights drawn by getNewInstance()
+            task.evaluations = 0;
+            EA ea = create(optimizer, task, seed);
+            long reachedAt = -1;
+            while (task.evaluations < budget && reachedAt < 0)
+            {
+                ea.nextGeneration();
+                if (ea.getBestFitnesses()[0] >= target)
+                    reachedAt = task.evaluations;
+            }
+            System.out.println(optimizer + " seed " + seed + ": " +
+                    (reachedAt >= 0 ? reachedAt + " samples to target" : "target not reached") +
+                    ", best " + ea.getBestFitnesses()[0] + " after " + task.evaluations + " evaluations");
+        }
+    }
+}
+
+private static EA create(String optimizer, Task task, long seed)
+{
+    if (optimizer.equals("CMAES"))
+        return new CMAES(task, new SmallMLPAgent(), 0.5, seed);
+    if (optimizer.equals("NES"))
+        return new NES(task, new SmallMLPAgent(), 40, seed);
+    return new ES(task, new SmallMLPAgent(), 100, seed);
+}
+
+private static class DistanceTask implements Task
+{
+    private final BasicTask task;
+    long evaluations = 0;
+
+    DistanceTask(BasicTask task)
+    {
+        this.task = task;
+    }
+
+    public int evaluate(Agent controller)
+    {
+        evaluations++;
+        task.evaluate(controller);
+        return (int) task.getEvaluationInfo().computeDistancePassed();
+    }
+
+    public void setOptionsAndReset(MarioAIOptions options)
+    {
+        task.setOptionsAndReset(options);
+    }
+
+    public void setOptionsAndReset(String options)
+    {
+        task.setOptionsAndReset(options);
+    }
+
+    public void reset()
+    {
+        task.reset();
+    }
+
+    public void doEpisodes(int amount, boolean verbose, int repetitionsOfSingleEpisode)
+    {
+        task.doEpisodes(amount, verbose, repetitionsOfSingleEpisode);
+    }
+
+    public boolean isFinished()
+    {
+        return task.isFinished();
+    }
+
+    public String getName()
+    {
+        return task.getName();
+    }
+
+    public void printStatistics()
+    {
+        task.printStatistics();
+    }
+}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.scenarios.test;
+
+import ch.idsia.benchmark.tasks.BasicTask;
+import ch.idsia.benchmark.tasks.TickProfiler;
+import ch.idsia.tools.MarioAIOptions;
+
+/**
+ * Plays the same levels with <code>TickProfiler</code> off and on, reports the ticks per second of both and
+ * then the profile itself.
+ * <p/>
+ * Usage: ProfilerBenchmark [episodes] [agent]
+ */
+public class ProfilerBenchmark
+{
+public static void main(String[] args) throws Exception
+{
+    final int episodes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    final String agent = args.length > 1 ? args[1] : "ch.idsia.agents.controllers.ForwardJumpingAgent";
+    final MarioAIOptions options = new MarioAIOptions("-vis off -echo off -ld 2 -lt 0 -ag " + agent);
+    final BasicTask task = new BasicTask(options);
+    final TickProfiler profiler = TickProfiler.getInstance();
+
+    for (int round = 0; round < 3; round++) // the first rounds warm up
+        for (boolean on : new boolean[]{false, true})
+        {
+            profiler.setEnabled(on);
+            profiler.reset();
+            task.resetTickAccounting();
+            long start = System.nanoTime();
+            for (int i = 0; i < episodes; i++)
+            {
+                options.setLevelRandSeed(i);
+                task.setOptionsAndReset(options);
+                task.runSingleEpisode(1);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (round == 2)
+                System.out.printf("profiler %s: %.0f ticks/s%n", on ? "on " : "off", task.getTicksSimulated() / seconds);
+        }
+    System.out.println(profiler.getReport().replace("; ", "\n"));
+}
+}
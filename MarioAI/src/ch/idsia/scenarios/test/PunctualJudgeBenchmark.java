@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.scenarios.test;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.benchmark.tasks.BasicTask;
+import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.punj.PunctualJudge;
+
+import java.util.Random;
+
+/**
+ * Plays the same levels with each agent uninstrumented, counted per instruction and counted per basic
+ * block by <code>PunctualJudge</code>, and reports episodes per second and the instruction counts, which
+ * must agree between the two ways of counting.
+ * <p/>
+ * Usage: PunctualJudgeBenchmark [episodes] [agent class ...]
+ */
+public class PunctualJudgeBenchmark
+{
+private static final String[] MODES = {"plain", "every instruction", "basic blocks"};
+
+public static void main(String[] args) throws Exception
+{
+    final int episodes = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+    String[] agents = {"ch.idsia.agents.controllers.ForwardAgent", "ch.idsia.agents.controllers.ForwardJumpingAgent",
+            "ch.idsia.agents.controllers.ScaredShooty", "ch.idsia.agents.learning.LargeMLPAgent",
+            "competition.cig.sergeykarakovskiy.SergeyKarakovskiy_JumpingAgent"};
+    if (args.length > 1)
+    {
+        agents = new String[args.length - 1];
+        System.arraycopy(args, 1, agents, 0, agents.length);
+    }
+
+    final MarioAIOptions options = new MarioAIOptions("-vis off -echo off -ld 2 -lt 0");
+    for (String name : agents)
+    {
+        double[] rate = new double[MODES.length];
+        long[] counted = new long[MODES.length];
+        for (int round = 0; round < 2; round++) // the first round warms up
+            for (int mode = 0; mode < MODES.length; mode++)
+            {
+                ClassLoader loader = mode == 0 ? PunctualJudgeBenchmark.class.getClassLoader() : new PunctualJudge(mode == 1);
+                // the same random weights for neural agents; a judge loads its own copy of MLP
+                ((Random) loader.loadClass("ch.idsia.evolution.MLP").getField("random").get(null)).setSeed(0);
+                Agent agent = (Agent) loader.loadClass(name).newInstance();
+                options.setAgent(agent);
+                BasicTask task = new BasicTask(options);
+                long start = System.nanoTime();
+                counted[mode] = 0;
+                for (int i = 0; i < episodes; i++)
+                {
+                    options.setLevelRandSeed(i);
+                    task.setOptionsAndReset(options);
+                    task.runSingleEpisode(1);
+                    counted[mode] += task.getEvaluationInfo().bytecodeInstructions;
+                }
+                rate[mode] = episodes / ((System.nanoTime() - start) / 1e9);
+            }
+        System.out.printf("%s: %.1f episodes/s plain, %.1f counting every instruction (%.2fx slower), "
+                + "%.1f counting blocks (%.2fx slower); %d instructions %s%n", agent(name), rate[0], rate[1],
+                rate[0] / rate[1], rate[2], rate[0] / rate[2], counted[2],
+                counted[1] == counted[2] ? "either way" : "per block but " + counted[1] + " per instruction");
+    }
+}
+
+private static String agent(String name)
+{
+    return name.substring(name.lastIndexOf('.') + 1);
+}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.scenarios.test;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.agents.learning.SmallMLPAgent;
+import ch.idsia.benchmark.mario.engine.GlobalOptions;
+import ch.idsia.benchmark.tasks.MultiSeedProgressTask;
+import ch.idsia.benchmark.tasks.StallTermination;
+import ch.idsia.evolution.MLP;
+import ch.idsia.evolution.ea.ES;
+import ch.idsia.tools.MarioAIOptions;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Compares racing with full evaluation in <code>MultiSeedProgressTask</code>: first on a fixed random population,
+ * counting how many of the individuals selected by full evaluation racing also selects, then by running
+ * <code>ES</code> with and without racing.
+ * <p/>
+ * Usage: RacingBenchmark [population size] [number of seeds] [generations]
+ */
+public class RacingBenchmark
+{
+public static void main(String[] args) throws Exception
+{
+    final int populationSize = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+    final int seeds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    final int generations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+    final int survivors = populationSize / 2;
+
+    MarioAIOptions options = new MarioAIOptions(new String[0]);
+    options.setFPS(GlobalOptions.MaxFPS);
+    options.setLevelDifficulty(0);
+    options.setVisualization(false);
+    MultiSeedProgressTask task = new MultiSeedProgressTask(options);
+    task.setNumberOfSeeds(seeds);
+    task.setTerminationPolicy(new StallTermination());
+
+    MLP.random.setSeed(0);
+    Agent[] agents = new Agent[populationSize];
+    for (int i = 0; i < agents.length; i++)
+        agents[i] = (Agent) new SmallMLPAgent().getNewInstance();
+
+    float[] full = new float[populationSize];
+    task.disableRacing();
+    task.resetTickAccounting();
+    task.evaluate(agents, survivors, full);
+    long fullTicks = task.getTicksSimulated();
+
+    float[] raced = new float[populationSize];
+    task.setRacing(3, 0.95);
+    task.resetTickAccounting();
+    task.evaluate(agents, survivors, raced);
+    long racedTicks = task.getTicksSimulated();
+
+    int agreement = 0;
+    boolean[] fullSelected = select(full, survivors);
+    boolean[] racedSelected = select(raced, survivors);
+    for (int i = 0; i < populationSize; i++)
+        if (fullSelected[i] && racedSelected[i])
+            agreement++;
+    System.out.println("selection: " + agreement + " of " + survivors + " agree, ticks " + racedTicks + " raced vs "
+            + fullTicks + " full, saved episode ratio " + task.getSavedEpisodeRatio());
+
+    for (boolean racing : new boolean[]{false, true})
+    {
+        if (racing)
+            task.setRacing(3, 0.95);
+        else
+            task.disableRacing();
+        task.resetTickAccounting();
+        MLP.random.setSeed(0);
+        ES es = new ES(task, new SmallMLPAgent(), populationSize, 0);
+        for (int g = 0; g < generations; g++)
+            es.nextGeneration();
+        System.out.println((racing ? "ES with racing" : "ES without racing") + ": best " + es.getBestFitnesses()[0]
+                + " (full evaluation " + task.evaluate((Agent) es.getBests()[0]) + "), ticks "
+                + task.getTicksSimulated());
+    }
+}
+
+private static boolean[] select(float[] fitness, int count)
+{
+    Integer[] indices = new Integer[fitness.length];
+    for (int i = 0; i < indices.length; i++)
+        indices[i] = i;
+    final float[] f = fitness;
+    Arrays.sort(indices, new Comparator<Integer>()
+    {
+        public int compare(Integer a, Integer b)
+        {
+            return Float.compare(f[b], f[a]);
+        }
+    });
+    boolean[] selected = new boolean[fitness.length];
+    for (int i = 0; i < count; i++)
+        selected[indices[i]] = true;
+    return selected;
+}
+}
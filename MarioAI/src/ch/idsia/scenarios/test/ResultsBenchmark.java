@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.scenarios.test;
+
+import ch.idsia.tools.EvaluationInfo;
+import ch.idsia.tools.ResultsReader;
+import ch.idsia.tools.ResultsWriter;
+import ch.idsia.utils.statistics.StreamingSummary;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Writes a synthetic campaign of episodes to a results file and scans it back, reporting rows per second
+ * both ways.
+ * <p/>
+ * Usage: ResultsBenchmark [file] [million rows]
+ */
+public class ResultsBenchmark
+{
+public static void main(String[] args) throws Exception
+{
+    File file = new File(args.length > 0 ? args[0] : "results.bin");
+    final int rows = (int) ((args.length > 1 ? Double.parseDouble(args[1]) : 10) * 1000000);
+    file.delete();
+
+    Random random = new Random(0);
+    EvaluationInfo info = new EvaluationInfo();
+    String[] agents = {"ForwardAgent", "ForwardJumpingAgent", "AStarAgent", "RandomAgent"};
+    long start = System.nanoTime();
+    ResultsWriter writer = new ResultsWriter(file);
+    for (int i = 0; i < rows; i++)
+    {
+        info.distancePassedPhys = random.nextInt(4096);
+        info.distancePassedCells = info.distancePassedPhys / 16;
+        info.marioStatus = random.nextInt(2);
+        info.timeSpent = random.nextInt(200);
+        info.timeLeft = 200 - info.timeSpent;
+        info.killsTotal = random.nextInt(10);
+        writer.add(info, agents[i & 3], i, i % 10, i % 3);
+    }
+    writer.close();
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("wrote %d rows, %.1f MB in %.2f s: %.0f rows/s%n", rows, file.length() / 1e6, seconds,
+            rows / seconds);
+
+    start = System.nanoTime();
+    ResultsReader reader = new ResultsReader(file);
+    StreamingSummary distance = reader.summarize("distancePassedPhys");
+    StreamingSummary astar = reader.summarize("distancePassedPhys", "agent", reader.getAgentId("AStarAgent"));
+    reader.close();
+    seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("scanned %d rows twice in %.2f s: %.0f rows/s%n", reader.getRows(), seconds,
+            2 * reader.getRows() / seconds);
+    System.out.println(distance);
+    System.out.println(astar);
+}
+}
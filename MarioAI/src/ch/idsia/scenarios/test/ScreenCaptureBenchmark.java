@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.scenarios.test;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.agents.controllers.ForwardJumpingAgent;
+import ch.idsia.benchmark.mario.environments.MarioEnvironment;
+import ch.idsia.tools.MarioAIOptions;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+/**
+ * Plays one level headless with screen capture on and reports how many frames per second
+ * <code>getScreenCapture</code> delivers, next to the speed of the simulation alone.
+ * <p/>
+ * Usage: ScreenCaptureBenchmark [downsampling factor] [png file for the 200th capture]
+ */
+public class ScreenCaptureBenchmark
+{
+public static void main(String[] args) throws Exception
+{
+    final int factor = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+    final MarioEnvironment environment = MarioEnvironment.getInstance();
+    final Agent agent = new ForwardJumpingAgent();
+    final MarioAIOptions options = new MarioAIOptions("-vis off -ld 2 -ls 3 -lt 0 -sc " + factor);
+    options.setAgent(agent);
+
+    long simulation = 0, capture = 0;
+    int frames = 0;
+    byte[][] screen = null;
+    byte[][] shot = null;
+    for (int episode = 0; episode < 40; episode++)
+    {
+        environment.reset(options);
+        agent.reset();
+        while (!environment.isLevelFinished())
+        {
+            long start = System.nanoTime();
+            environment.tick();
+            agent.integrateObservation(environment);
+            environment.performAction(agent.getAction());
+            long middle = System.nanoTime();
+            screen = environment.getScreenCapture();
+            capture += System.nanoTime() - middle;
+            simulation += middle - start;
+            if (++frames == 200)
+            {
+                shot = new byte[screen.length][];
+                for (int y = 0; y < screen.length; y++)
+                    shot[y] = screen[y].clone();
+            }
+        }
+    }
+    System.out.println(frames + " frames of " + screen[0].length + "x" + screen.length
+            + ": simulation " + (long) (frames / (simulation / 1e9)) + " ticks/s, capture "
+            + (long) (frames / (capture / 1e9)) + " frames/s");
+
+    if (args.length > 1 && shot != null)
+    {
+        BufferedImage image = new BufferedImage(shot[0].length, shot.length, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < shot.length; y++)
+            for (int x = 0; x < shot[y].length; x++)
+            {
+                int v = shot[y][x] & 0xff;
+                image.setRGB(x, y, 0xff000000 | v << 16 | v << 8 | v);
+            }
+        ImageIO.write(image, "png", new File(args[1]));
+    }
+}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.scenarios.test;
+
+import ch.idsia.agents.learning.MediumSRNAgent;
+import ch.idsia.evolution.MLP;
+import ch.idsia.utils.wox.serial.Easy;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Compares file size, save time and load time of the XML and binary WOX formats for a small SRN agent and
+ * a large MLP.
+ * <p/>
+ * Usage: WoxBenchmark [repetitions]
+ */
+public class WoxBenchmark
+{
+public static void main(String[] args) throws Exception
+{
+    final int repetitions = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    compare("MediumSRNAgent", new MediumSRNAgent().getNewInstance(), repetitions);
+    compare("MLP 400-200-6", new MLP(400, 200, 6), repetitions);
+}
+
+private static void compare(String name, Object ob, int repetitions) throws Exception
+{
+    File xml = File.createTempFile("wox", ".xml");
+    File binary = File.createTempFile("wox", ".woxb");
+    long[] xmlTimes = time(ob, xml.getPath(), false, repetitions);
+    long[] binaryTimes = time(ob, binary.getPath(), true, repetitions);
+    System.out.println(name + ": xml " + xml.length() + " bytes, save " + xmlTimes[0] / 1000 + " us, load "
+            + xmlTimes[1] / 1000 + " us; binary " + binary.length() + " bytes, save " + binaryTimes[0] / 1000
+            + " us, load " + binaryTimes[1] / 1000 + " us");
+    xml.delete();
+    binary.delete();
+}
+
+/**
+ * @return median save and load time in nanoseconds
+ */
+private static long[] time(Object ob, String file, boolean binary, int repetitions)
+{
+    long[] save = new long[repetitions];
+    long[] load = new long[repetitions];
+    for (int i = 0; i < repetitions; i++)
+    {
+        long start = System.nanoTime();
+        if (binary)
+            Easy.saveBinary(ob, file);
+        else
+            Easy.save(ob, file);
+        save[i] = System.nanoTime() - start;
+        start = System.nanoTime();
+        if (Easy.load(file) == null)
+            throw new IllegalStateException("could not load " + file);
+        load[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(save);
+    Arrays.sort(load);
+    return new long[]{save[repetitions / 2], load[repetitions / 2]};
+}
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.tools;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Writes frames into an AVI 1.0 file, either as uncompressed 24 bit bitmaps or as Motion JPEG. The sizes in
+ * the headers are filled in by <code>close</code>; as with any AVI 1.0 file, the result must stay below 2 GB.
+ */
+public class AviWriter implements ReplayExporter.FrameSink
+{
+private final RandomAccessFile out;
+private final int width, height;
+private final boolean mjpeg;
+private final float jpegQuality;
+private final ThreadLocal<Jpeg> jpeg = new ThreadLocal<Jpeg>()
+{
+    protected Jpeg initialValue()
+    {
+        return new Jpeg();
+    }
+};
+private final byte[] header = new byte[8];
+
+private int frames;
+private long moviStart;                  // position of the 'movi' list type
+private long[] offsets = new long[1024]; // of each frame chunk, relative to moviStart
+private int[] sizes = new int[1024];
+
+// positions of the values written by close
+private long riffSize, totalFrames, streamLength, moviSize;
+
+/**
+ * @param jpegQuality in [0, 1]; a negative value stores uncompressed frames
+ */
+public AviWriter(File file, int width, int height, int fps, float jpegQuality) throws IOException
+{
+    this.width = width;
+    this.height = height;
+    this.mjpeg = jpegQuality >= 0;
+    this.jpegQuality = Math.min(1, jpegQuality);
+
+    out = new RandomAccessFile(file, "rw");
+    out.setLength(0);
+    final int frameBytes = mjpeg ? 0 : ((width * 3 + 3) & ~3) * height;
+
+    fourCC("RIFF");
+    riffSize = out.getFilePointer();
+    int32(0);
+    fourCC("AVI ");
+
+    fourCC("LIST");
+    int32(4 + 8 + 56 + 8 + 4 + 8 + 56 + 8 + 40);
+    fourCC("hdrl");
+
+    fourCC("avih");
+    int32(56);
+    int32(1000000 / fps);       // microseconds per frame
+    int32(frameBytes * fps);    // max bytes per second
+    int32(0);                   // padding granularity
+    int32(0x10);                // AVIF_HASINDEX
+    totalFrames = out.getFilePointer();
+    int32(0);
+    int32(0);                   // initial frames
+    int32(1);                   // streams
+    int32(frameBytes);          // suggested buffer size
+    int32(width);
+    int32(height);
+    int32(0);
+    int32(0);
+    int32(0);
+    int32(0);
+
+    fourCC("LIST");
+    int32(4 + 8 + 56 + 8 + 40);
+    fourCC("strl");
+
+    fourCC("strh");
+    int32(56);
+    fourCC("vids");
+    fourCC(mjpeg ? "MJPG" : "DIB ");
+    int32(0);                   // flags
+    int16(0);                   // priority
+    int16(0);                   // language
+    int32(0);                   // initial frames
+    int32(1);                   // scale
+    int32(fps);                 // rate, so fps frames per second
+    int32(0);                   // start
+    streamLength = out.getFilePointer();
+    int32(0);
+    int32(frameBytes);          // suggested buffer size
+    int32(-1);                  // quality
+    int32(0);                   // sample size
+    int16(0);
+    int16(0);
+    int16(width);
+    int16(height);
+
+    fourCC("strf");
+    int32(40);
+    int32(40);                  // BITMAPINFOHEADER
+    int32(width);
+    int32(height);
+    int16(1);                   // planes
+    int16(24);                  // bits per pixel
+    fourCC(mjpeg ? "MJPG" : "\0\0\0\0");
+    int32(width * height * 3);
+    int32(0);
+    int32(0);
+    int32(0);
+    int32(0);
+
+    fourCC("LIST");
+    moviSize = out.getFilePointer();
+    int32(0);
+    moviStart = out.getFilePointer();
+    fourCC("movi");
+}
+
+/**
+ * Encodes a frame given as <code>width * height</code> RGB values, row by row from the top; may be called
+ * from several threads at once.
+ */
+public byte[] encode(int[] rgb) throws IOException
+{
+    if (mjpeg)
+    {
+        final Jpeg jpeg = this.jpeg.get();
+        System.arraycopy(rgb, 0, jpeg.pixels, 0, rgb.length);
+        jpeg.bytes.reset();
+        MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(jpeg.bytes);
+        jpeg.writer.setOutput(stream);
+        jpeg.writer.write(null, new IIOImage(jpeg.image, null, null), jpeg.param);
+        stream.close();
+        return jpeg.bytes.toByteArray();
+    }
+
+    final int stride = (width * 3 + 3) & ~3;
+    final byte[] bitmap = new byte[stride * height];
+    for (int y = height - 1, o = 0; y >= 0; y--, o += stride) // bitmaps are stored bottom-up, as BGR
+        for (int x = 0, i = y * width, j = o; x < width; x++, i++, j += 3)
+        {
+            bitmap[j] = (byte) rgb[i];
+            bitmap[j + 1] = (byte) (rgb[i] >> 8);
+            bitmap[j + 2] = (byte) (rgb[i] >> 16);
+        }
+    return bitmap;
+}
+
+/**
+ * Appends an encoded frame.
+ */
+public void write(byte[] frame) throws IOException
+{
+    final long position = out.getFilePointer();
+    chunkHeader(mjpeg ? "00dc" : "00db", frame.length);
+    out.write(frame);
+    if ((frame.length & 1) != 0)
+        out.write(0);
+
+    if (frames == offsets.length)
+    {
+        offsets = Arrays.copyOf(offsets, frames * 2);
+        sizes = Arrays.copyOf(sizes, frames * 2);
+    }
+    offsets[frames] = position - moviStart;
+    sizes[frames] = frame.length;
+    frames++;
+}
+
+public int getFrames()
+{
+    return frames;
+}
+
+public void close() throws IOException
+{
+    final long moviEnd = out.getFilePointer();
+
+    ByteBuffer index = ByteBuffer.allocate(8 + frames * 16).order(ByteOrder.LITTLE_ENDIAN);
+    index.put("idx1".getBytes("US-ASCII")).putInt(frames * 16);
+    final byte[] id = (mjpeg ? "00dc" : "00db").getBytes("US-ASCII");
+    for (int i = 0; i < frames; i++)
+        index.put(id).putInt(0x10 /* AVIIF_KEYFRAME */).putInt((int) offsets[i]).putInt(sizes[i]);
+    out.write(index.array());
+    final long end = out.getFilePointer();
+
+    patch(riffSize, end - 8);
+    patch(totalFrames, frames);
+    patch(streamLength, frames);
+    patch(moviSize, moviEnd - moviStart);
+    out.close();
+}
+
+/**
+ * JPEG encoder state of one thread.
+ */
+private final class Jpeg
+{
+    final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    final ImageWriteParam param = writer.getDefaultWriteParam();
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    Jpeg()
+    {
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+    }
+}
+
+private void chunkHeader(String id, int size) throws IOException
+{
+    for (int i = 0; i < 4; i++)
+        header[i] = (byte) id.charAt(i);
+    header[4] = (byte) size;
+    header[5] = (byte) (size >>> 8);
+    header[6] = (byte) (size >>> 16);
+    header[7] = (byte) (size >>> 24);
+    out.write(header);
+}
+
+private void patch(long position, long value) throws IOException
+{
+    out.seek(position);
+    int32((int) value);
+}
+
+private void fourCC(String code) throws IOException
+{
+    for (int i = 0; i < 4; i++)
+        out.write(code.charAt(i));
+}
+
+private void int32(int v) throws IOException
+{
+    out.write(v);
+    out.write(v >>> 8);
+    out.write(v >>> 16);
+    out.write(v >>> 24);
+}
+
+private void int16(int v) throws IOException
+{
+    out.write(v);
+    out.write(v >>> 8);
+}
+}
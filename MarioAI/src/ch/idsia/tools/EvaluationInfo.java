@@ -77,6 +77,10 @@ public int totalNumberOfCreatures = MagicNumberUnDef; //including spiky flowers
 
 public long bytecodeInstructions = MagicNumberUnDef;
 
+// set by BasicTask when the agent plays under a ComputeBudget
+public int budgetViolations = 0;
+public boolean disqualified = false;
+
 public int levelLength = MagicNumberUnDef;
 
 public int collisionsWithCreatures = MagicNumberUnDef;
@@ -226,6 +230,8 @@ public String toString()
             "\n           kills By Shell : " + killsByShell +
             "\n           kills By Stomp : " + killsByStomp +
             "\n    PunJ : " + Long.toString(bytecodeInstructions) +
+            (budgetViolations == 0 ? "" : "\n   Actions over budget : " + budgetViolations) +
+            (disqualified ? "\n   DISQUALIFIED: compute budget exceeded" : "") +
             ((Memo.equals("")) ? "" : "\nMEMO INFO: " + Memo);
 }
 
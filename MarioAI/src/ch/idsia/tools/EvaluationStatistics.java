@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.tools;
+
+import ch.idsia.utils.statistics.StreamingSummary;
+
+/**
+ * One <code>StreamingSummary</code> per field of <code>EvaluationInfo</code>, in the order of
+ * <code>toIntArray</code>, plus one for the weighted fitness. Fields are read directly, so recording an
+ * episode allocates nothing. Let every worker of a campaign fill its own and <code>merge</code> them.
+ */
+public class EvaluationStatistics
+{
+public static final String[] NAMES = {
+        "distancePassedCells", "distancePassedPhys", "flowersDevoured", "killsByFire", "killsByShell",
+        "killsByStomp", "killsTotal", "marioMode", "marioStatus", "mushroomsDevoured", "coinsGained",
+        "timeLeft", "timeSpent", "hiddenBlocksFound"};
+
+private final StreamingSummary[] fields = new StreamingSummary[EvaluationInfo.numberOfElements];
+private final StreamingSummary weightedFitness = new StreamingSummary("weightedFitness");
+
+public EvaluationStatistics()
+{
+    for (int i = 0; i < fields.length; i++)
+        fields[i] = new StreamingSummary(NAMES[i]);
+}
+
+public void add(EvaluationInfo info)
+{
+    fields[0].add(info.distancePassedCells);
+    fields[1].add(info.distancePassedPhys);
+    fields[2].add(info.flowersDevoured);
+    fields[3].add(info.killsByFire);
+    fields[4].add(info.killsByShell);
+    fields[5].add(info.killsByStomp);
+    fields[6].add(info.killsTotal);
+    fields[7].add(info.marioMode);
+    fields[8].add(info.marioStatus);
+    fields[9].add(info.mushroomsDevoured);
+    fields[10].add(info.coinsGained);
+    fields[11].add(info.timeLeft);
+    fields[12].add(info.timeSpent);
+    fields[13].add(info.hiddenBlocksFound);
+    weightedFitness.add(info.computeWeightedFitness());
+}
+
+public void merge(EvaluationStatistics other)
+{
+    for (int i = 0; i < fields.length; i++)
+        fields[i].merge(other.fields[i]);
+    weightedFitness.merge(other.weightedFitness);
+}
+
+public void reset()
+{
+    for (StreamingSummary field : fields)
+        field.reset();
+    weightedFitness.reset();
+}
+
+/**
+ * @param index as in <code>EvaluationInfo.toIntArray</code>
+ */
+public StreamingSummary get(int index)
+{
+    return fields[index];
+}
+
+public StreamingSummary get(String name)
+{
+    for (int i = 0; i < NAMES.length; i++)
+        if (NAMES[i].equals(name))
+            return fields[i];
+    if (weightedFitness.name.equals(name))
+        return weightedFitness;
+    throw new IllegalArgumentException("no statistics for " + name);
+}
+
+public StreamingSummary getWeightedFitness()
+{
+    return weightedFitness;
+}
+
+public long episodes()
+{
+    return weightedFitness.n();
+}
+
+/**
+ * One line per field: mean, standard deviation, min, percentiles and max.
+ */
+public String toString()
+{
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%-20s %10s %10s %8s %8s %8s %8s %8s %8s%n", "episodes: " + episodes(), "mean", "sd", "min", "p10", "p50", "p90", "p99", "max"));
+    for (StreamingSummary s : fields)
+        appendLine(sb, s);
+    appendLine(sb, weightedFitness);
+    return sb.toString();
+}
+
+private static void appendLine(StringBuilder sb, StreamingSummary s)
+{
+    sb.append(String.format("%-20s %10.2f %10.2f %8.0f %8.0f %8.0f %8.0f %8.0f %8.0f%n", s.name, s.mean(), s.sd(), s.min(),
+            s.quantile(0.1), s.quantile(0.5), s.quantile(0.9), s.quantile(0.99), s.max()));
+}
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.tools;
+
+import java.io.*;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays a matrix of agents x level seeds x difficulties x level types in one JVM, one episode per cell,
+ * and appends every result to a <code>ResultsWriter</code> file.
+ * <p/>
+ * The benchmark keeps its state in statics, so each worker plays in a sandbox: a copy of the benchmark
+ * loaded by a class loader of its own (see <code>Sandbox</code>). Sandboxes are created on demand,
+ * at most one per thread of a work stealing pool, and reused. Cells are independent of the order they are
+ * played in, as every episode starts with a fresh agent.
+ * <p/>
+ * The engine itself is left static: making <code>MarioEnvironment</code>, <code>LevelScene</code>, the level
+ * generator and <code>GlobalOptions</code> instance-scoped would touch most of the benchmark and every agent
+ * that reads them. Class loaders give the same isolation at the price of one copy of the benchmark classes
+ * per thread, and only JDK types can be passed in and out.
+ * <p/>
+ * The results file is the checkpoint. It is flushed every few seconds, and a run that finds cells already
+ * in it skips them, so a killed run picks up where it stopped. A cell whose agent throws is reported and
+ * left out, and will be tried again by the next run. When the matrix is done, a summary of the whole file
+ * is printed and written next to it.
+ * <p/>
+ * Usage: ExperimentRunner &lt;results file&gt; -agents a,b,... [-seeds 0-9] [-difficulties 0,5,10]
+ * [-types 0-2] [-threads n] [-checkpoint seconds] [-options "more options for every episode"]
+ */
+public class ExperimentRunner
+{
+private static final String[] STANDARD_OPTIONS = {"-vis", "off", "-echo", "off"};
+
+private final String[] agents;
+private final int[] seeds;
+private final int[] difficulties;
+private final int[] levelTypes;
+private final String options;
+private final int threads;
+private long checkpointMillis = 10000;
+
+private final ConcurrentLinkedQueue<Sandbox> idle = new ConcurrentLinkedQueue<Sandbox>();
+private final List<Sandbox> sandboxes = Collections.synchronizedList(new ArrayList<Sandbox>());
+
+/**
+ * @param options further options of every episode, e.g. <code>"-tl 100 -mm 0"</code>; agent, seed,
+ *                difficulty and level type are set by the matrix
+ */
+public ExperimentRunner(String[] agents, int[] seeds, int[] difficulties, int[] levelTypes, String options, int threads)
+{
+    this.agents = agents.clone();
+    this.seeds = seeds.clone();
+    this.difficulties = difficulties.clone();
+    this.levelTypes = levelTypes.clone();
+    this.options = options == null ? "" : options;
+    this.threads = Math.max(1, threads);
+}
+
+public void setCheckpointInterval(long millis)
+{
+    checkpointMillis = millis;
+}
+
+public int getNumberOfCells()
+{
+    return agents.length * seeds.length * difficulties.length * levelTypes.length;
+}
+
+/**
+ * Plays every cell of the matrix that is not yet in <code>results</code>.
+ *
+ * @return the number of episodes played
+ */
+public int run(File results) throws IOException
+{
+    Set<String> done = new HashSet<String>();
+    if (results.length() > 0)
+    {
+        ResultsReader reader = new ResultsReader(results);
+        try
+        {
+            int agent = reader.column("agent"), seed = reader.column("seed");
+            int difficulty = reader.column("difficulty"), levelType = reader.column("levelType");
+            for (int b = 0; b < reader.getBlocks(); b++)
+                for (int r = 0; r < reader.getBlockRows(b); r++)
+                    done.add(key(reader.getAgent(reader.column(b, agent).get(r)), reader.column(b, seed).get(r),
+                            reader.column(b, difficulty).get(r), reader.column(b, levelType).get(r)));
+        } finally
+        {
+            reader.close();
+        }
+    }
+
+    final ResultsWriter writer = new ResultsWriter(results);
+    final AtomicInteger played = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    ForkJoinPool pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    int todo = 0;
+    try
+    {
+        for (final String agent : agents)
+            for (final int difficulty : difficulties)
+                for (final int levelType : levelTypes)
+                    for (final int seed : seeds)
+                    {
+                        if (done.contains(key(agent, seed, difficulty, levelType)))
+                            continue;
+                        todo++;
+                        pool.execute(new Runnable()
+                        {
+                            public void run()
+                            {
+                                if (play(writer, agent, seed, difficulty, levelType))
+                                    played.incrementAndGet();
+                                else
+                                    failed.incrementAndGet();
+                            }
+                        });
+                    }
+        System.out.println("[Mario AI] ~ experiment: " + todo + " of " + getNumberOfCells() + " cells to play on "
+                + threads + " threads");
+
+        long start = System.currentTimeMillis();
+        while (!pool.awaitQuiescence(checkpointMillis, TimeUnit.MILLISECONDS))
+        {
+            writer.flush();
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            System.out.println("[Mario AI] ~ experiment: " + played.get() + " of " + todo + " played, "
+                    + played.get() * 1000L / elapsed + " episodes/s");
+        }
+    } finally
+    {
+        pool.shutdownNow();
+        writer.close();
+        for (Sandbox sandbox : sandboxes)
+            sandbox.close();
+        sandboxes.clear();
+        idle.clear();
+    }
+    if (failed.get() > 0)
+        System.err.println("[Mario AI EXCEPTION] : " + failed.get() + " cells failed and are left for the next run");
+    return played.get();
+}
+
+private boolean play(ResultsWriter writer, String agent, int seed, int difficulty, int levelType)
+{
+    StringBuilder args = new StringBuilder(options);
+    for (String option : STANDARD_OPTIONS)
+        args.append(' ').append(option);
+    args.append(" -ag ").append(agent).append(" -ls ").append(seed).append(" -ld ").append(difficulty)
+            .append(" -lt ").append(levelType);
+
+    Sandbox sandbox = idle.poll();
+    try
+    {
+        if (sandbox == null)
+        {
+            sandbox = new Sandbox();
+            sandboxes.add(sandbox);
+        }
+        int[] result = sandbox.play(args.toString());
+        writer.add(toEvaluationInfo(result), agent, seed, difficulty, levelType);
+        idle.add(sandbox);
+        return true;
+    } catch (Throwable e)
+    {
+        // the sandbox may be left in any state; let it go
+        System.err.println("[Mario AI EXCEPTION] : cell " + key(agent, seed, difficulty, levelType) + " failed: " + e);
+        return false;
+    }
+}
+
+static EvaluationInfo toEvaluationInfo(int[] result)
+{
+    EvaluationInfo info = new EvaluationInfo();
+    info.distancePassedCells = result[0];
+    info.distancePassedPhys = result[1];
+    info.flowersDevoured = result[2];
+    info.killsByFire = result[3];
+    info.killsByShell = result[4];
+    info.killsByStomp = result[5];
+    info.killsTotal = result[6];
+    info.marioMode = result[7];
+    info.marioStatus = result[8];
+    info.mushroomsDevoured = result[9];
+    info.coinsGained = result[10];
+    info.timeLeft = result[11];
+    info.timeSpent = result[12];
+    info.hiddenBlocksFound = result[13];
+    info.greenMushroomsDevoured = result[14];
+    return info;
+}
+
+private static String key(String agent, int seed, int difficulty, int levelType)
+{
+    return agent + " -ls " + seed + " -ld " + difficulty + " -lt " + levelType;
+}
+
+/**
+ * Statistics of every agent in <code>results</code>, followed by its mean weighted fitness and win rate
+ * per difficulty.
+ */
+public static String summarize(File results) throws IOException
+{
+    ResultsReader reader = new ResultsReader(results);
+    try
+    {
+        int agents = reader.getAgentCount();
+        EvaluationStatistics[] statistics = new EvaluationStatistics[agents];
+        for (int a = 0; a < agents; a++)
+            statistics[a] = new EvaluationStatistics();
+        TreeMap<Integer, long[][]> perDifficulty = new TreeMap<Integer, long[][]>(); // episodes, fitness, wins
+
+        int[] columns = new int[EvaluationInfo.numberOfElements];
+        for (int c = 0; c < columns.length; c++)
+            columns[c] = reader.column(EvaluationStatistics.NAMES[c]);
+        int agentColumn = reader.column("agent"), difficultyColumn = reader.column("difficulty");
+        int fitnessColumn = reader.column("weightedFitness");
+        IntBuffer[] values = new IntBuffer[columns.length];
+        int[] row = new int[EvaluationInfo.numberOfElements + 1];
+        for (int b = 0; b < reader.getBlocks(); b++)
+        {
+            for (int c = 0; c < columns.length; c++)
+                values[c] = reader.column(b, columns[c]);
+            IntBuffer agent = reader.column(b, agentColumn);
+            IntBuffer difficulty = reader.column(b, difficultyColumn);
+            IntBuffer fitness = reader.column(b, fitnessColumn);
+            for (int r = 0; r < reader.getBlockRows(b); r++)
+            {
+                for (int c = 0; c < columns.length; c++)
+                    row[c] = values[c].get(r);
+                int a = agent.get(r);
+                statistics[a].add(toEvaluationInfo(row));
+                long[][] cells = perDifficulty.get(difficulty.get(r));
+                if (cells == null)
+                    perDifficulty.put(difficulty.get(r), cells = new long[agents][3]);
+                cells[a][0]++;
+                cells[a][1] += fitness.get(r);
+                cells[a][2] += row[8] == 1 ? 1 : 0; // marioStatus, Environment.MARIO_STATUS_WIN
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        String header = "mean weighted fitness / win rate";
+        int width = header.length();
+        for (int a = 0; a < agents; a++)
+        {
+            sb.append(reader.getAgent(a)).append('\n').append(statistics[a]).append('\n');
+            width = Math.max(width, reader.getAgent(a).length());
+        }
+        String name = "%-" + (width + 2) + "s";
+        sb.append(String.format(name, header));
+        for (Integer d : perDifficulty.keySet())
+            sb.append(String.format("%18s", "-ld " + d));
+        sb.append('\n');
+        for (int a = 0; a < agents; a++)
+        {
+            sb.append(String.format(name, reader.getAgent(a)));
+            for (long[][] cells : perDifficulty.values())
+            {
+                long[] cell = cells[a];
+                sb.append(cell[0] == 0 ? String.format("%18s", "-")
+                        : String.format("%11.1f / %3.0f%%", (double) cell[1] / cell[0], 100.0 * cell[2] / cell[0]));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    } finally
+    {
+        reader.close();
+    }
+}
+
+/**
+ * @param list comma separated numbers and ranges, e.g. <code>0-4,10</code>
+ */
+static int[] parseList(String list)
+{
+    List<Integer> values = new ArrayList<Integer>();
+    for (String item : list.split(","))
+    {
+        int dash = item.indexOf('-', 1);
+        if (dash < 0)
+            values.add(Integer.parseInt(item.trim()));
+        else
+            for (int i = Integer.parseInt(item.substring(0, dash).trim()); i <= Integer.parseInt(item.substring(dash + 1).trim()); i++)
+                values.add(i);
+    }
+    int[] ret = new int[values.size()];
+    for (int i = 0; i < ret.length; i++)
+        ret[i] = values.get(i);
+    return ret;
+}
+
+public static void main(String[] args) throws IOException
+{
+    if (args.length < 3)
+    {
+        System.err.println("Usage: ExperimentRunner <results file> -agents a,b,... [-seeds 0-9] [-difficulties 0,5,10] " +
+                "[-types 0-2] [-threads n] [-checkpoint seconds] [-options \"...\"]");
+        System.exit(1);
+    }
+    String[] agents = null;
+    int[] seeds = {0}, difficulties = {0}, types = {0};
+    int threads = Runtime.getRuntime().availableProcessors();
+    long checkpoint = 10;
+    String options = "";
+    for (int i = 1; i < args.length; i++)
+    {
+        if (args[i].equals("-agents"))
+            agents = args[++i].split(",");
+        else if (args[i].equals("-seeds"))
+            seeds = parseList(args[++i]);
+        else if (args[i].equals("-difficulties"))
+            difficulties = parseList(args[++i]);
+        else if (args[i].equals("-types"))
+            types = parseList(args[++i]);
+        else if (args[i].equals("-threads"))
+            threads = Integer.parseInt(args[++i]);
+        else if (args[i].equals("-checkpoint"))
+            checkpoint = Long.parseLong(args[++i]);
+        else if (args[i].equals("-options"))
+            options = args[++i];
+        else
+            System.err.println("[Mario AI] ~ unknown option " + args[i] + " ignored");
+    }
+    if (agents == null)
+    {
+        System.err.println("[Mario AI EXCEPTION] : no agents given, use -agents");
+        System.exit(1);
+    }
+
+    File results = new File(args[0]);
+    ExperimentRunner runner = new ExperimentRunner(agents, seeds, difficulties, types, options, threads);
+    runner.setCheckpointInterval(checkpoint * 1000);
+    long start = System.currentTimeMillis();
+    int played = runner.run(results);
+    System.out.println("[Mario AI] ~ experiment: " + played + " episodes played in "
+            + (System.currentTimeMillis() - start) / 1000.0 + " s");
+
+    String summary = summarize(results);
+    System.out.print(summary);
+    Writer out = new FileWriter(results.getPath() + ".txt");
+    try
+    {
+        out.write(summary);
+    } finally
+    {
+        out.close();
+    }
+    System.exit(0);
+}
+}
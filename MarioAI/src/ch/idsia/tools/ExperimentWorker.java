@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.tools;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.benchmark.tasks.BasicTask;
+import ch.idsia.benchmark.tasks.LearningTask;
+import ch.idsia.benchmark.tasks.TickProfiler;
+import ch.idsia.evolution.WeightsEvolvable;
+
+/**
+ * Entry point of <code>Sandbox</code> into an isolated copy of the benchmark. Every copy is
+ * loaded by its own class loader, so it has its own static <code>MarioEnvironment</code>, level generator
+ * and options, and several copies can play in parallel in one JVM. Only JDK types cross the boundary.
+ */
+public final class ExperimentWorker
+{
+private ExperimentWorker()
+{}
+
+/**
+ * Plays one episode with a fresh agent.
+ *
+ * @param options command line of the episode, as for <code>MarioAIOptions</code>
+ * @return the fields of <code>EvaluationInfo.toIntArray</code> followed by <code>greenMushroomsDevoured</code>
+ */
+public static int[] play(String options)
+{
+    BasicTask task = new BasicTask(new MarioAIOptions(options));
+    task.runSingleEpisode(1);
+    EvaluationInfo info = task.getEvaluationInfo();
+    int[] result = new int[EvaluationInfo.numberOfElements + 1];
+    System.arraycopy(info.toIntArray(), 0, result, 0, EvaluationInfo.numberOfElements);
+    result[EvaluationInfo.numberOfElements] = info.greenMushroomsDevoured;
+    return result;
+}
+
+/**
+ * Plays one <code>LearningTask</code> episode with a fresh agent carrying the given weights.
+ *
+ * @param agentClass a <code>WeightsEvolvable</code> agent with a public no-argument constructor
+ * @param weights    the genome, as from <code>WeightsEvolvable.getWeights</code>
+ * @param options    command line of the episode, as for <code>MarioAIOptions</code>
+ * @return the weighted fitness of the episode
+ */
+public static int evaluate(String agentClass, double[] weights, String options) throws ReflectiveOperationException
+{
+    WeightsEvolvable agent = (WeightsEvolvable) Class.forName(agentClass).newInstance();
+    agent.setWeights(weights, 0);
+    agent.reset();
+    return new LearningTask(new MarioAIOptions(options)).evaluate((Agent) agent);
+}
+
+/**
+ * Releases what would keep this copy loaded after its sandbox is closed.
+ */
+public static void close()
+{
+    TickProfiler.getInstance().close();
+}
+}
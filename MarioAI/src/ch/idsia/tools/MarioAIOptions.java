@@ -61,6 +61,8 @@ private static final HashMap<String, MarioAIOptions> CmdLineOptionsMapString = n
 private String optionsAsString = "";
 
 final private Point marioInitialPos = new Point();
+// typed copy of the options, made again after one was set
+private volatile OptionsSnapshot snapshot;
 
 public MarioAIOptions(String[] args)
 {
@@ -136,6 +138,29 @@ public void setArgs(String[] args)
     GlobalOptions.isGameplayStopped = isStopGamePlay();
 }
 
+/**
+ * @return the options parsed and checked once, as an immutable snapshot that stays the same until an
+ *         option is set
+ * @throws IllegalArgumentException if an option is out of range
+ */
+public OptionsSnapshot getSnapshot()
+{
+    OptionsSnapshot current = snapshot;
+    if (current == null)
+    {
+        current = new OptionsSnapshot(this);
+        snapshot = current;
+    }
+    return current;
+}
+
+@Override
+public void setParameterValue(String param, String value)
+{
+    super.setParameterValue(param, value);
+    snapshot = null;
+}
+
 public float getMarioGravity()
 {
     // TODO: getMarioGravity, doublecheck if unit test is present and remove if fixed
@@ -330,6 +355,7 @@ public Point getMarioInitialPos()
 public void reset()
 {
     optionsHashMap.clear();
+    snapshot = null;
 }
 
 public int getMarioEgoPosRow()
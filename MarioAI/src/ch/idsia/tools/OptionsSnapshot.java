@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.tools;
+
+import java.awt.*;
+
+/**
+ * Immutable, typed copy of all values of a <code>MarioAIOptions</code>, parsed and checked once. The
+ * getters of <code>MarioAIOptions</code> parse the option string again on every call; the reset paths of
+ * <code>LevelScene</code>, <code>LevelGenerator</code>, <code>MarioEnvironment</code> and
+ * <code>BasicTask</code> read this snapshot instead, and since it never changes it can be shared by
+ * environments running in other threads.
+ * <p/>
+ * Get one with <code>MarioAIOptions.getSnapshot()</code>, which makes a new snapshot only after an option
+ * was set. A value out of range throws <code>IllegalArgumentException</code> naming the option.
+ */
+public final class OptionsSnapshot
+{
+// level
+private final int levelType;
+private final int levelDifficulty;
+private final int levelLength;
+private final int levelHeight;
+private final boolean levelSeedNumeric;
+private final int levelRandSeed;
+private final String levelSeedValue;
+private final boolean deadEndsCount;
+private final boolean cannonsCount;
+private final boolean hillStraightCount;
+private final boolean tubesCount;
+private final boolean blocksCount;
+private final boolean coinsCount;
+private final boolean gapsCount;
+private final boolean hiddenBlocksCount;
+private final String enemies;
+private final boolean flatLevel;
+private final boolean levelLadder;
+private final int exitX;
+private final int exitY;
+private final String levelFileName;
+
+// mario and creatures
+private final int marioMode;
+private final int marioInitialX;
+private final int marioInitialY;
+private final boolean marioInvulnerable;
+private final float marioGravity;
+private final float creaturesGravity;
+private final float wind;
+private final float ice;
+private final float jumpPower;
+private final boolean frozenCreatures;
+private final boolean powerRestoration;
+private final int greenMushroomMode;
+private final int timeLimit;
+
+// observation
+private final int receptiveFieldWidth;
+private final int receptiveFieldHeight;
+private final int marioEgoPosRow;
+private final int marioEgoPosCol;
+private final int zLevelScene;
+private final int zLevelEnemies;
+
+// view and tools
+private final boolean visualization;
+private final int fps;
+private final int viewWidth;
+private final int viewHeight;
+private final int viewLocationX;
+private final int viewLocationY;
+private final boolean viewAlwaysOnTop;
+private final boolean scale2X;
+private final boolean receptiveFieldVisualized;
+private final boolean stopGamePlay;
+private final boolean gameViewer;
+private final boolean gameViewerContinuousUpdates;
+private final boolean toolsConfigurator;
+private final boolean echo;
+private final boolean exitProgramWhenFinished;
+private final boolean trace;
+private final String traceFileName;
+private final String recordingFileName;
+private final int screenCaptureFactor;
+private final boolean cosmetics;
+
+// evaluation
+private final String agentFullLoadName;
+private final boolean punj;
+private final int profileInterval;
+private final int cpuBudget;
+private final int instructionBudget;
+private final int budgetViolations;
+
+OptionsSnapshot(MarioAIOptions options)
+{
+    levelType = inRange("-lt", options.getLevelType(), 0, 2);
+    levelDifficulty = atLeast("-ld", options.getLevelDifficulty(), 0);
+    levelLength = atLeast("-ll", options.getLevelLength(), 1);
+    levelHeight = atLeast("-lh", options.getLevelHeight(), 1);
+    // -ls is either a seed or the file of a level to load
+    levelSeedValue = options.getParameterValue("-ls");
+    int seed = 0;
+    boolean numeric = true;
+    try
+    {
+        seed = Integer.parseInt(levelSeedValue);
+    } catch (NumberFormatException e)
+    {
+        numeric = false;
+    }
+    levelSeedNumeric = numeric;
+    levelRandSeed = seed;
+    deadEndsCount = options.getDeadEndsCount();
+    cannonsCount = options.getCannonsCount();
+    hillStraightCount = options.getHillStraightCount();
+    tubesCount = options.getTubesCount();
+    blocksCount = options.getBlocksCount();
+    coinsCount = options.getCoinsCount();
+    gapsCount = options.getGapsCount();
+    hiddenBlocksCount = options.getHiddenBlocksCount();
+    enemies = options.getEnemies();
+    flatLevel = options.isFlatLevel();
+    levelLadder = options.isLevelLadder();
+    exitX = atLeast("-ex", options.getExitX(), 0);
+    exitY = atLeast("-ey", options.getExitY(), 0);
+    levelFileName = options.getLevelFileName();
+
+    marioMode = inRange("-mm", options.getMarioMode(), 0, 2);
+    Point initialPos = options.getMarioInitialPos();
+    marioInitialX = initialPos.x;
+    marioInitialY = initialPos.y;
+    marioInvulnerable = options.isMarioInvulnerable();
+    marioGravity = finite("-mgr", options.getMarioGravity());
+    creaturesGravity = finite("-cgr", options.getCreaturesGravity());
+    wind = finite("-w", options.getWind());
+    ice = finite("-ice", options.getIce());
+    jumpPower = finite("-jp", options.getJumpPower());
+    frozenCreatures = options.isFrozenCreatures();
+    powerRestoration = options.isPowerRestoration();
+    greenMushroomMode = inRange("-gmm", options.getGreenMushroomMode(), 0, 1);
+    timeLimit = atLeast("-tl", options.getTimeLimit(), 0);
+
+    receptiveFieldWidth = atLeast("-rfw", options.getReceptiveFieldWidth(), 1);
+    receptiveFieldHeight = atLeast("-rfh", options.getReceptiveFieldHeight(), 1);
+    marioEgoPosRow = atLeast("-mer", options.getMarioEgoPosRow(), 0);
+    marioEgoPosCol = atLeast("-mec", options.getMarioEgoPosCol(), 0);
+    zLevelScene = inRange("-zs", options.getZLevelScene(), 0, 2);
+    zLevelEnemies = inRange("-ze", options.getZLevelEnemies(), 0, 2);
+
+    visualization = options.isVisualization();
+    fps = atLeast("-fps", options.getFPS(), 1);
+    viewWidth = atLeast("-vw", options.getViewWidth(), 1);
+    viewHeight = atLeast("-vh", options.getViewHeight(), 1);
+    Point viewLocation = options.getViewLocation();
+    viewLocationX = viewLocation.x;
+    viewLocationY = viewLocation.y;
+    viewAlwaysOnTop = options.isViewAlwaysOnTop();
+    scale2X = options.isScale2X();
+    receptiveFieldVisualized = options.isReceptiveFieldVisualized();
+    stopGamePlay = options.isStopGamePlay();
+    gameViewer = options.isGameViewer();
+    gameViewerContinuousUpdates = options.isGameViewerContinuousUpdates();
+    toolsConfigurator = options.isToolsConfigurator();
+    echo = options.isEcho();
+    exitProgramWhenFinished = options.isExitProgramWhenFinished();
+    trace = options.isTrace();
+    traceFileName = options.getTraceFileName();
+    recordingFileName = options.getRecordingFileName();
+    screenCaptureFactor = atLeast("-sc", options.getScreenCaptureFactor(), 0);
+    cosmetics = options.isCosmetics();
+
+    agentFullLoadName = options.getAgentFullLoadName();
+    punj = options.isPunj();
+    profileInterval = atLeast("-prof", options.getProfileInterval(), 0);
+    cpuBudget = atLeast("-cb", options.getCpuBudget(), 0);
+    instructionBudget = atLeast("-ib", options.getInstructionBudget(), 0);
+    budgetViolations = atLeast("-bv", options.getBudgetViolations(), 0);
+}
+
+private static int inRange(String option, int value, int min, int max)
+{
+    if (value < min || value > max)
+        throw new IllegalArgumentException("[MarioAI] ~ Wrong value " + value + " for " + option +
+                ", expected " + min + " to " + max);
+    return value;
+}
+
+private static int atLeast(String option, int value, int min)
+{
+    return inRange(option, value, min, Integer.MAX_VALUE);
+}
+
+private static float finite(String option, float value)
+{
+    if (Float.isNaN(value) || Float.isInfinite(value))
+        throw new IllegalArgumentException("[MarioAI] ~ Wrong value " + value + " for " + option);
+    return value;
+}
+
+public int getLevelType()
+{ return levelType; }
+
+public int getLevelDifficulty()
+{ return levelDifficulty; }
+
+public int getLevelLength()
+{ return levelLength; }
+
+public int getLevelHeight()
+{ return levelHeight; }
+
+/**
+ * @return false if <code>-ls</code> names a level file rather than a seed
+ */
+public boolean hasLevelRandSeed()
+{ return levelSeedNumeric; }
+
+/**
+ * @return the seed of <code>-ls</code>, 0 if it names a level file
+ */
+public int getLevelRandSeed()
+{ return levelRandSeed; }
+
+/**
+ * @return <code>-ls</code> as given, a seed or the file of a level to load
+ */
+public String getLevelSeedValue()
+{ return levelSeedValue; }
+
+public boolean getDeadEndsCount()
+{ return deadEndsCount; }
+
+public boolean getCannonsCount()
+{ return cannonsCount; }
+
+public boolean getHillStraightCount()
+{ return hillStraightCount; }
+
+public boolean getTubesCount()
+{ return tubesCount; }
+
+public boolean getBlocksCount()
+{ return blocksCount; }
+
+public boolean getCoinsCount()
+{ return coinsCount; }
+
+public boolean getGapsCount()
+{ return gapsCount; }
+
+public boolean getHiddenBlocksCount()
+{ return hiddenBlocksCount; }
+
+public String getEnemies()
+{ return enemies; }
+
+public boolean isFlatLevel()
+{ return flatLevel; }
+
+public boolean isLevelLadder()
+{ return levelLadder; }
+
+public int getExitX()
+{ return exitX; }
+
+public int getExitY()
+{ return exitY; }
+
+public String getLevelFileName()
+{ return levelFileName; }
+
+public int getMarioMode()
+{ return marioMode; }
+
+/**
+ * @return a new <code>Point</code>, which the caller may change
+ */
+public Point getMarioInitialPos()
+{ return new Point(marioInitialX, marioInitialY); }
+
+public boolean isMarioInvulnerable()
+{ return marioInvulnerable; }
+
+public float getMarioGravity()
+{ return marioGravity; }
+
+public float getCreaturesGravity()
+{ return creaturesGravity; }
+
+public float getWind()
+{ return wind; }
+
+public float getIce()
+{ return ice; }
+
+public float getJumpPower()
+{ return jumpPower; }
+
+public boolean isFrozenCreatures()
+{ return frozenCreatures; }
+
+public boolean isPowerRestoration()
+{ return powerRestoration; }
+
+public int getGreenMushroomMode()
+{ return greenMushroomMode; }
+
+public int getTimeLimit()
+{ return timeLimit; }
+
+public int getReceptiveFieldWidth()
+{ return receptiveFieldWidth; }
+
+public int getReceptiveFieldHeight()
+{ return receptiveFieldHeight; }
+
+public int getMarioEgoPosRow()
+{ return marioEgoPosRow; }
+
+public int getMarioEgoPosCol()
+{ return marioEgoPosCol; }
+
+public int getZLevelScene()
+{ return zLevelScene; }
+
+public int getZLevelEnemies()
+{ return zLevelEnemies; }
+
+public boolean isVisualization()
+{ return visualization; }
+
+public int getFPS()
+{ return fps; }
+
+public int getViewWidth()
+{ return viewWidth; }
+
+public int getViewHeight()
+{ return viewHeight; }
+
+/**
+ * @return a new <code>Point</code>, which the caller may change
+ */
+public Point getViewLocation()
+{ return new Point(viewLocationX, viewLocationY); }
+
+public boolean isViewAlwaysOnTop()
+{ return viewAlwaysOnTop; }
+
+public boolean isScale2X()
+{ return scale2X; }
+
+public boolean isReceptiveFieldVisualized()
+{ return receptiveFieldVisualized; }
+
+public boolean isStopGamePlay()
+{ return stopGamePlay; }
+
+public boolean isGameViewer()
+{ return gameViewer; }
+
+public boolean isGameViewerContinuousUpdates()
+{ return gameViewerContinuousUpdates; }
+
+public boolean isToolsConfigurator()
+{ return toolsConfigurator; }
+
+public boolean isEcho()
+{ return echo; }
+
+public boolean isExitProgramWhenFinished()
+{ return exitProgramWhenFinished; }
+
+public boolean isTrace()
+{ return trace; }
+
+public String getTraceFileName()
+{ return traceFileName; }
+
+public String getRecordingFileName()
+{ return recordingFileName; }
+
+public int getScreenCaptureFactor()
+{ return screenCaptureFactor; }
+
+public boolean isCosmetics()
+{ return cosmetics; }
+
+public String getAgentFullLoadName()
+{ return agentFullLoadName; }
+
+public boolean isPunj()
+{ return punj; }
+
+public int getProfileInterval()
+{ return profileInterval; }
+
+public int getCpuBudget()
+{ return cpuBudget; }
+
+public int getInstructionBudget()
+{ return instructionBudget; }
+
+public int getBudgetViolations()
+{ return budgetViolations; }
+}
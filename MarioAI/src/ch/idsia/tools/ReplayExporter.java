@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.tools;
+
+import ch.idsia.agents.controllers.ReplayAgent;
+import ch.idsia.benchmark.mario.engine.GlobalOptions;
+import ch.idsia.benchmark.mario.engine.Replayer;
+import ch.idsia.benchmark.mario.engine.SoftwareRenderer;
+import ch.idsia.benchmark.mario.environments.MarioEnvironment;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays recordings made with <code>-rec</code> without a display, as fast as the engine runs, and writes
+ * every frame to a numbered PNG sequence or to an AVI file. Frames are drawn by
+ * <code>SoftwareRenderer</code> on the calling thread, encoded by a pool of background threads and
+ * written in order by one more; a small pool of frame buffers lets the three stages overlap.
+ * <p/>
+ * Usage: ReplayExporter &lt;recording.zip&gt; &lt;directory | file.avi&gt; [-scale n] [-fps n] [-raw] [-q quality]
+ * <p/>
+ * The whole recording is exported; replay chunks are ignored. An AVI holds Motion JPEG frames unless
+ * <code>-raw</code> asks for uncompressed ones.
+ */
+public class ReplayExporter
+{
+/**
+ * Turns frames into bytes and stores them. <code>encode</code> gets <code>int</code> RGB values, row by row
+ * from the top, and may run on several threads at once; <code>write</code> gets the results in frame order.
+ */
+public static interface FrameSink
+{
+    public byte[] encode(int[] rgb) throws IOException;
+
+    public void write(byte[] frame) throws IOException;
+
+    public void close() throws IOException;
+}
+
+/**
+ * Writes frame_000000.png, frame_000001.png, ... into a directory.
+ */
+public static class PngSequence implements FrameSink
+{
+    private final File directory;
+    private final int width, height;
+    private int frames;
+
+    public PngSequence(File directory, int width, int height) throws IOException
+    {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("[Mario AI EXCEPTION] : directory " + directory + " cannot be created");
+        this.directory = directory;
+        this.width = width;
+        this.height = height;
+    }
+
+    public byte[] encode(int[] rgb) throws IOException
+    {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        System.arraycopy(rgb, 0, ((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0, rgb.length);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    public void write(byte[] frame) throws IOException
+    {
+        FileOutputStream out = new FileOutputStream(new File(directory, String.format("frame_%06d.png", frames++)));
+        try
+        {
+            out.write(frame);
+        } finally
+        {
+            out.close();
+        }
+    }
+
+    public void close()
+    {}
+}
+
+private static final Future<byte[]> END = new FutureTask<byte[]>(new Callable<byte[]>()
+{
+    public byte[] call()
+    {
+        return null;
+    }
+});
+
+private final int scale;
+private final int encoders;
+private int frames;
+
+/**
+ * @param scale    every pixel becomes a <code>scale</code> x <code>scale</code> block
+ * @param encoders threads that encode frames while the replay goes on
+ */
+public ReplayExporter(int scale, int encoders)
+{
+    this.scale = scale;
+    this.encoders = Math.max(1, encoders);
+}
+
+/**
+ * Replays the recordings named in <code>replayOptions</code>, in the syntax of <code>ReplayTask</code>, into
+ * the sink; the sink is closed afterwards.
+ *
+ * @return the number of frames written
+ */
+public int export(String replayOptions, final SoftwareRenderer renderer, final FrameSink sink) throws IOException
+{
+    final int width = renderer.width * scale, height = renderer.height * scale;
+    final BlockingQueue<int[]> free = new ArrayBlockingQueue<int[]>(2 * encoders + 2);
+    while (free.remainingCapacity() > 0)
+        free.add(new int[width * height]);
+    // frames in the order they were rendered; the writer waits for each one to be encoded
+    final BlockingQueue<Future<byte[]>> encoded = new ArrayBlockingQueue<Future<byte[]>>(free.size() + 1);
+    final ExecutorService pool = Executors.newFixedThreadPool(encoders);
+    final AtomicReference<IOException> failure = new AtomicReference<IOException>();
+    frames = 0;
+
+    Thread writer = new Thread("Mario AI frame writer")
+    {
+        public void run()
+        {
+            // after a failure, keep taking frames so that the replay does not wait for a writer that has given up
+            while (true)
+            {
+                try
+                {
+                    Future<byte[]> frame = encoded.take();
+                    if (frame == END)
+                        return;
+                    if (failure.get() == null)
+                        sink.write(frame.get());
+                } catch (ExecutionException e)
+                {
+                    fail(e.getCause());
+                } catch (Throwable e)
+                {
+                    fail(e);
+                }
+            }
+        }
+
+        private void fail(Throwable e)
+        {
+            failure.compareAndSet(null, e instanceof IOException ? (IOException) e
+                    : e instanceof InterruptedException ? new InterruptedIOException("export interrupted")
+                    : new IOException("[Mario AI EXCEPTION] : frame cannot be written", e));
+        }
+    };
+    writer.start();
+
+    final MarioEnvironment environment = MarioEnvironment.getInstance();
+    final Replayer replayer = new Replayer(replayOptions);
+    final ReplayAgent agent = new ReplayAgent("Replay agent");
+    final MarioAIOptions options = new MarioAIOptions();
+    final boolean visualization = GlobalOptions.isVisualization;
+    try
+    {
+        while (replayer.openNextReplayFile())
+        {
+            replayer.openFile("options");
+            options.setArgs((String) replayer.readObject());
+            options.setVisualization(false);
+            options.setRecordFile("off");
+            options.setAgent(agent);
+            agent.reset();
+            agent.setReplayer(replayer);
+
+            environment.setReplayer(replayer);
+            environment.reset(options);
+            replayer.openFile("actions.act");
+
+            while (!environment.isLevelFinished() && failure.get() == null)
+            {
+                environment.tick();
+                renderer.render(environment.getLevel(), environment.getSprites(), environment.getMario().x, environment.getMario().y, environment.getLevelType());
+                final int[] frame = free.take(); // waits while the encoders are behind by a whole pool
+                scale(renderer.getPixels(), renderer.width, renderer.height, frame);
+                encoded.put(pool.submit(new Callable<byte[]>()
+                {
+                    public byte[] call() throws IOException
+                    {
+                        try
+                        {
+                            return sink.encode(frame);
+                        } finally
+                        {
+                            free.add(frame);
+                        }
+                    }
+                }));
+                frames++;
+
+                boolean[] action = agent.getAction();
+                if (action == null)
+                    break;
+                environment.performAction(action);
+            }
+            replayer.closeReplayFile();
+        }
+    } catch (IOException e)
+    {
+        throw e;
+    } catch (InterruptedException e)
+    {
+        throw new InterruptedIOException("export interrupted");
+    } catch (Exception e)
+    {
+        throw new IOException("[Mario AI EXCEPTION] : recording " + replayOptions + " cannot be replayed", e);
+    } finally
+    {
+        environment.setReplayer(null);
+        GlobalOptions.isVisualization = visualization;
+        try
+        {
+            encoded.put(END);
+            writer.join();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        pool.shutdown();
+        sink.close();
+    }
+    if (failure.get() != null)
+        throw failure.get();
+    return frames;
+}
+
+private void scale(int[] pixels, int width, int height, int[] frame)
+{
+    if (scale == 1)
+    {
+        System.arraycopy(pixels, 0, frame, 0, pixels.length);
+        return;
+    }
+    final int scaledWidth = width * scale;
+    for (int y = 0; y < height; y++)
+    {
+        final int row = y * scale * scaledWidth;
+        for (int x = 0; x < width; x++)
+        {
+            final int p = pixels[y * width + x];
+            for (int i = 0; i < scale; i++)
+                frame[row + x * scale + i] = p;
+        }
+        for (int i = 1; i < scale; i++)
+            System.arraycopy(frame, row, frame, row + i * scaledWidth, scaledWidth);
+    }
+}
+
+public static void main(String[] args) throws IOException
+{
+    if (args.length < 2)
+    {
+        System.err.println("Usage: ReplayExporter <recording.zip> <directory | file.avi> [-scale n] [-fps n] [-raw] [-q quality]");
+        System.exit(1);
+    }
+    int scale = 1, fps = GlobalOptions.FPS;
+    float quality = 0.9f;
+    boolean raw = false;
+    for (int i = 2; i < args.length; i++)
+    {
+        if (args[i].equals("-scale"))
+            scale = Integer.parseInt(args[++i]);
+        else if (args[i].equals("-fps"))
+            fps = Integer.parseInt(args[++i]);
+        else if (args[i].equals("-q"))
+            quality = Float.parseFloat(args[++i]);
+        else if (args[i].equals("-raw"))
+            raw = true;
+        else
+            System.err.println("[Mario AI] ~ unknown option " + args[i] + " ignored");
+    }
+
+    SoftwareRenderer renderer = new SoftwareRenderer(GlobalOptions.VISUAL_COMPONENT_WIDTH, GlobalOptions.VISUAL_COMPONENT_HEIGHT);
+    final int width = renderer.width * scale, height = renderer.height * scale;
+    FrameSink sink = args[1].toLowerCase().endsWith(".avi")
+            ? new AviWriter(new File(args[1]), width, height, fps, raw ? -1 : quality)
+            : new PngSequence(new File(args[1]), width, height);
+
+    long start = System.currentTimeMillis();
+    int encoders = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    int frames = new ReplayExporter(scale, encoders).export(args[0], renderer, sink);
+    long elapsed = Math.max(1, System.currentTimeMillis() - start);
+    System.out.println(frames + " frames written to " + args[1] + " in " + elapsed + " ms ("
+            + frames * 1000L / elapsed + " frames/s, " + (frames * 1000f / fps / elapsed) + "x real time)");
+    System.exit(0);
+}
+}
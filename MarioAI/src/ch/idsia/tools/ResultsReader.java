@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.tools;
+
+import ch.idsia.utils.statistics.StreamingSummary;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a file of <code>ResultsWriter</code> through memory mapping. Opening walks the record headers
+ * only; the file is then mapped in windows of whole blocks, so a column of a block is a view on the page
+ * cache and scanning a column touches nothing but its own pages. A half written record at the end, left
+ * by a writer that is still running or has crashed, is ignored.
+ */
+public class ResultsReader implements Closeable
+{
+private static final long MAX_WINDOW = 1L << 30;
+
+private final RandomAccessFile file;
+private final String[] columns;
+private final List<String> agents = new ArrayList<String>();
+
+private int blocks = 0;
+private long[] blockStart = new long[16]; // offset of the first int of column 0
+private int[] blockRows = new int[16];
+private long[] firstRow = new long[16];
+private long rows = 0;
+private long validLength;
+
+private MappedByteBuffer[] windows;
+private long[] windowStart;
+private int[] blockWindow;
+
+public ResultsReader(String fileName) throws IOException
+{
+    this(new File(fileName));
+}
+
+public ResultsReader(File f) throws IOException
+{
+    file = new RandomAccessFile(f, "r");
+    try
+    {
+        FileChannel channel = file.getChannel();
+        long length = channel.size();
+        ByteBuffer head = ByteBuffer.allocate(12);
+        if (readFully(channel, head, 0) < 12 || head.getInt(0) != ResultsWriter.MAGIC)
+            throw new IOException("[Mario AI EXCEPTION] : " + f + " is not a results file");
+        if (head.getInt(4) != ResultsWriter.VERSION)
+            throw new IOException("[Mario AI EXCEPTION] : " + f + " has unsupported version " + head.getInt(4));
+        columns = new String[head.getInt(8)];
+        long position = 12;
+        for (int i = 0; i < columns.length; i++)
+        {
+            columns[i] = readString(channel, position);
+            if (columns[i] == null)
+                throw new IOException("[Mario AI EXCEPTION] : " + f + " has a truncated header");
+            position += 4 + columns[i].getBytes(StandardCharsets.UTF_8).length;
+        }
+        validLength = position;
+
+        ByteBuffer record = ByteBuffer.allocate(8);
+        while (readFully(channel, record, position) == 8)
+        {
+            int tag = record.getInt(0);
+            if (tag == ResultsWriter.AGENT)
+            {
+                String name = readString(channel, position + 8);
+                if (name == null)
+                    break;
+                agents.add(name);
+                position += 12 + name.getBytes(StandardCharsets.UTF_8).length;
+            } else if (tag == ResultsWriter.ROWS)
+            {
+                int n = record.getInt(4);
+                long end = position + 8 + 4L * n * columns.length;
+                if (end > length)
+                    break;
+                addBlock(position + 8, n);
+                position = end;
+            } else
+                throw new IOException("[Mario AI EXCEPTION] : " + f + " is corrupt at byte " + position);
+            validLength = position;
+        }
+        map(channel);
+    } catch (IOException e)
+    {
+        file.close();
+        throw e;
+    }
+}
+
+public String[] getColumns()
+{
+    return columns.clone();
+}
+
+/**
+ * @throws IllegalArgumentException if there is no such column
+ */
+public int column(String name)
+{
+    for (int i = 0; i < columns.length; i++)
+        if (columns[i].equals(name))
+            return i;
+    throw new IllegalArgumentException("[Mario AI EXCEPTION] : no column " + name + " in " + Arrays.toString(columns));
+}
+
+public long getRows()
+{
+    return rows;
+}
+
+public int getBlocks()
+{
+    return blocks;
+}
+
+public int getBlockRows(int block)
+{
+    return blockRows[block];
+}
+
+public int getAgentCount()
+{
+    return agents.size();
+}
+
+/**
+ * @param id a value of the <code>agent</code> column
+ */
+public String getAgent(int id)
+{
+    return agents.get(id);
+}
+
+/**
+ * @return id of the agent in the <code>agent</code> column, or -1 if it never played
+ */
+public int getAgentId(String name)
+{
+    return agents.indexOf(name);
+}
+
+/**
+ * Bytes of the file up to the end of the last complete record.
+ */
+public long getValidLength()
+{
+    return validLength;
+}
+
+/**
+ * The values of one column in one block; a read-only view on the mapped file, valid until
+ * <code>close</code>.
+ */
+public IntBuffer column(int block, int column)
+{
+    ByteBuffer window = windows[blockWindow[block]].duplicate();
+    int offset = (int) (blockStart[block] - windowStart[blockWindow[block]]) + 4 * column * blockRows[block];
+    window.position(offset);
+    window.limit(offset + 4 * blockRows[block]);
+    return window.slice().asIntBuffer().asReadOnlyBuffer();
+}
+
+public int get(long row, int column)
+{
+    if (row < 0 || row >= rows)
+        throw new IndexOutOfBoundsException("row " + row + " of " + rows);
+    int block = Arrays.binarySearch(firstRow, 0, blocks, row);
+    if (block < 0)
+        block = -block - 2;
+    return column(block, column).get((int) (row - firstRow[block]));
+}
+
+public StreamingSummary summarize(String column)
+{
+    StreamingSummary summary = new StreamingSummary(column);
+    int c = column(column);
+    for (int b = 0; b < blocks; b++)
+    {
+        IntBuffer values = column(b, c);
+        for (int r = 0, n = values.limit(); r < n; r++)
+            summary.add(values.get(r));
+    }
+    return summary;
+}
+
+/**
+ * Summary of <code>column</code> over the rows where <code>where</code> equals <code>value</code>, e.g.
+ * <code>summarize("distancePassedPhys", "agent", reader.getAgentId(name))</code>.
+ */
+public StreamingSummary summarize(String column, String where, int value)
+{
+    StreamingSummary summary = new StreamingSummary(column + " | " + where + " = " + value);
+    int c = column(column);
+    int w = column(where);
+    for (int b = 0; b < blocks; b++)
+    {
+        IntBuffer values = column(b, c);
+        IntBuffer keys = column(b, w);
+        for (int r = 0, n = values.limit(); r < n; r++)
+            if (keys.get(r) == value)
+                summary.add(values.get(r));
+    }
+    return summary;
+}
+
+/**
+ * Closes the file. The mapping itself goes away when the buffers are collected.
+ */
+public void close() throws IOException
+{
+    file.close();
+}
+
+private void addBlock(long start, int n)
+{
+    if (blocks == blockStart.length)
+    {
+        blockStart = Arrays.copyOf(blockStart, blocks * 2);
+        blockRows = Arrays.copyOf(blockRows, blocks * 2);
+        firstRow = Arrays.copyOf(firstRow, blocks * 2);
+    }
+    blockStart[blocks] = start;
+    blockRows[blocks] = n;
+    firstRow[blocks] = rows;
+    rows += n;
+    blocks++;
+}
+
+private void map(FileChannel channel) throws IOException
+{
+    List<MappedByteBuffer> mapped = new ArrayList<MappedByteBuffer>();
+    List<Long> starts = new ArrayList<Long>();
+    blockWindow = new int[blocks];
+    int b = 0;
+    while (b < blocks)
+    {
+        long start = blockStart[b];
+        long end = start + 4L * blockRows[b] * columns.length;
+        int last = b;
+        while (last + 1 < blocks && blockStart[last + 1] + 4L * blockRows[last + 1] * columns.length - start <= MAX_WINDOW)
+            end = blockStart[++last] + 4L * blockRows[last] * columns.length;
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        for (; b <= last; b++)
+            blockWindow[b] = mapped.size();
+        mapped.add(window);
+        starts.add(start);
+    }
+    windows = mapped.toArray(new MappedByteBuffer[mapped.size()]);
+    windowStart = new long[starts.size()];
+    for (int i = 0; i < windowStart.length; i++)
+        windowStart[i] = starts.get(i);
+}
+
+private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+{
+    buffer.clear();
+    while (buffer.hasRemaining())
+    {
+        int read = channel.read(buffer, position + buffer.position());
+        if (read < 0)
+            break;
+    }
+    return buffer.position();
+}
+
+/**
+ * @return the string at <code>position</code>, or null if the file ends inside it
+ */
+private static String readString(FileChannel channel, long position) throws IOException
+{
+    ByteBuffer length = ByteBuffer.allocate(4);
+    if (readFully(channel, length, position) < 4)
+        return null;
+    int n = length.getInt(0);
+    if (n < 0 || position + 4 + n > channel.size())
+        return null;
+    ByteBuffer bytes = ByteBuffer.allocate(n);
+    if (readFully(channel, bytes, position + 4) < n)
+        return null;
+    return new String(bytes.array(), StandardCharsets.UTF_8);
+}
+}
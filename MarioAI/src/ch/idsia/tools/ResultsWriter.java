@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.tools;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Append-only columnar store of evaluation results. Rows are gathered into blocks of
+ * <code>BLOCK_ROWS</code>; a full block is handed to a background thread, which writes it column after
+ * column, while the caller goes on filling a spare one. Agent names are kept in a dictionary that is
+ * written to the file the first time a name is seen, so the <code>agent</code> column is just an int.
+ * <p/>
+ * File layout, big endian: <code>MAGIC, VERSION, column count, column names</code>, then a sequence of
+ * records, either <code>AGENT, id, name</code> or <code>ROWS, n, n ints of column 0, n ints of column 1,
+ * ...</code>. Strings are an int length followed by UTF-8 bytes. Read the file back with
+ * <code>ResultsReader</code>. Opening an existing file appends to it, after cutting off the block a crash
+ * may have left half written.
+ */
+public class ResultsWriter implements Closeable
+{
+static final int MAGIC = 0x4D524553; // "MRES"
+static final int VERSION = 1;
+static final int AGENT = 0x4147454E; // "AGEN"
+static final int ROWS = 0x524F5753; // "ROWS"
+
+public static final int BLOCK_ROWS = 4096;
+private static final int SPARE_BLOCKS = 2;
+
+/**
+ * The fields of <code>EvaluationInfo</code> in the order of <code>toIntArray</code>, then the weighted
+ * fitness, the level options the episode was played with and the agent id.
+ */
+public static final String[] COLUMNS;
+
+static
+{
+    String[] extra = {"weightedFitness", "seed", "difficulty", "levelType", "agent"};
+    COLUMNS = new String[EvaluationStatistics.NAMES.length + extra.length];
+    System.arraycopy(EvaluationStatistics.NAMES, 0, COLUMNS, 0, EvaluationStatistics.NAMES.length);
+    System.arraycopy(extra, 0, COLUMNS, EvaluationStatistics.NAMES.length, extra.length);
+}
+
+private final DataOutputStream out;
+private final ExecutorService flusher = Executors.newSingleThreadExecutor(new ThreadFactory()
+{
+    public Thread newThread(Runnable r)
+    {
+        Thread thread = new Thread(r, "Mario AI results writer");
+        thread.setDaemon(true);
+        return thread;
+    }
+});
+private final BlockingQueue<int[][]> free = new ArrayBlockingQueue<int[][]>(SPARE_BLOCKS);
+private final java.nio.ByteBuffer staging = java.nio.ByteBuffer.allocate(8 + 4 * COLUMNS.length * BLOCK_ROWS);
+private final Map<String, Integer> agents = new HashMap<String, Integer>();
+
+private int[][] block = new int[COLUMNS.length][BLOCK_ROWS];
+private int rows = 0;
+private long written = 0;
+private volatile IOException failure;
+private boolean closed = false;
+
+public ResultsWriter(String fileName) throws IOException
+{
+    this(new File(fileName));
+}
+
+public ResultsWriter(File file) throws IOException
+{
+    boolean append = file.length() > 0;
+    if (append)
+    {
+        ResultsReader reader = new ResultsReader(file);
+        try
+        {
+            if (!java.util.Arrays.equals(reader.getColumns(), COLUMNS))
+                throw new IOException("[Mario AI EXCEPTION] : " + file + " has columns of another version");
+            for (int i = 0; i < reader.getAgentCount(); i++)
+                agents.put(reader.getAgent(i), i);
+            written = reader.getRows();
+            if (reader.getValidLength() < file.length())
+            {
+                System.err.println("[Mario AI EXCEPTION] : " + file + " ends with an incomplete record, " +
+                        (file.length() - reader.getValidLength()) + " bytes dropped");
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try
+                {
+                    raf.setLength(reader.getValidLength());
+                } finally
+                {
+                    raf.close();
+                }
+            }
+        } finally
+        {
+            reader.close();
+        }
+    }
+
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append), 1 << 16));
+    if (!append)
+    {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(COLUMNS.length);
+        for (String column : COLUMNS)
+            writeString(out, column);
+    }
+    for (int i = 0; i < SPARE_BLOCKS; i++)
+        free.add(new int[COLUMNS.length][BLOCK_ROWS]);
+}
+
+/**
+ * Appends one episode, using the agent, seed, difficulty and level type of <code>options</code>.
+ */
+public void add(EvaluationInfo info, MarioAIOptions options)
+{
+    add(info, options.getAgentFullLoadName(), options.getLevelRandSeed(), options.getLevelDifficulty(),
+            options.getLevelType());
+}
+
+public synchronized void add(EvaluationInfo info, String agent, int seed, int difficulty, int levelType)
+{
+    if (closed)
+        throw new IllegalStateException("[Mario AI EXCEPTION] : results writer is closed");
+    int r = rows;
+    int[][] b = block;
+    b[0][r] = info.distancePassedCells;
+    b[1][r] = info.distancePassedPhys;
+    b[2][r] = info.flowersDevoured;
+    b[3][r] = info.killsByFire;
+    b[4][r] = info.killsByShell;
+    b[5][r] = info.killsByStomp;
+    b[6][r] = info.killsTotal;
+    b[7][r] = info.marioMode;
+    b[8][r] = info.marioStatus;
+    b[9][r] = info.mushroomsDevoured;
+    b[10][r] = info.coinsGained;
+    b[11][r] = info.timeLeft;
+    b[12][r] = info.timeSpent;
+    b[13][r] = info.hiddenBlocksFound;
+    b[14][r] = info.computeWeightedFitness();
+    b[15][r] = seed;
+    b[16][r] = difficulty;
+    b[17][r] = levelType;
+    b[18][r] = agentId(agent);
+    if (++rows == BLOCK_ROWS)
+        submitBlock();
+}
+
+/**
+ * @return rows added so far, including those of the file this writer appends to
+ */
+public synchronized long getRows()
+{
+    return written + rows;
+}
+
+/**
+ * Writes the rows gathered so far and waits until they reach the file.
+ */
+public synchronized void flush() throws IOException
+{
+    if (closed)
+        return;
+    if (rows > 0)
+        submitBlock();
+    await(flusher.submit(new Callable<Void>()
+    {
+        public Void call() throws IOException
+        {
+            out.flush();
+            return null;
+        }
+    }));
+    if (failure != null)
+        throw failure;
+}
+
+public synchronized void close() throws IOException
+{
+    if (closed)
+        return;
+    try
+    {
+        flush();
+    } finally
+    {
+        closed = true;
+        flusher.shutdown();
+        out.close();
+    }
+}
+
+private int agentId(String agent)
+{
+    if (agent == null)
+        agent = "";
+    Integer id = agents.get(agent);
+    if (id == null)
+    {
+        // queued before the block that first uses it, so a reader always knows the name in time
+        final int newId = agents.size();
+        final String name = agent;
+        agents.put(agent, newId);
+        flusher.execute(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    out.writeInt(AGENT);
+                    out.writeInt(newId);
+                    writeString(out, name);
+                } catch (IOException e)
+                {
+                    failure = e;
+                }
+            }
+        });
+        return newId;
+    }
+    return id;
+}
+
+private void submitBlock()
+{
+    final int[][] full = block;
+    final int n = rows;
+    written += n;
+    rows = 0;
+    flusher.execute(new Runnable()
+    {
+        public void run()
+        {
+            try
+            {
+                staging.clear();
+                staging.putInt(ROWS).putInt(n);
+                java.nio.IntBuffer ints = staging.asIntBuffer();
+                for (int[] column : full)
+                    ints.put(column, 0, n);
+                out.write(staging.array(), 0, 8 + 4 * ints.position());
+            } catch (IOException e)
+            {
+                failure = e;
+            } finally
+            {
+                free.offer(full);
+            }
+        }
+    });
+    try
+    {
+        block = free.take(); // blocks only while the disk is two blocks behind
+    } catch (InterruptedException e)
+    {
+        Thread.currentThread().interrupt();
+        block = new int[COLUMNS.length][BLOCK_ROWS];
+    }
+}
+
+private static void await(Future<?> future) throws IOException
+{
+    try
+    {
+        future.get();
+    } catch (InterruptedException e)
+    {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("[Mario AI EXCEPTION] : interrupted while flushing results");
+    } catch (ExecutionException e)
+    {
+        if (e.getCause() instanceof IOException)
+            throw (IOException) e.getCause();
+        throw new IOException(e.getCause());
+    }
+}
+
+static void writeString(DataOutputStream out, String s) throws IOException
+{
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package ch.idsia.tools;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * A copy of the benchmark with statics of its own: <code>ExperimentWorker</code> and everything it uses is
+ * loaded anew from the class path by a class loader of its own. Only JDK types cross the boundary. A
+ * sandbox plays one episode at a time; several sandboxes can play in parallel.
+ */
+public final class Sandbox implements Closeable
+{
+private static final URL[] CLASS_PATH = classPath();
+
+private final URLClassLoader loader;
+private final Method play;
+private final Method evaluate;
+private final Method close;
+
+public Sandbox() throws ReflectiveOperationException
+{
+    // the parent sees the JDK only, so every class of the class path is loaded anew
+    loader = new URLClassLoader(CLASS_PATH, ClassLoader.getSystemClassLoader().getParent());
+    final Class<?> worker = loader.loadClass(ExperimentWorker.class.getName());
+    play = worker.getMethod("play", String.class);
+    evaluate = worker.getMethod("evaluate", String.class, double[].class, String.class);
+    close = worker.getMethod("close");
+}
+
+/**
+ * @see ExperimentWorker#play
+ */
+public int[] play(String options) throws Throwable
+{
+    return (int[]) invoke(play, options);
+}
+
+/**
+ * @see ExperimentWorker#evaluate
+ */
+public int evaluate(String agentClass, double[] weights, String options) throws Throwable
+{
+    return (Integer) invoke(evaluate, agentClass, weights, options);
+}
+
+private Object invoke(Method method, Object... args) throws Throwable
+{
+    try
+    {
+        return method.invoke(null, args);
+    } catch (InvocationTargetException e)
+    {
+        throw e.getCause();
+    }
+}
+
+public void close()
+{
+    try
+    {
+        close.invoke(null);
+    } catch (ReflectiveOperationException e)
+    {
+        System.err.println("[Mario AI EXCEPTION] : sandbox did not close cleanly: " + e);
+    }
+    try
+    {
+        loader.close();
+    } catch (IOException ignored)
+    {
+    }
+}
+
+private static URL[] classPath()
+{
+    String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+    URL[] urls = new URL[entries.length];
+    try
+    {
+        for (int i = 0; i < entries.length; i++)
+            urls[i] = new File(entries[i]).toURI().toURL();
+    } catch (MalformedURLException e)
+    {
+        throw new IllegalStateException("[Mario AI EXCEPTION] : bad class path entry", e);
+    }
+    return urls;
+}
+}
@@ -31,8 +31,11 @@ import org.objectweb.asm.*;
 import org.objectweb.asm.tree.*;
 
 import java.io.*;
+import java.lang.reflect.Field;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Set;
 
 /**
  * Created by IntelliJ IDEA.
@@ -40,42 +43,186 @@ import java.util.ListIterator;
  * Date: 3/9/11
  * Time: 6:27 PM
  * Package: ch.idsia.tools.punj
+ * <p/>
+ * Loads an agent with every class it reaches, except the benchmark and its interfaces, and counts the
+ * bytecode instructions they execute. A class is instrumented per basic block: at the start of each block
+ * one <code>InstructionCount.value += n</code> adds the block's n instructions, which is much cheaper than
+ * counting every instruction as it executes and gives the same total unless an exception leaves a block
+ * half done. Constructors, static initializers and <code>reset*</code> methods are not counted, nor are
+ * the return instructions <code>return</code>, <code>ireturn</code> and <code>areturn</code>.
  */
 public class PunctualJudge extends ClassLoader
 {
-private static long counter;
+// loaded by the parent: the benchmark the agent talks to, the JDK and the libraries
+private static final String[] SHARED = {"java.", "javax.", "sun.", "com.sun.", "jdk.", "org.objectweb.asm.",
+        "org.w3c.", "org.xml.", "ch.idsia.benchmark.", "ch.idsia.tools."};
+
+/**
+ * Class defined by every judge to hold the count of the classes it instruments. Each judge defines its
+ * own, so agents loaded by different judges, e.g. in parallel environments, never share a counter.
+ */
+static final String COUNTER = "ch/idsia/tools/punj/InstructionCount";
+
+private final Field counter;
+private final boolean everyInstruction;
+
+public PunctualJudge()
+{
+    this(false);
+}
+
+/**
+ * @param everyInstruction count each instruction as it executes instead of each block as it starts; only
+ *                         useful to check the block counts
+ */
+public PunctualJudge(boolean everyInstruction)
+{
+    super(PunctualJudge.class.getClassLoader());
+    this.everyInstruction = everyInstruction;
+    ClassWriter cw = new ClassWriter(0);
+    cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, COUNTER, null, "java/lang/Object", null);
+    cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "value", "J", null, null).visitEnd();
+    cw.visitEnd();
+    byte[] data = cw.toByteArray();
+    try
+    {
+        counter = defineClass(COUNTER.replace('/', '.'), data, 0, data.length).getField("value");
+    } catch (NoSuchFieldException e)
+    {
+        throw new IllegalStateException(e);
+    }
+}
 
 public Class<?> buildClass(byte[] data, String name)
 {
     return defineClass(name, data, 0, data.length);
 }
 
-public static void incrementCounter()
+/**
+ * @return instructions executed so far by the classes this judge instrumented
+ */
+public long getCounter()
 {
-    ++counter;
+    try
+    {
+        return counter.getLong(null);
+    } catch (IllegalAccessException e)
+    {
+        throw new IllegalStateException(e);
+    }
 }
 
-public static long getCounter()
+public void resetCounter()
 {
-    return counter;
+    try
+    {
+        counter.setLong(null, 0);
+    } catch (IllegalAccessException e)
+    {
+        throw new IllegalStateException(e);
+    }
 }
 
-public static void resetCounter()
+/**
+ * @return the judge that loaded the class of <code>agent</code>, or null if it is not instrumented
+ */
+public static PunctualJudge of(Object agent)
 {
-    counter = 0;
+    ClassLoader loader = agent == null ? null : agent.getClass().getClassLoader();
+    return loader instanceof PunctualJudge ? (PunctualJudge) loader : null;
 }
 
 /**
- * @param classFileName -- path to the class file. Example: competition.cig.sergeykarakovskiy.SergeyKarakovskiy_JumpingAgent.class
- * @return bytecode of the class
- * @throws IOException
+ * @return instructions counted for <code>agent</code>, 0 if it is not instrumented
  */
+public static long getCounter(Object agent)
+{
+    PunctualJudge judge = of(agent);
+    return judge == null ? 0 : judge.getCounter();
+}
+
+public static void resetCounter(Object agent)
+{
+    PunctualJudge judge = of(agent);
+    if (judge != null)
+        judge.resetCounter();
+}
+
+protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+{
+    synchronized (getClassLoadingLock(name))
+    {
+        Class<?> c = findLoadedClass(name);
+        if (c == null)
+        {
+            byte[] data = isShared(name) ? null : readClass(name);
+            // interfaces of the benchmark, such as Agent or Evolvable, are the types the agent shares with it
+            if (data == null || name.startsWith("ch.idsia.") && (new ClassReader(data).getAccess() & Opcodes.ACC_INTERFACE) != 0)
+                c = getParent().loadClass(name);
+            else
+            {
+                data = instrumentClass(data);
+                c = defineClass(name, data, 0, data.length);
+            }
+        }
+        if (resolve)
+            resolveClass(c);
+        return c;
+    }
+}
+
+private static boolean isShared(String name)
+{
+    for (String prefix : SHARED)
+        if (name.startsWith(prefix))
+            return true;
+    return false;
+}
+
+private byte[] readClass(String name)
+{
+    InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+    if (in == null)
+        return null;
+    try
+    {
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) > 0; )
+                out.write(buffer, 0, n);
+            return out.toByteArray();
+        } finally
+        {
+            in.close();
+        }
+    } catch (IOException e)
+    {
+        System.err.println("[Mario AI EXCEPTION] : PunctualJudge could not read " + name + ": " + e);
+        return null;
+    }
+}
+
 public byte[] instrumentClass(String classFileName) throws IOException
 {
-    byte[] instrumentedClass = null;
+    InputStream in = new FileInputStream(classFileName);
+    try
+    {
+        return instrumentClass(new ClassReader(in));
+    } finally
+    {
+        in.close();
+    }
+}
 
-    final ClassReader cr = new ClassReader(new FileInputStream(classFileName));
+public byte[] instrumentClass(byte[] classFile)
+{
+    return instrumentClass(new ClassReader(classFile));
+}
 
+private byte[] instrumentClass(ClassReader cr)
+{
     // create an empty ClassNode (in-memory representation of a class)
     final ClassNode clazz = new ClassNode();
 
@@ -89,20 +236,30 @@ public byte[] instrumentClass(String classFileName) throws IOException
         final MethodNode method = methods.get(m);
         if (method.name.equals("<init>") ||
                 method.name.equals("<clinit>") ||
-                method.name.startsWith("reset"))
+                method.name.startsWith("reset") ||
+                method.instructions.size() == 0)
             continue;
-        instrumentMethod(method);
+        if (everyInstruction)
+            instrumentInstructions(method);
+        else
+            instrumentBlocks(method);
+        method.maxStack += 4;
     }
 
     ClassWriter cw = new ClassWriter(0);
-
     clazz.accept(cw);
+    return cw.toByteArray();
+}
 
-    instrumentedClass = cw.toByteArray();
-    return instrumentedClass;
+private static boolean isCounted(AbstractInsnNode instruction)
+{
+    return instruction.getOpcode() != -1 &&
+            instruction.getOpcode() != Opcodes.RETURN &&
+            instruction.getOpcode() != Opcodes.IRETURN &&
+            instruction.getOpcode() != Opcodes.ARETURN;
 }
 
-private void instrumentMethod(MethodNode methodNode)
+private void instrumentInstructions(MethodNode methodNode)
 {
     // get the list of all instructions in that method
     final InsnList instructions = methodNode.instructions;
@@ -110,12 +267,92 @@ private void instrumentMethod(MethodNode methodNode)
     while (it.hasNext())
     {
         final AbstractInsnNode instruction = (AbstractInsnNode) it.next();
-        if (instruction.getOpcode() != -1 &&
-                instruction.getOpcode() != Opcodes.RETURN &&
-                instruction.getOpcode() != Opcodes.IRETURN &&
-                instruction.getOpcode() != Opcodes.ARETURN)
-            instructions.insert(instruction, new MethodInsnNode(Opcodes.INVOKESTATIC, "ch/idsia/tools/punj/PunctualJudge", "incrementCounter", "()V"));
+        // counted before they execute, so that nothing follows a goto or throw where a stack map frame is expected
+        if (isCounted(instruction))
+            instructions.insertBefore(instruction, count(1));
+    }
+}
+
+private void instrumentBlocks(MethodNode methodNode)
+{
+    // a block starts at a label that is jumped to or handles an exception, and after any jump, switch,
+    // return or throw
+    final Set<LabelNode> entries = new HashSet<LabelNode>();
+    for (Object o : methodNode.tryCatchBlocks)
+        entries.add(((TryCatchBlockNode) o).handler);
+    final InsnList instructions = methodNode.instructions;
+    for (AbstractInsnNode i = instructions.getFirst(); i != null; i = i.getNext())
+    {
+        if (i instanceof JumpInsnNode)
+            entries.add(((JumpInsnNode) i).label);
+        else if (i instanceof TableSwitchInsnNode)
+        {
+            entries.add(((TableSwitchInsnNode) i).dflt);
+            for (Object label : ((TableSwitchInsnNode) i).labels)
+                entries.add((LabelNode) label);
+        } else if (i instanceof LookupSwitchInsnNode)
+        {
+            entries.add(((LookupSwitchInsnNode) i).dflt);
+            for (Object label : ((LookupSwitchInsnNode) i).labels)
+                entries.add((LabelNode) label);
+        }
     }
+
+    AbstractInsnNode first = null; // first instruction of the current block
+    long n = 0;
+    boolean ended = true;
+    for (AbstractInsnNode i = instructions.getFirst(); i != null; i = i.getNext())
+    {
+        if (i instanceof LabelNode && entries.contains(i))
+            ended = true;
+        if (i.getOpcode() == -1)
+            continue;
+        if (ended)
+        {
+            if (n > 0)
+                instructions.insertBefore(first, count(n));
+            first = i;
+            n = 0;
+            ended = false;
+        }
+        if (isCounted(i))
+            n++;
+        ended = endsBlock(i);
+    }
+    if (n > 0)
+        instructions.insertBefore(first, count(n));
+}
+
+private static boolean endsBlock(AbstractInsnNode i)
+{
+    if (i instanceof JumpInsnNode || i instanceof TableSwitchInsnNode || i instanceof LookupSwitchInsnNode)
+        return true;
+    switch (i.getOpcode())
+    {
+        case Opcodes.RETURN:
+        case Opcodes.IRETURN:
+        case Opcodes.LRETURN:
+        case Opcodes.FRETURN:
+        case Opcodes.DRETURN:
+        case Opcodes.ARETURN:
+        case Opcodes.ATHROW:
+        case Opcodes.RET:
+            return true;
+    }
+    return false;
+}
+
+/**
+ * <code>InstructionCount.value += n</code>
+ */
+private static InsnList count(long n)
+{
+    InsnList list = new InsnList();
+    list.add(new FieldInsnNode(Opcodes.GETSTATIC, COUNTER, "value", "J"));
+    list.add(n == 1 ? new InsnNode(Opcodes.LCONST_1) : new LdcInsnNode(n));
+    list.add(new InsnNode(Opcodes.LADD));
+    list.add(new FieldInsnNode(Opcodes.PUTSTATIC, COUNTER, "value", "J"));
+    return list;
 }
 
 }
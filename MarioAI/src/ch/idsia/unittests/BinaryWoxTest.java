@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.unittests;
+
+import ch.idsia.agents.learning.MediumSRNAgent;
+import ch.idsia.agents.learning.SmallMLPAgent;
+import ch.idsia.evolution.WeightsEvolvable;
+import ch.idsia.utils.wox.serial.BinaryReader;
+import ch.idsia.utils.wox.serial.BinaryWriter;
+import ch.idsia.utils.wox.serial.Easy;
+import ch.idsia.utils.wox.serial.TestObject;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Round trips through the binary WOX format.
+ */
+public class BinaryWoxTest extends TestCase
+{
+private static Object roundTrip(Object ob) throws Exception
+{
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinaryWriter writer = new BinaryWriter(bytes);
+    writer.write(ob);
+    writer.flush();
+    return new BinaryReader(new ByteArrayInputStream(bytes.toByteArray())).read();
+}
+
+@Test
+public void testNetworkAgentsKeepTheirWeights() throws Exception
+{
+    assertSameWeights(new SmallMLPAgent());
+    assertSameWeights(new MediumSRNAgent());
+}
+
+private static void assertSameWeights(WeightsEvolvable agent) throws Exception
+{
+    agent = (WeightsEvolvable) agent.getNewInstance();
+    WeightsEvolvable back = (WeightsEvolvable) roundTrip(agent);
+    double[] weights = new double[agent.getNumberOfWeights()];
+    double[] weightsBack = new double[back.getNumberOfWeights()];
+    agent.getWeights(weights, 0);
+    back.getWeights(weightsBack, 0);
+    assertTrue(Arrays.equals(weights, weightsBack));
+}
+
+public static class Node
+{
+    public int value;
+    public Node left;
+    public Node right;
+    public Node parent;
+    public int[] data;
+    public Object[] links;
+}
+
+// a root whose two children are one node, which points back at the root and shares the root's array
+private static Node graph()
+{
+    Node root = new Node();
+    Node shared = new Node();
+    root.value = 1;
+    shared.value = 2;
+    root.left = shared;
+    root.right = shared;
+    shared.parent = root;
+    root.data = new int[]{3, 4, 5};
+    shared.data = root.data;
+    root.links = new Object[]{root, shared};
+    return root;
+}
+
+private static void assertSameGraph(Node back)
+{
+    assertEquals(1, back.value);
+    assertEquals(2, back.left.value);
+    assertSame(back.left, back.right);
+    assertSame(back, back.left.parent);
+    assertSame(back.data, back.left.data);
+    assertTrue(Arrays.equals(new int[]{3, 4, 5}, back.data));
+    assertSame(back, back.links[0]);
+    assertSame(back.left, back.links[1]);
+}
+
+@Test
+public void testSharedAndCyclicReferences() throws Exception
+{
+    assertSameGraph((Node) roundTrip(graph()));
+    String binary = File.createTempFile("wox", ".woxb").getPath();
+    Easy.saveBinary(graph(), binary);
+    assertSameGraph((Node) Easy.load(binary));
+    new File(binary).delete();
+}
+
+@Test
+public void testTestObjectRoundTrips() throws Exception
+{
+    TestObject back = (TestObject) roundTrip(new TestObject(5));
+    assertEquals(5, back.inc());
+    String xml = File.createTempFile("wox", ".xml").getPath();
+    String binary = File.createTempFile("wox", ".woxb").getPath();
+    Easy.save(back, xml);
+    Easy.saveBinary(back, binary);
+    assertEquals(6, ((TestObject) Easy.load(xml)).inc());
+    assertEquals(6, ((TestObject) Easy.load(binary)).inc());
+    new File(xml).delete();
+    new File(binary).delete();
+}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package ch.idsia.unittests;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.agents.learning.SmallMLPAgent;
+import ch.idsia.benchmark.tasks.LearningTask;
+import ch.idsia.benchmark.tasks.SandboxedTask;
+import ch.idsia.benchmark.tasks.Task;
+import ch.idsia.evolution.WeightsEvolvable;
+import ch.idsia.evolution.ea.CandidateEvaluator;
+import ch.idsia.evolution.ea.NES;
+import ch.idsia.tools.MarioAIOptions;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+/**
+ * <code>CandidateEvaluator</code> refuses tasks that share the static environment, and two
+ * <code>SandboxedTask</code> workers score candidates as a plain <code>LearningTask</code> does.
+ */
+public class CandidateEvaluatorTest extends TestCase
+{
+private static final String OPTIONS = "-vis off -ls 1 -ld 0 -tl 30";
+
+@Test
+public void testRefusesTasksSharingTheEnvironment()
+{
+    MarioAIOptions options = new MarioAIOptions(OPTIONS);
+    try
+    {
+        new CandidateEvaluator(new SmallMLPAgent(), new LearningTask(options), new LearningTask(options));
+        fail("two BasicTasks cannot run on two workers");
+    } catch (IllegalArgumentException expected)
+    {
+    }
+}
+
+@Test
+public void testTwoSandboxedWorkersMatchOneTask()
+{
+    SandboxedTask first = new SandboxedTask(OPTIONS);
+    SandboxedTask second = new SandboxedTask(OPTIONS);
+    try
+    {
+        WeightsEvolvable prototype = new SmallMLPAgent();
+        int length = prototype.getNumberOfWeights();
+        int count = 6;
+        double[] candidates = new double[count * length];
+        for (int i = 0; i < count; i++)
+            ((WeightsEvolvable) prototype.getNewInstance()).getWeights(candidates, i * length);
+
+        CandidateEvaluator evaluator = new CandidateEvaluator(prototype, first, second);
+        float[] fitness = new float[count];
+        evaluator.evaluate(candidates, count, length, fitness);
+        evaluator.shutdown();
+
+        LearningTask task = new LearningTask(new MarioAIOptions(OPTIONS));
+        WeightsEvolvable agent = (WeightsEvolvable) prototype.getNewInstance();
+        for (int i = 0; i < count; i++)
+        {
+            agent.setWeights(candidates, i * length);
+            agent.reset();
+            assertEquals("candidate " + i, (float) task.evaluate((Agent) agent), fitness[i]);
+        }
+    } finally
+    {
+        first.close();
+        second.close();
+    }
+}
+
+@Test
+public void testGetBestsReturnsACopy()
+{
+    SandboxedTask first = new SandboxedTask(OPTIONS);
+    SandboxedTask second = new SandboxedTask(OPTIONS);
+    try
+    {
+        NES nes = new NES(new Task[]{first, second}, new SmallMLPAgent(), 4, 1);
+        nes.nextGeneration();
+        WeightsEvolvable best = (WeightsEvolvable) nes.getBests()[0];
+        double[] before = new double[best.getNumberOfWeights()];
+        best.getWeights(before, 0);
+        best.setWeights(new double[before.length], 0);
+
+        double[] after = new double[before.length];
+        ((WeightsEvolvable) nes.getBests()[0]).getWeights(after, 0);
+        assertTrue(Arrays.equals(before, after));
+        nes.shutdown();
+    } finally
+    {
+        first.close();
+        second.close();
+    }
+}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.unittests;
+
+import ch.idsia.benchmark.tasks.BasicTask;
+import ch.idsia.tools.ExperimentRunner;
+import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.ResultsReader;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+/**
+ * <code>ExperimentRunner</code> plays the same episodes as a plain <code>BasicTask</code> and resumes from
+ * its results file.
+ */
+public class ExperimentRunnerTest extends TestCase
+{
+@Test
+public void testMatrixMatchesBasicTaskAndResumes() throws Exception
+{
+    File file = File.createTempFile("experiment", ".bin");
+    file.deleteOnExit();
+    file.delete();
+    String[] agents = {"ch.idsia.agents.controllers.ForwardAgent", "ch.idsia.agents.controllers.ForwardJumpingAgent"};
+    ExperimentRunner runner = new ExperimentRunner(agents, new int[]{1, 2}, new int[]{0, 2}, new int[]{0}, "", 2);
+    assertEquals(8, runner.run(file));
+    assertEquals(0, runner.run(file));
+
+    ResultsReader reader = new ResultsReader(file);
+    try
+    {
+        assertEquals(8, reader.getRows());
+        for (long row = 0; row < reader.getRows(); row++)
+        {
+            String options = "-vis off -ag " + reader.getAgent(reader.get(row, reader.column("agent")))
+                    + " -ls " + reader.get(row, reader.column("seed"))
+                    + " -ld " + reader.get(row, reader.column("difficulty")) + " -lt 0";
+            BasicTask task = new BasicTask(new MarioAIOptions(options));
+            task.runSingleEpisode(1);
+            assertEquals(options, task.getEvaluationInfo().computeWeightedFitness(),
+                    reader.get(row, reader.column("weightedFitness")));
+        }
+    } finally
+    {
+        reader.close();
+    }
+}
+}
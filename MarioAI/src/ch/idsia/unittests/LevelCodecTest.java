@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.unittests;
+
+import ch.idsia.benchmark.mario.engine.level.Level;
+import ch.idsia.benchmark.mario.engine.level.LevelCodec;
+import ch.idsia.benchmark.mario.engine.level.LevelGenerator;
+import ch.idsia.benchmark.mario.engine.level.SpriteTemplate;
+import ch.idsia.tools.MarioAIOptions;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Round trips through the compact level format of <code>LevelCodec</code>.
+ */
+public class LevelCodecTest extends TestCase
+{
+private static Level generate() throws Exception
+{
+    return LevelGenerator.createLevel(new MarioAIOptions("-ls 42 -ld 5 -ll 320 -vis off"));
+}
+
+private static void assertSameLevel(Level expected, Level actual)
+{
+    assertEquals(expected.length, actual.length);
+    assertEquals(expected.height, actual.height);
+    assertEquals(expected.randomSeed, actual.randomSeed);
+    assertEquals(expected.type, actual.type);
+    assertEquals(expected.difficulty, actual.difficulty);
+    assertEquals(expected.xExit, actual.xExit);
+    assertEquals(expected.yExit, actual.yExit);
+    for (int x = 0; x < expected.length; x++)
+    {
+        assertTrue(Arrays.equals(expected.map[x], actual.map[x]));
+        assertTrue(Arrays.equals(expected.data[x], actual.data[x]));
+        for (int y = 0; y < expected.height; y++)
+        {
+            SpriteTemplate template = expected.getSpriteTemplate(x, y);
+            if (template == null)
+                assertNull(actual.getSpriteTemplate(x, y));
+            else
+                assertEquals(template.getType(), actual.getSpriteTemplate(x, y).getType());
+        }
+    }
+}
+
+@Test
+public void testGeneratedLevelRoundTrips() throws Exception
+{
+    Level level = generate();
+    level.setBlockData(3, 4, (byte) 7);
+    Level.objCounters counters = Level.counters;
+    File file = File.createTempFile("level", ".lvl");
+    try
+    {
+        Level.save(level, file);
+        Level.counters = null;
+        Level loaded = Level.load(file);
+        assertSameLevel(level, loaded);
+        assertEquals(counters.totalGaps, Level.counters.totalGaps);
+        assertEquals(counters.creatures, Level.counters.creatures);
+        assertTrue(file.length() < level.length * level.height);
+    } finally
+    {
+        file.delete();
+    }
+}
+
+@Test
+public void testTraceIsOptional() throws Exception
+{
+    Level level = generate();
+    level.marioTrace[10][3] = 5;
+    level.marioTrace[11][level.height] = 2;
+    assertSameLevel(level, LevelCodec.read(LevelCodec.write(level, true)));
+    assertEquals(5, LevelCodec.read(LevelCodec.write(level, true)).marioTrace[10][3]);
+    assertEquals(2, LevelCodec.read(LevelCodec.write(level, true)).marioTrace[11][level.height]);
+    assertEquals(0, LevelCodec.read(LevelCodec.write(level, false)).marioTrace[10][3]);
+}
+
+@Test
+public void testSerializedLevelStillLoads() throws Exception
+{
+    Level level = generate();
+    File file = File.createTempFile("level", ".ser");
+    try
+    {
+        ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file));
+        Level.save(level, oos);
+        oos.close();
+        assertFalse(LevelCodec.isCompact(file));
+        assertSameLevel(level, Level.load(file));
+    } finally
+    {
+        file.delete();
+    }
+}
+
+@Test
+public void testNewerVersionIsRejected() throws Exception
+{
+    ByteBuffer bytes = LevelCodec.write(generate(), false);
+    bytes.put(LevelCodec.MAGIC.length, (byte) (LevelCodec.VERSION + 1));
+    try
+    {
+        LevelCodec.read(bytes);
+        fail("a newer version must not be read");
+    } catch (IOException e)
+    {
+        assertTrue(e.getMessage().contains("version"));
+    }
+}
+}
@@ -30,6 +30,7 @@ package ch.idsia.unittests;
 import ch.idsia.benchmark.mario.engine.GlobalOptions;
 import ch.idsia.benchmark.mario.engine.sprites.Mario;
 import ch.idsia.benchmark.tasks.BasicTask;
+import ch.idsia.benchmark.tasks.StallTermination;
 import ch.idsia.tools.MarioAIOptions;
 import ch.idsia.tools.ReplayerOptions;
 import junit.framework.TestCase;
@@ -281,4 +282,18 @@ public void testLevelCompletionRegression()
 	assertEquals(end, win);
 }
 
-}
\ No newline at end of file
+@Test
+public void testStallTerminationStopsIdleAgent()
+{
+    final MarioAIOptions marioAIOptions = new MarioAIOptions("-vis off -ag ch.idsia.agents.controllers.BasicMarioAIAgent");
+    final BasicTask basicTask = new BasicTask(marioAIOptions);
+    basicTask.setOptionsAndReset(marioAIOptions);
+    basicTask.setTerminationPolicy(new StallTermination(50));
+    basicTask.runSingleEpisode(1);
+    assertEquals(Mario.STATUS_DEAD, basicTask.getEvaluationInfo().marioStatus);
+    assertEquals(50, basicTask.getTicksSimulated());
+    assertEquals(1, basicTask.getEpisodesTerminated());
+    assertTrue(basicTask.getTicksSaved() > 0);
+}
+
+}
@@ -27,6 +27,10 @@
 
 package ch.idsia.unittests;
 
+import ch.idsia.benchmark.mario.engine.sprites.CosmeticSprites;
+import ch.idsia.benchmark.mario.engine.sprites.Mario;
+import ch.idsia.benchmark.mario.engine.sprites.Sprite;
+import ch.idsia.benchmark.mario.environments.Environment;
 import ch.idsia.benchmark.mario.environments.MarioEnvironment;
 import ch.idsia.benchmark.tasks.BasicTask;
 import ch.idsia.benchmark.tasks.ReplayTask;
@@ -38,6 +42,9 @@ import org.testng.annotations.Test;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -277,6 +284,42 @@ public void testMarioCenterPos() throws Exception
     assertEquals(3, pos[1]);
 }
 
+@Test
+public void testGetScreenCapture() throws Exception
+{
+    MarioEnvironment env = MarioEnvironment.getInstance();
+    env.reset(new MarioAIOptions("-vis off"));
+    assertNull(env.getScreenCapture());
+
+    // once captured on every tick, so the tile layer is scrolled along, and once drawn afresh at the end
+    byte[][][] last = new byte[2][][];
+    for (int run = 0; run < 2; run++)
+    {
+        env.reset(new MarioAIOptions("-vis off -ls 7 -i on -sc 2"));
+        for (int i = 0; i < 100; i++)
+        {
+            env.performAction(new boolean[]{false, true, false, true, false, false});
+            env.tick();
+            if (run == 0 || i == 99)
+                last[run] = env.getScreenCapture();
+        }
+        assertEquals(120, last[run].length);
+        assertEquals(160, last[run][0].length);
+        last[run] = last[run].clone();
+        for (int y = 0; y < last[run].length; y++)
+            last[run][y] = last[run][y].clone();
+    }
+
+    boolean uniform = true;
+    for (int y = 0; y < last[0].length; y++)
+        for (int x = 0; x < last[0][y].length; x++)
+        {
+            assertEquals(last[0][y][x], last[1][y][x]);
+            uniform &= last[1][y][x] == last[1][0][0];
+        }
+    assertFalse(uniform);
+}
+
 @Test
 public void testMarioReceptiveFieldSizeW5H7_vis() throws Exception
 {
@@ -450,4 +493,47 @@ public void testRecordingTrace()
             assertEquals(firstTrace[i][j], secondTrace[i][j]);
 }
 
-}
\ No newline at end of file
+
+// hashes of the game state and the merged observation, tick by tick, under random actions; counts[0] gets
+// the cosmetic sprites seen. getEnemiesObservationZ is left out: a cosmetic sprite can blank a cell of it.
+private static List<Integer> playRandomly(String options, int[] counts)
+{
+    final MarioEnvironment environment = MarioEnvironment.getInstance();
+    environment.reset(options);
+    final Random random = new Random(7);
+    final boolean[] action = new boolean[Environment.numberOfKeys];
+    final List<Integer> hashes = new ArrayList<Integer>();
+    for (int t = 0; t < 1500 && !environment.isLevelFinished(); t++)
+    {
+        action[Mario.KEY_RIGHT] = random.nextInt(4) != 0;
+        action[Mario.KEY_LEFT] = !action[Mario.KEY_RIGHT] && random.nextBoolean();
+        action[Mario.KEY_JUMP] = random.nextInt(3) == 0;
+        action[Mario.KEY_SPEED] = random.nextBoolean();
+        environment.performAction(action);
+        environment.tick();
+        for (Sprite sprite : environment.getSprites())
+            if (CosmeticSprites.isCosmetic(sprite.kind))
+                counts[0]++;
+        hashes.add(Arrays.hashCode(environment.getMarioFloatPos()) * 31
+                + Arrays.hashCode(environment.getEnemiesFloatPos()) * 17
+                + Arrays.hashCode(environment.getSerializedMergedObservationZZ(1, 0)) * 3
+                + Arrays.hashCode(environment.getMarioState())
+                + Arrays.deepHashCode(environment.getLevel().map));
+    }
+    hashes.add(Arrays.hashCode(environment.getEvaluationInfoAsInts()));
+    return hashes;
+}
+
+@Test
+public void testCosmeticsDoNotChangeTheGame()
+{
+    final String options = "-vis off -ls 3 -ld 3 -lt 0 -mm 2 -tl 100";
+    final int[] withCosmetics = new int[1];
+    final List<Integer> played = playRandomly(options, withCosmetics);
+    final int[] withoutCosmetics = new int[1];
+    final List<Integer> headless = playRandomly(options + " -cos off", withoutCosmetics);
+    assertTrue(withCosmetics[0] > 0);
+    assertEquals(0, withoutCosmetics[0]);
+    assertEquals(played, headless);
+}
+}
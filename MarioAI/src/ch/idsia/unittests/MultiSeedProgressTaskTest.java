@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package ch.idsia.unittests;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.agents.controllers.BasicMarioAIAgent;
+import ch.idsia.agents.controllers.ForwardAgent;
+import ch.idsia.agents.controllers.ForwardJumpingAgent;
+import ch.idsia.benchmark.tasks.MultiSeedProgressTask;
+import ch.idsia.tools.MarioAIOptions;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+/**
+ * Racing in <code>MultiSeedProgressTask</code> drops a clearly dominated individual early, keeps it below the
+ * survivors, and leaves the fitness of the survivors as a full evaluation gives it.
+ */
+public class MultiSeedProgressTaskTest extends TestCase
+{
+private static final int SEEDS = 6;
+
+private static MultiSeedProgressTask task(boolean racing)
+{
+    MultiSeedProgressTask task = new MultiSeedProgressTask(new MarioAIOptions("-vis off -ld 0 -tl 40"));
+    task.setNumberOfSeeds(SEEDS);
+    if (racing)
+        task.setRacing(3, 0.95);
+    return task;
+}
+
+private static Agent[] population()
+{
+    // the one that stands still is dominated by both others on every seed
+    return new Agent[]{new ForwardJumpingAgent(), new BasicMarioAIAgent("Standing"), new ForwardAgent()};
+}
+
+@Test
+public void testDominatedIndividualIsDroppedEarly()
+{
+    MultiSeedProgressTask task = task(true);
+    float[] fitness = new float[3];
+    task.evaluate(population(), 2, fitness);
+
+    assertEquals(SEEDS - 3, task.getEpisodesSaved());
+    assertEquals(2 * SEEDS + 3, task.getEpisodesPlayed());
+    assertTrue(fitness[1] < fitness[0]);
+    assertTrue(fitness[1] < fitness[2]);
+}
+
+@Test
+public void testSurvivorsGetTheFullEvaluation()
+{
+    float[] raced = new float[3];
+    task(true).evaluate(population(), 2, raced);
+    float[] full = new float[3];
+    MultiSeedProgressTask plain = task(false);
+    plain.evaluate(population(), 2, full);
+
+    assertEquals(0, plain.getEpisodesSaved());
+    assertEquals(full[0], raced[0]);
+    assertEquals(full[2], raced[2]);
+    assertEquals((int) full[0], task(false).evaluate(new ForwardJumpingAgent()));
+}
+
+@Test
+public void testEqualIndividualsAreNotDropped()
+{
+    MultiSeedProgressTask task = task(true);
+    float[] fitness = new float[2];
+    task.evaluate(new Agent[]{new ForwardAgent(), new ForwardAgent()}, 1, fitness);
+
+    assertEquals(0, task.getEpisodesSaved());
+    assertEquals(fitness[0], fitness[1]);
+}
+}
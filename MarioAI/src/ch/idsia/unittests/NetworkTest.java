@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.unittests;
+
+import ch.idsia.evolution.MLP;
+import ch.idsia.evolution.SRN;
+import ch.idsia.utils.MathX;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Flat weight layout and tanh approximation of MLP/SRN.
+ */
+public class NetworkTest extends TestCase
+{
+private static final int inputs = 28;
+private static final int hidden = 10;
+private static final int outputs = 6;
+
+private static double[][] randomLayer(Random random, int rows, int columns)
+{
+    double[][] layer = new double[rows][columns];
+    for (double[] row : layer)
+        for (int i = 0; i < row.length; i++)
+            row[i] = random.nextGaussian();
+    return layer;
+}
+
+private static double[][] randomObservations(Random random, int count)
+{
+    double[][] observations = new double[count][inputs];
+    for (double[] observation : observations)
+        for (int i = 0; i < observation.length; i++)
+            observation[i] = random.nextInt(3) - 1;
+    return observations;
+}
+
+@Test
+public void testFlatLayoutKeepsWeightsOrder() throws Exception
+{
+    Random random = new Random(1);
+    double[][] first = randomLayer(random, inputs, hidden);
+    double[][] second = randomLayer(random, hidden, outputs);
+    MLP mlp = new MLP(first, second, hidden, outputs);
+    double[] weights = mlp.getWeightsArray();
+    assertEquals(inputs * hidden + hidden * outputs, weights.length);
+    assertEquals(first[3][7], weights[3 * hidden + 7]);
+    assertEquals(second[9][5], weights[inputs * hidden + 9 * outputs + 5]);
+
+    MLP copy = mlp.copy();
+    copy.setWeightsArray(weights);
+    double[] observation = randomObservations(random, 1)[0];
+    assertEquals(mlp.propagate(observation)[2], copy.propagate(observation)[2]);
+}
+
+@Test
+public void testFastTanh() throws Exception
+{
+    for (double x = -8; x <= 8; x += 0.001)
+        assertEquals(Math.tanh(x), MathX.tanhApprox(x), 1e-4);
+
+    Random random = new Random(3);
+    SRN srn = new SRN(randomLayer(random, inputs, hidden), randomLayer(random, hidden, hidden),
+            randomLayer(random, hidden, outputs), hidden, outputs);
+    SRN fast = srn.copy();
+    fast.setFastTanh(true);
+    for (double[] observation : randomObservations(random, 20))
+    {
+        double[] exact = srn.propagate(observation);
+        double[] approximated = fast.propagate(observation);
+        for (int o = 0; o < outputs; o++)
+            assertEquals(exact[o], approximated[o], 1e-3);
+    }
+}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.unittests;
+
+import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.OptionsSnapshot;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+/**
+ * Typed values, caching and range checks of <code>OptionsSnapshot</code>.
+ */
+public class OptionsSnapshotTest extends TestCase
+{
+@Test
+public void testSnapshotHasTheParsedValues() throws Exception
+{
+    MarioAIOptions options = new MarioAIOptions("-ld 5 -ll 100 -vis off -fps 75 -mgr 0.5 -ls 17");
+    OptionsSnapshot snapshot = options.getSnapshot();
+    assertEquals(5, snapshot.getLevelDifficulty());
+    assertEquals(100, snapshot.getLevelLength());
+    assertFalse(snapshot.isVisualization());
+    assertEquals(75, snapshot.getFPS());
+    assertEquals(0.5f, snapshot.getMarioGravity());
+    assertTrue(snapshot.hasLevelRandSeed());
+    assertEquals(17, snapshot.getLevelRandSeed());
+    assertEquals(options.getReceptiveFieldWidth(), snapshot.getReceptiveFieldWidth());
+}
+
+@Test
+public void testSnapshotIsKeptUntilAnOptionIsSet() throws Exception
+{
+    MarioAIOptions options = new MarioAIOptions("-vis off");
+    OptionsSnapshot first = options.getSnapshot();
+    assertSame(first, options.getSnapshot());
+    options.setLevelDifficulty(3);
+    OptionsSnapshot second = options.getSnapshot();
+    assertNotSame(first, second);
+    assertEquals(0, first.getLevelDifficulty());
+    assertEquals(3, second.getLevelDifficulty());
+}
+
+@Test
+public void testLevelFileInsteadOfSeed() throws Exception
+{
+    OptionsSnapshot snapshot = new MarioAIOptions("-ls some.lvl").getSnapshot();
+    assertFalse(snapshot.hasLevelRandSeed());
+    assertEquals("some.lvl", snapshot.getLevelSeedValue());
+}
+
+@Test
+public void testOutOfRangeIsRejected() throws Exception
+{
+    MarioAIOptions options = new MarioAIOptions("-mm 3");
+    try
+    {
+        options.getSnapshot();
+        fail("Mario mode 3 accepted");
+    } catch (IllegalArgumentException e)
+    {
+        assertTrue(e.getMessage().contains("-mm"));
+    }
+}
+}
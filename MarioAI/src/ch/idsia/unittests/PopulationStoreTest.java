@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package ch.idsia.unittests;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.agents.learning.SmallMLPAgent;
+import ch.idsia.benchmark.tasks.Task;
+import ch.idsia.evolution.MLP;
+import ch.idsia.evolution.WeightsEvolvable;
+import ch.idsia.evolution.ea.ES;
+import ch.idsia.evolution.ea.PopulationStore;
+import ch.idsia.tools.MarioAIOptions;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+/**
+ * The same seed and the same operations give the same genomes, in the store and in an <code>ES</code> run
+ * on top of it.
+ */
+public class PopulationStoreTest extends TestCase
+{
+@Test
+public void testSameSeedGivesSameGenomes()
+{
+    double[] first = run(17);
+    assertTrue(Arrays.equals(first, run(17)));
+    assertFalse(Arrays.equals(first, run(18)));
+}
+
+private static double[] run(long seed)
+{
+    MLP.random.setSeed(3);
+    PopulationStore store = PopulationStore.fromPrototype(new SmallMLPAgent(), 6, seed);
+    for (int generation = 0; generation < 4; generation++)
+        for (int child = 3; child < 6; child++)
+        {
+            store.copy(child - 3, child);
+            store.mutate(child, 0.1);
+        }
+    return store.getGenomes().clone();
+}
+
+@Test
+public void testESRunsAreReproducible()
+{
+    double[] first = evolve(5);
+    assertTrue(Arrays.equals(first, evolve(5)));
+    assertFalse(Arrays.equals(first, evolve(6)));
+}
+
+private static double[] evolve(long seed)
+{
+    MLP.random.setSeed(3); // the initial population comes from getNewInstance()
+    ES es = new ES(new WeightSumTask(), new SmallMLPAgent(), 8, seed);
+    for (int generation = 0; generation < 5; generation++)
+        es.nextGeneration();
+    WeightsEvolvable best = (WeightsEvolvable) es.getBests()[0];
+    double[] weights = new double[best.getNumberOfWeights()];
+    best.getWeights(weights, 0);
+    return weights;
+}
+
+/**
+ * Prefers large weights; cheap and deterministic.
+ */
+private static class WeightSumTask implements Task
+{
+    public int evaluate(Agent controller)
+    {
+        WeightsEvolvable phenotype = (WeightsEvolvable) controller;
+        double[] weights = new double[phenotype.getNumberOfWeights()];
+        phenotype.getWeights(weights, 0);
+        double sum = 0;
+        for (double weight : weights)
+            sum += weight;
+        return (int) (1000 * sum);
+    }
+
+    public void setOptionsAndReset(MarioAIOptions options)
+    {}
+
+    public void setOptionsAndReset(String options)
+    {}
+
+    public void reset()
+    {}
+
+    public void doEpisodes(int amount, boolean verbose, int repetitionsOfSingleEpisode)
+    {}
+
+    public boolean isFinished()
+    {
+        return true;
+    }
+
+    public String getName()
+    {
+        return "WeightSumTask";
+    }
+
+    public void printStatistics()
+    {}
+}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.unittests;
+
+import ch.idsia.agents.Agent;
+import ch.idsia.agents.AgentsPool;
+import ch.idsia.benchmark.tasks.BasicTask;
+import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.punj.PunctualJudge;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+/**
+ * Instruction counting of <code>PunctualJudge</code> and the <code>ComputeBudget</code> built on it.
+ */
+public class PunctualJudgeTest extends TestCase
+{
+private static final String AGENT = "ch.idsia.agents.controllers.ForwardJumpingAgent";
+
+@Test
+public void testEveryAgentHasItsOwnCounter() throws Exception
+{
+    Agent first = AgentsPool.loadAgent(AGENT, true);
+    Agent second = AgentsPool.loadAgent(AGENT, true);
+    assertNotNull(PunctualJudge.of(first));
+    assertNotSame(PunctualJudge.of(first), PunctualJudge.of(second));
+
+    long idle = PunctualJudge.getCounter(second);
+    MarioAIOptions options = new MarioAIOptions("-vis off -ld 0 -ls 4");
+    options.setAgent(first);
+    BasicTask task = new BasicTask(options);
+    task.runSingleEpisode(1);
+    long counted = task.getEvaluationInfo().bytecodeInstructions;
+    assertTrue(counted > 0);
+    assertEquals(counted, PunctualJudge.getCounter(first));
+    assertEquals(idle, PunctualJudge.getCounter(second));
+
+    options.setAgent(second);
+    task.setOptionsAndReset(options);
+    task.runSingleEpisode(1);
+    assertEquals(counted, task.getEvaluationInfo().bytecodeInstructions);
+}
+
+@Test
+public void testInstructionBudget() throws Exception
+{
+    MarioAIOptions options = new MarioAIOptions("-vis off -ld 0 -ls 4 -punj on -ag " + AGENT);
+    BasicTask task = new BasicTask(options);
+    assertTrue(task.runSingleEpisode(1));
+    int fitness = task.getEvaluationInfo().computeWeightedFitness();
+
+    options.setInstructionBudget(1000);
+    task.setOptionsAndReset(options);
+    assertTrue(task.runSingleEpisode(1));
+    assertEquals(fitness, task.getEvaluationInfo().computeWeightedFitness());
+    assertEquals(0, task.getEvaluationInfo().budgetViolations);
+
+    options.setInstructionBudget(1);
+    task.setOptionsAndReset(options);
+    assertFalse(task.runSingleEpisode(1));
+    assertTrue(task.getEvaluationInfo().disqualified);
+    assertEquals(1, task.getEvaluationInfo().budgetViolations);
+}
+
+@Test
+public void testBlocksCountLikeEveryInstruction() throws Exception
+{
+    for (String name : new String[]{AGENT, "ch.idsia.agents.controllers.ScaredShooty"})
+    {
+        long[] counted = new long[2];
+        for (int mode = 0; mode < 2; mode++)
+        {
+            Agent agent = (Agent) new PunctualJudge(mode == 0).loadClass(name).newInstance();
+            // the superclass is instrumented with the agent, so integrateObservation is counted as well
+            assertSame(PunctualJudge.of(agent), agent.getClass().getSuperclass().getClassLoader());
+            MarioAIOptions options = new MarioAIOptions("-vis off -ld 2 -ls 7");
+            options.setAgent(agent);
+            BasicTask task = new BasicTask(options);
+            task.runSingleEpisode(1);
+            counted[mode] = task.getEvaluationInfo().bytecodeInstructions;
+        }
+        assertTrue(counted[0] > 0);
+        assertEquals(name, counted[0], counted[1]);
+    }
+}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package ch.idsia.unittests;
+
+import ch.idsia.benchmark.mario.engine.DrawSnapshot;
+import ch.idsia.benchmark.mario.engine.FrameChannel;
+import ch.idsia.benchmark.mario.engine.GlobalOptions;
+import ch.idsia.benchmark.mario.engine.LevelScene;
+import ch.idsia.benchmark.mario.engine.RenderThread;
+import ch.idsia.benchmark.mario.engine.sprites.Sprite;
+import ch.idsia.tools.MarioAIOptions;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * LevelScene publishes a snapshot of every tick while visualization is on, the render thread draws them at the
+ * frame rate without ever holding up the publisher, and it stops and disposes its drawer on its own thread.
+ */
+public class RenderThreadTest extends TestCase
+{
+@Test
+public void testSceneTickPublishesFrames()
+{
+    final boolean visualization = GlobalOptions.isVisualization;
+    try
+    {
+        LevelScene scene = new LevelScene();
+        scene.reset(new MarioAIOptions("-vis off -ls 1 -ld 0"));
+        FrameChannel channel = new FrameChannel();
+        scene.setFrameChannel(channel);
+        GlobalOptions.isVisualization = true;
+
+        scene.tick();
+        DrawSnapshot frame = channel.poll();
+        assertNotNull(frame);
+        assertEquals(scene.tickCount, frame.getTick());
+        assertEquals(0, frame.getCameraX()); // Mario starts at the left edge
+        boolean mario = false;
+        for (int i = 0; i < frame.getSpriteCount(); i++)
+            mario |= frame.getSpriteKind(i) == Sprite.KIND_MARIO;
+        assertTrue(mario);
+        channel.release(frame);
+
+        // nobody takes the frames: all but the last are dropped
+        scene.tick();
+        scene.tick();
+        scene.tick();
+        assertEquals(2, channel.getDroppedFrames());
+        assertEquals(scene.tickCount, channel.poll().getTick());
+
+        // ReplayTask switches visualization off between the intervals it shows
+        GlobalOptions.isVisualization = false;
+        scene.tick();
+        assertNull(channel.poll());
+        GlobalOptions.isVisualization = true;
+        scene.setFrameChannel(null);
+        scene.tick();
+        assertNull(channel.poll());
+    } finally
+    {
+        GlobalOptions.isVisualization = visualization;
+    }
+}
+
+@Test
+public void testFramesAreReused()
+{
+    FrameChannel channel = new FrameChannel();
+    DrawSnapshot frame = channel.acquire();
+    frame.addSprite((byte) Sprite.KIND_MARIO, 0, 0, 0, 0);
+    channel.publish(frame);
+    assertSame(frame, channel.poll());
+    assertNull(channel.poll());
+    channel.release(frame);
+    DrawSnapshot again = channel.acquire();
+    assertSame(frame, again);
+    assertEquals(0, again.getSpriteCount());
+}
+
+@Test
+public void testPublishingNeverWaitsAndDrawingIsPaced() throws InterruptedException
+{
+    FrameChannel channel = new FrameChannel();
+    SlowDrawer drawer = new SlowDrawer(30);
+    RenderThread thread = new RenderThread(channel, drawer, 50);
+    thread.start();
+
+    // a simulation much faster than the display
+    final long start = System.currentTimeMillis();
+    int published = 0;
+    while (System.currentTimeMillis() - start < 500)
+    {
+        channel.publish(channel.acquire());
+        ++published;
+    }
+    thread.shutdown();
+
+    final long drawn = thread.getDrawnFrames();
+    assertTrue("drawn " + drawn, drawn >= 3);
+    assertTrue("drawn " + drawn, drawn <= 500 / 50 + 2);
+    assertEquals(drawn, drawer.frames);
+    // every frame was either drawn, dropped or is still waiting
+    final int waiting = channel.poll() != null ? 1 : 0;
+    assertEquals(published, drawn + channel.getDroppedFrames() + waiting);
+}
+
+@Test
+public void testShutdownDisposesOnTheRenderThread() throws InterruptedException
+{
+    FrameChannel channel = new FrameChannel();
+    SlowDrawer drawer = new SlowDrawer(0);
+    RenderThread thread = new RenderThread(channel, drawer, 0);
+    thread.start();
+    for (int i = 0; i < 100; i++)
+    {
+        channel.publish(channel.acquire());
+        Thread.sleep(1);
+    }
+    thread.shutdown();
+
+    assertFalse(thread.isAlive());
+    assertTrue(drawer.frames > 0);
+    assertEquals(1, drawer.disposals);
+    assertEquals(1, drawer.threads.size());
+    assertTrue(drawer.threads.contains(thread));
+    // publishing goes on without a consumer
+    channel.publish(channel.acquire());
+    channel.publish(channel.acquire());
+    assertNotNull(channel.poll());
+}
+
+private static class SlowDrawer implements RenderThread.Drawer
+{
+    private final int millis;
+    volatile int frames;
+    volatile int disposals;
+    final Set<Thread> threads = new HashSet<Thread>();
+
+    SlowDrawer(int millis)
+    {
+        this.millis = millis;
+    }
+
+    public void draw(DrawSnapshot frame)
+    {
+        synchronized (threads)
+        {
+            threads.add(Thread.currentThread());
+        }
+        try
+        {
+            Thread.sleep(millis);
+        } catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+        ++frames;
+    }
+
+    public void dispose()
+    {
+        synchronized (threads)
+        {
+            threads.add(Thread.currentThread());
+        }
+        ++disposals;
+    }
+}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package ch.idsia.unittests;
+
+import ch.idsia.benchmark.mario.engine.GlobalOptions;
+import ch.idsia.benchmark.mario.engine.SoftwareRenderer;
+import ch.idsia.benchmark.mario.environments.MarioEnvironment;
+import ch.idsia.benchmark.tasks.BasicTask;
+import ch.idsia.tools.MarioAIOptions;
+import ch.idsia.tools.ReplayExporter;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A recording of an agent that reads the evaluation info every tick replays in full, and a sink that
+ * fails ends the export instead of stalling it.
+ */
+public class ReplayExporterTest extends TestCase
+{
+private static final String RECORDING = "replay-exporter-test.zip"; // replay names cannot hold a path
+
+private int ticks;
+
+protected void setUp()
+{
+    BasicTask task = new BasicTask(new MarioAIOptions("-vis off -ls 1 -ld 0 -tl 30 -rec " + RECORDING
+            + " -ag ch.idsia.agents.controllers.ForwardJumpingAgent"));
+    task.runSingleEpisode(1);
+    ticks = MarioEnvironment.getInstance().getTick();
+}
+
+protected void tearDown()
+{
+    new File(RECORDING).delete();
+}
+
+@Test
+public void testRecordingReplaysEveryTick() throws IOException
+{
+    CountingSink sink = new CountingSink(-1);
+    int frames = new ReplayExporter(1, 2).export(RECORDING, renderer(), sink);
+    assertTrue(ticks > 1);
+    assertEquals(ticks, frames);
+    assertEquals(frames, sink.written);
+}
+
+@Test
+public void testFailingSinkEndsTheExport()
+{
+    CountingSink sink = new CountingSink(3);
+    try
+    {
+        new ReplayExporter(1, 2).export(RECORDING, renderer(), sink);
+        fail("the failure of the sink must be reported");
+    } catch (IOException expected)
+    {
+        assertEquals(3, sink.written);
+        assertTrue(sink.closed);
+    }
+}
+
+private static SoftwareRenderer renderer()
+{
+    return new SoftwareRenderer(GlobalOptions.VISUAL_COMPONENT_WIDTH, GlobalOptions.VISUAL_COMPONENT_HEIGHT);
+}
+
+private static class CountingSink implements ReplayExporter.FrameSink
+{
+    private final int failAt;
+    int written;
+    boolean closed;
+
+    CountingSink(int failAt)
+    {
+        this.failAt = failAt;
+    }
+
+    public byte[] encode(int[] rgb)
+    {
+        return new byte[1];
+    }
+
+    public void write(byte[] frame)
+    {
+        if (written == failAt)
+            throw new IllegalStateException("sink failed");
+        written++;
+    }
+
+    public void close()
+    {
+        closed = true;
+    }
+}
+}
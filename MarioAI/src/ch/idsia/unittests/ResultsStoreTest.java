@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.unittests;
+
+import ch.idsia.tools.EvaluationInfo;
+import ch.idsia.tools.ResultsReader;
+import ch.idsia.tools.ResultsWriter;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+/**
+ * Round trip of <code>ResultsWriter</code> and <code>ResultsReader</code>, appending and recovering from a
+ * torn last block.
+ */
+public class ResultsStoreTest extends TestCase
+{
+private static EvaluationInfo info(int i)
+{
+    EvaluationInfo info = new EvaluationInfo();
+    info.distancePassedPhys = i * 3;
+    info.distancePassedCells = i;
+    info.marioStatus = i % 2;
+    info.timeLeft = 200 - i % 200;
+    info.coinsGained = i % 7;
+    return info;
+}
+
+@Test
+public void testRoundTripAndAppend() throws Exception
+{
+    File file = File.createTempFile("results", ".bin");
+    file.deleteOnExit();
+    file.delete();
+    final int first = ResultsWriter.BLOCK_ROWS * 2 + 17;
+    ResultsWriter writer = new ResultsWriter(file);
+    for (int i = 0; i < first; i++)
+        writer.add(info(i), i % 3 == 0 ? "a" : "b", i, i % 5, 1);
+    writer.close();
+
+    writer = new ResultsWriter(file);
+    assertEquals(first, writer.getRows());
+    for (int i = first; i < first + 100; i++)
+        writer.add(info(i), "c", i, i % 5, 1);
+    writer.close();
+
+    ResultsReader reader = new ResultsReader(file);
+    assertEquals(first + 100, reader.getRows());
+    assertEquals(3, reader.getAgentCount());
+    int distance = reader.column("distancePassedPhys");
+    int seed = reader.column("seed");
+    int agent = reader.column("agent");
+    for (long row = 0; row < reader.getRows(); row += 97)
+    {
+        assertEquals(row * 3, reader.get(row, distance));
+        assertEquals(row, reader.get(row, seed));
+        String expected = row >= first ? "c" : row % 3 == 0 ? "a" : "b";
+        assertEquals(expected, reader.getAgent(reader.get(row, agent)));
+    }
+    assertEquals(info(5).computeWeightedFitness(), reader.get(5, reader.column("weightedFitness")));
+    assertEquals((double) first + 99, reader.summarize("distancePassedCells").max());
+    assertEquals(100, reader.summarize("seed", "agent", reader.getAgentId("c")).n());
+    reader.close();
+}
+
+@Test
+public void testTornBlockIsDropped() throws Exception
+{
+    File file = File.createTempFile("results", ".bin");
+    file.deleteOnExit();
+    file.delete();
+    ResultsWriter writer = new ResultsWriter(file);
+    for (int i = 0; i < 10; i++)
+        writer.add(info(i), "a", i, 0, 0);
+    writer.flush();
+    for (int i = 10; i < 20; i++)
+        writer.add(info(i), "a", i, 0, 0);
+    writer.close();
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    raf.setLength(raf.length() - 9);
+    raf.close();
+
+    ResultsReader reader = new ResultsReader(file);
+    assertEquals(10, reader.getRows());
+    reader.close();
+
+    writer = new ResultsWriter(file);
+    writer.add(info(42), "a", 42, 0, 0);
+    writer.close();
+    reader = new ResultsReader(file);
+    assertEquals(11, reader.getRows());
+    assertEquals(42, reader.get(10, reader.column("seed")));
+    reader.close();
+}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.unittests;
+
+import ch.idsia.utils.statistics.LatencyHistogram;
+import ch.idsia.utils.statistics.StreamingSummary;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Moments, quantiles and merging of <code>StreamingSummary</code>, and concurrent <code>LatencyHistogram</code>.
+ */
+public class StreamingSummaryTest extends TestCase
+{
+@Test
+public void testMergedHalvesEqualTheWhole() throws Exception
+{
+    Random random = new Random(5);
+    StreamingSummary whole = new StreamingSummary("whole");
+    StreamingSummary first = new StreamingSummary("first");
+    StreamingSummary second = new StreamingSummary("second");
+    double[] values = new double[20000];
+    for (int i = 0; i < values.length; i++)
+    {
+        // large offset: the naive sum of squares would lose the variance here
+        values[i] = 1e9 + random.nextInt(5000) - 1000;
+        whole.add(values[i]);
+        (i % 3 == 0 ? first : second).add(values[i]);
+    }
+    first.merge(second);
+
+    double mean = 0;
+    for (double v : values)
+        mean += v / values.length;
+    double variance = 0;
+    for (double v : values)
+        variance += (v - mean) * (v - mean) / (values.length - 1);
+
+    assertEquals(values.length, first.n());
+    assertEquals(mean, first.mean(), 1e-3);
+    assertEquals(variance, whole.variance(), variance * 1e-9);
+    assertEquals(variance, first.variance(), variance * 1e-9);
+    assertEquals(whole.min(), first.min());
+    assertEquals(whole.max(), first.max());
+    for (double q : new double[]{0, 0.1, 0.5, 0.9, 0.99, 1})
+        assertEquals(whole.quantile(q), first.quantile(q));
+}
+
+@Test
+public void testQuantilesAreWithinOnePercent() throws Exception
+{
+    Random random = new Random(7);
+    StreamingSummary summary = new StreamingSummary("distance");
+    int[] values = new int[10001];
+    for (int i = 0; i < values.length; i++)
+    {
+        values[i] = random.nextInt(100000) - 20000;
+        summary.add(values[i]);
+    }
+    Arrays.sort(values);
+    for (double q : new double[]{0.01, 0.25, 0.5, 0.75, 0.99})
+    {
+        double exact = values[(int) Math.ceil(q * values.length) - 1];
+        assertEquals(exact, summary.quantile(q), Math.abs(exact) * 0.01 + 0.5);
+    }
+
+    // small counts such as kills are kept exactly
+    StreamingSummary kills = new StreamingSummary("kills");
+    for (int i = 0; i < 100; i++)
+        kills.add(i % 10);
+    assertEquals(4.0, kills.quantile(0.5));
+    assertEquals(10, kills.count(3, 3));
+    assertEquals(20, kills.histogram(0, 10, 5)[1]);
+}
+
+@Test
+public void testLatencyHistogramCountsEveryThread() throws Exception
+{
+    final LatencyHistogram latency = new LatencyHistogram("tick");
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++)
+    {
+        threads[t] = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                for (int i = 1; i <= 100000; i++)
+                    latency.record(i * 10L);
+            }
+        });
+        threads[t].start();
+    }
+    for (Thread thread : threads)
+        thread.join();
+    assertEquals(400000, latency.n());
+    assertEquals(1000000L, latency.maxNanos());
+    assertEquals(500005.0, latency.meanNanos(), 1e-6);
+    assertEquals(500000.0, latency.quantileNanos(0.5), 5000.0);
+    assertEquals(990000.0, latency.quantileNanos(0.99), 9900.0);
+}
+}
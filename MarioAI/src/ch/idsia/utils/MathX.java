@@ -44,4 +44,20 @@ public static void show(char el)
     System.out.println("");
 }
 
+/**
+ * Rational (Lambert continued fraction) approximation of the hyperbolic tangent,
+ * saturated to +-1 outside [-4.97, 4.97]. Absolute error stays below 1e-4 and it is
+ * several times cheaper than <code>Math.tanh</code>.
+ */
+public static double tanhApprox(double x)
+{
+    if (x > 4.97)
+        return 1.0;
+    if (x < -4.97)
+        return -1.0;
+    final double x2 = x * x;
+    return x * (135135.0 + x2 * (17325.0 + x2 * (378.0 + x2))) /
+            (135135.0 + x2 * (62370.0 + x2 * (3150.0 + x2 * 28.0)));
+}
+
 }
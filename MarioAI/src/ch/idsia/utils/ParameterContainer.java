@@ -103,6 +103,12 @@ private static final String[] allowed = new String[]{
         "-s",    // path to the file where level will be saved
         "-rec",   // Recording <on|off>
         "-z", //enable Scale2X on startup
+        "-sc", // screen capture: downsampling factor of getScreenCapture, 0 -- off
+        "-cos", // cosmetic sprites (sparkles, brick particles, coin animations) <on|off>
+        "-prof", // tick profiler: seconds between log lines, 0 -- off
+        "-cb", // compute budget: CPU milliseconds per action, 0 -- none
+        "-ib", // compute budget: bytecode instructions per action (needs -punj on), 0 -- none
+        "-bv", // compute budget: actions over budget that are dropped before disqualification
         "-w", //wind
         "-ice", //ice
         "-ex", //exitX
@@ -284,6 +290,12 @@ public static void InitDefaults()
         defaultOptionsHashMap.put("-s", ""); //path to the file where level will be saved
         defaultOptionsHashMap.put("-rec", "off"); //path to the file where recorded game will be saved
         defaultOptionsHashMap.put("-z", "off"); //enable Scale2X on startup
+        defaultOptionsHashMap.put("-sc", "0"); //screen capture off
+        defaultOptionsHashMap.put("-cos", "on"); //cosmetic sprites are created
+        defaultOptionsHashMap.put("-prof", "0"); //tick profiler off
+        defaultOptionsHashMap.put("-cb", "0"); //no CPU time budget
+        defaultOptionsHashMap.put("-ib", "0"); //no instruction budget
+        defaultOptionsHashMap.put("-bv", "0"); //first action over budget disqualifies
         defaultOptionsHashMap.put("-w", "0"); //wind for Mario
         defaultOptionsHashMap.put("-ice", "0"); //wind for Mario
         defaultOptionsHashMap.put("-mer", "9"); //Mario Ego row
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.utils.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds that any number of threads may record into without locking.
+ * It uses the buckets of <code>StreamingSummary</code>, so quantiles are off by less than 1%, but keeps
+ * them in one preallocated <code>AtomicLongArray</code> that covers every positive <code>long</code>.
+ * Readers see a slightly moving picture while threads keep recording, which is fine for monitoring.
+ */
+public class LatencyHistogram
+{
+private static final int BUCKETS = StreamingSummary.bucket(Long.MAX_VALUE) + 1;
+
+public final String name;
+private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+private final AtomicLong n = new AtomicLong();
+private final AtomicLong total = new AtomicLong();
+private final AtomicLong max = new AtomicLong();
+
+public LatencyHistogram(String name)
+{
+    this.name = name;
+}
+
+public void record(long nanos)
+{
+    if (nanos < 0)
+        nanos = 0;
+    counts.incrementAndGet(StreamingSummary.bucket(nanos));
+    n.incrementAndGet();
+    total.addAndGet(nanos);
+    long m = max.get();
+    while (nanos > m && !max.compareAndSet(m, nanos))
+        m = max.get();
+}
+
+public long n()
+{
+    return n.get();
+}
+
+public long totalNanos()
+{
+    return total.get();
+}
+
+public double meanNanos()
+{
+    final long count = n.get();
+    return count == 0 ? Double.NaN : (double) total.get() / count;
+}
+
+public long maxNanos()
+{
+    return max.get();
+}
+
+/**
+ * The duration below which a fraction <code>q</code> of the recorded ones lie.
+ */
+public double quantileNanos(double q)
+{
+    long count = 0;
+    final long[] snapshot = new long[BUCKETS];
+    for (int b = 0; b < BUCKETS; b++)
+        count += snapshot[b] = counts.get(b);
+    if (count == 0)
+        return Double.NaN;
+    final long rank = Math.min(count - 1, Math.max(0, (long) Math.ceil(q * count) - 1));
+    long seen = 0;
+    for (int b = 0; b < BUCKETS; b++)
+        if ((seen += snapshot[b]) > rank)
+            return Math.min(StreamingSummary.middle(b), max.get());
+    return max.get();
+}
+
+public void reset()
+{
+    for (int b = 0; b < BUCKETS; b++)
+        counts.set(b, 0);
+    n.set(0);
+    total.set(0);
+    max.set(0);
+}
+}
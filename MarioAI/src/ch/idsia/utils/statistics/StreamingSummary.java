@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.utils.statistics;
+
+import java.util.Arrays;
+
+/**
+ * Summary of a stream of numbers that, unlike <code>StatisticalSummary</code>, also answers quantiles, and
+ * that can be merged: give every worker its own summary and <code>merge</code> them at the end.
+ * <p/>
+ * Mean and variance are kept with Welford's update (and Chan's rule when merging), which stays accurate
+ * where sum and sum of squares cancel. Quantiles come from a log-linear histogram in the manner of
+ * HdrHistogram: values are counted in units of <code>unit</code>; magnitudes below 128 units have a bucket
+ * each, larger ones share buckets 1/64 of their power of two wide, so a quantile is off by less than 1%.
+ * Adding a value allocates only when it falls outside the buckets used so far.
+ * <p/>
+ * All methods are synchronized, so a summary may also be shared, at the price of contention.
+ */
+public class StreamingSummary implements java.io.Serializable
+{
+private static final long serialVersionUID = 64849941713000305L;
+
+private static final int SUB_BITS = 7;
+private static final int SUB_COUNT = 1 << SUB_BITS;      // buckets with one value each
+private static final int HALF = SUB_COUNT / 2;           // buckets per power of two above that
+
+public final String name;
+private final double unit;
+
+private long n;
+private double mean;
+private double m2;
+private double min = Double.POSITIVE_INFINITY;
+private double max = Double.NEGATIVE_INFINITY;
+
+// counts of values >= 0 and of values < 0, by bucket of their magnitude
+private long[] positive = new long[SUB_COUNT];
+private long[] negative = new long[0];
+
+public StreamingSummary(String name)
+{
+    this(name, 1);
+}
+
+/**
+ * @param unit resolution of the histogram; values are rounded to multiples of it before being counted
+ */
+public StreamingSummary(String name, double unit)
+{
+    this.name = name;
+    this.unit = unit;
+}
+
+public synchronized void add(double x)
+{
+    n++;
+    final double delta = x - mean;
+    mean += delta / n;
+    m2 += delta * (x - mean);
+    if (x < min) min = x;
+    if (x > max) max = x;
+
+    final long v = Math.round(x / unit);
+    if (v >= 0)
+    {
+        final int b = bucket(v);
+        if (b >= positive.length)
+            positive = Arrays.copyOf(positive, b + HALF);
+        positive[b]++;
+    } else
+    {
+        final int b = bucket(v == Long.MIN_VALUE ? Long.MAX_VALUE : -v);
+        if (b >= negative.length)
+            negative = Arrays.copyOf(negative, b + HALF);
+        negative[b]++;
+    }
+}
+
+/**
+ * Adds everything <code>other</code> has seen to this summary; both must have the same unit.
+ */
+public void merge(StreamingSummary other)
+{
+    if (other == this)
+        throw new IllegalArgumentException("a summary cannot be merged into itself");
+    if (other.unit != unit)
+        throw new IllegalArgumentException("summaries with units " + unit + " and " + other.unit + " cannot be merged");
+    final long otherN;
+    final double otherMean, otherM2, otherMin, otherMax;
+    final long[] otherPositive, otherNegative;
+    synchronized (other) // copy first, so that the two locks are never held together
+    {
+        otherN = other.n;
+        otherMean = other.mean;
+        otherM2 = other.m2;
+        otherMin = other.min;
+        otherMax = other.max;
+        otherPositive = other.positive.clone();
+        otherNegative = other.negative.clone();
+    }
+    if (otherN == 0)
+        return;
+
+    synchronized (this)
+    {
+        final long total = n + otherN;
+        final double delta = otherMean - mean;
+        m2 += otherM2 + delta * delta * ((double) n * otherN / total);
+        mean += delta * otherN / total;
+        n = total;
+        min = Math.min(min, otherMin);
+        max = Math.max(max, otherMax);
+        positive = addCounts(positive, otherPositive);
+        negative = addCounts(negative, otherNegative);
+    }
+}
+
+public synchronized void reset()
+{
+    n = 0;
+    mean = 0;
+    m2 = 0;
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+    Arrays.fill(positive, 0);
+    Arrays.fill(negative, 0);
+}
+
+public synchronized long n()
+{
+    return n;
+}
+
+public synchronized double mean()
+{
+    return n == 0 ? Double.NaN : mean;
+}
+
+/**
+ * Sample variance.
+ */
+public synchronized double variance()
+{
+    return n < 2 ? 0 : m2 / (n - 1);
+}
+
+public double sd()
+{
+    return Math.sqrt(variance());
+}
+
+public synchronized double stdErr()
+{
+    return n == 0 ? Double.NaN : Math.sqrt(variance() / n);
+}
+
+public synchronized double min()
+{
+    return min;
+}
+
+public synchronized double max()
+{
+    return max;
+}
+
+/**
+ * The value below which a fraction <code>q</code> of the values lie, from the histogram.
+ */
+public synchronized double quantile(double q)
+{
+    if (n == 0)
+        return Double.NaN;
+    final long rank = Math.min(n - 1, Math.max(0, (long) Math.ceil(q * n) - 1));
+    long seen = 0;
+    for (int b = negative.length - 1; b >= 0; b--)
+        if ((seen += negative[b]) > rank)
+            return clamp(-middle(b) * unit);
+    for (int b = 0; b < positive.length; b++)
+        if ((seen += positive[b]) > rank)
+            return clamp(middle(b) * unit);
+    return max;
+}
+
+public double percentile(double p)
+{
+    return quantile(p / 100);
+}
+
+/**
+ * Number of values counted between <code>from</code> and <code>to</code>, both included, to the
+ * resolution of the buckets: a bucket is counted when its middle lies in the range.
+ */
+public synchronized long count(double from, double to)
+{
+    long count = 0;
+    for (int b = 0; b < negative.length; b++)
+    {
+        final double v = -middle(b) * unit;
+        if (v >= from && v <= to)
+            count += negative[b];
+    }
+    for (int b = 0; b < positive.length; b++)
+    {
+        final double v = middle(b) * unit;
+        if (v >= from && v <= to)
+            count += positive[b];
+    }
+    return count;
+}
+
+/**
+ * Counts in <code>bins</code> equal bins between <code>from</code> and <code>to</code>; values outside
+ * go to the first or the last bin.
+ */
+public synchronized long[] histogram(double from, double to, int bins)
+{
+    final long[] histogram = new long[bins];
+    final double width = (to - from) / bins;
+    for (int b = 0; b < negative.length; b++)
+        if (negative[b] > 0)
+            histogram[bin(-middle(b) * unit, from, width, bins)] += negative[b];
+    for (int b = 0; b < positive.length; b++)
+        if (positive[b] > 0)
+            histogram[bin(middle(b) * unit, from, width, bins)] += positive[b];
+    return histogram;
+}
+
+public synchronized String toString()
+{
+    String s = (name == null) ? "" : name + "\n";
+    s += " min = " + min() + "\n" +
+            " max = " + max() + "\n" +
+            " ave = " + mean() + "\n" +
+            " sd  = " + sd() + "\n" +
+            " p50 = " + quantile(0.5) + ", p90 = " + quantile(0.9) + ", p99 = " + quantile(0.99) + "\n" +
+            " n   = " + n;
+    return s;
+}
+
+private double clamp(double v)
+{
+    return Math.max(min, Math.min(max, v));
+}
+
+private static int bin(double v, double from, double width, int bins)
+{
+    return (int) Math.max(0, Math.min(bins - 1, Math.floor((v - from) / width)));
+}
+
+/**
+ * Bucket of a magnitude: the value itself below SUB_COUNT, then HALF buckets for every power of two.
+ */
+static int bucket(long v)
+{
+    if (v < SUB_COUNT)
+        return (int) v;
+    final int shift = 63 - Long.numberOfLeadingZeros(v) - (SUB_BITS - 1); // keep the top SUB_BITS bits
+    return SUB_COUNT + (shift - 1) * HALF + (int) (v >>> shift) - HALF;
+}
+
+/**
+ * Middle of the range of magnitudes a bucket holds.
+ */
+static double middle(int b)
+{
+    if (b < SUB_COUNT)
+        return b;
+    final int shift = (b - SUB_COUNT) / HALF + 1;
+    final long low = ((long) ((b - SUB_COUNT) % HALF + HALF)) << shift;
+    return low + ((1L << shift) - 1) / 2.0;
+}
+
+private static long[] addCounts(long[] to, long[] from)
+{
+    if (from.length > to.length)
+        to = Arrays.copyOf(to, from.length);
+    for (int i = 0; i < from.length; i++)
+        to[i] += from[i];
+    return to;
+}
+}
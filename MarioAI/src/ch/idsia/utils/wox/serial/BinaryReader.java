@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.utils.wox.serial;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Reads object graphs written by <code>BinaryWriter</code>. Fields are matched by declaring class and name;
+ * values of fields the current classes no longer have, or whose type changed, are skipped.
+ */
+public class BinaryReader
+{
+private final DataInputStream in;
+private final ArrayList<Object> handles = new ArrayList<Object>();
+private final ArrayList<Class<?>> classes = new ArrayList<Class<?>>();
+private final HashMap<Class<?>, int[]> fieldMaps = new HashMap<Class<?>, int[]>();  // stream field -> local field or -1
+private final HashMap<Class<?>, char[]> fieldCodes = new HashMap<Class<?>, char[]>();
+private byte[] bytes = new byte[1 << 12];
+
+public BinaryReader(InputStream in) throws IOException
+{
+    this.in = new DataInputStream(in);
+    final byte[] magic = new byte[BinaryWriter.MAGIC.length];
+    this.in.readFully(magic);
+    for (int i = 0; i < magic.length; i++)
+    {
+        if (magic[i] != BinaryWriter.MAGIC[i])
+            throw new IOException("not a binary wox stream");
+    }
+    final int version = this.in.readUnsignedByte();
+    if (version > BinaryWriter.VERSION)
+        throw new IOException("binary wox version " + version + " is newer than the supported " + BinaryWriter.VERSION);
+}
+
+public Object read() throws IOException
+{
+    final int tag = in.readUnsignedByte();
+    switch (tag)
+    {
+        case BinaryWriter.NULL:
+            return null;
+        case BinaryWriter.REFERENCE:
+            return handles.get(in.readInt());
+        case BinaryWriter.STRING:
+            return register(readString());
+        case BinaryWriter.CLASS:
+            return register(forName(readString()));
+        case BinaryWriter.BOXED:
+            return register(readBoxed((char) in.readUnsignedByte()));
+        case BinaryWriter.STRINGABLE:
+            return readStringable();
+        case BinaryWriter.PRIMITIVE_ARRAY:
+            return readPrimitiveArray();
+        case BinaryWriter.OBJECT_ARRAY:
+        {
+            final Class<?> component = readClass();
+            final Object[] array = (Object[]) Array.newInstance(component, in.readInt());
+            register(array);
+            for (int i = 0; i < array.length; i++)
+                array[i] = read();
+            return array;
+        }
+        case BinaryWriter.OBJECT:
+            return readObject();
+        default:
+            throw new IOException("corrupt binary wox stream: unknown tag " + tag);
+    }
+}
+
+private Object register(Object ob)
+{
+    handles.add(ob);
+    return ob;
+}
+
+private Object readStringable() throws IOException
+{
+    final Class<?> type = readClass();
+    final String text = readString();
+    try
+    {
+        Constructor<?> cons = type.getDeclaredConstructor(String.class);
+        cons.setAccessible(true);
+        return register(cons.newInstance(text));
+    } catch (Exception e)
+    {
+        throw new IOException("cannot rebuild " + type.getName() + " from \"" + text + "\"", e);
+    }
+}
+
+private Object readObject() throws IOException
+{
+    final Class<?> type = readClass();
+    final ClassLayout layout = ClassLayout.of(type);
+    if (!fieldMaps.containsKey(type))
+    {
+        final int count = in.readInt();
+        final int[] map = new int[count];
+        final char[] codes = new char[count];
+        for (int i = 0; i < count; i++)
+        {
+            final String declaringClass = readClass().getName();
+            final String name = readString();
+            codes[i] = (char) in.readUnsignedByte();
+            map[i] = layout.indexOf(declaringClass, name, codes[i]);
+        }
+        fieldMaps.put(type, map);
+        fieldCodes.put(type, codes);
+    }
+    final Object ob;
+    try
+    {
+        ob = layout.newInstance();
+    } catch (Exception e)
+    {
+        throw new IOException("cannot instantiate " + type.getName(), e);
+    }
+    register(ob);
+
+    final int[] map = fieldMaps.get(type);
+    final char[] codes = fieldCodes.get(type);
+    try
+    {
+        for (int i = 0; i < map.length; i++)
+        {
+            final int f = map[i];
+            switch (codes[i])
+            {
+                case 'I':
+                {
+                    final int value = in.readInt();
+                    if (f >= 0) layout.setters[f].invokeExact(ob, value);
+                    break;
+                }
+                case 'Z':
+                {
+                    final boolean value = in.readBoolean();
+                    if (f >= 0) layout.setters[f].invokeExact(ob, value);
+                    break;
+                }
+                case 'B':
+                {
+                    final byte value = in.readByte();
+                    if (f >= 0) layout.setters[f].invokeExact(ob, value);
+                    break;
+                }
+                case 'S':
+                {
+                    final short value = in.readShort();
+                    if (f >= 0) layout.setters[f].invokeExact(ob, value);
+                    break;
+                }
+                case 'J':
+                {
+                    final long value = in.readLong();
+                    if (f >= 0) layout.setters[f].invokeExact(ob, value);
+                    break;
+                }
+                case 'C':
+                {
+                    final char value = in.readChar();
+                    if (f >= 0) layout.setters[f].invokeExact(ob, value);
+                    break;
+                }
+                case 'F':
+                {
+                    final float value = in.readFloat();
+                    if (f >= 0) layout.setters[f].invokeExact(ob, value);
+                    break;
+                }
+                case 'D':
+                {
+                    final double value = in.readDouble();
+                    if (f >= 0) layout.setters[f].invokeExact(ob, value);
+                    break;
+                }
+                default:
+                {
+                    final Object value = read();
+                    if (f >= 0 && (value == null || layout.fields[f].getType().isInstance(value)))
+                        layout.setters[f].invokeExact(ob, value);
+                }
+            }
+        }
+    } catch (IOException e)
+    {
+        throw e;
+    } catch (Throwable t)
+    {
+        throw new IOException("cannot set the fields of " + type.getName(), t);
+    }
+    return ob;
+}
+
+private Object readPrimitiveArray() throws IOException
+{
+    final char code = (char) in.readUnsignedByte();
+    final int length = in.readInt();
+    final Class<?> component = ClassLayout.primitive(code);
+    if (component == null)
+        throw new IOException("corrupt binary wox stream: unknown array type " + code);
+    final Object array = Array.newInstance(component, length);
+    register(array);
+    if (code == 'B')
+    {
+        in.readFully((byte[]) array);
+        return array;
+    }
+    if (code == 'Z')
+    {
+        final boolean[] values = (boolean[]) array;
+        for (int i = 0; i < length; i++)
+            values[i] = in.readBoolean();
+        return array;
+    }
+    final int size = length * BinaryWriter.size(code);
+    if (bytes.length < size)
+        bytes = new byte[Math.max(size, bytes.length * 2)];
+    in.readFully(bytes, 0, size);
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+    switch (code)
+    {
+        case 'I':
+            buffer.asIntBuffer().get((int[]) array);
+            break;
+        case 'S':
+            buffer.asShortBuffer().get((short[]) array);
+            break;
+        case 'J':
+            buffer.asLongBuffer().get((long[]) array);
+            break;
+        case 'C':
+            buffer.asCharBuffer().get((char[]) array);
+            break;
+        case 'F':
+            buffer.asFloatBuffer().get((float[]) array);
+            break;
+        case 'D':
+            buffer.asDoubleBuffer().get((double[]) array);
+            break;
+    }
+    return array;
+}
+
+private Object readBoxed(char code) throws IOException
+{
+    switch (code)
+    {
+        case 'I':
+            return in.readInt();
+        case 'Z':
+            return in.readBoolean();
+        case 'B':
+            return in.readByte();
+        case 'S':
+            return in.readShort();
+        case 'J':
+            return in.readLong();
+        case 'C':
+            return in.readChar();
+        case 'F':
+            return in.readFloat();
+        case 'D':
+            return in.readDouble();
+        default:
+            throw new IOException("corrupt binary wox stream: unknown boxed type " + code);
+    }
+}
+
+private Class<?> readClass() throws IOException
+{
+    final int id = in.readInt();
+    if (id < classes.size())
+        return classes.get(id);
+    if (id != classes.size())
+        throw new IOException("corrupt binary wox stream: class id " + id);
+    final Class<?> type = forName(readString());
+    classes.add(type);
+    return type;
+}
+
+private static Class<?> forName(String name) throws IOException
+{
+    try
+    {
+        return Class.forName(name);
+    } catch (ClassNotFoundException e)
+    {
+        for (Class<?> primitive : Serial.primitives)
+        {
+            if (primitive.getName().equals(name))
+                return primitive;
+        }
+        throw new IOException("class " + name + " not found", e);
+    }
+}
+
+private String readString() throws IOException
+{
+    final byte[] data = new byte[in.readInt()];
+    in.readFully(data);
+    return new String(data, "UTF-8");
+}
+}
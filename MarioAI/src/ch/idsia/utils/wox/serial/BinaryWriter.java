@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.utils.wox.serial;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Writes an object graph in the binary WOX format, the compact counterpart of <code>SimpleWriter</code>.
+ * It stores the same fields, keeps shared and cyclic references, and writes primitive arrays in bulk.
+ * <p/>
+ * The stream starts with <code>MAGIC</code> and <code>VERSION</code>. Every class name is written once;
+ * the first time a class is written as an object, its field layout (declaring class, name and type of each
+ * field) follows, so a reader can match fields by name and skip the ones its classes no longer have.
+ */
+public class BinaryWriter
+{
+public static final byte[] MAGIC = {'W', 'O', 'X', 'B'};
+public static final int VERSION = 1;
+
+static final int NULL = 0;
+static final int REFERENCE = 1;
+static final int OBJECT = 2;
+static final int PRIMITIVE_ARRAY = 3;
+static final int OBJECT_ARRAY = 4;
+static final int BOXED = 5;
+static final int STRING = 6;
+static final int CLASS = 7;
+static final int STRINGABLE = 8; // any other Number, stored as its string form like in the XML format
+
+private final DataOutputStream out;
+private final IdentityHashMap<Object, Integer> handles = new IdentityHashMap<Object, Integer>();
+private final HashMap<Class<?>, Integer> classes = new HashMap<Class<?>, Integer>();
+private final HashMap<Class<?>, Boolean> described = new HashMap<Class<?>, Boolean>();
+private ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+
+public BinaryWriter(OutputStream out) throws IOException
+{
+    this.out = new DataOutputStream(out);
+    this.out.write(MAGIC);
+    this.out.writeByte(VERSION);
+}
+
+public void write(Object ob) throws IOException
+{
+    if (ob == null)
+    {
+        out.writeByte(NULL);
+        return;
+    }
+    final Integer handle = handles.get(ob);
+    if (handle != null)
+    {
+        out.writeByte(REFERENCE);
+        out.writeInt(handle);
+        return;
+    }
+    handles.put(ob, handles.size());
+
+    final Class<?> type = ob.getClass();
+    if (type == String.class)
+    {
+        out.writeByte(STRING);
+        writeString((String) ob);
+    } else if (type == Class.class)
+    {
+        out.writeByte(CLASS);
+        writeString(((Class<?>) ob).getName());
+    } else if (isBoxed(type))
+    {
+        out.writeByte(BOXED);
+        writeBoxed(ob);
+    } else if (Util.stringable(ob))
+    {
+        out.writeByte(STRINGABLE);
+        writeClass(type);
+        writeString(ob.toString());
+    } else if (type.isArray())
+    {
+        if (type.getComponentType().isPrimitive())
+            writePrimitiveArray(ob);
+        else
+        {
+            out.writeByte(OBJECT_ARRAY);
+            writeClass(type.getComponentType());
+            final Object[] array = (Object[]) ob;
+            out.writeInt(array.length);
+            for (Object element : array)
+                write(element);
+        }
+    } else
+    {
+        out.writeByte(OBJECT);
+        writeObject(ob, type);
+    }
+}
+
+public void flush() throws IOException
+{
+    out.flush();
+}
+
+private void writeObject(Object ob, Class<?> type) throws IOException
+{
+    final ClassLayout layout = ClassLayout.of(type);
+    writeClass(type);
+    if (described.put(type, Boolean.TRUE) == null)
+    {
+        out.writeInt(layout.fields.length);
+        for (int i = 0; i < layout.fields.length; i++)
+        {
+            writeClass(layout.fields[i].getDeclaringClass());
+            writeString(layout.fields[i].getName());
+            out.writeByte(layout.codes[i]);
+        }
+    }
+    try
+    {
+        for (int i = 0; i < layout.fields.length; i++)
+        {
+            switch (layout.codes[i])
+            {
+                case 'I':
+                    out.writeInt((int) layout.getters[i].invokeExact(ob));
+                    break;
+                case 'Z':
+                    out.writeBoolean((boolean) layout.getters[i].invokeExact(ob));
+                    break;
+                case 'B':
+                    out.writeByte((byte) layout.getters[i].invokeExact(ob));
+                    break;
+                case 'S':
+                    out.writeShort((short) layout.getters[i].invokeExact(ob));
+                    break;
+                case 'J':
+                    out.writeLong((long) layout.getters[i].invokeExact(ob));
+                    break;
+                case 'C':
+                    out.writeChar((char) layout.getters[i].invokeExact(ob));
+                    break;
+                case 'F':
+                    out.writeFloat((float) layout.getters[i].invokeExact(ob));
+                    break;
+                case 'D':
+                    out.writeDouble((double) layout.getters[i].invokeExact(ob));
+                    break;
+                default:
+                    write((Object) layout.getters[i].invokeExact(ob));
+            }
+        }
+    } catch (IOException e)
+    {
+        throw e;
+    } catch (Throwable t)
+    {
+        throw new IOException("cannot write " + type.getName(), t);
+    }
+}
+
+private void writePrimitiveArray(Object array) throws IOException
+{
+    final Class<?> component = array.getClass().getComponentType();
+    final char code = ClassLayout.code(component);
+    final int length = Array.getLength(array);
+    out.writeByte(PRIMITIVE_ARRAY);
+    out.writeByte(code);
+    out.writeInt(length);
+    if (code == 'B')
+    {
+        out.write((byte[]) array);
+        return;
+    }
+    if (code == 'Z')
+    {
+        for (boolean value : (boolean[]) array)
+            out.writeBoolean(value);
+        return;
+    }
+    final ByteBuffer bytes = buffer(length * size(code));
+    switch (code)
+    {
+        case 'I':
+            bytes.asIntBuffer().put((int[]) array);
+            break;
+        case 'S':
+            bytes.asShortBuffer().put((short[]) array);
+            break;
+        case 'J':
+            bytes.asLongBuffer().put((long[]) array);
+            break;
+        case 'C':
+            bytes.asCharBuffer().put((char[]) array);
+            break;
+        case 'F':
+            bytes.asFloatBuffer().put((float[]) array);
+            break;
+        case 'D':
+            bytes.asDoubleBuffer().put((double[]) array);
+            break;
+    }
+    out.write(bytes.array(), 0, length * size(code));
+}
+
+private ByteBuffer buffer(int size)
+{
+    if (buffer.capacity() < size)
+        buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+    buffer.clear();
+    return buffer;
+}
+
+static int size(char code)
+{
+    switch (code)
+    {
+        case 'S':
+        case 'C':
+            return 2;
+        case 'I':
+        case 'F':
+            return 4;
+        case 'J':
+        case 'D':
+            return 8;
+        default:
+            return 1;
+    }
+}
+
+private void writeBoxed(Object ob) throws IOException
+{
+    final char code = ClassLayout.code(unboxed(ob.getClass()));
+    out.writeByte(code);
+    switch (code)
+    {
+        case 'I':
+            out.writeInt((Integer) ob);
+            break;
+        case 'Z':
+            out.writeBoolean((Boolean) ob);
+            break;
+        case 'B':
+            out.writeByte((Byte) ob);
+            break;
+        case 'S':
+            out.writeShort((Short) ob);
+            break;
+        case 'J':
+            out.writeLong((Long) ob);
+            break;
+        case 'C':
+            out.writeChar((Character) ob);
+            break;
+        case 'F':
+            out.writeFloat((Float) ob);
+            break;
+        case 'D':
+            out.writeDouble((Double) ob);
+            break;
+    }
+}
+
+private static boolean isBoxed(Class<?> type)
+{
+    return unboxed(type) != null;
+}
+
+static Class<?> unboxed(Class<?> type)
+{
+    for (int i = 0; i < Serial.primitiveWrappers.length; i++)
+    {
+        if (Serial.primitiveWrappers[i] == type)
+            return Serial.primitives[i];
+    }
+    return null;
+}
+
+private void writeClass(Class<?> type) throws IOException
+{
+    final Integer id = classes.get(type);
+    if (id != null)
+    {
+        out.writeInt(id);
+        return;
+    }
+    classes.put(type, classes.size());
+    out.writeInt(classes.size() - 1);
+    writeString(type.getName());
+}
+
+private void writeString(String s) throws IOException
+{
+    final byte[] bytes = s.getBytes("UTF-8");
+    out.writeInt(bytes.length);
+    out.write(bytes);
+}
+}
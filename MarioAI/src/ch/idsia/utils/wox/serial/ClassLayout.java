@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2009-2010, Sergey Karakovskiy and Julian Togelius
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the Mario AI nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package ch.idsia.utils.wox.serial;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The fields <code>BinaryWriter</code> stores for a class, with method handles to get and set them.
+ * Built once per class and shared by all writers and readers; the field selection is the one of
+ * <code>SimpleWriter</code>: every non-final field, static ones included, of the class and its superclasses.
+ */
+final class ClassLayout
+{
+private static final ConcurrentHashMap<Class<?>, ClassLayout> layouts = new ConcurrentHashMap<Class<?>, ClassLayout>();
+
+final Class<?> type;
+final Field[] fields;
+final char[] codes;
+final MethodHandle[] getters; // (Object) -> field type, the argument is ignored for static fields
+final MethodHandle[] setters; // (Object, field type) -> void
+private Constructor<?> constructor;
+
+static ClassLayout of(Class<?> type)
+{
+    ClassLayout layout = layouts.get(type);
+    if (layout == null)
+    {
+        layout = new ClassLayout(type);
+        layouts.putIfAbsent(type, layout);
+    }
+    return layout;
+}
+
+private ClassLayout(Class<?> type)
+{
+    this.type = type;
+    ArrayList<Field> selected = new ArrayList<Field>();
+    for (Field field : SimpleWriter.getFields(type))
+    {
+        if (!Modifier.isFinal(field.getModifiers()))
+            selected.add(field);
+    }
+    fields = selected.toArray(new Field[selected.size()]);
+    codes = new char[fields.length];
+    getters = new MethodHandle[fields.length];
+    setters = new MethodHandle[fields.length];
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    for (int i = 0; i < fields.length; i++)
+    {
+        final Field field = fields[i];
+        field.setAccessible(true);
+        final Class<?> fieldType = field.getType().isPrimitive() ? field.getType() : Object.class;
+        codes[i] = code(field.getType());
+        try
+        {
+            MethodHandle getter = lookup.unreflectGetter(field);
+            MethodHandle setter = lookup.unreflectSetter(field);
+            if (Modifier.isStatic(field.getModifiers()))
+            {
+                getter = MethodHandles.dropArguments(getter, 0, Object.class);
+                setter = MethodHandles.dropArguments(setter, 0, Object.class);
+            }
+            getters[i] = getter.asType(MethodType.methodType(fieldType, Object.class));
+            setters[i] = setter.asType(MethodType.methodType(void.class, Object.class, fieldType));
+        } catch (IllegalAccessException e)
+        {
+            throw new IllegalStateException("cannot access " + field, e);
+        }
+    }
+}
+
+int indexOf(String declaringClass, String name, char code)
+{
+    for (int i = 0; i < fields.length; i++)
+    {
+        if (codes[i] == code && fields[i].getName().equals(name)
+                && fields[i].getDeclaringClass().getName().equals(declaringClass))
+            return i;
+    }
+    return -1;
+}
+
+Object newInstance() throws Exception
+{
+    if (constructor == null)
+        constructor = Util.forceDefaultConstructor(type);
+    return constructor.newInstance();
+}
+
+/**
+ * @return the JVM descriptor letter of a primitive type, 'L' for references
+ */
+static char code(Class<?> type)
+{
+    if (type == int.class) return 'I';
+    if (type == boolean.class) return 'Z';
+    if (type == byte.class) return 'B';
+    if (type == short.class) return 'S';
+    if (type == long.class) return 'J';
+    if (type == char.class) return 'C';
+    if (type == float.class) return 'F';
+    if (type == double.class) return 'D';
+    return 'L';
+}
+
+static Class<?> primitive(char code)
+{
+    switch (code)
+    {
+        case 'I': return int.class;
+        case 'Z': return boolean.class;
+        case 'B': return byte.class;
+        case 'S': return short.class;
+        case 'J': return long.class;
+        case 'C': return char.class;
+        case 'F': return float.class;
+        case 'D': return double.class;
+        default: return null;
+    }
+}
+}
@@ -32,8 +32,12 @@ import org.jdom.Element;
 import org.jdom.input.SAXBuilder;
 import org.jdom.output.XMLOutputter;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.io.InputStream;
 
 /**
@@ -62,12 +66,46 @@ public static void save(Object ob, String filename)
     }
 }
 
+/**
+ * Saves the object in the binary WOX format (see <code>BinaryWriter</code>), which <code>load</code> reads
+ * as well; use <code>save</code> for XML that other tools can read.
+ */
+public static void saveBinary(Object ob, String filename)
+{
+    try
+    {
+        BufferedOutputStream file = new BufferedOutputStream(new FileOutputStream(filename), 1 << 16);
+        BinaryWriter writer = new BinaryWriter(file);
+        writer.write(ob);
+        writer.flush();
+        file.close();
+        System.out.println("Saved object to " + filename);
+    } catch (Exception e)
+    {
+        e.printStackTrace();
+    }
+}
+
+/**
+ * Loads an object saved by either <code>save</code> or <code>saveBinary</code>, telling them apart by the
+ * leading bytes of the file.
+ */
 public static Object load(String filename)
 {
     try
     {
+        InputStream is = new BufferedInputStream(new FileInputStream(filename), 1 << 16);
+        if (isBinary(is))
+        {
+            try
+            {
+                return new BinaryReader(is).read();
+            } finally
+            {
+                is.close();
+            }
+        }
         SAXBuilder builder = new SAXBuilder();
-        InputStream is = new FileInputStream(filename);
         Document doc = builder.build(is);
         Element el = doc.getRootElement();
         ObjectReader reader = new SimpleReader();
@@ -78,4 +116,17 @@ public static Object load(String filename)
         return null;
     }
 }
+
+private static boolean isBinary(InputStream is) throws IOException
+{
+    is.mark(BinaryWriter.MAGIC.length);
+    boolean binary = true;
+    for (int i = 0; i < BinaryWriter.MAGIC.length; i++)
+    {
+        if (is.read() != BinaryWriter.MAGIC[i])
+            binary = false;
+    }
+    is.reset();
+    return binary;
+}
 }
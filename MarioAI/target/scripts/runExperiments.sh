@@ -1,14 +1,25 @@
 #!/bin/sh
 
+# Plays every native Java agent on every seed, difficulty and level type in one JVM,
+# on all cores. Results go to ${RESULTS}, a summary to ${RESULTS}.txt.
+# Run it again after an interruption: cells already in ${RESULTS} are skipped.
+# The ServerAgents and their clients are then evaluated as before, and their results
+# (iMario4 to iMario6) are gathered into the Matlab/LaTeX report.
+
 rm *.m
 # ./runServer.sh
 ATTEMPTS=5
 
-echo "MarioAI Benchmark: Starting Native Java Agents..."
-java -jar iMario.jar -m iMario1 -ag ForwardAgent -vlx 0 -vly 0 -an ${ATTEMPTS} -ld 5 -pw on -echo on -gv off -tc off -vis on -maxFPS on -ewf on -vaot on &
-java -jar iMario.jar -m iMario2 -ag ForwardJumpingAgent -vlx 330 -vly 0 -an ${ATTEMPTS} -ld 9 -pw on -echo on -gv off -tc off -vis on -maxFPS on -ewf on -vaot on &
-java -jar iMario.jar -m iMario3 -ag RandomAgent -vlx 660 -vly 0 -an ${ATTEMPTS} -ld 5 -pw on -echo on -gv off -tc off -vis on -maxFPS on -ewf on -vaot on &
+RESULTS=MarioAIResults.bin
+AGENTS=ch.idsia.agents.controllers.ForwardAgent,ch.idsia.agents.controllers.ForwardJumpingAgent,ch.idsia.agents.controllers.RandomAgent
+SEEDS=0-4
+DIFFICULTIES=0,5,9
+TYPES=0-2
 
+echo "MarioAI Benchmark: Running experiment matrix of the native Java agents..."
+java -cp iMario.jar ch.idsia.tools.ExperimentRunner ${RESULTS} -agents ${AGENTS} -seeds ${SEEDS} \
+    -difficulties ${DIFFICULTIES} -types ${TYPES} "$@"
+echo "MarioAI Benchmark: Summary saved to ${RESULTS}.txt"
 
 I=1
 LIM=3
@@ -0,0 +1,180 @@
+/**
+ * EligibilityTraces holds the traces of the state-action pairs visited
+ * recently, and only those: a trace that decays below the cutoff is dropped.
+ * Traces are replacing, and visiting a state clears the traces of its other
+ * actions (Singh and Sutton, 1996), so a state has at most one trace and they
+ * are keyed by state id. The ids are looked up in a primitive open addressing
+ * table; every operation costs time in the number of active traces, whatever
+ * the number of states seen.
+ */
+
+package UvA.agents;
+
+import java.util.Arrays;
+
+import UvA.states.StateActionPair;
+
+public class EligibilityTraces
+{
+	private static final int INITIAL_CAPACITY = 16;
+
+	// active traces, in the order they were first visited
+	private int[] stateIds = new int[INITIAL_CAPACITY];
+	private double[] traces = new double[INITIAL_CAPACITY];
+	private StateActionPair[] pairs = new StateActionPair[INITIAL_CAPACITY];
+	private int[] slots = new int[INITIAL_CAPACITY];	// where each is in the table
+	private int size;
+
+	// state id -> position of its trace; table length is a power of two at least twice size
+	private int[] tableIds = new int[2 * INITIAL_CAPACITY];
+	private int[] tablePositions = new int[2 * INITIAL_CAPACITY];
+
+	public EligibilityTraces()
+	{
+		Arrays.fill(tablePositions, -1);
+	}//end constructor
+
+	/**
+	 * Set the trace of a state-action pair to 1, in place of any trace the
+	 * state had.
+	 * @param stateId - id of the state of 'pair', not negative
+	 * @param pair - the q-value to update with this trace
+	 */
+	public void visit(int stateId, StateActionPair pair)
+	{
+		int slot = find(stateId);
+		if( tablePositions[slot] >= 0 )
+		{
+			int position = tablePositions[slot];
+			traces[position] = 1;
+			pairs[position] = pair;
+			return;
+		}
+		if( size == stateIds.length )
+		{
+			stateIds = Arrays.copyOf(stateIds, 2 * size);
+			traces = Arrays.copyOf(traces, 2 * size);
+			pairs = Arrays.copyOf(pairs, 2 * size);
+			slots = Arrays.copyOf(slots, 2 * size);
+		}
+		stateIds[size] = stateId;
+		traces[size] = 1;
+		pairs[size] = pair;
+		size++;
+		if( 2 * size > tableIds.length )
+			rebuildTable(2 * tableIds.length);
+		else
+			insert(stateId, size - 1);
+	}
+
+	/**
+	 * Multiply all traces with 'factor' and drop those that end up below 'cutoff'.
+	 */
+	public void decay(double factor, double cutoff)
+	{
+		int kept = 0;
+		for(int i=0; i<size; i++)
+		{
+			double trace = traces[i] * factor;
+			if( trace < cutoff )
+			{
+				tablePositions[slots[i]] = -1;
+				continue;
+			}
+			stateIds[kept] = stateIds[i];
+			traces[kept] = trace;
+			pairs[kept] = pairs[i];
+			slots[kept] = slots[i];
+			kept++;
+		}
+		if( kept == size )
+			return;
+		// positions moved and probe sequences were broken: index the kept traces again
+		for(int i=kept; i<size; i++)
+			pairs[i] = null;
+		size = kept;
+		clearTable();
+		for(int i=0; i<size; i++)
+			insert(stateIds[i], i);
+	}
+
+	/**
+	 * Drop all traces.
+	 */
+	public void clear()
+	{
+		clearTable();
+		for(int i=0; i<size; i++)
+			pairs[i] = null;
+		size = 0;
+	}
+
+	/**
+	 * @return number of active traces
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	public double getTrace(int i)
+	{
+		return traces[i];
+	}
+
+	public StateActionPair getPair(int i)
+	{
+		return pairs[i];
+	}
+
+	/**
+	 * @return trace of a state, 0 if it has none
+	 */
+	public double getStateTrace(int stateId)
+	{
+		int position = tablePositions[find(stateId)];
+		return position < 0 ? 0 : traces[position];
+	}
+
+	// slot of 'stateId', or the empty slot where it would go
+	private int find(int stateId)
+	{
+		int mask = tableIds.length - 1;
+		int slot = hash(stateId) & mask;
+		while( tablePositions[slot] >= 0 && tableIds[slot] != stateId )
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private void insert(int stateId, int position)
+	{
+		int slot = find(stateId);
+		tableIds[slot] = stateId;
+		tablePositions[slot] = position;
+		slots[position] = slot;
+	}
+
+	// only the slots of the active traces are in use, so clearing them costs no more than they do
+	private void clearTable()
+	{
+		for(int i=0; i<size; i++)
+			tablePositions[slots[i]] = -1;
+	}
+
+	private void rebuildTable(int length)
+	{
+		tableIds = new int[length];
+		tablePositions = new int[length];
+		Arrays.fill(tablePositions, -1);
+		for(int i=0; i<size; i++)
+			insert(stateIds[i], i);
+	}
+
+	private static int hash(int stateId)
+	{
+		// ids are handed out in sequence; spread them over the table
+		int h = stateId * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}//end class
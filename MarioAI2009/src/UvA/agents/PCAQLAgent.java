@@ -6,7 +6,9 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 
+import UvA.stateSpaceReduction.OnlinePCAMeans;
 import UvA.stateSpaceReduction.PCAMeans;
+import UvA.stateSpaceReduction.StateAbstraction;
 import UvA.states.PCAState;
 import UvA.states.State;
 import UvA.states.StateActionPair;
@@ -18,16 +20,22 @@ public class PCAQLAgent extends QLearnAgent
 	static private final String name = "PCAQLAgent";
 	protected final String stateType = "PCAState";
 
-	protected PCAMeans pcam;
+	protected StateAbstraction pcam;
 	private int numComponents;
 	private int clusterAmount;
 	private int iterations;
+	// learn the clusters while playing instead of loading them
+	private boolean onlineClustering;
+	private int batchSize;
+	private int refitInterval;
 	
 	/**
 	 * Create new PCAQLAgent. Q-values must be loaded with 
 	 * loadQValues/1 (located in QLearnAgent) or loadAndProjectQValues/1.
 	 * pcam must be loaded with loadPCAM/1. numComponents, clusterAmount and
 	 * iterations are set with setAllProperties/1.
+	 * With the property onlineClustering the agent needs no pcam: it creates an
+	 * OnlinePCAMeans and trains it on the states it sees while it learns.
 	 */
 	public PCAQLAgent()
 	{
@@ -97,10 +105,41 @@ public class PCAQLAgent extends QLearnAgent
 		return array;
 	}
 	
+	/**
+	 * Create an OnlinePCAMeans with the settings of this agent.
+	 */
+	public OnlinePCAMeans createOnlinePCAM()
+	{
+		return new OnlinePCAMeans(numComponents, clusterAmount, batchSize, refitInterval);
+	}
+	
+	public boolean isOnlineClustering()
+	{
+		return onlineClustering;
+	}
+	
 	@Override
 	public State createState(Environment environmentIn, State oldState)
 	{
-		return new PCAState(environmentIn, oldState, pcam);			
+		if( onlineClustering && pcam == null )
+			pcam = createOnlinePCAM();
+		State state = new PCAState(environmentIn, oldState, pcam);
+		if( pcam instanceof OnlinePCAMeans )
+			((OnlinePCAMeans) pcam).addSample(state.getRepresentation());
+		return state;
+	}
+	
+	@Override
+	protected int getStateIndex(State state)
+	{
+		return ((PCAState) state).getMeanIndex();
+	}
+	
+	@Override
+	protected void restoreState(State key, double[] representation, int index)
+	{
+		super.restoreState(key, representation, index);
+		((PCAState) key).setMeanIndex(index);
 	}
 	
 	/**
@@ -126,7 +165,7 @@ public class PCAQLAgent extends QLearnAgent
 	 */
 	public void loadPCAM(String path) {
 		try {
-			this.pcam = (PCAMeans) SLAPI.load(path);
+			this.pcam = (StateAbstraction) SLAPI.load(path);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -144,12 +183,12 @@ public class PCAQLAgent extends QLearnAgent
 		}
 	} // end loadQValues
 	
-	public void setPCAM(PCAMeans pcamIn)
+	public void setPCAM(StateAbstraction pcamIn)
 	{
 		this.pcam = pcamIn;
 	}
 	
-	public PCAMeans getPCAM()
+	public StateAbstraction getPCAM()
 	{
 		return pcam;
 	}
@@ -191,10 +230,19 @@ public class PCAQLAgent extends QLearnAgent
 		epsilon = Double.parseDouble(properties.getProperty("epsilon", "0.1"));
 		gamma = Double.parseDouble(properties.getProperty("gamma", "0.9"));
 		alpha = Double.parseDouble(properties.getProperty("alpha", "0.3"));
+		setReplayProperties(properties);
 		// set value PCAQLAgent
 		this.numComponents = Integer.parseInt(properties.getProperty("numComponents", "2"));
 		this.clusterAmount = Integer.parseInt(properties.getProperty("clusterAmount", "-1"));
 		this.iterations = Integer.parseInt(properties.getProperty("iterations", "10"));
+		this.onlineClustering = Boolean.parseBoolean(properties.getProperty("onlineClustering", "false"));
+		this.batchSize = Integer.parseInt(properties.getProperty("batchSize", "256"));
+		this.refitInterval = Integer.parseInt(properties.getProperty("refitInterval", "4096"));
+		// the batch PCAMeans reads clusterAmount -1 as one cluster per sample, which online clustering cannot do
+		if( onlineClustering && clusterAmount <= 0 )
+			throw new IllegalArgumentException("onlineClustering needs a positive clusterAmount, got " + clusterAmount);
+		if( onlineClustering && batchSize <= numComponents )
+			throw new IllegalArgumentException("onlineClustering needs a batchSize larger than numComponents");
 	}// end setAllProperties
 
 }//end class
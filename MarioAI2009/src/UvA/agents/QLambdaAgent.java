@@ -0,0 +1,144 @@
+package UvA.agents;
+
+import java.util.Properties;
+
+import ch.idsia.mario.environments.Environment;
+import UvA.states.*;
+
+/**
+ * Watkins' Q(lambda): Q learning in which every error also updates the
+ * state-action pairs visited before, in proportion to their eligibility
+ * trace, so reward travels back over many steps at once. Traces decay with
+ * gamma*lambda, are dropped below 'traceCutoff', and are all cut after an
+ * exploratory action, whose successors say nothing about the greedy policy.
+ * Only the active traces are updated, so a step costs the same however large
+ * the q-table is.
+ */
+public class QLambdaAgent extends QLearnAgent {
+
+	// agent specific values
+	static private final String name = "QLambdaAgent";
+
+	// settings for the traces
+	public static double lambda = 0.9; // decay of the traces besides gamma
+	public static double traceCutoff = 0.01; // traces below this are dropped
+
+	protected EligibilityTraces traces = new EligibilityTraces();
+	// state ids of the traces, handed out per episode
+	private final StateIds stateIds = new StateIds();
+
+	public QLambdaAgent() {
+		this(name);
+	} // end constructor
+
+	public QLambdaAgent(String name) {
+		super(name);
+	}
+
+	/**
+	 * getAction function is called by the engine to retrieve an action from mario
+	 */
+	@Override
+	public boolean[] getAction(Environment environment)
+	{
+		// take action a, observe r, s'
+		state = createState(environment, oldState);
+
+		//update reward values in screen
+		double reward = state.getReward();
+		rewardSoFar += reward;
+		currentReward = reward;
+
+		// choose a' from s' with eGreedy, then update with the traces
+		boolean[] nextAction = eGreedyAction();
+		updateQValues(reward, nextAction);
+
+		returnAction = nextAction;
+		oldState = state.clone();
+
+		return returnAction;
+	} // end getAction()
+
+	/**
+	 * Update the q-values of all pairs with a trace by the error of the
+	 * transition from oldState with returnAction to state.
+	 * @param reward - reward of the transition
+	 * @param nextAction - action chosen in state
+	 */
+	public void updateQValues(double reward, boolean[] nextAction)
+	{
+		// values of the next state, looked up with a single key
+		StateActionPair key = new StateActionPair(state, nextAction);
+		double nextQ = getStateActionValue(key);
+		double bestQ = nextQ;
+		for(boolean[] action: getValidActions())
+		{
+			System.arraycopy(action, 0, key.action, 0, action.length);
+			bestQ = Math.max(bestQ, getStateActionValue(key));
+		}
+
+		StateActionPair oldSap = new StateActionPair(oldState, returnAction);
+		double delta = reward + gamma*getTarget(nextQ, bestQ) - getStateActionValue(oldSap);
+		traces.visit(getStateId(oldSap.state), oldSap);
+
+		for(int i=0; i<traces.size(); i++)
+		{
+			StateActionPair sap = traces.getPair(i);
+			qValues.put(sap, getStateActionValue(sap) + alpha*delta*traces.getTrace(i));
+		}
+
+		if( cutsTraces() && nextQ < bestQ )
+			traces.clear();
+		else
+			traces.decay(gamma*lambda, traceCutoff);
+	}
+
+	/**
+	 * @param nextQ - value of the action chosen in the next state
+	 * @param bestQ - value of the best action in the next state
+	 * @return the value the next state is taken to have
+	 */
+	protected double getTarget(double nextQ, double bestQ)
+	{
+		return bestQ;
+	}
+
+	/**
+	 * @return whether the traces are cut after an exploratory action
+	 */
+	protected boolean cutsTraces()
+	{
+		return true;
+	}
+
+	/**
+	 * @return id of a state, the same for equal states during an episode
+	 */
+	protected int getStateId(State state)
+	{
+		return stateIds.get(state);
+	}
+
+	public EligibilityTraces getTraces()
+	{
+		return traces;
+	}
+
+	/**
+	 * Traces and state ids only last an episode
+	 */
+	@Override
+	public void reset(){
+		super.reset();
+		traces.clear();
+		stateIds.clear();
+	}// end reset
+
+	@Override
+	public void setAllProperties(Properties properties){
+		super.setAllProperties(properties);
+		lambda = Double.parseDouble(properties.getProperty("lambda", "0.9"));
+		traceCutoff = Double.parseDouble(properties.getProperty("traceCutoff", "0.01"));
+	}// end function setAllProperties
+
+} // end class
@@ -37,6 +37,23 @@ public class QLearnAgent extends BasicAIAgent implements Agent {
 	public static double gamma = 0.9; // gamma is penalty on delayed result
 	public static double alpha = 0.3; // learning rate
 	
+	// settings for experience replay, off if the capacity is 0
+	public static int replayCapacity = 0; // transitions remembered
+	public static int replayBatchSize = 32; // transitions per minibatch
+	public static int replayUpdates = 1; // minibatches per step
+	public static boolean replayPrioritized = false; // sample by td error instead of uniformly
+	public static double replayPriorityExponent = 0.6; // how much the td error counts
+	public static double replayImportanceExponent = 0.4; // how much to correct for prioritized sampling
+	
+	protected ReplayBuffer replayBuffer;
+	private final Random replayGenerator = new Random();
+	// replayed transitions are looked up with this key, which is overwritten for every lookup
+	private StateActionPair replayKey;
+	private double[] replayRepresentation;
+	private boolean[] replayAction;
+	private int[] replayTransitions;
+	private double[] replayWeights;
+	
 	// actions
 	final boolean[] JUMP = new boolean[Environment.numberOfButtons];
 	final boolean[] SPEED = new boolean[Environment.numberOfButtons];
@@ -157,7 +174,16 @@ public class QLearnAgent extends BasicAIAgent implements Agent {
 
 	public void updateQValue()
 	{
-		updateQValue(oldState, state);
+		// update according to reward of current state
+		double reward = state.getReward();
+		updateQValue(oldState, returnAction, reward, state);
+		
+		if( replayCapacity > 0 )
+		{
+			remember(oldState, returnAction, reward, state);
+			for(int i=0; i<replayUpdates; i++)
+				replay();
+		}
 	}
 	
 	/**
@@ -166,9 +192,11 @@ public class QLearnAgent extends BasicAIAgent implements Agent {
 	 */
 	public void updateQValue(State oldState, State state)
 	{
-		// update according to reward of current state
-		double reward = state.getReward();
-		
+		updateQValue(oldState, returnAction, state.getReward(), state);
+	}
+	
+	private void updateQValue(State oldState, boolean[] action, double reward, State state)
+	{
 		// get bets QValue for calculating updated qvalue
 		List<boolean[]> actions = getValidActions();
 
@@ -187,7 +215,7 @@ public class QLearnAgent extends BasicAIAgent implements Agent {
 		}
 
 		// create state action pair
-		StateActionPair oldSap = new StateActionPair(oldState, returnAction);
+		StateActionPair oldSap = new StateActionPair(oldState, action);
 		double oldQ = getStateActionValue(oldSap);
 
 		// calculate reward according to qLearn
@@ -197,6 +225,86 @@ public class QLearnAgent extends BasicAIAgent implements Agent {
 	}
 	
 	
+	/**
+	 * Store a transition in the replay buffer, which is created with the first one.
+	 */
+	public void remember(State oldState, boolean[] action, double reward, State state)
+	{
+		if( replayBuffer == null )
+		{
+			int length = state.getRepresentation().length;
+			replayBuffer = new ReplayBuffer(replayCapacity, length, replayPrioritized, replayPriorityExponent);
+			replayKey = new StateActionPair(state, action);
+			replayRepresentation = new double[length];
+			replayAction = new boolean[action.length];
+			replayTransitions = new int[replayBatchSize];
+			replayWeights = new double[replayBatchSize];
+		}
+		replayBuffer.add(oldState.getRepresentation(), getStateIndex(oldState), action, reward,
+				state.getRepresentation(), getStateIndex(state));
+	}
+	
+	/**
+	 * Update the qValues of a minibatch of remembered transitions. A prioritized
+	 * sample is corrected for by scaling the learning rate of each transition
+	 * with its importance sampling weight.
+	 */
+	public void replay()
+	{
+		if( replayBuffer == null )
+			return;
+		int sampled = replayBuffer.sample(replayTransitions, replayWeights, replayImportanceExponent, replayGenerator);
+		for(int i=0; i<sampled; i++)
+		{
+			int transition = replayTransitions[i];
+			
+			// best q value of the next state
+			replayBuffer.getNextState(transition, replayRepresentation);
+			restoreState(replayKey.state, replayRepresentation, replayBuffer.getNextStateIndex(transition));
+			double bestQValue = Double.NEGATIVE_INFINITY;
+			for(boolean[] action: getValidActions())
+			{
+				System.arraycopy(action, 0, replayKey.action, 0, action.length);
+				bestQValue = Math.max(bestQValue, getStateActionValue(replayKey));
+			}
+			
+			replayBuffer.getState(transition, replayRepresentation);
+			restoreState(replayKey.state, replayRepresentation, replayBuffer.getStateIndex(transition));
+			replayBuffer.getAction(transition, replayAction);
+			System.arraycopy(replayAction, 0, replayKey.action, 0, replayAction.length);
+			double oldQ = getStateActionValue(replayKey);
+			
+			double tdError = replayBuffer.getReward(transition) + gamma*bestQValue - oldQ;
+			qValues.put(new StateActionPair(replayKey), oldQ + alpha*replayWeights[i]*tdError);
+			replayBuffer.updatePriority(transition, tdError);
+		}
+	}
+	
+	/**
+	 * @return the index a state is stored with in the replay buffer next to its
+	 * representation, for states that are more than their representation
+	 */
+	protected int getStateIndex(State state)
+	{
+		return 0;
+	}
+	
+	/**
+	 * Overwrite 'key' with a state remembered in the replay buffer.
+	 * @param key - state of the kind this agent creates
+	 * @param representation - remembered representation
+	 * @param index - remembered index, see getStateIndex/1
+	 */
+	protected void restoreState(State key, double[] representation, int index)
+	{
+		((MarioState) key).setRepresentation(representation);
+	}
+	
+	public ReplayBuffer getReplayBuffer()
+	{
+		return replayBuffer;
+	}
+	
 	/**
 	 * This function returns the q value if present, else returns the initialValue
 	 * @param sap state action pair
@@ -361,8 +469,18 @@ public class QLearnAgent extends BasicAIAgent implements Agent {
 		epsilon = Double.parseDouble(properties.getProperty("epsilon", "0.1"));
 		gamma = Double.parseDouble(properties.getProperty("gamma", "0.9"));
 		alpha = Double.parseDouble(properties.getProperty("alpha", "0.3"));
+		setReplayProperties(properties);
 	}// end function setAllProperties
 	
+	protected void setReplayProperties(Properties properties){
+		replayCapacity = Integer.parseInt(properties.getProperty("replayCapacity", "0"));
+		replayBatchSize = Integer.parseInt(properties.getProperty("replayBatchSize", "32"));
+		replayUpdates = Integer.parseInt(properties.getProperty("replayUpdates", "1"));
+		replayPrioritized = Boolean.parseBoolean(properties.getProperty("replayPrioritized", "false"));
+		replayPriorityExponent = Double.parseDouble(properties.getProperty("replayPriorityExponent", "0.6"));
+		replayImportanceExponent = Double.parseDouble(properties.getProperty("replayImportanceExponent", "0.4"));
+	}// end function setReplayProperties
+	
 	public int getViewDim()
 	{
 		MarioState mState = (MarioState) state;
@@ -0,0 +1,297 @@
+/**
+ * ReplayBuffer remembers the last 'capacity' transitions (s, a, r, s') of an
+ * agent so that they can be learned from again. The transitions are packed
+ * into direct ByteBuffers, outside the heap: a state representation is stored
+ * as one byte per element, which holds every observation code, with the
+ * cluster index of the state next to it. Millions of transitions therefore
+ * cost no garbage collection and no heap.
+ *
+ * Transitions are sampled uniformly, or in proportion to their priority as in
+ * prioritized experience replay (Schaul et al., 2016): the priorities are kept
+ * in a sum tree, also off the heap, and new transitions get the highest
+ * priority seen so far, so that each is replayed at least once soon.
+ */
+
+package UvA.agents;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+public class ReplayBuffer
+{
+	// a single direct buffer holds at most this many bytes
+	private static final int SEGMENT_BYTES = 1 << 30;
+	// keeps transitions with a zero error from never being sampled again
+	private static final double MIN_PRIORITY = 1e-6;
+
+	private final int capacity;
+	private final int representationLength;
+
+	// record layout: state, next state, state index, next state index, reward, action
+	private final int recordSize;
+	private final int nextStateOffset;
+	private final int indexOffset;
+	private final int nextIndexOffset;
+	private final int rewardOffset;
+	private final int actionOffset;
+
+	private final ByteBuffer[] segments;
+	private final int recordsPerSegment;
+
+	private int size;	// number of transitions stored
+	private int next;	// where the next transition goes; the oldest is overwritten
+
+	private final boolean prioritized;
+	private final double priorityExponent;
+	private DoubleBuffer sumTree;	// node i has children 2i and 2i+1, leaf of transition t is capacity+t
+	private double maxPriority = 1;
+
+	/**
+	 * @param capacity - number of transitions kept
+	 * @param representationLength - length of the state representations
+	 * @param prioritized - sample by priority instead of uniformly
+	 * @param priorityExponent - how much the priority counts, 0 is uniform
+	 */
+	public ReplayBuffer(int capacity, int representationLength, boolean prioritized, double priorityExponent)
+	{
+		if( capacity <= 0 )
+			throw new IllegalArgumentException("A replay buffer needs a positive capacity");
+		this.capacity = capacity;
+		this.representationLength = representationLength;
+		this.prioritized = prioritized;
+		this.priorityExponent = priorityExponent;
+
+		nextStateOffset = representationLength;
+		indexOffset = 2 * representationLength;
+		nextIndexOffset = indexOffset + 4;
+		rewardOffset = nextIndexOffset + 4;
+		actionOffset = rewardOffset + 8;
+		recordSize = actionOffset + 1;
+
+		recordsPerSegment = Math.min(capacity, SEGMENT_BYTES / recordSize);
+		if( recordsPerSegment == 0 )
+			throw new IllegalArgumentException("State representation too long to store");
+		segments = new ByteBuffer[(capacity + recordsPerSegment - 1) / recordsPerSegment];
+		for(int i=0; i<segments.length; i++)
+		{
+			int records = Math.min(recordsPerSegment, capacity - i * recordsPerSegment);
+			segments[i] = ByteBuffer.allocateDirect(records * recordSize).order(ByteOrder.nativeOrder());
+		}
+		if( prioritized )
+		{
+			if( capacity > Integer.MAX_VALUE / 16 )
+				throw new IllegalArgumentException("Capacity too large for prioritized replay");
+			sumTree = ByteBuffer.allocateDirect(2 * capacity * 8).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		}
+	}//end constructor
+
+	public int size()
+	{
+		return size;
+	}
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	public boolean isPrioritized()
+	{
+		return prioritized;
+	}
+
+	/**
+	 * Store a transition, in place of the oldest one when the buffer is full.
+	 * @param state - representation of s
+	 * @param stateIndex - cluster index of s, if the agent uses one
+	 * @param action - buttons pressed in s
+	 * @param reward - reward received for the action
+	 * @param nextState - representation of s'
+	 * @param nextStateIndex - cluster index of s'
+	 */
+	public void add(double[] state, int stateIndex, boolean[] action, double reward,
+			double[] nextState, int nextStateIndex)
+	{
+		ByteBuffer segment = segment(next);
+		int offset = offset(next);
+		putRepresentation(segment, offset, state);
+		putRepresentation(segment, offset + nextStateOffset, nextState);
+		segment.putInt(offset + indexOffset, stateIndex);
+		segment.putInt(offset + nextIndexOffset, nextStateIndex);
+		segment.putDouble(offset + rewardOffset, reward);
+		segment.put(offset + actionOffset, packAction(action));
+		if( prioritized )
+			setLeaf(next, maxPriority);
+
+		next = (next + 1) % capacity;
+		if( size < capacity )
+			size++;
+	}
+
+	/**
+	 * Sample transitions, with replacement.
+	 * @param transitions - receives the transitions, as many as it is long
+	 * @param weights - receives the importance sampling weight of each, which
+	 * corrects for the non-uniform sampling and is 1 for uniform sampling;
+	 * the largest weight of the sample is 1
+	 * @param importanceExponent - how much to correct, 1 is fully
+	 * @return number of transitions sampled, 0 if the buffer is empty
+	 */
+	public int sample(int[] transitions, double[] weights, double importanceExponent, Random random)
+	{
+		if( size == 0 )
+			return 0;
+		if( !prioritized )
+		{
+			for(int i=0; i<transitions.length; i++)
+			{
+				transitions[i] = random.nextInt(size);
+				weights[i] = 1;
+			}
+			return transitions.length;
+		}
+		double total = sumTree.get(1);
+		double maxWeight = 0;
+		for(int i=0; i<transitions.length; i++)
+		{
+			int t = find(random.nextDouble() * total);
+			transitions[i] = t;
+			// (size * P(t))^-beta
+			weights[i] = Math.pow(size * sumTree.get(capacity + t) / total, -importanceExponent);
+			maxWeight = Math.max(maxWeight, weights[i]);
+		}
+		for(int i=0; i<transitions.length; i++)
+			weights[i] /= maxWeight;
+		return transitions.length;
+	}
+
+	/**
+	 * Set the priority of a transition from the error of its last update.
+	 * Does nothing for uniform sampling.
+	 */
+	public void updatePriority(int transition, double tdError)
+	{
+		if( !prioritized )
+			return;
+		double priority = Math.pow(Math.abs(tdError) + MIN_PRIORITY, priorityExponent);
+		maxPriority = Math.max(maxPriority, priority);
+		setLeaf(transition, priority);
+	}
+
+	/**
+	 * @param representation - receives the representation of s
+	 */
+	public void getState(int transition, double[] representation)
+	{
+		getRepresentation(segment(transition), offset(transition), representation);
+	}
+
+	/**
+	 * @param representation - receives the representation of s'
+	 */
+	public void getNextState(int transition, double[] representation)
+	{
+		getRepresentation(segment(transition), offset(transition) + nextStateOffset, representation);
+	}
+
+	public int getStateIndex(int transition)
+	{
+		return segment(transition).getInt(offset(transition) + indexOffset);
+	}
+
+	public int getNextStateIndex(int transition)
+	{
+		return segment(transition).getInt(offset(transition) + nextIndexOffset);
+	}
+
+	public double getReward(int transition)
+	{
+		return segment(transition).getDouble(offset(transition) + rewardOffset);
+	}
+
+	/**
+	 * @param action - receives the buttons pressed
+	 */
+	public void getAction(int transition, boolean[] action)
+	{
+		int packed = segment(transition).get(offset(transition) + actionOffset);
+		for(int i=0; i<action.length; i++)
+			action[i] = (packed & (1 << i)) != 0;
+	}
+
+	private ByteBuffer segment(int transition)
+	{
+		return segments[transition / recordsPerSegment];
+	}
+
+	private int offset(int transition)
+	{
+		return (transition % recordsPerSegment) * recordSize;
+	}
+
+	private void putRepresentation(ByteBuffer segment, int offset, double[] representation)
+	{
+		if( representation.length != representationLength )
+			throw new IllegalArgumentException("Unexpected representation length");
+		for(int i=0; i<representationLength; i++)
+		{
+			double value = representation[i];
+			if( value != (byte) value )
+				throw new IllegalArgumentException("Representation element " + value + " does not fit in a byte");
+			segment.put(offset + i, (byte) value);
+		}
+	}
+
+	private void getRepresentation(ByteBuffer segment, int offset, double[] representation)
+	{
+		for(int i=0; i<representationLength; i++)
+			representation[i] = segment.get(offset + i);
+	}
+
+	private static byte packAction(boolean[] action)
+	{
+		if( action.length > 8 )
+			throw new IllegalArgumentException("More buttons than fit in a byte");
+		int packed = 0;
+		for(int i=0; i<action.length; i++)
+		{
+			if( action[i] )
+				packed |= 1 << i;
+		}
+		return (byte) packed;
+	}
+
+	private void setLeaf(int transition, double priority)
+	{
+		int node = capacity + transition;
+		double change = priority - sumTree.get(node);
+		for( ; node >= 1; node >>= 1)
+			sumTree.put(node, sumTree.get(node) + change);
+	}
+
+	/**
+	 * @return transition whose leaf covers 'mass' when the leaves are laid end to end
+	 */
+	private int find(double mass)
+	{
+		int node = 1;
+		while( node < capacity )
+		{
+			double left = sumTree.get(2 * node);
+			if( mass < left )
+			{
+				node = 2 * node;
+			}else
+			{
+				mass -= left;
+				node = 2 * node + 1;
+			}
+		}
+		// rounding can lead past the stored transitions, into an empty leaf
+		int transition = node - capacity;
+		return transition < size ? transition : size - 1;
+	}
+
+}//end class
@@ -0,0 +1,29 @@
+package UvA.agents;
+
+/**
+ * SARSA(lambda): the traces of QLambdaAgent with the on-policy target, the
+ * value of the action actually chosen next. The traces are never cut, they
+ * only decay.
+ */
+public class SarsaLambdaAgent extends QLambdaAgent {
+
+	// agent specific values
+	static private final String name = "SarsaLambdaAgent";
+
+	public SarsaLambdaAgent() {
+		super(name);
+	} // end constructor
+
+	@Override
+	protected double getTarget(double nextQ, double bestQ)
+	{
+		return nextQ;
+	}
+
+	@Override
+	protected boolean cutsTraces()
+	{
+		return false;
+	}
+
+} // end class
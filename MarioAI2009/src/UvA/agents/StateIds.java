@@ -0,0 +1,89 @@
+/**
+ * StateIds hands out ids to states: equal states get the same id, new states
+ * the next one, counting from 0. The states are kept in an open addressing
+ * table with the ids in a parallel int array, so looking an id up neither
+ * allocates nor boxes.
+ */
+
+package UvA.agents;
+
+import java.util.Arrays;
+
+import UvA.states.State;
+
+public class StateIds
+{
+	private static final int INITIAL_CAPACITY = 16;
+
+	// table length is a power of two at least twice size
+	private State[] states = new State[2 * INITIAL_CAPACITY];
+	private int[] ids = new int[2 * INITIAL_CAPACITY];
+	private int size;
+
+	/**
+	 * @param state - state to look up; kept if it is new, so it must not change afterwards
+	 * @return id of 'state'
+	 */
+	public int get(State state)
+	{
+		int slot = find(state);
+		if( states[slot] != null )
+			return ids[slot];
+		states[slot] = state;
+		ids[slot] = size;
+		size++;
+		if( 2 * size > states.length )
+			rebuildTable(2 * states.length);
+		return size - 1;
+	}
+
+	/**
+	 * @return number of ids handed out
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Forget all states; ids start from 0 again.
+	 */
+	public void clear()
+	{
+		Arrays.fill(states, null);
+		size = 0;
+	}
+
+	// slot of 'state', or the empty slot where it would go
+	private int find(State state)
+	{
+		int mask = states.length - 1;
+		int slot = hash(state.hashCode()) & mask;
+		while( states[slot] != null && !states[slot].equals(state) )
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private void rebuildTable(int length)
+	{
+		State[] oldStates = states;
+		int[] oldIds = ids;
+		states = new State[length];
+		ids = new int[length];
+		for(int i=0; i<oldStates.length; i++)
+		{
+			if( oldStates[i] == null )
+				continue;
+			int slot = find(oldStates[i]);
+			states[slot] = oldStates[i];
+			ids[slot] = oldIds[i];
+		}
+	}
+
+	private static int hash(int hashCode)
+	{
+		int h = hashCode * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}//end class
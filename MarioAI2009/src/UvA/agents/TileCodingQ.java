@@ -0,0 +1,221 @@
+/**
+ * TileCodingQ approximates Q(s,a) linearly with hashed tile coding, in a
+ * float[] of weights whose size is fixed when it is created, however many
+ * states are seen. Similar states share most of their features, so what is
+ * learned in one state carries over to the others.
+ *
+ * A state is coded from the merged observation around Mario and Mario's own
+ * position and speed. Each of the tilings cuts the observation into square
+ * patches, shifted by a different offset, and one feature is active per
+ * patch: a hash of its contents and its place relative to Mario. Each tiling
+ * also has one feature for Mario's position within his cell, his speed and
+ * mode, in intervals that are offset the same way. The hashes are folded
+ * into the weight vector, where the weights of all actions of a feature lie
+ * next to each other, so a state's values and updates run over one
+ * contiguous block per feature.
+ */
+
+package UvA.agents;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import ch.idsia.mario.engine.sprites.Sprite;
+import ch.idsia.mario.environments.Environment;
+
+public class TileCodingQ implements Serializable
+{
+	private static final long serialVersionUID = -2931875087352710346L;
+
+	// widths of the intervals Mario's position in his cell and his speed are coded in
+	private static final float POSITION_WIDTH = 4;
+	private static final float SPEED_WIDTH = 2;
+
+	private final int numActions;
+	private final int window;	// observation cells from Mario coded, in each direction
+	private final int patchSize;
+	private final int numTilings;
+	private final int featureMask;
+	private final int patchesPerRow;
+	private final int numActive;	// features active in every state
+	private final float[] weights;	// weight of feature f and action a at f*numActions + a
+
+	/**
+	 * @param numActions - number of actions
+	 * @param featureBits - the weights hold 2^featureBits features for every action
+	 * @param window - observation cells coded in each direction from Mario, at most 10
+	 * @param patchSize - width and height of the patches in cells
+	 * @param numTilings - number of tilings; up to patchSize^2 of them each have other offsets
+	 * @param initialValue - the value of every state-action pair to begin with
+	 */
+	public TileCodingQ(int numActions, int featureBits, int window, int patchSize, int numTilings, double initialValue)
+	{
+		if( window < 0 || window >= Environment.HalfObsWidth )
+			throw new IllegalArgumentException("Window reaches outside the observation");
+		if( featureBits < 1 || featureBits > 30 || ((long) numActions << featureBits) > Integer.MAX_VALUE )
+			throw new IllegalArgumentException("Too many weights");
+		if( patchSize < 1 || numTilings < 1 )
+			throw new IllegalArgumentException("Need at least one tiling of patches of at least one cell");
+		this.numActions = numActions;
+		this.window = window;
+		this.patchSize = patchSize;
+		this.numTilings = numTilings;
+		this.featureMask = (1 << featureBits) - 1;
+		// patches shifted by up to patchSize-1 cells still have to cover the window
+		this.patchesPerRow = (2 * window + 1 + 2 * patchSize - 2) / patchSize;
+		this.numActive = numTilings * (patchesPerRow * patchesPerRow + 1);
+		this.weights = new float[numActions << featureBits];
+		Arrays.fill(weights, (float) (initialValue / numActive));
+	}//end constructor
+
+	/**
+	 * @return number of features active in a state, the length of a coded state
+	 */
+	public int getNumActive()
+	{
+		return numActive;
+	}
+
+	public int getNumActions()
+	{
+		return numActions;
+	}
+
+	/**
+	 * Code a state as the indices of its active features.
+	 * @param scene - merged observation, with Mario in the middle
+	 * @param x, y - Mario's position in pixels
+	 * @param xa, ya - Mario's speed in pixels per tick
+	 * @param marioMode - 0 small, 1 large, 2 fire
+	 * @param features - receives the getNumActive() feature indices
+	 * @return features
+	 */
+	public int[] encode(byte[][] scene, float x, float y, float xa, float ya, int marioMode, int[] features)
+	{
+		int n = 0;
+		int size = 2 * window + 1;
+		for(int t=0; t<numTilings; t++)
+		{
+			// the first patchSize^2 tilings all have other offsets
+			int offsetX = t % patchSize;
+			int offsetY = (t / patchSize) % patchSize;
+			for(int py=0; py<patchesPerRow; py++)
+			{
+				for(int px=0; px<patchesPerRow; px++)
+				{
+					int h = mix(t * 0x01000193 + py * 0x9E3779B9 + px);
+					for(int cy=0; cy<patchSize; cy++)
+					{
+						int gy = py * patchSize + cy - offsetY;
+						for(int cx=0; cx<patchSize; cx++)
+						{
+							int gx = px * patchSize + cx - offsetX;
+							int code = 0;	// outside the window
+							if( gx >= 0 && gx < size && gy >= 0 && gy < size )
+								code = simplify(scene[Environment.HalfObsHeight - window + gy][Environment.HalfObsWidth - window + gx]);
+							h = h * 31 + code;
+						}
+					}
+					features[n++] = mix(h) & featureMask;
+				}
+			}
+			// Mario himself, in intervals offset by a fraction of their width per tiling
+			float shift = (float) t / numTilings;
+			int h = mix(~t);
+			h = h * 31 + (int) Math.floor(((x % 16 + 16) % 16) / POSITION_WIDTH + shift);
+			h = h * 31 + (int) Math.floor(((y % 16 + 16) % 16) / POSITION_WIDTH + shift);
+			h = h * 31 + (int) Math.floor(xa / SPEED_WIDTH + shift);
+			h = h * 31 + (int) Math.floor(ya / SPEED_WIDTH + shift);
+			h = h * 31 + marioMode;
+			features[n++] = mix(h) & featureMask;
+		}
+		return features;
+	}
+
+	/**
+	 * Get the values of all actions of a state in one pass over its features.
+	 * @param features - the coded state
+	 * @param values - receives the value of every action
+	 * @return values
+	 */
+	public double[] getValues(int[] features, double[] values)
+	{
+		for(int a=0; a<numActions; a++)
+			values[a] = 0;
+		for(int i=0; i<numActive; i++)
+		{
+			int base = features[i] * numActions;
+			for(int a=0; a<numActions; a++)
+				values[a] += weights[base + a];
+		}
+		return values;
+	}
+
+	public double getValue(int[] features, int action)
+	{
+		double sum = 0;
+		for(int i=0; i<numActive; i++)
+			sum += weights[features[i] * numActions + action];
+		return sum;
+	}
+
+	/**
+	 * Move the value of a state-action pair by 'stepSize' times 'error'. The
+	 * step is divided over the active features.
+	 */
+	public void update(int[] features, int action, double error, double stepSize)
+	{
+		float change = (float) (stepSize * error / numActive);
+		for(int i=0; i<numActive; i++)
+			weights[features[i] * numActions + action] += change;
+	}
+
+	/**
+	 * Update a batch of state-action pairs, e.g. from as many environments,
+	 * whose errors were all computed with the same weights.
+	 * @param features - coded states
+	 * @param actions - action of each state
+	 * @param errors - error of each pair
+	 * @param count - number of pairs in the batch
+	 */
+	public void update(int[][] features, int[] actions, double[] errors, int count, double stepSize)
+	{
+		for(int b=0; b<count; b++)
+			update(features[b], actions[b], errors[b], stepSize);
+	}
+
+	/**
+	 * Observation codes as MarioState simplifies them: coins and Mario's own
+	 * fireballs are left out, and kinds that act alike are merged.
+	 */
+	private static int simplify(int code)
+	{
+		switch( code )
+		{
+		case 34:	// coin
+		case 25:	// fireball from mario
+			return 0;
+		case -11:	// half border
+		case 20:	// flower pot/cannon
+			return -10;
+		case Sprite.KIND_FIRE_FLOWER:
+			return Sprite.KIND_MUSHROOM;
+		case 21:	// nice brick
+			return 16;
+		default:
+			return code;
+		}
+	}
+
+	// finalizer of MurmurHash3
+	private static int mix(int h)
+	{
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+}//end class
@@ -0,0 +1,176 @@
+package UvA.agents;
+
+import java.util.Properties;
+import java.util.Random;
+
+import ch.idsia.mario.environments.Environment;
+
+/**
+ * Q learning with the values approximated by TileCodingQ instead of kept in a
+ * table per MarioState. The MarioState is still made every step, for the
+ * reward, but the q-values come from the tile coding of the observation, so
+ * memory stays the same however long the agent learns and states never seen
+ * before get the values of the states they look like.
+ */
+public class TileCodingQAgent extends QLearnAgent {
+
+	// agent specific values
+	static private final String name = "TileCodingQAgent";
+
+	// settings for the tile coding
+	public static int featureBits = 18; // 2^featureBits features per action
+	public static int tileWindow = 5; // cells coded in each direction from mario
+	public static int patchSize = 3; // width of the patches of a tiling
+	public static int numTilings = 9;
+
+	protected TileCodingQ qFunction;
+	private final Random generator = new Random();
+
+	// coded previous and current state, swapped every step
+	private int[] oldFeatures;
+	private int[] features;
+	private double[] values;
+	private int oldActionIndex = -1; // -1 until an action was taken this episode
+	private float lastX;
+	private float lastY;
+
+	public TileCodingQAgent() {
+		this(name);
+	} // end constructor
+
+	public TileCodingQAgent(String name) {
+		super(name);
+		createQFunction();
+	}
+
+	/**
+	 * Replace the approximator by a new one, with the current settings.
+	 */
+	public void createQFunction() {
+		setQFunction(new TileCodingQ(allActions.size(), featureBits, tileWindow, patchSize, numTilings, initialValue));
+	}
+
+	public void setQFunction(TileCodingQ qFunctionIn) {
+		this.qFunction = qFunctionIn;
+		oldFeatures = new int[qFunction.getNumActive()];
+		features = new int[qFunction.getNumActive()];
+		values = new double[qFunction.getNumActions()];
+		oldActionIndex = -1;
+	}
+
+	public TileCodingQ getQFunction() {
+		return qFunction;
+	}
+
+	/**
+	 * getAction function is called by the engine to retrieve an action from mario
+	 */
+	@Override
+	public boolean[] getAction(Environment environment)
+	{
+		state = createState(environment, oldState);
+
+		//update reward values in screen
+		double reward = state.getReward();
+		rewardSoFar += reward;
+		currentReward = reward;
+
+		float[] pos = environment.getMarioFloatPos();
+		if( oldActionIndex < 0 )
+		{
+			lastX = pos[0];
+			lastY = pos[1];
+		}
+		qFunction.encode(environment.getMergedObservationZ(1, 1), pos[0], pos[1],
+				pos[0] - lastX, pos[1] - lastY, environment.getMarioMode(), features);
+		lastX = pos[0];
+		lastY = pos[1];
+		qFunction.getValues(features, values);
+
+		// q learning update of the previous state and action
+		int best = 0;
+		for(int a=1; a<values.length; a++)
+		{
+			if( values[a] > values[best] )
+				best = a;
+		}
+		if( oldActionIndex >= 0 )
+		{
+			double error = reward + gamma*values[best] - qFunction.getValue(oldFeatures, oldActionIndex);
+			qFunction.update(oldFeatures, oldActionIndex, error, alpha);
+			// the update may have moved the values of this state too
+			qFunction.getValues(features, values);
+			best = 0;
+			for(int a=1; a<values.length; a++)
+			{
+				if( values[a] > values[best] )
+					best = a;
+			}
+		}
+
+		// e-greedy, a random action is never the greedy one
+		int actionIndex = best;
+		if( generator.nextDouble() < epsilon )
+		{
+			actionIndex = generator.nextInt(values.length - 1);
+			if( actionIndex >= best )
+				actionIndex++;
+		}
+
+		int[] swap = oldFeatures;
+		oldFeatures = features;
+		features = swap;
+		oldActionIndex = actionIndex;
+		returnAction = allActions.get(actionIndex);
+		oldState = state.clone();
+
+		return returnAction;
+	} // end getAction()
+
+	/**
+	 * Load the approximator according to path, in place of q-values
+	 * @param path is the path where the approximator is stored
+	 */
+	@Override
+	public void loadQValues(String path) {
+		try {
+			setQFunction((TileCodingQ) SLAPI.load(path));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	} // end loadQValues
+
+	/**
+	 * Save the approximator according to path, in place of q-values
+	 * @param path is the path where the approximator is to be saved
+	 */
+	@Override
+	public void writeQValues(String path) {
+		try {
+			SLAPI.save(qFunction, path);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	} // end writeQValues
+
+	@Override
+	public void resetQValues() {
+		createQFunction();
+	}
+
+	@Override
+	public void reset(){
+		super.reset();
+		oldActionIndex = -1;
+	}// end reset
+
+	@Override
+	public void setAllProperties(Properties properties){
+		super.setAllProperties(properties);
+		featureBits = Integer.parseInt(properties.getProperty("featureBits", "18"));
+		tileWindow = Integer.parseInt(properties.getProperty("tileWindow", "5"));
+		patchSize = Integer.parseInt(properties.getProperty("patchSize", "3"));
+		numTilings = Integer.parseInt(properties.getProperty("numTilings", "9"));
+	}// end function setAllProperties
+
+} // end class
@@ -0,0 +1,260 @@
+/**
+ * <p>
+ * IncrementalPCA is the streaming counterpart of {@link PrincipleComponentAnalysis}. Instead of
+ * keeping every sample for one SVD it keeps the running mean and scatter matrix of the samples,
+ * so memory does not grow with their number. Samples are added in batches whenever they arrive,
+ * and the basis is the most dominant eigenvectors of the scatter matrix, which span the same
+ * subspace as the right singular vectors of the centered data.
+ * </p>
+ *
+ * <p>
+ * A batch is summarized in parallel: it is split over the threads of the fork/join pool, each
+ * part computes its own mean and scatter, and the parts are merged with the pairwise update of
+ * Chan, Golub and LeVeque.
+ * </p>
+ */
+
+package UvA.stateSpaceReduction;
+
+import java.io.Serializable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.DecompositionFactory;
+import org.ejml.factory.EigenDecomposition;
+
+public class IncrementalPCA implements Serializable
+{
+    private static final long serialVersionUID = -3460941125370953818L;
+
+    // batches smaller than this are summarized by a single thread
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final int sampleSize;
+
+    // running moments of all samples added
+    private long count;
+    private final double[] mean;
+    private final double[] scatter;    // upper triangle of the sample size x sample size scatter matrix, row major
+
+    // principle component subspace in the rows, and the mean it is centered on
+    private int numComponents = -1;
+    private double[] basis;
+    private double[] basisMean;
+
+    /**
+     * @param sampleSize Number of elements in each sample.
+     */
+    public IncrementalPCA( int sampleSize ) {
+        this.sampleSize = sampleSize;
+        this.mean = new double[ sampleSize ];
+        this.scatter = new double[ sampleSize * sampleSize ];
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public int getNumComponents() {
+        return numComponents;
+    }
+
+    /**
+     * @return Number of samples added so far.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Adds the first 'length' rows of 'samples' to the running moments. The basis does not change
+     * until computeBasis is called again.
+     *
+     * @param samples Samples from original raw data.
+     * @param length Number of rows to add.
+     */
+    public void addSamples( double[][] samples, int length ) {
+        if( length == 0 )
+            return;
+        for( int i = 0; i < length; i++ ) {
+            if( samples[i].length != sampleSize )
+                throw new IllegalArgumentException("Unexpected sample size");
+        }
+        Moments batch = ForkJoinPool.commonPool().invoke(new Moments(samples, 0, length));
+        merge(batch);
+    }
+
+    public void addSamples( double[][] samples ) {
+        addSamples(samples, samples.length);
+    }
+
+    private void merge( Moments batch ) {
+        count = merge(count, mean, scatter, batch.count, batch.mean, batch.scatter);
+    }
+
+    /**
+     * Merges the moments of a second set of samples into those of a first.
+     * @return Number of samples in both sets.
+     */
+    private static long merge( long count, double[] mean, double[] scatter,
+                               long otherCount, double[] otherMean, double[] otherScatter ) {
+        int size = mean.length;
+        long total = count + otherCount;
+        double weight = (double) count * otherCount / total;
+        for( int i = 0; i < size; i++ ) {
+            double di = otherMean[i] - mean[i];
+            for( int j = i; j < size; j++ )
+                scatter[i*size + j] += otherScatter[i*size + j] + di*(otherMean[j] - mean[j])*weight;
+        }
+        for( int i = 0; i < size; i++ )
+            mean[i] += (otherMean[i] - mean[i]) * otherCount / total;
+        return total;
+    }
+
+    /**
+     * Computes a basis (the principle components) from the most dominant eigenvectors of the
+     * scatter matrix of all samples added so far.
+     *
+     * @param numComponents Number of vectors it will use to describe the data.
+     */
+    public void computeBasis( int numComponents ) {
+        if( numComponents > sampleSize )
+            throw new IllegalArgumentException("More components requested that the data's length.");
+        if( numComponents > count )
+            throw new IllegalArgumentException("More data needed to compute the desired number of components");
+
+        DenseMatrix64F S = new DenseMatrix64F(sampleSize, sampleSize);
+        for( int i = 0; i < sampleSize; i++ ) {
+            for( int j = i; j < sampleSize; j++ ) {
+                S.set(i, j, scatter[i*sampleSize + j]);
+                S.set(j, i, scatter[i*sampleSize + j]);
+            }
+        }
+        EigenDecomposition<DenseMatrix64F> eig = DecompositionFactory.eig(sampleSize, true, true);
+        if( !eig.decompose(S) )
+            throw new RuntimeException("Eigen decomposition failed");
+
+        // eigenvalues are in an arbitrary order, take the largest ones
+        int n = eig.getNumberOfEigenvalues();
+        boolean[] taken = new boolean[n];
+        double[] newBasis = new double[numComponents * sampleSize];
+        for( int c = 0; c < numComponents; c++ ) {
+            int largest = -1;
+            for( int k = 0; k < n; k++ ) {
+                if( !taken[k] && (largest < 0 || eig.getEigenvalue(k).getReal() > eig.getEigenvalue(largest).getReal()) )
+                    largest = k;
+            }
+            taken[largest] = true;
+            DenseMatrix64F v = eig.getEigenVector(largest);
+            double norm = 0;
+            for( int j = 0; j < sampleSize; j++ )
+                norm += v.get(j)*v.get(j);
+            norm = Math.sqrt(norm);
+            for( int j = 0; j < sampleSize; j++ )
+                newBasis[c*sampleSize + j] = v.get(j) / norm;
+        }
+        this.basis = newBasis;
+        this.basisMean = mean.clone();
+        this.numComponents = numComponents;
+    }
+
+    public boolean hasBasis() {
+        return basis != null;
+    }
+
+    /**
+     * Converts a vector from sample space into eigen space without allocating.
+     *
+     * @param sampleData Sample space data.
+     * @param projection Array of length numComponents that receives the eigen space projection.
+     * @return projection
+     */
+    public double[] sampleToEigenSpace( double[] sampleData, double[] projection ) {
+        if( sampleData.length != sampleSize )
+            throw new IllegalArgumentException("Unexpected sample length");
+        for( int i = 0, index = 0; i < numComponents; i++ ) {
+            double total = 0;
+            for( int j = 0; j < sampleSize; j++ ) {
+                total += basis[index++] * (sampleData[j] - basisMean[j]);
+            }
+            projection[i] = total;
+        }
+        return projection;
+    }
+
+    /**
+     * Converts a vector from eigen space into sample space.
+     *
+     * @param eigenData Eigen space data.
+     * @return Sample space projection.
+     */
+    public double[] eigenToSampleSpace( double[] eigenData ) {
+        if( eigenData.length != numComponents )
+            throw new IllegalArgumentException("Unexpected sample length");
+        double[] sample = basisMean.clone();
+        for( int i = 0; i < numComponents; i++ ) {
+            for( int j = 0; j < sampleSize; j++ ) {
+                sample[j] += basis[i*sampleSize + j] * eigenData[i];
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Count, mean and scatter of rows [lo, hi) of a batch.
+     */
+    private static class Moments extends RecursiveTask<Moments>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final double[][] samples;
+        private final int lo;
+        private final int hi;
+        private long count;
+        private double[] mean;
+        private double[] scatter;
+
+        Moments( double[][] samples, int lo, int hi ) {
+            this.samples = samples;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Moments compute() {
+            if( hi - lo > PARALLEL_THRESHOLD ) {
+                int mid = (lo + hi) >>> 1;
+                Moments leftTask = new Moments(samples, lo, mid);
+                leftTask.fork();
+                Moments right = new Moments(samples, mid, hi).compute();
+                Moments left = leftTask.join();
+                left.count = merge(left.count, left.mean, left.scatter, right.count, right.mean, right.scatter);
+                return left;
+            }
+            int size = samples[lo].length;
+            count = hi - lo;
+            mean = new double[size];
+            scatter = new double[size * size];
+            for( int r = lo; r < hi; r++ ) {
+                for( int j = 0; j < size; j++ )
+                    mean[j] += samples[r][j];
+            }
+            for( int j = 0; j < size; j++ )
+                mean[j] /= count;
+            double[] centered = new double[size];
+            for( int r = lo; r < hi; r++ ) {
+                for( int j = 0; j < size; j++ )
+                    centered[j] = samples[r][j] - mean[j];
+                for( int i = 0; i < size; i++ ) {
+                    double ci = centered[i];
+                    if( ci == 0 )
+                        continue;
+                    for( int j = i; j < size; j++ )
+                        scatter[i*size + j] += ci*centered[j];
+                }
+            }
+            return this;
+        }
+    }
+}
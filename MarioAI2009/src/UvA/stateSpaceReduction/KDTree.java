@@ -0,0 +1,179 @@
+/**
+ * KDTree finds the nearest of a fixed set of points, e.g. the cluster means
+ * of PCAMeans, without comparing the query against all of them.
+ */
+
+package UvA.stateSpaceReduction;
+
+public class KDTree
+{
+	private final int dimensions;
+	private final double[] points;	// point i is at points[i*dimensions .. (i+1)*dimensions)
+	private final int[] order;		// the subtree of [lo, hi) has its root at order[(lo+hi)/2]
+	private final int[] splitDimension;	// indexed like order
+
+	// state of the current search, so that it does not allocate
+	private double[] query;
+	private int bestIndex;
+	private double bestDistance;
+
+	/**
+	 * Build the tree.
+	 * @param points - n points with the same number of dimensions
+	 */
+	public KDTree(double[][] points)
+	{
+		this.dimensions = points.length == 0 ? 0 : points[0].length;
+		this.points = new double[points.length * dimensions];
+		this.order = new int[points.length];
+		this.splitDimension = new int[points.length];
+		for(int i=0; i<points.length; i++)
+		{
+			if( points[i].length != dimensions )
+				throw new IllegalArgumentException("Points differ in dimensions");
+			System.arraycopy(points[i], 0, this.points, i*dimensions, dimensions);
+			order[i] = i;
+		}
+		build(0, points.length);
+	}//end constructor
+
+	public int size()
+	{
+		return order.length;
+	}
+
+	/**
+	 * Find the point nearest to 'query' in euclidean distance. Of points at the
+	 * same distance the one added first is returned.
+	 * @param query - vector with as many dimensions as the points
+	 * @return index of the nearest point, -1 if there are none
+	 */
+	public int nearest(double[] query)
+	{
+		if( query.length != dimensions )
+			throw new IllegalArgumentException("Unexpected query length");
+		this.query = query;
+		this.bestIndex = -1;
+		this.bestDistance = Double.POSITIVE_INFINITY;
+		search(0, order.length);
+		this.query = null;
+		return bestIndex;
+	}
+
+	private void search(int lo, int hi)
+	{
+		if( lo >= hi )
+			return;
+		int mid = (lo + hi) >>> 1;
+		int point = order[mid];
+		double distance = squaredDistance(point);
+		if( distance < bestDistance || (distance == bestDistance && point < bestIndex) )
+		{
+			bestDistance = distance;
+			bestIndex = point;
+		}
+		int dimension = splitDimension[mid];
+		double difference = query[dimension] - points[point*dimensions + dimension];
+		// the side of the query first; the other side only if it can hold a point as near
+		if( difference < 0 )
+		{
+			search(lo, mid);
+			if( difference*difference <= bestDistance )
+				search(mid + 1, hi);
+		}else
+		{
+			search(mid + 1, hi);
+			if( difference*difference <= bestDistance )
+				search(lo, mid);
+		}
+	}
+
+	private double squaredDistance(int point)
+	{
+		double sum = 0;
+		int offset = point*dimensions;
+		for(int i=0; i<dimensions; i++)
+		{
+			double d = query[i] - points[offset + i];
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	/**
+	 * Put the median along the dimension of largest spread at the middle of
+	 * [lo, hi), the points below it before and the others after.
+	 */
+	private void build(int lo, int hi)
+	{
+		if( hi - lo <= 0 )
+			return;
+		int mid = (lo + hi) >>> 1;
+		int dimension = widestDimension(lo, hi);
+		select(lo, hi - 1, mid, dimension);
+		splitDimension[mid] = dimension;
+		build(lo, mid);
+		build(mid + 1, hi);
+	}
+
+	private int widestDimension(int lo, int hi)
+	{
+		int widest = 0;
+		double widestSpread = -1;
+		for(int d=0; d<dimensions; d++)
+		{
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for(int i=lo; i<hi; i++)
+			{
+				double value = points[order[i]*dimensions + d];
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+			if( max - min > widestSpread )
+			{
+				widestSpread = max - min;
+				widest = d;
+			}
+		}
+		return widest;
+	}
+
+	// quickselect on order[left..right] so that order[k] holds the k-th smallest value
+	private void select(int left, int right, int k, int dimension)
+	{
+		while( right > left )
+		{
+			double pivot = value(order[(left + right) >>> 1], dimension);
+			int i = left;
+			int j = right;
+			while( i <= j )
+			{
+				while( value(order[i], dimension) < pivot )
+					i++;
+				while( value(order[j], dimension) > pivot )
+					j--;
+				if( i <= j )
+				{
+					int swap = order[i];
+					order[i] = order[j];
+					order[j] = swap;
+					i++;
+					j--;
+				}
+			}
+			if( k <= j )
+				right = j;
+			else if( k >= i )
+				left = i;
+			else
+				return;
+		}
+	}
+
+	private double value(int point, int dimension)
+	{
+		return points[point*dimensions + dimension];
+	}
+
+}//end class
@@ -0,0 +1,197 @@
+/**
+ * MiniBatchKMeans clusters a stream of vectors with the mini-batch k-means of
+ * Sculley (2010). Only the means and the number of vectors each has absorbed
+ * are kept: every batch is assigned to the nearest means, in parallel, and
+ * each mean then moves towards its vectors with a step of 1/count. A mean
+ * keeps its index while it moves, so indices handed out earlier stay valid.
+ */
+
+package UvA.stateSpaceReduction;
+
+import java.io.Serializable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class MiniBatchKMeans implements Serializable
+{
+	private static final long serialVersionUID = 6263120949722061386L;
+
+	// batches smaller than this are assigned by a single thread
+	private static final int PARALLEL_THRESHOLD = 32;
+
+	private final int clusterAmount;
+	private final int dimensions;
+	private final double[] means;	// mean i is at means[i*dimensions .. (i+1)*dimensions)
+	private final long[] counts;
+	private int size;	// number of means seeded so far
+
+	private transient KDTree meanIndex;	// rebuilt after the means moved
+	private transient int[] assignment;
+
+	/**
+	 * @param clusterAmount - amount of clusters
+	 * @param dimensions - length of the vectors
+	 */
+	public MiniBatchKMeans(int clusterAmount, int dimensions)
+	{
+		if( clusterAmount <= 0 )
+			throw new IllegalArgumentException("Need at least one cluster");
+		this.clusterAmount = clusterAmount;
+		this.dimensions = dimensions;
+		this.means = new double[clusterAmount * dimensions];
+		this.counts = new long[clusterAmount];
+	}//end constructor
+
+	/**
+	 * @return number of means, less than the amount of clusters until that
+	 * many different vectors were seen
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	public int getDimensions()
+	{
+		return dimensions;
+	}
+
+	public double[] getMean(int index)
+	{
+		double[] mean = new double[dimensions];
+		System.arraycopy(means, index*dimensions, mean, 0, dimensions);
+		return mean;
+	}
+
+	/**
+	 * Replace a mean, e.g. after the space the vectors live in has changed.
+	 * Its count is kept.
+	 */
+	public void setMean(int index, double[] mean)
+	{
+		System.arraycopy(mean, 0, means, index*dimensions, dimensions);
+		meanIndex = null;
+	}
+
+	/**
+	 * Update the means with the first 'length' vectors of 'batch'. As long as
+	 * there are fewer means than clusters, vectors that differ from all means
+	 * become new means.
+	 * @param batch - vectors
+	 * @param length - number of vectors to use
+	 */
+	public void update(double[][] batch, int length)
+	{
+		int first = 0;
+		while( size < clusterAmount && first < length )
+		{
+			double[] vector = batch[first++];
+			if( size == 0 || squaredDistance(vector, nearestLinear(vector, 0, size)) > 0 )
+			{
+				System.arraycopy(vector, 0, means, size*dimensions, dimensions);
+				counts[size++] = 1;
+			}
+		}
+		if( first == length )
+		{
+			meanIndex = null;
+			return;
+		}
+
+		// assign against the means as they were before this batch
+		if( assignment == null || assignment.length < length )
+			assignment = new int[Math.max(length, 2*(assignment == null ? 0 : assignment.length))];
+		ForkJoinPool.commonPool().invoke(new Assign(batch, first, length));
+
+		for(int i=first; i<length; i++)
+		{
+			int mean = assignment[i];
+			long count = ++counts[mean];
+			double eta = 1.0 / count;
+			int offset = mean*dimensions;
+			for(int d=0; d<dimensions; d++)
+				means[offset + d] += eta * (batch[i][d] - means[offset + d]);
+		}
+		meanIndex = null;
+	}
+
+	/**
+	 * @param vector - vector with as many dimensions as the means
+	 * @return index of the nearest mean, the first of equally near ones; -1 if
+	 * there are no means yet. Does not allocate while the means do not change.
+	 */
+	public int nearest(double[] vector)
+	{
+		if( size == 0 )
+			return -1;
+		if( meanIndex == null )
+		{
+			double[][] current = new double[size][];
+			for(int i=0; i<size; i++)
+				current[i] = getMean(i);
+			meanIndex = new KDTree(current);
+		}
+		return meanIndex.nearest(vector);
+	}
+
+	private int nearestLinear(double[] vector, int from, int to)
+	{
+		int best = -1;
+		double bestDistance = Double.POSITIVE_INFINITY;
+		for(int i=from; i<to; i++)
+		{
+			double distance = squaredDistance(vector, i);
+			if( distance < bestDistance )
+			{
+				bestDistance = distance;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	private double squaredDistance(double[] vector, int mean)
+	{
+		double sum = 0;
+		int offset = mean*dimensions;
+		for(int d=0; d<dimensions; d++)
+		{
+			double diff = vector[d] - means[offset + d];
+			sum += diff*diff;
+		}
+		return sum;
+	}
+
+	/**
+	 * Finds the nearest mean of rows [lo, hi) of a batch.
+	 */
+	private class Assign extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final double[][] batch;
+		private final int lo;
+		private final int hi;
+
+		Assign(double[][] batch, int lo, int hi)
+		{
+			this.batch = batch;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if( hi - lo > PARALLEL_THRESHOLD )
+			{
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Assign(batch, lo, mid), new Assign(batch, mid, hi));
+				return;
+			}
+			for(int i=lo; i<hi; i++)
+				assignment[i] = nearestLinear(batch[i], 0, size);
+		}
+	}
+
+}//end class
@@ -0,0 +1,174 @@
+/**
+ * OnlinePCAMeans does what PCAMeans does, but learns from a stream of samples
+ * instead of one collected set, with memory that does not grow with the
+ * number of samples: an IncrementalPCA for the projection and a
+ * MiniBatchKMeans for the clusters. Samples are collected into batches; every
+ * batch updates both, and every 'refitInterval' samples the PCA basis is
+ * recomputed. The means are then carried over into the new basis, so the
+ * cluster indices keep their meaning while the agent learns.
+ */
+
+package UvA.stateSpaceReduction;
+
+public class OnlinePCAMeans implements StateAbstraction
+{
+	private static final long serialVersionUID = 2795531608101616305L;
+
+	/** number of samples whose mean-index is remembered between updates */
+	private static final int CACHE_SIZE = 1 << 12;
+
+	private final int numComponents;
+	private final int clusterAmount;
+	private final int batchSize;
+	private final int refitInterval;
+
+	// created with the first sample, which gives the sample size
+	private IncrementalPCA pca;
+	private MiniBatchKMeans kMeans;
+	private double[][] batch;
+	private int batchLength;
+	private long sinceRefit;
+
+	private transient SampleCache sampleToMeanCache;
+	private transient double[] projection;
+	private transient double[][] projectedBatch;
+
+	/**
+	 * @param numComponents - number of components for PCA
+	 * @param clusterAmount - amount of clusters for k-means clustering
+	 * @param batchSize - number of samples per update
+	 * @param refitInterval - number of samples after which the PCA basis is recomputed
+	 */
+	public OnlinePCAMeans(int numComponents, int clusterAmount, int batchSize, int refitInterval)
+	{
+		if( clusterAmount <= 0 )
+			throw new IllegalArgumentException("Online clustering needs a positive amount of clusters");
+		if( batchSize <= numComponents )
+			throw new IllegalArgumentException("A batch must hold more samples than there are components");
+		this.numComponents = numComponents;
+		this.clusterAmount = clusterAmount;
+		this.batchSize = batchSize;
+		this.refitInterval = refitInterval;
+	}//end constructor
+
+	/**
+	 * Fit to a set of samples at once: stream them through and recompute the
+	 * basis at the end.
+	 * @param vectors - training data
+	 */
+	public void fit(double[][] vectors)
+	{
+		for(double[] vector: vectors)
+			addSample(vector);
+		flush();
+		refit();
+	}
+
+	/**
+	 * Add a sample. The model changes when a batch is full.
+	 * @param sample - vector, copied
+	 */
+	public void addSample(double[] sample)
+	{
+		if( pca == null )
+		{
+			pca = new IncrementalPCA(sample.length);
+			batch = new double[batchSize][sample.length];
+		}
+		System.arraycopy(sample, 0, batch[batchLength++], 0, sample.length);
+		if( batchLength == batchSize )
+			flush();
+	}
+
+	/**
+	 * Update the model with the samples of the current batch, however many
+	 * there are.
+	 */
+	public void flush()
+	{
+		if( batchLength == 0 )
+			return;
+		pca.addSamples(batch, batchLength);
+		sinceRefit += batchLength;
+		if( !pca.hasBasis() )
+		{
+			if( pca.getCount() <= numComponents )
+				return;
+			pca.computeBasis(numComponents);
+			kMeans = new MiniBatchKMeans(clusterAmount, numComponents);
+			sinceRefit = 0;
+		}else if( sinceRefit >= refitInterval )
+		{
+			refit();
+		}
+		if( projectedBatch == null )
+			projectedBatch = new double[batchSize][numComponents];
+		for(int i=0; i<batchLength; i++)
+			pca.sampleToEigenSpace(batch[i], projectedBatch[i]);
+		kMeans.update(projectedBatch, batchLength);
+		batchLength = 0;
+		if( sampleToMeanCache != null )
+			sampleToMeanCache.clear();
+	}
+
+	/**
+	 * Recompute the PCA basis from all samples so far and move the means into it.
+	 */
+	public void refit()
+	{
+		if( kMeans == null )
+			return;
+		double[][] means = new double[kMeans.size()][];
+		for(int i=0; i<means.length; i++)
+			means[i] = pca.eigenToSampleSpace(kMeans.getMean(i));
+		pca.computeBasis(numComponents);
+		for(int i=0; i<means.length; i++)
+			kMeans.setMean(i, pca.sampleToEigenSpace(means[i], new double[numComponents]));
+		sinceRefit = 0;
+		if( sampleToMeanCache != null )
+			sampleToMeanCache.clear();
+	}
+
+	/**
+	 * Convert a vector to a mean-index, i.e. project the vector with PCA and
+	 * find the mean of the cluster nearest to the projection. Until the first
+	 * batch has been learned every sample maps to 0.
+	 */
+	public int sampleToMean(double[] sample)
+	{
+		if( kMeans == null || kMeans.size() == 0 )
+			return 0;
+		if( sampleToMeanCache == null )
+		{
+			sampleToMeanCache = new SampleCache(sample.length, CACHE_SIZE);
+			projection = new double[numComponents];
+		}
+		int nearestMeanIndex = sampleToMeanCache.get(sample);
+		if( nearestMeanIndex < 0 )
+		{
+			pca.sampleToEigenSpace(sample, projection);
+			nearestMeanIndex = kMeans.nearest(projection);
+			sampleToMeanCache.put(sample, nearestMeanIndex);
+		}
+		return nearestMeanIndex;
+	}
+
+	public int getNumComponents()
+	{
+		return numComponents;
+	}
+
+	public int getClusterAmount()
+	{
+		return clusterAmount;
+	}
+
+	/**
+	 * @return number of samples learned from
+	 */
+	public long getSampleCount()
+	{
+		return pca == null ? 0 : pca.getCount();
+	}
+
+}//end class
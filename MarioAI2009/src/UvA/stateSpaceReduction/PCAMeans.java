@@ -6,13 +6,8 @@
 package UvA.stateSpaceReduction;
 
 import java.io.IOException;
-import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import net.sf.javaml.clustering.Clusterer;
 import net.sf.javaml.clustering.KMeans;
@@ -20,15 +15,13 @@ import net.sf.javaml.core.Dataset;
 import net.sf.javaml.core.DefaultDataset;
 import net.sf.javaml.core.DenseInstance;
 import net.sf.javaml.core.Instance;
-import net.sf.javaml.distance.DistanceMeasure;
-import net.sf.javaml.distance.EuclideanDistance;
 import UvA.states.State;
 
 import com.jmatio.io.MatFileWriter;
 import com.jmatio.types.MLArray;
 import com.jmatio.types.MLDouble;
 
-public class PCAMeans implements Serializable
+public class PCAMeans implements StateAbstraction
 {
 	private static final long serialVersionUID = -2478983458498184932L;
 	
@@ -36,9 +29,16 @@ public class PCAMeans implements Serializable
 	private final int clusterAmount;
 	private final int iterations;
 
+	/** number of samples whose mean-index is remembered */
+	private static final int CACHE_SIZE = 1 << 12;
+
 	private PrincipleComponentAnalysis pca;
 	private Dataset means;
-	private Map<Instance, Integer> projectToMeanCache;	// cache contains previous conversions from projected vector (using PCA) to mean-index
+
+	// built from means when first needed, also after loading a saved PCAMeans
+	private transient KDTree meanIndex;
+	private transient SampleCache sampleToMeanCache;	// cache contains previous conversions from sample to mean-index
+	private transient double[] projection;
 
 	private static int verbose = 0;
 
@@ -66,7 +66,6 @@ public class PCAMeans implements Serializable
 		this.numComponents = numComponents;
 		this.clusterAmount = clusterAmount;
 		this.iterations = iterations;
-		this.projectToMeanCache = new HashMap<Instance, Integer>();
 		// perform PCA
 		int numSamples = vectors.length;
 		int sampleSize = vectors[0].length;
@@ -79,10 +78,6 @@ public class PCAMeans implements Serializable
 		if( clusterAmount < 0 )	
 		{
 			this.means = doubleArrayToDataset(projections); // each projection is a cluster
-			for(int i=0; i<means.size(); i++)
-			{
-				projectToMeanCache.put(means.get(i), i); // cache the conversions
-			}
 		}else
 		{
 			Dataset[] clusters = createClusters(projections, clusterAmount, iterations);
@@ -149,17 +144,14 @@ public class PCAMeans implements Serializable
 	private Dataset calculateMeans(Dataset[] clusters)
 	{
 		Dataset means = new DefaultDataset();
-		int index = 0;
 		for(Dataset dataset: clusters)
 		{
 			Instance sum = new DenseInstance(new double[dataset.get(0).noAttributes()]);
 			for(Instance instance: dataset)
 			{
-				projectToMeanCache.put(instance, index);	// cache conversion
 				sum = sum.add(instance);
 			}
 			means.add(sum.divide(dataset.size()));
-			index++;
 		}
 		return means;
 	}
@@ -211,43 +203,35 @@ public class PCAMeans implements Serializable
 
 	/**
 	 * Convert a vector to a mean-index, i.e. project the vector with PCA and find 
-	 * the mean of the cluster that has the smallest distance to the projected vector.  
+	 * the mean of the cluster that has the smallest distance to the projected vector.
+	 * The means are searched with a KDTree and the answers are cached per sample,
+	 * so that a call does not allocate. Of means at the same distance the first
+	 * one is taken.
 	 * @param sample	vector
 	 * @return index of mean that belongs to the cluster that has the smallest distance
 	 * to the projected sample.
 	 */
 	public int sampleToMean(double[] sample)
 	{
-		Instance projection = sampleToProjection(sample);
-		if( projectToMeanCache.containsKey(projection) )
+		if( meanIndex == null )
 		{
-			return projectToMeanCache.get(projection);
+			meanIndex = new KDTree(datasetToDoubleArray(means));
+			sampleToMeanCache = new SampleCache(sample.length, CACHE_SIZE);
+			projection = new double[pca.getNumComponents()];
+		}
+		int nearestMeanIndex = sampleToMeanCache.get(sample);
+		if( nearestMeanIndex < 0 )
+		{
+			pca.sampleToEigenSpace(sample, projection);
+			nearestMeanIndex = meanIndex.nearest(projection);	// find nearest neighbor
+			sampleToMeanCache.put(sample, nearestMeanIndex);	// cache conversion
 		}
-		DistanceMeasure dm = new EuclideanDistance();
-		Set<Instance> closestSet = means.kNearest(1, projection, dm);	// find nearest neighbor
-		Iterator<Instance> iter = closestSet.iterator();
-		Instance closest = iter.next();
-		int nearestMeanIndex = means.indexOf(closest);	// find index of nearest neighbor
-		projectToMeanCache.put(projection, nearestMeanIndex);	// cache conversion
 		return nearestMeanIndex;
 	}
 	
 	public Instance sampleToMeanProject(double[] sample)
 	{
-		Instance projection = sampleToProjection(sample);
-		if( projectToMeanCache.containsKey(projection) )
-		{
-			int index = projectToMeanCache.get(projection);
-			return means.get(index);
-		}
-		DistanceMeasure dm = new EuclideanDistance();
-		Set<Instance> closestSet = means.kNearest(1, projection, dm);	// find nearest neighbor
-		Iterator<Instance> iter = closestSet.iterator();
-		Instance closest = iter.next();
-		int nearestMeanIndex = means.indexOf(closest);	// find index of nearest neighbor
-		projectToMeanCache.put(projection, nearestMeanIndex);	// cache conversion
-		
-		return closest;
+		return means.get(sampleToMean(sample));
 	}
 	
 	/**
@@ -195,6 +195,36 @@ public class PrincipleComponentAnalysis implements Serializable
         return r.data;
     }
     
+    /**
+     * Converts a vector from sample space into eigen space without allocating,
+     * with the same arithmetic as {@link #sampleToEigenSpace(double[])}.
+     *
+     * @param sampleData Sample space data.
+     * @param projection Array of length numComponents that receives the eigen space projection.
+     * @return projection
+     */
+    public double[] sampleToEigenSpace( double[] sampleData, double[] projection ) {
+        int numCols = A.getNumCols();
+        if( sampleData.length != numCols )
+            throw new IllegalArgumentException("Unexpected sample length");
+        if( projection.length != numComponents )
+            throw new IllegalArgumentException("Unexpected projection length");
+
+        double[] basis = V_t.data;
+        for( int i = 0, index = 0; i < numComponents; i++ ) {
+            double total = basis[index++] * (sampleData[0] - mean[0]);
+            for( int j = 1; j < numCols; j++ ) {
+                total += basis[index++] * (sampleData[j] - mean[j]);
+            }
+            projection[i] = total;
+        }
+        return projection;
+    }
+
+    public int getNumComponents() {
+        return numComponents;
+    }
+
     /**
      * Converts vectors from sample space to eigen space.
     * @param sampleData Sample space data.
@@ -0,0 +1,153 @@
+/**
+ * SampleCache remembers an int for each vector it was given, e.g. the mean
+ * index PCAMeans found for a sample. It is an open addressing hash table on
+ * primitive arrays: looking up and adding do not allocate, and it is cleared
+ * once it holds its maximum number of vectors.
+ */
+
+package UvA.stateSpaceReduction;
+
+import java.util.Arrays;
+
+public class SampleCache
+{
+	private final int dimensions;
+	private final int maxSize;
+
+	private double[] keys;		// key of slot i is at keys[i*dimensions .. (i+1)*dimensions)
+	private long[] hashes;
+	private int[] values;		// -1 for an empty slot
+	private int size;
+
+	/**
+	 * @param dimensions - length of the vectors
+	 * @param maxSize - number of vectors after which the cache starts over
+	 */
+	public SampleCache(int dimensions, int maxSize)
+	{
+		this.dimensions = dimensions;
+		this.maxSize = maxSize;
+		allocate(64);
+	}//end constructor
+
+	private void allocate(int capacity)
+	{
+		keys = new double[capacity * dimensions];
+		hashes = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, -1);
+		size = 0;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @param sample - vector
+	 * @return the value stored for 'sample', -1 if there is none
+	 */
+	public int get(double[] sample)
+	{
+		if( sample.length != dimensions )
+			throw new IllegalArgumentException("Unexpected sample length");
+		long hash = hash(sample);
+		int mask = values.length - 1;
+		for(int slot = (int) hash & mask; values[slot] != -1; slot = (slot + 1) & mask)
+		{
+			if( hashes[slot] == hash && matches(slot, sample) )
+				return values[slot];
+		}
+		return -1;
+	}
+
+	/**
+	 * Store a value for 'sample'. The cache keeps its own copy of the vector.
+	 * @param sample - vector
+	 * @param value - a value that is not negative
+	 */
+	public void put(double[] sample, int value)
+	{
+		if( value < 0 )
+			throw new IllegalArgumentException("Negative value");
+		if( sample.length != dimensions )
+			throw new IllegalArgumentException("Unexpected sample length");
+		if( size >= maxSize )
+			clear();
+		else if( 2*(size + 1) > values.length )
+			rehash(2*values.length);
+		insert(hash(sample), sample, 0, value);
+	}
+
+	public void clear()
+	{
+		Arrays.fill(values, -1);
+		size = 0;
+	}
+
+	private void insert(long hash, double[] key, int offset, int value)
+	{
+		int mask = values.length - 1;
+		int slot = (int) hash & mask;
+		while( values[slot] != -1 )
+		{
+			if( hashes[slot] == hash && matches(slot, key, offset) )
+			{
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		System.arraycopy(key, offset, keys, slot*dimensions, dimensions);
+		hashes[slot] = hash;
+		values[slot] = value;
+		size++;
+	}
+
+	private void rehash(int capacity)
+	{
+		double[] oldKeys = keys;
+		long[] oldHashes = hashes;
+		int[] oldValues = values;
+		allocate(capacity);
+		for(int slot=0; slot<oldValues.length; slot++)
+		{
+			if( oldValues[slot] != -1 )
+				insert(oldHashes[slot], oldKeys, slot*dimensions, oldValues[slot]);
+		}
+	}
+
+	private boolean matches(int slot, double[] sample)
+	{
+		return matches(slot, sample, 0);
+	}
+
+	private boolean matches(int slot, double[] key, int offset)
+	{
+		int start = slot*dimensions;
+		for(int i=0; i<dimensions; i++)
+		{
+			if( Double.doubleToLongBits(keys[start + i]) != Double.doubleToLongBits(key[offset + i]) )
+				return false;
+		}
+		return true;
+	}
+
+	private static long hash(double[] sample)
+	{
+		long hash = 0x9E3779B97F4A7C15L;
+		for(int i=0; i<sample.length; i++)
+		{
+			hash = (hash ^ Double.doubleToLongBits(sample[i])) * 0xBF58476D1CE4E5B9L;
+			hash ^= hash >>> 32;
+		}
+		// the bits of small whole numbers are all in the top half of a double,
+		// the slot is taken from the bottom
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+}//end class
@@ -0,0 +1,15 @@
+package UvA.stateSpaceReduction;
+
+import java.io.Serializable;
+
+
+public interface StateAbstraction extends Serializable
+{
+	/**
+	 * Map the representation of a state to the index of its abstract state.
+	 * @param sample - representation of a state
+	 * @return index of the cluster the representation belongs to
+	 */
+	public int sampleToMean(double[] sample);
+
+}//end interface StateAbstraction
@@ -509,6 +509,16 @@ public class MarioState implements State
 		return this.representation;
 	}
 
+	/**
+	 * Overwrite the representation, e.g. with one remembered for replay
+	 * @param representationIn - copied, must be as long as the representation
+	 */
+	public void setRepresentation(double[] representationIn) {
+		if (representationIn.length != representation.length)
+			throw new IllegalArgumentException("Unexpected representation length");
+		System.arraycopy(representationIn, 0, representation, 0, representation.length);
+	}
+
 	/**
 	 * Returns reward of current state
 	 * @return - of which the first element is the x position of mario, 
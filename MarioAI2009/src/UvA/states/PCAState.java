@@ -1,6 +1,6 @@
 package UvA.states;
 
-import UvA.stateSpaceReduction.PCAMeans;
+import UvA.stateSpaceReduction.StateAbstraction;
 import ch.idsia.mario.environments.Environment;
 
 public class PCAState extends MarioState 
@@ -15,7 +15,7 @@ public class PCAState extends MarioState
 	 * @param environmentIn - information needed to create MarioState
 	 * @param pcam - object that dictates how to perform PCA and cluster the results
 	 */
-	public PCAState(Environment environmentIn, State oldState, PCAMeans pcam) 
+	public PCAState(Environment environmentIn, State oldState, StateAbstraction pcam) 
 	{
 		super(environmentIn, oldState);
 		if( pcam!=null )
@@ -57,6 +57,16 @@ public class PCAState extends MarioState
 		return new PCAState(this, meanIndex);
 	}
 
+	public int getMeanIndex()
+	{
+		return meanIndex;
+	}
+	
+	public void setMeanIndex(int meanIndexIn)
+	{
+		this.meanIndex = meanIndexIn;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -5,7 +5,9 @@ import java.util.Properties;
 import UvA.agents.Calculate;
 import UvA.agents.PCAQLAgent;
 import UvA.agents.QLearnAgent;
+import UvA.stateSpaceReduction.OnlinePCAMeans;
 import UvA.stateSpaceReduction.PCAMeans;
+import UvA.stateSpaceReduction.StateAbstraction;
 import UvA.states.PCAState;
 import ch.idsia.ai.tasks.ProgressTask;
 import ch.idsia.ai.tasks.Task;
@@ -118,7 +120,17 @@ public class EvaluatePCA {
 
 			// set clusters
 			System.out.print("Clustering....");
-			PCAMeans pcam = new PCAMeans(states, agent.getNumComponents(), agent.getClusterAmount(), agent.getIterations());
+			StateAbstraction pcam;
+			if( agent.isOnlineClustering() && agent.getClusterAmount() > 0 )
+			{
+				// streamed through in batches, and kept learning while the agent plays
+				OnlinePCAMeans online = agent.createOnlinePCAM();
+				online.fit(states);
+				pcam = online;
+			}else
+			{
+				pcam = new PCAMeans(states, agent.getNumComponents(), agent.getClusterAmount(), agent.getIterations());
+			}
 			System.out.println("Done!");
 
 			agent.setPCAM(pcam);
@@ -0,0 +1,106 @@
+package ch.idsia.unittests;
+
+import UvA.agents.EligibilityTraces;
+import UvA.agents.StateIds;
+import UvA.states.MarioState;
+import UvA.states.State;
+import UvA.states.StateActionPair;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+
+/**
+ * EligibilityTraces keeps one replacing trace per state and drops decayed
+ * ones, however many states there are; StateIds gives equal states one id.
+ */
+public class EligibilityTracesTest extends TestCase
+{
+    private static StateActionPair pair(int stateId, int button)
+    {
+        MarioState state = new MarioState(new Properties());
+        double[] representation = new double[state.getRepresentation().length];
+        representation[0] = stateId;
+        state.setRepresentation(representation);
+        boolean[] action = new boolean[5];
+        action[button] = true;
+        return new StateActionPair(state, action);
+    }
+
+    @Test
+    public void testVisitReplacesTheTraceOfTheState()
+    {
+        EligibilityTraces traces = new EligibilityTraces();
+        traces.visit(3, pair(3, 0));
+        traces.decay(0.5, 0.01);
+        assertEquals(0.5, traces.getStateTrace(3));
+
+        StateActionPair other = pair(3, 1);
+        traces.visit(3, other);
+        assertEquals(1, traces.size());
+        assertEquals(1.0, traces.getStateTrace(3));
+        assertSame(other, traces.getPair(0));
+        assertEquals(0.0, traces.getStateTrace(4));
+    }
+
+    @Test
+    public void testDecayDropsTracesBelowTheCutoff()
+    {
+        EligibilityTraces traces = new EligibilityTraces();
+        for (int id = 0; id < 5; id++)
+        {
+            traces.visit(id, pair(id, 0));
+            traces.decay(0.5, 0.1);
+        }
+        // after 4 decays a trace is 1/16 < 0.1
+        assertEquals(3, traces.size());
+        assertEquals(0.0, traces.getStateTrace(0));
+        assertEquals(0.0, traces.getStateTrace(1));
+        for (int id = 2; id < 5; id++)
+            assertEquals(Math.pow(0.5, 5 - id), traces.getStateTrace(id));
+        // the rest stay in the order they were visited
+        for (int i = 0; i < traces.size(); i++)
+            assertEquals((double) i + 2, traces.getPair(i).state.getRepresentation()[0]);
+
+        traces.clear();
+        assertEquals(0, traces.size());
+        assertEquals(0.0, traces.getStateTrace(2));
+    }
+
+    @Test
+    public void testManyStates()
+    {
+        EligibilityTraces traces = new EligibilityTraces();
+        StateActionPair pair = pair(0, 0);
+        // past the initial capacity, with ids far apart, then dropping every other one
+        for (int id = 0; id < 1000; id++)
+            traces.visit(id * 1024, pair);
+        assertEquals(1000, traces.size());
+        traces.decay(0.5, 0.1);
+        for (int id = 0; id < 1000; id += 2)
+            traces.visit(id * 1024, pair);
+        traces.decay(0.5, 0.4);
+        assertEquals(500, traces.size());
+        for (int id = 0; id < 1000; id++)
+            assertEquals(id % 2 == 0 ? 0.5 : 0.0, traces.getStateTrace(id * 1024));
+    }
+
+    @Test
+    public void testStateIds()
+    {
+        StateIds ids = new StateIds();
+        State[] states = new State[100];
+        for (int i = 0; i < states.length; i++)
+            states[i] = pair(i, 0).state;
+        for (int i = 0; i < states.length; i++)
+            assertEquals(i, ids.get(states[i]));
+        // equal, not the same
+        for (int i = 0; i < states.length; i++)
+            assertEquals(i, ids.get(states[i].clone()));
+        assertEquals(states.length, ids.size());
+
+        ids.clear();
+        assertEquals(0, ids.get(states[42]));
+        assertEquals(1, ids.size());
+    }
+}
@@ -0,0 +1,215 @@
+package ch.idsia.unittests;
+
+import ch.idsia.mario.environments.Environment;
+import competition.cig.matthewerickson.GPCompiler;
+import competition.cig.matthewerickson.GPNode;
+import competition.cig.matthewerickson.GPProgram;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+/**
+ * Compiled programs evaluate random trees to the same vectors as the
+ * interpreter, and the trees left to the interpreter are remembered as such.
+ */
+public class GPCompilerTest extends TestCase
+{
+    private static final int TREES = 50;
+    private static final int OBSERVATIONS = 20;
+
+    /**
+     * The trees and RandomNode draw from Math.random; seeding the generator
+     * behind it makes both reproducible, and lets the compiled program and
+     * the interpreter see the same random numbers.
+     */
+    private static void seedMathRandom(long seed) throws Exception
+    {
+        Field field = Class.forName("java.lang.Math$RandomNumberGeneratorHolder").getDeclaredField("randomNumberGenerator");
+        field.setAccessible(true);
+        ((Random) field.get(null)).setSeed(seed);
+    }
+
+    @Test
+    public void testCompiledTreesEvaluateLikeTheInterpreter() throws Exception
+    {
+        seedMathRandom(41);
+        Random random = new Random(41);
+        Observation[] observations = new Observation[OBSERVATIONS];
+        for (int i = 0; i < observations.length; i++)
+            observations[i] = new Observation(random);
+
+        int compiled = 0;
+        for (int attempt = 0; compiled < TREES; attempt++)
+        {
+            assertTrue("only " + compiled + " trees compiled", attempt < 100 * TREES);
+            // most trees are too small or too big to compile
+            GPNode tree = GPNode.newProgram(8 + random.nextInt(8));
+            GPProgram program = GPCompiler.compile(tree);
+            if (program == null)
+                continue;
+            compiled++;
+            // the program shares the FloatNode values with its tree, which NOT and the masks write to
+            GPNode interpreted = tree.copySubtreeAt(1);
+            for (int i = 0; i < observations.length; i++)
+            {
+                long seed = random.nextLong();
+                seedMathRandom(seed);
+                float[] expected = interpreted.evaluate(null, observations[i]).clone();
+                seedMathRandom(seed);
+                float[] actual = program.evaluate(null, observations[i]);
+                for (int k = 0; k < 4; k++)
+                    assertEquals(tree.toString(), expected[k], actual[k], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void testProgramOfRemembersInterpretedTrees() throws Exception
+    {
+        seedMathRandom(42);
+        GPNode small = GPNode.newProgram(1);
+        assertNull(GPCompiler.programOf(small));
+        assertNull(GPCompiler.programOf(small));
+
+        GPNode big = null;
+        while (big == null || GPCompiler.compile(big) == null)
+            big = GPNode.newProgram(8);
+        GPProgram program = GPCompiler.programOf(big);
+        assertNotNull(program);
+        assertSame(program, GPCompiler.programOf(big));
+    }
+
+    /**
+     * Fixed readings for the sensors the trees use; every call returns new
+     * arrays, as the real environment does.
+     */
+    private static class Observation implements Environment
+    {
+        private final float[] marioPos;
+        private final float[] enemies;
+        private final byte[][] levelScene = new byte[22][22];
+        private final boolean onGround;
+
+        Observation(Random random)
+        {
+            marioPos = new float[]{random.nextFloat() * 1000, random.nextFloat() * 240};
+            enemies = new float[3 * random.nextInt(4)];
+            for (int i = 0; i < enemies.length; i += 3)
+            {
+                enemies[i] = 2 + random.nextInt(10);
+                enemies[i + 1] = marioPos[0] + random.nextFloat() * 300 - 150;
+                enemies[i + 2] = marioPos[1] + random.nextFloat() * 100 - 50;
+            }
+            for (int x = 0; x < 22; x++)
+            {
+                // some columns are pits
+                if (random.nextInt(4) == 0)
+                    continue;
+                for (int y = 0; y < 22; y++)
+                    levelScene[y][x] = (byte) (random.nextInt(3) == 0 ? -10 : 0);
+                levelScene[21][x] = -10;
+            }
+            onGround = random.nextBoolean();
+        }
+
+        public float[] getMarioFloatPos()
+        {
+            return marioPos.clone();
+        }
+
+        public float[] getEnemiesFloatPos()
+        {
+            return enemies.clone();
+        }
+
+        public byte[][] getLevelSceneObservation()
+        {
+            byte[][] copy = new byte[22][];
+            for (int y = 0; y < 22; y++)
+                copy[y] = levelScene[y].clone();
+            return copy;
+        }
+
+        public boolean isMarioOnGround()
+        {
+            return onGround;
+        }
+
+        public byte[][] getCompleteObservation()
+        {
+            return null;
+        }
+
+        public byte[][] getEnemiesObservation()
+        {
+            return null;
+        }
+
+        public int getMarioMode()
+        {
+            return 2;
+        }
+
+        public boolean mayMarioJump()
+        {
+            return onGround;
+        }
+
+        public boolean isMarioCarrying()
+        {
+            return false;
+        }
+
+        public byte[][] getMergedObservationZ(int ZLevelScene, int ZLevelEnemies)
+        {
+            return null;
+        }
+
+        public byte[][] getLevelSceneObservationZ(int ZLevelScene)
+        {
+            return getLevelSceneObservation();
+        }
+
+        public byte[][] getEnemiesObservationZ(int ZLevelEnemies)
+        {
+            return null;
+        }
+
+        public int getKillsTotal()
+        {
+            return 0;
+        }
+
+        public int getKillsByFire()
+        {
+            return 0;
+        }
+
+        public int getKillsByStomp()
+        {
+            return 0;
+        }
+
+        public int getKillsByShell()
+        {
+            return 0;
+        }
+
+        public boolean canShoot()
+        {
+            return false;
+        }
+
+        public String getBitmapEnemiesObservation()
+        {
+            return null;
+        }
+
+        public String getBitmapLevelObservation()
+        {
+            return null;
+        }
+    }
+}
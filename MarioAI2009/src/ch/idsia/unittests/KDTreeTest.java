@@ -0,0 +1,81 @@
+package ch.idsia.unittests;
+
+import UvA.stateSpaceReduction.KDTree;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * KDTree finds the same point as comparing the query against every point,
+ * including the first of equally near ones.
+ */
+public class KDTreeTest extends TestCase
+{
+    private static int bruteForceNearest(double[][] points, double[] query)
+    {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < points.length; i++)
+        {
+            double distance = 0;
+            for (int d = 0; d < query.length; d++)
+                distance += (query[d] - points[i][d]) * (query[d] - points[i][d]);
+            if (distance < bestDistance)
+            {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static double[][] randomPoints(Random random, int count, int dimensions, boolean grid)
+    {
+        double[][] points = new double[count][dimensions];
+        for (int i = 0; i < count; i++)
+            for (int d = 0; d < dimensions; d++)
+                points[i][d] = grid ? random.nextInt(5) : random.nextGaussian() * (d + 1);
+        return points;
+    }
+
+    private static void assertLikeBruteForce(Random random, int count, int dimensions, boolean grid)
+    {
+        double[][] points = randomPoints(random, count, dimensions, grid);
+        KDTree tree = new KDTree(points);
+        assertEquals(count, tree.size());
+        // the points themselves, and queries around them
+        for (int i = 0; i < count; i++)
+            assertEquals(bruteForceNearest(points, points[i]), tree.nearest(points[i]));
+        double[][] queries = randomPoints(random, 1000, dimensions, grid);
+        for (double[] query : queries)
+            assertEquals(bruteForceNearest(points, query), tree.nearest(query));
+    }
+
+    @Test
+    public void testNearestLikeBruteForce()
+    {
+        Random random = new Random(42);
+        for (int dimensions = 1; dimensions <= 6; dimensions++)
+            for (int count : new int[]{1, 2, 3, 10, 100, 500})
+                assertLikeBruteForce(random, count, dimensions, false);
+    }
+
+    @Test
+    public void testTiesGoToTheFirstPoint()
+    {
+        // a small grid has many duplicate points and many equally near ones
+        Random random = new Random(43);
+        for (int dimensions = 1; dimensions <= 3; dimensions++)
+            for (int count : new int[]{5, 50, 300})
+                assertLikeBruteForce(random, count, dimensions, true);
+    }
+
+    @Test
+    public void testEmptyTree()
+    {
+        KDTree tree = new KDTree(new double[0][]);
+        assertEquals(0, tree.size());
+        assertEquals(-1, tree.nearest(new double[0]));
+    }
+}
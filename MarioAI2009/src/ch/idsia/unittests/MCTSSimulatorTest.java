@@ -0,0 +1,218 @@
+package ch.idsia.unittests;
+
+import ch.idsia.mario.environments.Environment;
+import competition.cig.robinbaumgarten.MCTSAgent;
+import competition.cig.robinbaumgarten.astar.LevelScene;
+import competition.cig.robinbaumgarten.astar.MCTSSimulator;
+import competition.cig.robinbaumgarten.astar.level.Level;
+import competition.cig.robinbaumgarten.astar.sprites.Mario;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+/**
+ * Level clones share their map unless copy on write is asked for, as only
+ * MCTSSimulator does; its search leaves the scene it plans for alone, and
+ * MCTSAgent runs along a world simulated by the same engine.
+ */
+public class MCTSSimulatorTest extends TestCase
+{
+    @Test
+    public void testClonesShareTheMapByDefault() throws Exception
+    {
+        Level level = new Level(20, 15);
+        Level clone = (Level) level.clone();
+        clone.setBlock(3, 5, (byte) 1);
+        assertEquals(1, level.map[3][5]);
+    }
+
+    @Test
+    public void testCopyOnWriteKeepsClonesApart() throws Exception
+    {
+        Level level = new Level(20, 15);
+        level.setCopyOnWrite(true);
+        Level clone = (Level) level.clone();
+        clone.setBlock(3, 5, (byte) 1);
+        level.setBlock(4, 5, (byte) 1);
+        assertEquals(0, level.map[3][5]);
+        assertEquals(1, level.map[4][5]);
+        assertEquals(1, clone.map[3][5]);
+        assertEquals(0, clone.map[4][5]);
+    }
+
+    @Test
+    public void testSearchRunsRightOnFlatGround()
+    {
+        for (int threads = 1; threads <= 2; threads++)
+        {
+            MCTSSimulator simulator = new MCTSSimulator(threads);
+            simulator.setLevelPart(flatGround(), new float[0]);
+            byte[][] before = copy(simulator.levelScene.level.map);
+            float x = simulator.levelScene.mario.x;
+            int iterations = 0;
+            for (int tick = 0; tick < 20; tick++)
+            {
+                boolean[] action = simulator.optimise(System.nanoTime() + 5000000L);
+                iterations += simulator.getIterations();
+                simulator.advanceStep(action);
+            }
+            simulator.shutdown();
+            assertTrue(iterations > 0);
+            assertTrue(simulator.levelScene.mario.x > x + 20);
+            assertEquals(Mario.STATUS_RUNNING, simulator.levelScene.mario.getStatus());
+            assertTrue(Arrays.deepEquals(before, simulator.levelScene.level.map));
+        }
+    }
+
+    @Test
+    public void testAgentRunsThroughAFlatWorld()
+    {
+        MCTSAgent agent = new MCTSAgent(2);
+        agent.setTimeBudget(3);
+        agent.reset();
+        FlatWorld world = new FlatWorld();
+        for (int tick = 0; tick < 100; tick++)
+            world.step(agent.getAction(world));
+        agent.getSimulator().shutdown();
+        assertEquals(Mario.STATUS_RUNNING, world.scene.mario.getStatus());
+        assertTrue(world.scene.mario.x > 32 + 400);
+    }
+
+    /**
+     * The simulator itself as the environment: flat ground, no enemies.
+     */
+    private static class FlatWorld implements Environment
+    {
+        final LevelScene scene = new LevelScene();
+
+        FlatWorld()
+        {
+            scene.init();
+            scene.level = new Level(500, 15); // ground in the bottom row
+        }
+
+        void step(boolean[] action)
+        {
+            scene.mario.setKeys(action);
+            scene.tick();
+        }
+
+        public byte[][] getLevelSceneObservationZ(int ZLevelScene)
+        {
+            byte[][] observation = new byte[22][22];
+            int marioX = (int) scene.mario.x / 16, marioY = (int) scene.mario.y / 16;
+            for (int y = 0; y < 22; y++)
+                for (int x = 0; x < 22; x++)
+                    if (marioY - Environment.HalfObsHeight + y == 14 && marioX - Environment.HalfObsWidth + x >= 0)
+                        observation[y][x] = -10;
+            return observation;
+        }
+
+        public float[] getMarioFloatPos()
+        {
+            return new float[]{scene.mario.x, scene.mario.y};
+        }
+
+        public float[] getEnemiesFloatPos()
+        {
+            return new float[0];
+        }
+
+        public byte[][] getCompleteObservation()
+        {
+            return null;
+        }
+
+        public byte[][] getEnemiesObservation()
+        {
+            return null;
+        }
+
+        public byte[][] getLevelSceneObservation()
+        {
+            return getLevelSceneObservationZ(1);
+        }
+
+        public int getMarioMode()
+        {
+            return 2;
+        }
+
+        public boolean isMarioOnGround()
+        {
+            return scene.mario.isOnGround();
+        }
+
+        public boolean mayMarioJump()
+        {
+            return scene.mario.mayJump();
+        }
+
+        public boolean isMarioCarrying()
+        {
+            return false;
+        }
+
+        public byte[][] getMergedObservationZ(int ZLevelScene, int ZLevelEnemies)
+        {
+            return getLevelSceneObservationZ(ZLevelScene);
+        }
+
+        public byte[][] getEnemiesObservationZ(int ZLevelEnemies)
+        {
+            return new byte[22][22];
+        }
+
+        public int getKillsTotal()
+        {
+            return 0;
+        }
+
+        public int getKillsByFire()
+        {
+            return 0;
+        }
+
+        public int getKillsByStomp()
+        {
+            return 0;
+        }
+
+        public int getKillsByShell()
+        {
+            return 0;
+        }
+
+        public boolean canShoot()
+        {
+            return false;
+        }
+
+        public String getBitmapEnemiesObservation()
+        {
+            return null;
+        }
+
+        public String getBitmapLevelObservation()
+        {
+            return null;
+        }
+    }
+
+    private static byte[][] flatGround()
+    {
+        byte[][] scene = new byte[22][22];
+        for (int x = 0; x < 22; x++)
+            scene[20][x] = scene[21][x] = -10;
+        return scene;
+    }
+
+    private static byte[][] copy(byte[][] map)
+    {
+        byte[][] copy = new byte[map.length][];
+        for (int i = 0; i < map.length; i++)
+            copy[i] = map[i].clone();
+        return copy;
+    }
+}
@@ -0,0 +1,185 @@
+package ch.idsia.unittests;
+
+import UvA.agents.PCAQLAgent;
+import UvA.stateSpaceReduction.IncrementalPCA;
+import UvA.stateSpaceReduction.MiniBatchKMeans;
+import UvA.stateSpaceReduction.OnlinePCAMeans;
+import UvA.stateSpaceReduction.PrincipleComponentAnalysis;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * IncrementalPCA finds the basis the batch PrincipleComponentAnalysis finds,
+ * MiniBatchKMeans and OnlinePCAMeans separate well separated clusters, and
+ * PCAQLAgent refuses online clustering without an amount of clusters.
+ */
+public class OnlinePCAMeansTest extends TestCase
+{
+    private static final int SAMPLE_SIZE = 6;
+    private static final int CLUSTERS = 3;
+
+    // samples stretched along the axes by different amounts, so the components are well apart
+    private static double[][] stretchedSamples(int count, long seed)
+    {
+        double[] scale = {5, 3, 1.5, 0.5, 0.2, 0.1};
+        Random random = new Random(seed);
+        double[][] samples = new double[count][SAMPLE_SIZE];
+        for (int i = 0; i < count; i++)
+            for (int j = 0; j < SAMPLE_SIZE; j++)
+                samples[i][j] = 2 + scale[j] * random.nextGaussian();
+        return samples;
+    }
+
+    // tight clusters around far apart centres; sample i belongs to cluster i % CLUSTERS
+    private static double[][] clusteredSamples(int count, long seed)
+    {
+        Random random = new Random(seed);
+        double[][] samples = new double[count][SAMPLE_SIZE];
+        for (int i = 0; i < count; i++)
+        {
+            int cluster = i % CLUSTERS;
+            for (int j = 0; j < SAMPLE_SIZE; j++)
+                samples[i][j] = 20 * cluster * (j + 1) + 0.1 * random.nextGaussian();
+        }
+        return samples;
+    }
+
+    @Test
+    public void testIncrementalPCAMatchesBatchPCA()
+    {
+        double[][] samples = stretchedSamples(300, 43);
+        int numComponents = 3;
+
+        PrincipleComponentAnalysis batch = new PrincipleComponentAnalysis(samples.length, SAMPLE_SIZE);
+        batch.addSamples(samples);
+        batch.computeBasis(numComponents);
+
+        // uneven batches, to go through the merge of partial moments
+        IncrementalPCA incremental = new IncrementalPCA(SAMPLE_SIZE);
+        int[] batchSizes = {1, 7, 100, 192};
+        for (int offset = 0, b = 0; offset < samples.length; offset += batchSizes[b++])
+        {
+            double[][] part = new double[batchSizes[b]][];
+            System.arraycopy(samples, offset, part, 0, part.length);
+            incremental.addSamples(part);
+        }
+        assertEquals(samples.length, incremental.getCount());
+        incremental.computeBasis(numComponents);
+
+        double[][] expected = new double[samples.length][];
+        double[][] actual = new double[samples.length][];
+        for (int i = 0; i < samples.length; i++)
+        {
+            expected[i] = batch.sampleToEigenSpace(samples[i].clone());
+            actual[i] = incremental.sampleToEigenSpace(samples[i], new double[numComponents]);
+        }
+        // eigenvectors are only defined up to their sign
+        for (int c = 0; c < numComponents; c++)
+        {
+            double dot = 0;
+            for (int i = 0; i < samples.length; i++)
+                dot += expected[i][c] * actual[i][c];
+            double sign = Math.signum(dot);
+            for (int i = 0; i < samples.length; i++)
+                assertEquals(expected[i][c], sign * actual[i][c], 1e-6);
+        }
+    }
+
+    @Test
+    public void testMiniBatchKMeansSeparatesClusters()
+    {
+        double[][] samples = clusteredSamples(600, 7);
+        final MiniBatchKMeans kMeans = new MiniBatchKMeans(CLUSTERS, SAMPLE_SIZE);
+        assertEquals(-1, kMeans.nearest(samples[0]));
+        for (int offset = 0; offset < samples.length; offset += 50)
+        {
+            double[][] batch = new double[50][];
+            System.arraycopy(samples, offset, batch, 0, batch.length);
+            kMeans.update(batch, batch.length);
+        }
+        assertEquals(CLUSTERS, kMeans.size());
+        assertClustersSeparated(samples, new Nearest()
+        {
+            public int of(double[] sample)
+            {
+                return kMeans.nearest(sample);
+            }
+        });
+    }
+
+    @Test
+    public void testOnlinePCAMeansSeparatesClusters()
+    {
+        double[][] samples = clusteredSamples(600, 11);
+        final OnlinePCAMeans pcam = new OnlinePCAMeans(2, CLUSTERS, 64, 256);
+        assertEquals(0, pcam.sampleToMean(samples[0]));
+        pcam.fit(samples);
+        assertEquals(samples.length, pcam.getSampleCount());
+        assertClustersSeparated(samples, new Nearest()
+        {
+            public int of(double[] sample)
+            {
+                return pcam.sampleToMean(sample);
+            }
+        });
+        // a second time through the cache
+        assertClustersSeparated(samples, new Nearest()
+        {
+            public int of(double[] sample)
+            {
+                return pcam.sampleToMean(sample);
+            }
+        });
+    }
+
+    @Test
+    public void testOnlinePCAMeansNeedsClusters()
+    {
+        try
+        {
+            new OnlinePCAMeans(2, -1, 64, 256);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected)
+        {
+        }
+    }
+
+    @Test
+    public void testPCAQLAgentRefusesOnlineClusteringWithoutClusterAmount()
+    {
+        Properties properties = new Properties();
+        properties.setProperty("onlineClustering", "true");
+        PCAQLAgent agent = new PCAQLAgent();
+        try
+        {
+            agent.setAllProperties(properties);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected)
+        {
+        }
+        properties.setProperty("clusterAmount", "20");
+        agent.setAllProperties(properties);
+        assertTrue(agent.isOnlineClustering());
+        assertEquals(20, agent.getClusterAmount());
+    }
+
+    private interface Nearest
+    {
+        int of(double[] sample);
+    }
+
+    private static void assertClustersSeparated(double[][] samples, Nearest nearest)
+    {
+        int[] meanOfCluster = new int[CLUSTERS];
+        for (int c = 0; c < CLUSTERS; c++)
+            meanOfCluster[c] = nearest.of(samples[c]);
+        for (int c = 0; c < CLUSTERS; c++)
+            for (int d = c + 1; d < CLUSTERS; d++)
+                assertTrue(meanOfCluster[c] != meanOfCluster[d]);
+        for (int i = 0; i < samples.length; i++)
+            assertEquals(meanOfCluster[i % CLUSTERS], nearest.of(samples[i]));
+    }
+}
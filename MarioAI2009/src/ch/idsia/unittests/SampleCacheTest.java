@@ -0,0 +1,128 @@
+package ch.idsia.unittests;
+
+import UvA.stateSpaceReduction.PCAMeans;
+import UvA.stateSpaceReduction.SampleCache;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * SampleCache remembers a value per vector bit for bit, and PCAMeans answers
+ * the same from its cache as it does when it has to search.
+ */
+public class SampleCacheTest extends TestCase
+{
+    @Test
+    public void testRemembersValues()
+    {
+        SampleCache cache = new SampleCache(3, 10000);
+        Random random = new Random(42);
+        double[][] samples = new double[1000][3];
+        for (int i = 0; i < samples.length; i++)
+            for (int d = 0; d < 3; d++)
+                samples[i][d] = random.nextInt(20);
+        for (int i = 0; i < samples.length; i++)
+            cache.put(samples[i], i);
+        // equal vectors overwrite each other; the last value stays
+        for (int i = 0; i < samples.length; i++)
+        {
+            int last = i;
+            for (int j = i + 1; j < samples.length; j++)
+                if (Arrays.equals(samples[i], samples[j]))
+                    last = j;
+            assertEquals(last, cache.get(samples[i]));
+        }
+        assertEquals(-1, cache.get(new double[]{20, 20, 20}));
+    }
+
+    @Test
+    public void testKeepsItsOwnCopy()
+    {
+        SampleCache cache = new SampleCache(2, 10);
+        double[] sample = {1, 2};
+        cache.put(sample, 7);
+        sample[0] = 3;
+        assertEquals(-1, cache.get(sample));
+        assertEquals(7, cache.get(new double[]{1, 2}));
+    }
+
+    @Test
+    public void testComparesBits()
+    {
+        SampleCache cache = new SampleCache(1, 10);
+        cache.put(new double[]{0.0}, 1);
+        cache.put(new double[]{Double.NaN}, 2);
+        assertEquals(-1, cache.get(new double[]{-0.0}));
+        assertEquals(1, cache.get(new double[]{0.0}));
+        assertEquals(2, cache.get(new double[]{Double.NaN}));
+    }
+
+    @Test
+    public void testStartsOverWhenFull()
+    {
+        SampleCache cache = new SampleCache(1, 100);
+        for (int i = 0; i < 100; i++)
+            cache.put(new double[]{i}, i);
+        assertEquals(100, cache.size());
+        assertEquals(99, cache.get(new double[]{99}));
+        cache.put(new double[]{100}, 100);
+        assertEquals(1, cache.size());
+        assertEquals(-1, cache.get(new double[]{0}));
+        assertEquals(100, cache.get(new double[]{100}));
+    }
+
+    @Test
+    public void testPCAMeansAnswersLikeWithoutCache()
+    {
+        Random random = new Random(43);
+        double[][] vectors = new double[300][8];
+        for (int i = 0; i < vectors.length; i++)
+            for (int d = 0; d < 8; d++)
+                vectors[i][d] = random.nextGaussian() * (8 - d);
+        // with clusterAmount -1 every projected vector is a mean, so the means are known
+        PCAMeans pcam = new PCAMeans(vectors, 3, -1, 10);
+        double[][] means = new double[vectors.length][];
+        for (int i = 0; i < vectors.length; i++)
+            means[i] = PCAMeans.instanceToArray(pcam.sampleToProjection(vectors[i]));
+
+        // more different queries than the cache of PCAMeans holds, so it starts over on the way
+        double[][] queries = new double[5000][];
+        for (int i = 0; i < queries.length; i++)
+        {
+            queries[i] = i < vectors.length ? vectors[i].clone() : new double[8];
+            for (int d = 0; d < 8 && i >= vectors.length; d++)
+                queries[i][d] = random.nextGaussian() * (8 - d);
+        }
+        int[] searched = new int[queries.length];
+        for (int i = 0; i < queries.length; i++)
+        {
+            searched[i] = pcam.sampleToMean(queries[i]);
+            assertEquals(bruteForceNearest(means, PCAMeans.instanceToArray(pcam.sampleToProjection(queries[i]))), searched[i]);
+        }
+        // the most recent queries come from the cache now, the oldest are searched again
+        for (int i = queries.length - 1; i >= 0; i--)
+            assertEquals(searched[i], pcam.sampleToMean(queries[i]));
+        for (int i = 0; i < vectors.length; i++)
+            assertEquals(i, pcam.sampleToMean(vectors[i]));
+    }
+
+    private static int bruteForceNearest(double[][] points, double[] query)
+    {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < points.length; i++)
+        {
+            double distance = 0;
+            for (int d = 0; d < query.length; d++)
+                distance += (query[d] - points[i][d]) * (query[d] - points[i][d]);
+            if (distance < bestDistance)
+            {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+}
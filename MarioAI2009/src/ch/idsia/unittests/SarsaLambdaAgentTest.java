@@ -0,0 +1,124 @@
+package ch.idsia.unittests;
+
+import UvA.agents.QLambdaAgent;
+import UvA.agents.SarsaLambdaAgent;
+import UvA.states.MarioState;
+import UvA.states.State;
+import UvA.states.StateActionPair;
+import junit.framework.TestCase;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Two steps of SARSA(lambda) and Watkins' Q(lambda) by hand, with the
+ * default settings (initial value 20, alpha 0.3, gamma 0.9, lambda 0.9):
+ * the second error reaches the first pair through its trace, SARSA learns
+ * towards the action it chose next and keeps its traces after an
+ * exploratory action, Q(lambda) learns towards the best one and cuts them.
+ */
+public class SarsaLambdaAgentTest extends TestCase
+{
+    private static final boolean[] A = {false, true, false, false, false};
+    private static final boolean[] B = {false, false, false, true, false};
+
+    private static State state(int id)
+    {
+        MarioState state = new MarioState(new Properties());
+        double[] representation = new double[state.getRepresentation().length];
+        representation[0] = id;
+        state.setRepresentation(representation);
+        return state;
+    }
+
+    // s0 -A-> s1 (reward 1) -B-> s2 (reward 4), A chosen in s2 although it is worth less than the rest
+    private static void walk(Stepper agent)
+    {
+        agent.values().put(new StateActionPair(state(2), A), 10.0);
+        agent.step(state(0), A, state(1), B, 1);
+        agent.step(state(1), B, state(2), A, 4);
+    }
+
+    @Test
+    public void testSarsaFollowsTheChosenAction()
+    {
+        SarsaStepper agent = new SarsaStepper();
+        walk(agent);
+        // delta 1 + 0.9*20 - 20 = -1, then 4 + 0.9*10 - 20 = -7 with the first trace at 0.81
+        assertEquals(20 - 0.3 * 7, agent.value(state(1), B), 1e-9);
+        assertEquals(20 - 0.3 - 0.3 * 7 * 0.81, agent.value(state(0), A), 1e-9);
+        assertEquals(2, agent.getTraces().size());
+        assertEquals(0.81 * 0.81, agent.getTraces().getTrace(0), 1e-9);
+        assertEquals(0.81, agent.getTraces().getTrace(1), 1e-9);
+    }
+
+    @Test
+    public void testQLambdaFollowsTheBestActionAndCutsTraces()
+    {
+        QStepper agent = new QStepper();
+        walk(agent);
+        // delta -1 as above, then 4 + 0.9*20 - 20 = 2
+        assertEquals(20 + 0.3 * 2, agent.value(state(1), B), 1e-9);
+        assertEquals(20 - 0.3 + 0.3 * 2 * 0.81, agent.value(state(0), A), 1e-9);
+        assertEquals(0, agent.getTraces().size());
+    }
+
+    @Test
+    public void testResetDropsTraces()
+    {
+        SarsaStepper agent = new SarsaStepper();
+        walk(agent);
+        agent.reset();
+        assertEquals(0, agent.getTraces().size());
+    }
+
+    private interface Stepper
+    {
+        Map<StateActionPair, Double> values();
+
+        void step(State from, boolean[] action, State to, boolean[] nextAction, double reward);
+    }
+
+    private static class SarsaStepper extends SarsaLambdaAgent implements Stepper
+    {
+        public Map<StateActionPair, Double> values()
+        {
+            return qValues;
+        }
+
+        public void step(State from, boolean[] action, State to, boolean[] nextAction, double reward)
+        {
+            oldState = from;
+            returnAction = action;
+            state = to;
+            updateQValues(reward, nextAction);
+        }
+
+        double value(State state, boolean[] action)
+        {
+            return getStateActionValue(new StateActionPair(state, action));
+        }
+    }
+
+    private static class QStepper extends QLambdaAgent implements Stepper
+    {
+        public Map<StateActionPair, Double> values()
+        {
+            return qValues;
+        }
+
+        public void step(State from, boolean[] action, State to, boolean[] nextAction, double reward)
+        {
+            oldState = from;
+            returnAction = action;
+            state = to;
+            updateQValues(reward, nextAction);
+        }
+
+        double value(State state, boolean[] action)
+        {
+            return getStateActionValue(new StateActionPair(state, action));
+        }
+    }
+}
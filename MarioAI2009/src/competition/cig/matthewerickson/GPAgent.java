@@ -11,6 +11,9 @@ public class GPAgent implements Evolvable, Agent {
 	private String name = "GPAgent";
 	GPNode program = new FloatNode();
 	public boolean[] actions = new boolean[Environment.numberOfButtons];
+
+	// static, so that it is not saved with the agent
+	private static boolean compiling = false;
 	
 	public Evolvable copy() {
 		GPAgent copy = new GPAgent();
@@ -36,7 +39,8 @@ public class GPAgent implements Evolvable, Agent {
 
 	public boolean[] getAction(Environment observation) {
 		this.reset();
-		float[] result = program.evaluate(this, observation);
+		GPProgram compiled = compiling ? GPCompiler.programOf(program) : null;
+		float[] result = compiled != null ? compiled.evaluate(this, observation) : program.evaluate(this, observation);
 		
 		//First item in vector is direction
 		if(result[0] > 0){actions[Mario.KEY_RIGHT] = true;}
@@ -66,6 +70,14 @@ public class GPAgent implements Evolvable, Agent {
 		this.name = name;
 	}
 
+	/**
+	 * Evaluates the programs of all agents as bytecode compiled by
+	 * GPCompiler instead of walking the trees. The actions are the same.
+	 */
+	public static void setCompiling(boolean compiling) {
+		GPAgent.compiling = compiling;
+	}
+
 	public GPAgent newCrossbreedWith(GPAgent parent2) {
 		// Pick a random node on each parent and create a
 		// new offspring via crossbreeding
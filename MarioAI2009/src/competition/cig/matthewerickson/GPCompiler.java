@@ -0,0 +1,369 @@
+package competition.cig.matthewerickson;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Turns a program tree into a {@link GPProgram} with the ASM library.
+ *
+ * The generated code does exactly what the interpreter does, in the same
+ * order: the same float operations, the same calls to Math.random, and the
+ * same writes into the FloatNode values that NOT and the masks make through
+ * the aliased arrays. The one liberty it takes is to read each kind of
+ * sensor (nearest enemy, next pit) once per evaluation; they only look at
+ * the observation, so every further reading would give the same numbers. A
+ * compiled program therefore plays bit for bit like its tree. Trees it
+ * cannot promise that for (a node or a value array that appears twice),
+ * that are too big for one method or too small to gain anything are left
+ * to the interpreter.
+ */
+public class GPCompiler implements Opcodes {
+
+	/**
+	 * smaller trees walk about as fast as a new class runs before the JIT has
+	 * compiled it, and most of their episodes are over by then
+	 */
+	private static final int MIN_SIZE = 64;
+	/** trees bigger than this would come close to the 64k limit of a method */
+	private static final int MAX_SIZE = 1000;
+
+	private static final String PROGRAM = "competition/cig/matthewerickson/GPProgram";
+	private static final String NAME = "competition/cig/matthewerickson/GPProgram$Compiled";
+	private static final String NODE = "competition/cig/matthewerickson/GPNode";
+	private static final String AGENT = "competition/cig/matthewerickson/GPAgent";
+	private static final String ENVIRONMENT = "ch/idsia/mario/environments/Environment";
+	private static final String EVALUATE = "(L" + AGENT + ";L" + ENVIRONMENT + ";)[F";
+
+	// local variables of the generated method
+	private static final int AGENT_VAR = 1;
+	private static final int OBSERVATION_VAR = 2;
+	private static final int RESULT_VAR = 3;
+	private static final int CONSTANTS_VAR = 4;
+	private static final int TERMINALS_VAR = 5;
+	private static final int SENSORS_VAR = 6;
+	// every node gets four floats and the array its vector may alias
+	private static final int FRAME = 5;
+
+	// keys are the roots of the trees, which the compiled programs never hold on to;
+	// trees left to the interpreter are kept with a null program
+	private static final Map<GPNode, GPProgram> cache =
+			Collections.synchronizedMap(new WeakHashMap<GPNode, GPProgram>());
+
+	private final List<float[]> constants = new ArrayList<float[]>();
+	private final List<GPNode> terminals = new ArrayList<GPNode>();
+	// the local that holds the reading of each kind of sensor, once taken
+	private final Map<Class<?>, Integer> sensors = new HashMap<Class<?>, Integer>();
+	private int firstVar;
+	private MethodVisitor mv;
+
+	private GPCompiler() {
+	}
+
+	/**
+	 * Returns the compiled program of a tree, compiling it the first time, or
+	 * null when the tree has to be interpreted.
+	 */
+	public static GPProgram programOf(GPNode root) {
+		GPProgram program = cache.get(root);
+		if (program == null && !cache.containsKey(root)) {
+			program = compile(root);
+			cache.put(root, program);
+		}
+		return program;
+	}
+
+	/**
+	 * Compiles a tree, or returns null when it is too small or too big to be
+	 * worth it, or not a proper tree.
+	 */
+	public static GPProgram compile(GPNode root) {
+		int size = root.size();
+		if (size < MIN_SIZE || size > MAX_SIZE || !isTree(root, new IdentityHashMap<Object, Object>())) {
+			return null;
+		}
+		GPCompiler compiler = new GPCompiler();
+		byte[] code = compiler.generate(root);
+		try {
+			Class<?> c = new ProgramLoader(GPCompiler.class.getClassLoader()).define(code);
+			return (GPProgram) c.getConstructor(float[][].class, GPNode[].class).newInstance(
+					compiler.constants.toArray(new float[compiler.constants.size()][]),
+					compiler.terminals.toArray(new GPNode[compiler.terminals.size()]));
+		} catch (LinkageError e) {
+			return null;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	// every node and every FloatNode value has to occur once, or mutations
+	// through one alias would be seen by the other
+	private static boolean isTree(GPNode node, Map<Object, Object> seen) {
+		if (seen.put(node, node) != null) {
+			return false;
+		}
+		if (node instanceof FloatNode && seen.put(((FloatNode) node).value, node) != null) {
+			return false;
+		}
+		for (GPNode child : node.children) {
+			if (child == null || !isTree(child, seen)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// gives every kind of sensor in the tree a local and a node to call
+	private int countSensors(GPNode node) {
+		if (node.isTerminail() && !(node instanceof FloatNode || node instanceof RandomNode
+				|| node instanceof IsOnGroundNode) && !sensors.containsKey(node.getClass())) {
+			sensors.put(node.getClass(), SENSORS_VAR + terminals.size());
+			terminals.add(node);
+		}
+		for (GPNode child : node.children) {
+			countSensors(child);
+		}
+		return terminals.size();
+	}
+
+	// the vector of an IF, NOT or mask may be the value array of a FloatNode
+	private static boolean aliases(GPNode node) {
+		if (node instanceof FloatNode) {
+			return true;
+		}
+		if (node instanceof IfNode) {
+			return aliases(node.children[1]);
+		}
+		if (node instanceof NotNode || node instanceof MaskWNode || node instanceof MaskXNode
+				|| node instanceof MaskYNode || node instanceof MaskZNode) {
+			return aliases(node.children[0]);
+		}
+		return false;
+	}
+
+	private byte[] generate(GPNode root) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_5, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, NAME, null, PROGRAM, null);
+
+		mv = cw.visitMethod(ACC_PUBLIC, "<init>", "([[F[L" + NODE + ";)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitMethodInsn(INVOKESPECIAL, PROGRAM, "<init>", "([[F[L" + NODE + ";)V");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(ACC_PROTECTED, "evaluate", "(L" + AGENT + ";L" + ENVIRONMENT + ";[F)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, PROGRAM, "constants", "[[F");
+		mv.visitVarInsn(ASTORE, CONSTANTS_VAR);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, PROGRAM, "terminals", "[L" + NODE + ";");
+		mv.visitVarInsn(ASTORE, TERMINALS_VAR);
+		firstVar = SENSORS_VAR + countSensors(root);
+		for (int var = SENSORS_VAR; var < firstVar; var++) {
+			mv.visitInsn(ACONST_NULL);
+			mv.visitVarInsn(ASTORE, var);
+		}
+		node(root, firstVar);
+		for (int i = 0; i < 4; i++) {
+			mv.visitVarInsn(ALOAD, RESULT_VAR);
+			push(i);
+			mv.visitVarInsn(FLOAD, firstVar + i);
+			mv.visitInsn(FASTORE);
+		}
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	// leaves the vector of the node in the four floats at var and, when the
+	// node aliases, the array it came from (or null) at var + 4
+	private void node(GPNode node, int var) {
+		if (node instanceof FloatNode) {
+			mv.visitVarInsn(ALOAD, CONSTANTS_VAR);
+			push(constants.size());
+			constants.add(((FloatNode) node).value);
+			mv.visitInsn(AALOAD);
+			mv.visitVarInsn(ASTORE, var + 4);
+			load(var + 4, var);
+		} else if (node instanceof RandomNode) {
+			for (int i = 0; i < 4; i++) {
+				Label negative = new Label();
+				Label done = new Label();
+				random();
+				mv.visitLdcInsn(new Double(0.5));
+				mv.visitInsn(DCMPL);
+				mv.visitJumpInsn(IFLE, negative);
+				random();
+				mv.visitInsn(D2F);
+				mv.visitJumpInsn(GOTO, done);
+				mv.visitLabel(negative);
+				mv.visitLdcInsn(new Float(-1f));
+				random();
+				mv.visitInsn(D2F);
+				mv.visitInsn(FMUL);
+				mv.visitLabel(done);
+				mv.visitVarInsn(FSTORE, var + i);
+			}
+		} else if (node instanceof IsOnGroundNode) {
+			Label air = new Label();
+			Label done = new Label();
+			mv.visitVarInsn(ALOAD, OBSERVATION_VAR);
+			mv.visitMethodInsn(INVOKEINTERFACE, ENVIRONMENT, "isMarioOnGround", "()Z");
+			mv.visitJumpInsn(IFEQ, air);
+			fill(var, 1f);
+			mv.visitJumpInsn(GOTO, done);
+			mv.visitLabel(air);
+			fill(var, -1f);
+			mv.visitLabel(done);
+		} else if (node.isTerminail()) {
+			// the other sensors are called as they are, but only once per
+			// evaluation: they read the observation and return a new array
+			Integer sensor = sensors.get(node.getClass());
+			Label read = new Label();
+			mv.visitVarInsn(ALOAD, sensor);
+			mv.visitJumpInsn(IFNONNULL, read);
+			mv.visitVarInsn(ALOAD, TERMINALS_VAR);
+			push(sensor - SENSORS_VAR);
+			mv.visitInsn(AALOAD);
+			mv.visitVarInsn(ALOAD, AGENT_VAR);
+			mv.visitVarInsn(ALOAD, OBSERVATION_VAR);
+			mv.visitMethodInsn(INVOKEVIRTUAL, NODE, "evaluate", EVALUATE);
+			mv.visitVarInsn(ASTORE, sensor);
+			mv.visitLabel(read);
+			load(sensor, var);
+		} else if (node instanceof AddNode || node instanceof SubNode) {
+			node(node.children[0], var + FRAME);
+			node(node.children[1], var + 2 * FRAME);
+			for (int i = 0; i < 4; i++) {
+				mv.visitVarInsn(FLOAD, var + FRAME + i);
+				mv.visitVarInsn(FLOAD, var + 2 * FRAME + i);
+				mv.visitInsn(node instanceof AddNode ? FADD : FSUB);
+				mv.visitVarInsn(FSTORE, var + i);
+			}
+		} else if (node instanceof IfNode) {
+			Label otherwise = new Label();
+			Label done = new Label();
+			node(node.children[0], var + FRAME);
+			mv.visitVarInsn(FLOAD, var + FRAME);
+			mv.visitInsn(FCONST_0);
+			mv.visitInsn(FCMPL);
+			mv.visitJumpInsn(IFLE, otherwise);
+			node(node.children[1], var);
+			mv.visitJumpInsn(GOTO, done);
+			mv.visitLabel(otherwise);
+			fill(var, 0f);
+			if (aliases(node)) {
+				mv.visitInsn(ACONST_NULL);
+				mv.visitVarInsn(ASTORE, var + 4);
+			}
+			mv.visitLabel(done);
+		} else if (node instanceof NotNode) {
+			node(node.children[0], var);
+			for (int i = 0; i < 4; i++) {
+				mv.visitVarInsn(FLOAD, var + i);
+				mv.visitLdcInsn(new Float(-1f));
+				mv.visitInsn(FMUL);
+				mv.visitVarInsn(FSTORE, var + i);
+			}
+			if (aliases(node)) {
+				writeBack(var, 0, 4);
+			}
+		} else if (node instanceof MaskWNode || node instanceof MaskXNode
+				|| node instanceof MaskYNode || node instanceof MaskZNode) {
+			int masked = node instanceof MaskWNode ? 0 : node instanceof MaskXNode ? 1 : node instanceof MaskYNode ? 2 : 3;
+			node(node.children[0], var);
+			mv.visitInsn(FCONST_0);
+			mv.visitVarInsn(FSTORE, var + masked);
+			if (aliases(node)) {
+				writeBack(var, masked, masked + 1);
+			}
+		} else if (node instanceof ShiftLeftNode || node instanceof ShiftRightNode) {
+			int shift = node instanceof ShiftLeftNode ? 1 : 3;
+			node(node.children[0], var + FRAME);
+			for (int i = 0; i < 4; i++) {
+				mv.visitVarInsn(FLOAD, var + FRAME + (i + shift) % 4);
+				mv.visitVarInsn(FSTORE, var + i);
+			}
+		} else {
+			throw new IllegalArgumentException("Unknown node " + node.getClass().getName());
+		}
+	}
+
+	private void load(int array, int var) {
+		for (int i = 0; i < 4; i++) {
+			mv.visitVarInsn(ALOAD, array);
+			push(i);
+			mv.visitInsn(FALOAD);
+			mv.visitVarInsn(FSTORE, var + i);
+		}
+	}
+
+	// stores the floats from..to back into the array at var + 4, if there is one
+	private void writeBack(int var, int from, int to) {
+		Label fresh = new Label();
+		mv.visitVarInsn(ALOAD, var + 4);
+		mv.visitJumpInsn(IFNULL, fresh);
+		for (int i = from; i < to; i++) {
+			mv.visitVarInsn(ALOAD, var + 4);
+			push(i);
+			mv.visitVarInsn(FLOAD, var + i);
+			mv.visitInsn(FASTORE);
+		}
+		mv.visitLabel(fresh);
+	}
+
+	private void fill(int var, float value) {
+		for (int i = 0; i < 4; i++) {
+			if (value == 0f || value == 1f) {
+				mv.visitInsn(value == 0f ? FCONST_0 : FCONST_1);
+			} else {
+				mv.visitLdcInsn(new Float(value));
+			}
+			mv.visitVarInsn(FSTORE, var + i);
+		}
+	}
+
+	private void random() {
+		mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "random", "()D");
+	}
+
+	private void push(int value) {
+		if (value <= 5) {
+			mv.visitInsn(ICONST_0 + value);
+		} else if (value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(BIPUSH, value);
+		} else {
+			mv.visitIntInsn(SIPUSH, value);
+		}
+	}
+
+	/** one loader per program, so that the class goes away with the individual */
+	private static class ProgramLoader extends ClassLoader {
+
+		ProgramLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(byte[] code) {
+			return defineClass(NAME.replace('/', '.'), code, 0, code.length);
+		}
+	}
+
+}
@@ -2,6 +2,7 @@ package competition.cig.matthewerickson;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import wox.serial.Easy;
@@ -17,7 +18,10 @@ public class GPEvolve {
 
 
     public static void main(String[] args) {
-        EvaluationOptions options = new CmdLineOptions(args);
+        // the programs run compiled unless -interpret is given; the outcome is the same
+        List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+        GPAgent.setCompiling(!arguments.remove("-interpret"));
+        EvaluationOptions options = new CmdLineOptions(arguments.toArray(new String[arguments.size()]));
         options.setNumberOfTrials(1);
         options.setPauseWorld(false);
         List<Agent> bestAgents = new ArrayList<Agent>();
@@ -0,0 +1,35 @@
+package competition.cig.matthewerickson;
+
+import ch.idsia.mario.environments.Environment;
+
+/**
+ * A program tree compiled by {@link GPCompiler}. Subclasses are generated at
+ * run time; each one evaluates its tree in a single method, with the
+ * intermediate vectors kept in local variables instead of new arrays.
+ */
+public abstract class GPProgram {
+
+	/** the value arrays of the FloatNodes, shared with the tree */
+	protected final float[][] constants;
+	/** the sensor nodes the compiled code still calls into */
+	protected final GPNode[] terminals;
+
+	private final float[] result = new float[4];
+
+	protected GPProgram(float[][] constants, GPNode[] terminals) {
+		this.constants = constants;
+		this.terminals = terminals;
+	}
+
+	/**
+	 * Same as evaluating the root of the tree, but the vector returned is
+	 * reused by the next call.
+	 */
+	public float[] evaluate(GPAgent agent, Environment observation) {
+		evaluate(agent, observation, result);
+		return result;
+	}
+
+	protected abstract void evaluate(GPAgent agent, Environment observation, float[] result);
+
+}
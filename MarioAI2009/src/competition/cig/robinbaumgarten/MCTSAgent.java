@@ -0,0 +1,117 @@
+package competition.cig.robinbaumgarten;
+
+import ch.idsia.ai.agents.Agent;
+import ch.idsia.mario.environments.Environment;
+
+import competition.cig.robinbaumgarten.astar.MCTSSimulator;
+import competition.cig.robinbaumgarten.astar.sprites.Mario;
+
+/**
+ * AStarAgent with the A* search replaced by Monte Carlo tree search. It keeps
+ * the simulator in step with the observations the same way, and then searches
+ * until the time budget of the tick is used up.
+ */
+public class MCTSAgent implements Agent
+{
+    protected boolean action[] = new boolean[Environment.numberOfButtons];
+    protected String name = "RobinBaumgarten_MCTSAgent";
+    private MCTSSimulator sim;
+    private final int threads;
+    private int timeBudget = 30; // ms
+    private float lastX = 0;
+    private float lastY = 0;
+
+    public MCTSAgent()
+    {
+        this(1);
+    }
+
+    /**
+     * @param threads number of search trees grown in parallel
+     */
+    public MCTSAgent(int threads)
+    {
+        this.threads = threads;
+    }
+
+    public void reset()
+    {
+        action = new boolean[Environment.numberOfButtons];
+        if (sim != null)
+            sim.shutdown();
+        sim = new MCTSSimulator(threads);
+        sim.timeBudget = timeBudget;
+        lastX = 0;
+        lastY = 0;
+    }
+
+    public boolean[] getAction(Environment observation)
+    {
+        long startTime = System.nanoTime();
+
+        byte[][] scene = observation.getLevelSceneObservationZ(0);
+        float[] enemies = observation.getEnemiesFloatPos();
+
+        sim.advanceStep(action);
+
+        float[] f = observation.getMarioFloatPos();
+        if (sim.levelScene.mario.x != f[0] || sim.levelScene.mario.y != f[1])
+        {
+            if (f[0] == lastX && f[1] == lastY)
+            {
+                // the environment did not move Mario; run right as AStarAgent does
+                boolean[] ac = new boolean[5];
+                ac[Mario.KEY_RIGHT] = true;
+                ac[Mario.KEY_SPEED] = true;
+                return ac;
+            }
+            sim.levelScene.mario.x = f[0];
+            sim.levelScene.mario.xa = (f[0] - lastX) *0.89f;
+            if (Math.abs(sim.levelScene.mario.y - f[1]) > 0.1f)
+                sim.levelScene.mario.ya = (f[1] - lastY) * 0.85f;
+            sim.levelScene.mario.y = f[1];
+        }
+        sim.setLevelPart(scene, enemies);
+
+        lastX = f[0];
+        lastY = f[1];
+
+        action = sim.optimise(startTime + sim.timeBudget * 1000000L);
+        return action;
+    }
+
+    /**
+     * @param timeBudget milliseconds per tick, including keeping the simulator in step
+     */
+    public void setTimeBudget(int timeBudget)
+    {
+        this.timeBudget = timeBudget;
+        if (sim != null)
+            sim.timeBudget = timeBudget;
+    }
+
+    public int getTimeBudget()
+    {
+        return timeBudget;
+    }
+
+    public MCTSSimulator getSimulator()
+    {
+        return sim;
+    }
+
+    public AGENT_TYPE getType()
+    {
+        return Agent.AGENT_TYPE.AI;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName(String Name)
+    {
+        this.name = Name;
+    }
+}
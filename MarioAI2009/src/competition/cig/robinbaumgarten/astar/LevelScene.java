@@ -73,6 +73,12 @@ public class LevelScene implements SpriteContext, Cloneable
         	}
         }
         c.sprites = clone;
+        // only filled during a tick; a copy must not share them, or two
+        // copies could not be ticked by different threads
+        c.spritesToAdd = new ArrayList<Sprite>();
+        c.spritesToRemove = new ArrayList<Sprite>();
+        c.shellsToCheck = new ArrayList<Shell>();
+        c.fireballsToCheck = new ArrayList<Fireball>();
     	return c;
     }
 
@@ -295,6 +301,11 @@ public class LevelScene implements SpriteContext, Cloneable
             level.tick();
             
             for (int x = (int) xCam / 16 - 1; x <= (int) (xCam + 320) / 16 + 1; x++)
+            {
+                // a cannon fires every 100 ticks, one column at a time; the
+                // other columns need not be looked at
+                if ((tick - x * 2) % 100 != 0)
+                    continue;
                 for (int y = (int) yCam / 16 - 1; y <= (int) (yCam + 240) / 16 + 1; y++)
                 {
                     int dir = 0;
@@ -309,14 +320,12 @@ public class LevelScene implements SpriteContext, Cloneable
                         {
                             if ((b % 16) / 4 == 3 && b / 16 == 0)
                             {
-                                if ((tick - x * 2) % 100 == 0)
-                                {
-                                    addSprite(new BulletBill(this, x * 16 + 8 + dir * 8, y * 16 + 15, dir));
-                                }
+                                addSprite(new BulletBill(this, x * 16 + 8 + dir * 8, y * 16 + 15, dir));
                             }
                         }
                     }
                 }
+            }
 
             for (Sprite sprite : sprites)
             {
@@ -0,0 +1,430 @@
+package competition.cig.robinbaumgarten.astar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import competition.cig.robinbaumgarten.astar.level.Level;
+import competition.cig.robinbaumgarten.astar.sprites.Mario;
+
+/**
+ * Anytime Monte Carlo tree search (UCT) over the same simulator as AStarSimulator.
+ *
+ * An edge of the tree holds one of the A* actions for a few ticks. The tree is
+ * open loop: nodes keep only statistics, and every iteration simulates its path
+ * again from a copy of the root scene, so the tree stays usable when the
+ * observed scene differs from the predicted one. Search stops at the deadline,
+ * whenever that is, and the most visited action is taken. The subtree below
+ * that action becomes the next root, so the work of earlier ticks is kept.
+ *
+ * With more than one thread every thread grows a tree of its own (root
+ * parallelism) from its own copy of the scene, and their root statistics are
+ * added up to choose the action.
+ */
+public class MCTSSimulator
+{
+    // right first: it is taken when there was no time to look at anything
+    private static final boolean[][] ACTIONS = {
+        createAction(false, true, false, false, true),
+        createAction(false, true, false, true, true),
+        createAction(false, true, false, false, false),
+        createAction(false, true, false, true, false),
+        createAction(false, false, false, true, false),
+        createAction(false, false, false, true, true),
+        createAction(true, false, false, false, false),
+        createAction(true, false, false, true, false),
+        createAction(true, false, false, false, true),
+        createAction(true, false, false, true, true),
+    };
+    // actions the default policy picks from; rollouts that walk left say little
+    private static final int ROLLOUT_ACTIONS = 6;
+    // the default policy keeps an action with this probability, so that it can
+    // jump as high as a held jump key does
+    private static final double rolloutPersistence = 0.75;
+    // weight of the best reward seen below a node against the mean reward
+    private static final double maxWeight = 0.25;
+
+    private static final float maxMarioSpeed = 10.9090909f;
+    private static final double explorationConstant = 1 / Math.sqrt(2);
+
+    public LevelScene levelScene;
+
+    public int timeBudget = 30; // ms
+    public int repetitions = 2; // ticks an action is held
+    public int horizon = 10; // actions simulated per iteration, tree and rollout together
+
+    private final SearchTree[] trees;
+    private ExecutorService executor;
+
+    private int chosenAction = 0;
+    private int ticksLeft = 0;
+
+    private static class Node
+    {
+        final Node[] children = new Node[ACTIONS.length];
+        int visits = 0;
+        double totalReward = 0;
+        double maxReward = 0;
+
+        double value()
+        {
+            return maxWeight * maxReward + (1 - maxWeight) * totalReward / visits;
+        }
+    }
+
+    private class SearchTree implements Runnable
+    {
+        private Node root = new Node();
+        private final Random random;
+        private LevelScene rootScene;
+        private long deadline;
+        private final Node[] path = new Node[64];
+        int iterations = 0;
+
+        SearchTree(long seed)
+        {
+            random = new Random(seed);
+        }
+
+        void prepare(LevelScene scene, long deadline)
+        {
+            this.rootScene = scene;
+            this.deadline = deadline;
+            this.iterations = 0;
+        }
+
+        public void run()
+        {
+            while (System.nanoTime() < deadline)
+            {
+                iterate();
+                iterations++;
+            }
+            rootScene = null;
+        }
+
+        void iterate()
+        {
+            LevelScene scene = copy(rootScene);
+            float startX = scene.mario.x;
+            int startDamage = getMarioDamage(scene);
+            int depth = Math.min(horizon, path.length - 1);
+
+            // selection and expansion
+            Node node = root;
+            int length = 0;
+            path[length++] = node;
+            int steps = 0;
+            boolean over = false;
+            while (steps < depth && !over)
+            {
+                int action = select(node);
+                Node child = node.children[action];
+                boolean expanded = child == null;
+                if (expanded)
+                {
+                    child = new Node();
+                    node.children[action] = child;
+                }
+                over = simulate(scene, action, startDamage);
+                steps++;
+                node = child;
+                path[length++] = node;
+                if (expanded)
+                    break;
+            }
+
+            // rollout
+            int rolloutAction = random.nextInt(ROLLOUT_ACTIONS);
+            while (steps < depth && !over)
+            {
+                if (random.nextDouble() >= rolloutPersistence)
+                    rolloutAction = random.nextInt(ROLLOUT_ACTIONS);
+                over = simulate(scene, rolloutAction, startDamage);
+                steps++;
+            }
+
+            // hurt or dead is worth nothing, winning everything, and otherwise
+            // the distance covered relative to running at full speed
+            double reward = 0;
+            if (getMarioDamage(scene) > startDamage || scene.mario.getStatus() == Mario.STATUS_DEAD)
+                reward = 0;
+            else if (scene.mario.getStatus() == Mario.STATUS_WIN)
+                reward = 1;
+            else
+            {
+                float progress = (scene.mario.x - startX) / (maxMarioSpeed * steps * repetitions);
+                reward = 0.5 + 0.5 * Math.max(-1, Math.min(1, progress));
+            }
+            for (int i = 0; i < length; i++)
+            {
+                path[i].visits++;
+                path[i].totalReward += reward;
+                path[i].maxReward = Math.max(path[i].maxReward, reward);
+                path[i] = null;
+            }
+        }
+
+        private int select(Node node)
+        {
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double logVisits = Math.log(Math.max(1, node.visits));
+            for (int a = 0; a < ACTIONS.length; a++)
+            {
+                Node child = node.children[a];
+                if (child == null || child.visits == 0)
+                    return a;
+                double value = child.value()
+                    + explorationConstant * Math.sqrt(logVisits / child.visits);
+                if (value > bestValue)
+                {
+                    bestValue = value;
+                    best = a;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * @return whether the iteration is over: Mario got hurt, died or won
+         */
+        private boolean simulate(LevelScene scene, int action, int startDamage)
+        {
+            for (int i = 0; i < repetitions; i++)
+            {
+                advanceStep(scene, ACTIONS[action]);
+                if (getMarioDamage(scene) > startDamage || scene.mario.getStatus() != Mario.STATUS_RUNNING)
+                    return true;
+            }
+            return false;
+        }
+
+        void advanceRoot(int action)
+        {
+            Node child = root.children[action];
+            root = child != null ? child : new Node();
+        }
+    }
+
+    public MCTSSimulator()
+    {
+        this(1);
+    }
+
+    /**
+     * @param threads number of trees grown in parallel
+     */
+    public MCTSSimulator(int threads)
+    {
+        if (threads < 1)
+            throw new IllegalArgumentException("Need at least one thread");
+        trees = new SearchTree[threads];
+        for (int i = 0; i < threads; i++)
+            trees[i] = new SearchTree(i);
+        initialiseSimulator();
+    }
+
+    public void initialiseSimulator()
+    {
+        levelScene = new LevelScene();
+        levelScene.init();
+        levelScene.level = new Level(500,15);
+        // the trees tick their copies of the scene independently
+        levelScene.level.setCopyOnWrite(true);
+    }
+
+    public void setLevelPart(byte[][] levelPart, float[] enemies)
+    {
+        levelScene.setLevelScene(levelPart);
+        levelScene.setEnemies(enemies);
+    }
+
+    public LevelScene backupState()
+    {
+        return copy(levelScene);
+    }
+
+    public void advanceStep(boolean[] action)
+    {
+        advanceStep(levelScene, action);
+    }
+
+    private static void advanceStep(LevelScene scene, boolean[] action)
+    {
+        scene.mario.setKeys(action);
+        scene.tick();
+    }
+
+    private static LevelScene copy(LevelScene scene)
+    {
+        try
+        {
+            return (LevelScene) scene.clone();
+        } catch (CloneNotSupportedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // falling into a gap already counts as damage, as in AStarSimulator. But
+    // setLevelPart takes steps down for gaps too, so only below the top of the
+    // lowest row, where no ground can be, is Mario taken to fall
+    private static int getMarioDamage(LevelScene scene)
+    {
+        if (scene.mario.y > (scene.level.height - 1) * 16)
+            return scene.mario.damage + 5;
+        return scene.mario.damage;
+    }
+
+    /**
+     * Searches until the deadline and returns the action for this tick. An
+     * action is held for 'repetitions' ticks; while it is held, the search is
+     * for the scene in which it will end.
+     * @param deadline in System.nanoTime()
+     */
+    public boolean[] optimise(long deadline)
+    {
+        LevelScene root = backupState();
+        for (int i = 0; i < ticksLeft; i++)
+            advanceStep(root, ACTIONS[chosenAction]);
+        search(root, deadline);
+
+        if (ticksLeft == 0)
+        {
+            chosenAction = bestAction();
+            for (SearchTree tree : trees)
+                tree.advanceRoot(chosenAction);
+            ticksLeft = repetitions;
+        }
+        ticksLeft--;
+        if (levelScene.verbose > 1) System.out.println("MCTS iterations: " + getIterations()
+                + " action: " + printAction(ACTIONS[chosenAction]));
+        return ACTIONS[chosenAction].clone();
+    }
+
+    private void search(LevelScene root, long deadline)
+    {
+        // every tree simulates from a copy of its own
+        for (SearchTree tree : trees)
+            tree.prepare(copy(root), deadline);
+        if (trees.length == 1)
+        {
+            trees[0].run();
+            return;
+        }
+        if (executor == null)
+            executor = Executors.newFixedThreadPool(trees.length - 1, new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "MCTSSimulator");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        List<Future<?>> futures = new ArrayList<Future<?>>(trees.length - 1);
+        for (int i = 1; i < trees.length; i++)
+            futures.add(executor.submit(trees[i]));
+        trees[0].run();
+        try
+        {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the action visited most over all trees, the better one of equally
+     * visited actions, and running right if nothing was visited yet
+     */
+    private int bestAction()
+    {
+        int best = 0;
+        long bestVisits = 0;
+        double bestReward = 0;
+        for (int a = 0; a < ACTIONS.length; a++)
+        {
+            long visits = 0;
+            double reward = 0;
+            for (SearchTree tree : trees)
+            {
+                Node child = tree.root.children[a];
+                if (child != null)
+                {
+                    visits += child.visits;
+                    reward += child.totalReward;
+                }
+            }
+            if (visits > bestVisits || (visits == bestVisits && visits > 0 && reward > bestReward))
+            {
+                best = a;
+                bestVisits = visits;
+                bestReward = reward;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return number of iterations of the last search, over all trees
+     */
+    public int getIterations()
+    {
+        int iterations = 0;
+        for (SearchTree tree : trees)
+            iterations += tree.iterations;
+        return iterations;
+    }
+
+    public int getThreads()
+    {
+        return trees.length;
+    }
+
+    /**
+     * Stops the threads of a parallel search; the simulator can still be used
+     * and starts them again when needed.
+     */
+    public void shutdown()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public String printAction(boolean[] action)
+    {
+        String s = "";
+        if (action[Mario.KEY_RIGHT]) s+= "Forward ";
+        if (action[Mario.KEY_LEFT]) s+= "Backward ";
+        if (action[Mario.KEY_SPEED]) s+= "Speed ";
+        if (action[Mario.KEY_JUMP]) s+= "Jump ";
+        if (action[Mario.KEY_DOWN]) s+= "Duck";
+        return s;
+    }
+
+    private static boolean[] createAction(boolean left, boolean right, boolean down, boolean jump, boolean speed)
+    {
+        boolean[] action = new boolean[5];
+        action[Mario.KEY_DOWN] = down;
+        action[Mario.KEY_JUMP] = jump;
+        action[Mario.KEY_LEFT] = left;
+        action[Mario.KEY_RIGHT] = right;
+        action[Mario.KEY_SPEED] = speed;
+        return action;
+    }
+}
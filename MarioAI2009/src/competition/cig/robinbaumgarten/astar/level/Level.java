@@ -36,6 +36,11 @@ public class Level implements Cloneable
     public int maxDiscoveredWidth = 0;
     
     public byte[][] map;
+    // clones share map, so a block set in one is seen by all of them, which
+    // AStarSimulator relies on. With copyOnWrite, as MCTSSimulator needs for
+    // scenes it ticks independently, a clone copies map before writing to it
+    private boolean copyOnWrite = false;
+    private boolean mapShared = false;
     
     public boolean[] isGap;
     public int[] gapHeight;
@@ -58,6 +63,11 @@ public class Level implements Cloneable
     	for(int[] item: modifiedMapTiles) 
     		clone.add((int[]) item.clone());
     	l.modifiedMapTiles = clone;
+    	if (copyOnWrite)
+    	{
+    		mapShared = true;
+    		l.mapShared = true;
+    	}
     	return l;
     }
     
@@ -83,6 +93,14 @@ public class Level implements Cloneable
         //observation = new byte[width][height];
     }
 
+    /**
+     * Lets this level and its clones keep map to themselves; see map.
+     */
+    public void setCopyOnWrite(boolean copyOnWrite)
+    {
+    	this.copyOnWrite = copyOnWrite;
+    }
+
     public static void loadBehaviors()
     {
         //dis.readFully(Level.TILE_BEHAVIORS);
@@ -388,6 +406,14 @@ public class Level implements Cloneable
         	modifiedMapTiles.add(modified);
         }
         else {
+        	if (mapShared && map[x][y] != b)
+        	{
+        		byte[][] copy = new byte[map.length][];
+        		for (int i = 0; i < map.length; i++)
+        			copy[i] = map[i].clone();
+        		map = copy;
+        		mapShared = false;
+        	}
         	map[x][y] = b;
         	System.out.printf("%d, %d is added as usual \n", x, y);
         }
@@ -107,11 +107,11 @@ public class Enemy extends Sprite implements Cloneable
 
                         if (type == Enemy.ENEMY_RED_KOOPA)
                         {
-                            spriteContext.addSprite(new Shell(world, x, y, 0));
+                            world.addSprite(new Shell(world, x, y, 0));
                         }
                         else if (type == Enemy.ENEMY_GREEN_KOOPA)
                         {
-                            spriteContext.addSprite(new Shell(world, x, y, 1));
+                            world.addSprite(new Shell(world, x, y, 1));
                         }
                     }
                 }
@@ -137,7 +137,7 @@ public class Enemy extends Sprite implements Cloneable
                 {
                     //world.addSprite(new Sparkle((int) (x + Math.random() * 16 - 8) + 4, (int) (y - Math.random() * 8) + 4, (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 1, 5));
                 }
-                spriteContext.removeSprite(this);
+                world.removeSprite(this);
             }
 
             if (flyDeath)